@@ -0,0 +1,49 @@
+package com.chattrix.api.config;
+
+import com.chattrix.api.services.common.AvatarJobQueue;
+import com.chattrix.api.services.common.CloudinaryAvatarJobQueue;
+import com.chattrix.api.services.common.LocalAvatarJobQueue;
+import jakarta.annotation.PostConstruct;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.inject.Instance;
+import jakarta.enterprise.inject.Produces;
+import jakarta.inject.Inject;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+@ApplicationScoped
+@Getter
+@Slf4j
+public class AvatarConfig {
+
+    @Inject
+    private AppConfig appConfig;
+
+    private String queueType;
+    private int uploadConcurrency;
+    private int queueCapacity;
+    private int maxAttempts;
+
+    @PostConstruct
+    public void init() {
+        queueType = appConfig.get("avatar.queue");
+        if (queueType == null || queueType.isEmpty()) {
+            queueType = "cloudinary";
+        }
+        uploadConcurrency = appConfig.getInt("avatar.upload.concurrency", 2);
+        queueCapacity = appConfig.getInt("avatar.queue.capacity", 1000);
+        maxAttempts = appConfig.getInt("avatar.upload.max.attempts", 3);
+
+        log.info("AvatarConfig initialized successfully");
+        log.info("Avatar Queue: {}", queueType);
+        log.info("Upload Concurrency: {}, Queue Capacity: {}, Max Attempts: {}",
+                uploadConcurrency, queueCapacity, maxAttempts);
+    }
+
+    @Produces
+    @ApplicationScoped
+    public AvatarJobQueue avatarJobQueue(Instance<CloudinaryAvatarJobQueue> cloudinaryQueue,
+                                         Instance<LocalAvatarJobQueue> localQueue) {
+        return "local".equalsIgnoreCase(queueType) ? localQueue.get() : cloudinaryQueue.get();
+    }
+}
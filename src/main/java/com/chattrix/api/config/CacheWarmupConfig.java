@@ -0,0 +1,43 @@
+package com.chattrix.api.config;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+@ApplicationScoped
+@Getter
+@Slf4j
+public class CacheWarmupConfig {
+
+    @Inject
+    private AppConfig appConfig;
+
+    private boolean enabled;
+    private int userLimit;
+    private int listViewUserLimit;
+    private int listViewPageSize;
+    private int conversationLimit;
+    private int threads;
+    private int budgetSeconds;
+    private int readinessTimeoutSeconds;
+
+    @PostConstruct
+    public void init() {
+        enabled = appConfig.getBoolean("cache.warmup.enabled", true);
+        userLimit = appConfig.getInt("cache.warmup.users", 5000);
+        listViewUserLimit = appConfig.getInt("cache.warmup.list.users", 500);
+        listViewPageSize = appConfig.getInt("cache.warmup.list.page.size", 20);
+        conversationLimit = appConfig.getInt("cache.warmup.conversations", 2000);
+        threads = Math.max(1, appConfig.getInt("cache.warmup.threads", 4));
+        budgetSeconds = appConfig.getInt("cache.warmup.budget.seconds", 60);
+        readinessTimeoutSeconds = appConfig.getInt("cache.warmup.readiness.timeout.seconds", 10);
+
+        log.info("CacheWarmupConfig initialized successfully");
+        log.info("Warm-up enabled: {}, users {}, list views {} (page {}), conversations {}",
+                enabled, userLimit, listViewUserLimit, listViewPageSize, conversationLimit);
+        log.info("Warm-up threads {}, budget {}s, readiness timeout {}s",
+                threads, budgetSeconds, readinessTimeoutSeconds);
+    }
+}
@@ -0,0 +1,37 @@
+package com.chattrix.api.config;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Arrays;
+import java.util.List;
+
+@ApplicationScoped
+@Getter
+@Slf4j
+public class ClientIpConfig {
+
+    @Inject
+    private AppConfig appConfig;
+
+    // Addresses or CIDR ranges of reverse proxies whose X-Forwarded-For is trusted
+    private List<String> trustedProxies;
+
+    @PostConstruct
+    public void init() {
+        String proxies = appConfig.get("http.trusted.proxies");
+        if (proxies == null) {
+            proxies = "127.0.0.1,::1";
+        }
+        trustedProxies = Arrays.stream(proxies.split(","))
+                .map(String::trim)
+                .filter(proxy -> !proxy.isEmpty() && !"none".equalsIgnoreCase(proxy))
+                .toList();
+
+        log.info("ClientIpConfig initialized successfully");
+        log.info("Trusted Proxies: {}", trustedProxies.isEmpty() ? "none (X-Forwarded-For ignored)" : trustedProxies);
+    }
+}
@@ -11,6 +11,9 @@ import lombok.extern.slf4j.Slf4j;
 @Slf4j
 public class MailConfig {
 
+    // EmailOutboxDispatcher sends for the lease minus a margin for the message in flight
+    private static final int MIN_OUTBOX_LEASE_SECONDS = 120;
+
     @Inject
     private AppConfig appConfig;
 
@@ -22,6 +25,11 @@ public class MailConfig {
     private String password;
     private String fromAddress;
     private String fromName;
+    private int outboxBatchSize;
+    private int outboxWorkers;
+    private int outboxMaxAttempts;
+    private int outboxBackoffBaseSeconds;
+    private int outboxLeaseSeconds;
 
     @PostConstruct
     public void init() {
@@ -33,6 +41,15 @@ public class MailConfig {
         password = appConfig.get("mail.password");
         fromAddress = appConfig.get("mail.from");
         fromName = appConfig.get("mail.from.name");
+        outboxBatchSize = appConfig.getInt("mail.outbox.batch.size", 50);
+        outboxWorkers = appConfig.getInt("mail.outbox.workers", 2);
+        outboxMaxAttempts = appConfig.getInt("mail.outbox.max.attempts", 5);
+        outboxBackoffBaseSeconds = appConfig.getInt("mail.outbox.backoff.base.seconds", 30);
+        outboxLeaseSeconds = appConfig.getInt("mail.outbox.lease.seconds", 180);
+        if (outboxLeaseSeconds < MIN_OUTBOX_LEASE_SECONDS) {
+            log.warn("mail.outbox.lease.seconds={} too short, using {}", outboxLeaseSeconds, MIN_OUTBOX_LEASE_SECONDS);
+            outboxLeaseSeconds = MIN_OUTBOX_LEASE_SECONDS;
+        }
         log.info("MailConfig initialized successfully");
         log.info("SMTP Host: {}", smtpHost);
         log.info("SMTP Port: {}", smtpPort);
@@ -41,11 +58,22 @@ public class MailConfig {
         log.info("Username: {}", username != null ? AppConfig.maskSensitive(username) : "not set");
         log.info("From Address: {}", fromAddress);
         log.info("From Name: {}", fromName);
+        log.info("Outbox: batch {}, workers {}, max attempts {}, backoff base {}s, lease {}s",
+                outboxBatchSize, outboxWorkers, outboxMaxAttempts, outboxBackoffBaseSeconds, outboxLeaseSeconds);
     }
 
+    /**
+     * SMTP is usable when host is set and, if auth is enabled, credentials are present.
+     * Auth disabled allows a local SMTP stand-in (e.g. Mailpit) without credentials.
+     */
     public boolean isConfigured() {
-        return smtpHost != null && !smtpHost.isEmpty()
-                && username != null && !username.isEmpty()
+        if (smtpHost == null || smtpHost.isEmpty()) {
+            return false;
+        }
+        if (!smtpAuth) {
+            return true;
+        }
+        return username != null && !username.isEmpty()
                 && password != null && !password.isEmpty();
     }
 }
\ No newline at end of file
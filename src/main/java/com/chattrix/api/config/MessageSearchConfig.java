@@ -0,0 +1,41 @@
+package com.chattrix.api.config;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+@ApplicationScoped
+@Getter
+@Slf4j
+public class MessageSearchConfig {
+
+    @Inject
+    private AppConfig appConfig;
+
+    private boolean fullTextEnabled;
+    private int backfillChunkSize;
+    private boolean embeddedEnabled;
+    private String embeddedDirectory;
+    private int embeddedFlushPostings;
+    private int embeddedMaxSegments;
+
+    @PostConstruct
+    public void init() {
+        fullTextEnabled = appConfig.getBoolean("search.messages.fulltext.enabled", true);
+        backfillChunkSize = Math.max(1, appConfig.getInt("search.messages.backfill.chunk.size", 5000));
+
+        embeddedEnabled = appConfig.getBoolean("search.messages.embedded.enabled", false);
+        String directory = appConfig.get("search.messages.embedded.dir");
+        embeddedDirectory = directory != null ? directory
+                : System.getProperty("jboss.server.data.dir", System.getProperty("java.io.tmpdir")) + "/message-index";
+        embeddedFlushPostings = Math.max(1, appConfig.getInt("search.messages.embedded.flush.postings", 200_000));
+        embeddedMaxSegments = Math.max(2, appConfig.getInt("search.messages.embedded.max.segments", 10));
+
+        log.info("MessageSearchConfig initialized successfully");
+        log.info("Full-text message search enabled: {}, backfill chunk {}", fullTextEnabled, backfillChunkSize);
+        log.info("Embedded message index enabled: {}, directory {}, flush at {} postings, max {} segments",
+                embeddedEnabled, embeddedDirectory, embeddedFlushPostings, embeddedMaxSegments);
+    }
+}
@@ -0,0 +1,58 @@
+package com.chattrix.api.config;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+@ApplicationScoped
+@Getter
+@Slf4j
+public class PasswordHashingConfig {
+
+    @Inject
+    private AppConfig appConfig;
+
+    private int bcryptCost;
+    private int poolSize;
+    private int queueCapacity;
+    private long queueTimeoutMillis;
+    private long hashTimeoutMillis;
+    private int freeFailedAttempts;
+    private int backoffBaseSeconds;
+    private int backoffMaxSeconds;
+    private int accountFreeFailedAttempts;
+    private int accountBackoffMaxSeconds;
+    private int maxAttemptsPerIp;
+    private int loginWindowSeconds;
+
+    @PostConstruct
+    public void init() {
+        bcryptCost = appConfig.getInt("auth.bcrypt.cost", 10);
+        poolSize = appConfig.getInt("auth.bcrypt.pool.size", Math.max(2, Runtime.getRuntime().availableProcessors() / 2));
+        queueCapacity = appConfig.getInt("auth.bcrypt.queue.capacity", 64);
+        queueTimeoutMillis = appConfig.getLong("auth.bcrypt.queue.timeout.ms", 2000);
+        hashTimeoutMillis = appConfig.getLong("auth.bcrypt.hash.timeout.ms", 3000);
+        freeFailedAttempts = appConfig.getInt("auth.login.free.failed.attempts", 5);
+        backoffBaseSeconds = appConfig.getInt("auth.login.backoff.base.seconds", 1);
+        backoffMaxSeconds = appConfig.getInt("auth.login.backoff.max.seconds", 300);
+        accountFreeFailedAttempts = appConfig.getInt("auth.login.account.free.failed.attempts", 20);
+        accountBackoffMaxSeconds = appConfig.getInt("auth.login.account.backoff.max.seconds", 30);
+        maxAttemptsPerIp = appConfig.getInt("auth.login.max.attempts.per.ip", 30);
+        loginWindowSeconds = appConfig.getInt("auth.login.window.seconds", 300);
+
+        if (bcryptCost < 4 || bcryptCost > 31) {
+            log.warn("Invalid BCrypt cost {}. Using default: 10", bcryptCost);
+            bcryptCost = 10;
+        }
+
+        log.info("PasswordHashingConfig initialized successfully");
+        log.info("BCrypt Cost: {}", bcryptCost);
+        log.info("Hashing Pool: {} threads, queue capacity {}", poolSize, queueCapacity);
+        log.info("Queue Timeout: {} ms, Hash Timeout: {} ms", queueTimeoutMillis, hashTimeoutMillis);
+        log.info("Login Throttle: backoff after {} failures/account+IP ({}s doubling up to {}s), after {} failures/account (up to {}s), {} attempts/IP per {} seconds",
+                freeFailedAttempts, backoffBaseSeconds, backoffMaxSeconds, accountFreeFailedAttempts,
+                accountBackoffMaxSeconds, maxAttemptsPerIp, loginWindowSeconds);
+    }
+}
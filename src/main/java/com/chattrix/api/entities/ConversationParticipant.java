@@ -13,9 +13,17 @@ import java.time.Instant;
 @Entity
 @Table(name = "conversation_participants", uniqueConstraints = {
         @UniqueConstraint(columnNames = {"user_id", "conversation_id"})
+}, indexes = {
+        // Conversation list: filter and the whole sort key in index order, so pages are read straight off the index
+        @Index(name = "idx_cp_user_activity",
+                columnList = "user_id, archived, pinned DESC, pin_order, last_activity_at DESC, conversation_id DESC"),
+        @Index(name = "idx_cp_conversation", columnList = "conversation_id")
 })
 public class ConversationParticipant {
 
+    // Stored pin_order of unpinned rows, so the list sort needs no COALESCE (reads as null)
+    public static final int UNPINNED_ORDER = Integer.MAX_VALUE;
+
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
@@ -67,6 +75,8 @@ public class ConversationParticipant {
     @Column(name = "pinned", nullable = false)
     private boolean pinned;
 
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
     @Column(name = "pin_order")
     private Integer pinOrder;
 
@@ -82,6 +92,10 @@ public class ConversationParticipant {
     @Column(name = "notifications_enabled", nullable = false)
     private boolean notificationsEnabled;
 
+    // Last message activity in the conversation, copied from conversations.updated_at by the activity flush
+    @Column(name = "last_activity_at")
+    private Instant lastActivityAt;
+
     @PrePersist
     protected void onPrePersist() {
         if (this.joinedAt == null) {
@@ -98,11 +112,28 @@ public class ConversationParticipant {
         if (!pinned && pinnedAt == null && pinOrder == null) {
             this.pinned = false;
         }
+        if (pinOrder == null) {
+            this.pinOrder = UNPINNED_ORDER;
+        }
+        if (this.lastActivityAt == null) {
+            this.lastActivityAt = this.joinedAt;
+        }
         if (!notificationsEnabled && this.id == null) {
             this.notificationsEnabled = true;
         }
     }
 
+    /**
+     * Position among the user's pinned conversations, null if not pinned
+     */
+    public Integer getPinOrder() {
+        return pinOrder == null || pinOrder == UNPINNED_ORDER ? null : pinOrder;
+    }
+
+    public void setPinOrder(Integer pinOrder) {
+        this.pinOrder = pinOrder != null ? pinOrder : UNPINNED_ORDER;
+    }
+
     /**
      * Check if member is currently muted
      */
@@ -0,0 +1,5 @@
+package com.chattrix.api.enums;
+
+public enum EmailOutboxStatus {
+    PENDING, SENDING, SENT, FAILED
+}
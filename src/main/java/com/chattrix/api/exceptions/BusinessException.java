@@ -52,5 +52,9 @@ public class BusinessException extends RuntimeException {
     public static BusinessException internalError(String message, String code) {
         return new BusinessException(message, code, 500);
     }
+
+    public static BusinessException serviceUnavailable(String message, String code) {
+        return new BusinessException(message, code, 503);
+    }
 }
 
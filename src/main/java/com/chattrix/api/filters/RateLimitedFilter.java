@@ -2,8 +2,10 @@ package com.chattrix.api.filters;
 
 import com.chattrix.api.config.JacksonConfig;
 import com.chattrix.api.responses.ApiResponse;
+import com.chattrix.api.utils.ClientIpResolver;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import jakarta.annotation.Priority;
+import jakarta.inject.Inject;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.ws.rs.Priorities;
 import jakarta.ws.rs.container.ContainerRequestContext;
@@ -32,6 +34,8 @@ public class RateLimitedFilter implements ContainerRequestFilter {
     private ResourceInfo resourceInfo;
     @Context
     private HttpServletRequest request;
+    @Inject
+    private ClientIpResolver clientIpResolver;
 
     @Override
     public void filter(ContainerRequestContext requestContext) throws IOException {
@@ -85,10 +89,6 @@ public class RateLimitedFilter implements ContainerRequestFilter {
     }
 
     private String getClientIp() {
-        String xfHeader = request.getHeader("X-Forwarded-For");
-        if (xfHeader == null || xfHeader.isEmpty() || "unknown".equalsIgnoreCase(xfHeader)) {
-            return request.getRemoteAddr();
-        }
-        return xfHeader.split(",")[0].trim();
+        return clientIpResolver.resolve(request);
     }
 }
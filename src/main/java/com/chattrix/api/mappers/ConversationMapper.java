@@ -93,7 +93,7 @@ public interface ConversationMapper {
     @Mapping(target = "fullName", source = "user.fullName")
     @Mapping(target = "avatarUrl", source = "user.avatarUrl")
     @Mapping(target = "lastSeen", source = "user.lastSeen")
-    @Mapping(target = "online", ignore = true) // Online status from cache
+    @Mapping(target = "online", ignore = true) // Filled by PresenceQueryService
     public abstract ConversationResponse.ParticipantResponse toParticipantResponse(ConversationParticipant participant);
 
     @Mapping(target = "senderId", source = "sender.id")
@@ -161,4 +161,18 @@ public class ContactRepository {
                 .getSingleResult();
         return count > 0;
     }
+
+    /**
+     * IDs of users connected to this user by an ACCEPTED contact in either direction
+     */
+    public List<Long> findConnectedUserIds(Long userId) {
+        return em.createQuery(
+                        "SELECT DISTINCT CASE WHEN c.user.id = :userId THEN c.contactUser.id ELSE c.user.id END " +
+                                "FROM Contact c " +
+                                "WHERE (c.user.id = :userId OR c.contactUser.id = :userId) " +
+                                "AND c.status = 'ACCEPTED'",
+                        Long.class)
+                .setParameter("userId", userId)
+                .getResultList();
+    }
 }
@@ -6,11 +6,17 @@ import jakarta.persistence.EntityManager;
 import jakarta.persistence.NoResultException;
 import jakarta.persistence.PersistenceContext;
 import jakarta.transaction.Transactional;
+import org.hibernate.Session;
 
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 @ApplicationScoped
@@ -134,19 +140,99 @@ public class ConversationParticipantRepository {
     }
     
     /**
-     * Set unread count to specific value (used by UnreadCountSyncService)
-     * This is the Write-Behind sync from cache to DB
+     * Batch apply unread count changes given as parallel (conversationId, userId, delta, reset) arrays:
+     * reset rows are set to delta, others get delta added. Used by UnreadCountSyncService (Write-Behind).
+     * Single statement per call - caller chunks to keep transactions bounded.
+     *
+     * @return number of updated rows
      */
     @Transactional
-    public void setUnreadCount(Long conversationId, Long userId, int count) {
-        em.createQuery(
-                        "UPDATE ConversationParticipant cp " +
-                                "SET cp.unreadCount = :count " +
-                                "WHERE cp.conversation.id = :conversationId AND cp.user.id = :userId")
-                .setParameter("conversationId", conversationId)
-                .setParameter("userId", userId)
-                .setParameter("count", count)
-                .executeUpdate();
+    public int batchApplyUnreadDeltas(Long[] conversationIds, Long[] userIds, Integer[] deltas, Boolean[] resets) {
+        if (conversationIds.length == 0) {
+            return 0;
+        }
+
+        String sql = "UPDATE conversation_participants cp SET unread_count = GREATEST(" +
+                "CASE WHEN v.reset THEN v.delta ELSE cp.unread_count + v.delta END, 0) " +
+                "FROM unnest(?::bigint[], ?::bigint[], ?::int[], ?::boolean[]) AS v(conversation_id, user_id, delta, reset) " +
+                "WHERE cp.conversation_id = v.conversation_id AND cp.user_id = v.user_id";
+
+        int[] updated = new int[1];
+        em.unwrap(Session.class).doWork(connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(sql)) {
+                statement.setArray(1, connection.createArrayOf("bigint", conversationIds));
+                statement.setArray(2, connection.createArrayOf("bigint", userIds));
+                statement.setArray(3, connection.createArrayOf("integer", deltas));
+                statement.setArray(4, connection.createArrayOf("boolean", resets));
+                updated[0] = statement.executeUpdate();
+            }
+        });
+        return updated[0];
+    }
+
+    /**
+     * Batch update last_activity_at of all participants from write-behind activity buffer
+     * (the conversation list sort key, denormalized from conversations.updated_at).
+     * Single statement for all conversations; never moves last_activity_at backwards.
+     *
+     * @return number of updated rows
+     */
+    @Transactional
+    public int batchUpdateLastActivity(Map<Long, Instant> activityByConversationId) {
+        if (activityByConversationId.isEmpty()) {
+            return 0;
+        }
+
+        Long[] ids = new Long[activityByConversationId.size()];
+        Timestamp[] timestamps = new Timestamp[ids.length];
+        int i = 0;
+        for (Map.Entry<Long, Instant> entry : activityByConversationId.entrySet()) {
+            ids[i] = entry.getKey();
+            timestamps[i] = Timestamp.from(entry.getValue());
+            i++;
+        }
+
+        String sql = "UPDATE conversation_participants cp SET last_activity_at = v.activity_at " +
+                "FROM unnest(?::bigint[], ?::timestamptz[]) AS v(conversation_id, activity_at) " +
+                "WHERE cp.conversation_id = v.conversation_id " +
+                "AND (cp.last_activity_at IS NULL OR cp.last_activity_at < v.activity_at)";
+
+        int[] updated = new int[1];
+        em.unwrap(Session.class).doWork(connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(sql)) {
+                statement.setArray(1, connection.createArrayOf("bigint", ids));
+                statement.setArray(2, connection.createArrayOf("timestamptz", timestamps));
+                updated[0] = statement.executeUpdate();
+            }
+        });
+        return updated[0];
+    }
+
+    /**
+     * Batch un-archive participants given as parallel (conversationId, userId) arrays.
+     * Single statement; rows that are no longer archived are skipped.
+     *
+     * @return number of updated rows
+     */
+    @Transactional
+    public int batchUnarchive(Long[] conversationIds, Long[] userIds) {
+        if (conversationIds.length == 0) {
+            return 0;
+        }
+
+        String sql = "UPDATE conversation_participants cp SET archived = false, archived_at = NULL " +
+                "FROM unnest(?::bigint[], ?::bigint[]) AS v(conversation_id, user_id) " +
+                "WHERE cp.conversation_id = v.conversation_id AND cp.user_id = v.user_id AND cp.archived = true";
+
+        int[] updated = new int[1];
+        em.unwrap(Session.class).doWork(connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(sql)) {
+                statement.setArray(1, connection.createArrayOf("bigint", conversationIds));
+                statement.setArray(2, connection.createArrayOf("bigint", userIds));
+                updated[0] = statement.executeUpdate();
+            }
+        });
+        return updated[0];
     }
 
     public Long getTotalUnreadCount(Long userId) {
@@ -159,6 +245,41 @@ public class ConversationParticipantRepository {
         return total != null ? total : 0L;
     }
 
+    /**
+     * User IDs of the participants of several conversations in one query (membership only, no entities)
+     */
+    public Map<Long, Set<Long>> findUserIdsByConversationIds(Collection<Long> conversationIds) {
+        if (conversationIds == null || conversationIds.isEmpty()) {
+            return Collections.emptyMap();
+        }
+
+        List<Object[]> results = em.createQuery(
+                        "SELECT cp.conversation.id, cp.user.id " +
+                                "FROM ConversationParticipant cp " +
+                                "WHERE cp.conversation.id IN :conversationIds",
+                        Object[].class)
+                .setParameter("conversationIds", conversationIds)
+                .getResultList();
+
+        return results.stream()
+                .collect(Collectors.groupingBy(
+                        row -> (Long) row[0],
+                        Collectors.mapping(row -> (Long) row[1], Collectors.toSet())
+                ));
+    }
+
+    /**
+     * IDs of the conversations a user participates in (membership only, no entities)
+     */
+    public List<Long> findConversationIdsByUserId(Long userId) {
+        return em.createQuery(
+                        "SELECT cp.conversation.id FROM ConversationParticipant cp " +
+                                "WHERE cp.user.id = :userId",
+                        Long.class)
+                .setParameter("userId", userId)
+                .getResultList();
+    }
+
     public List<ConversationParticipant> findByConversationId(Long conversationId) {
         return em.createQuery(
                         "SELECT cp FROM ConversationParticipant cp " +
@@ -3,12 +3,19 @@ package com.chattrix.api.repositories;
 import com.chattrix.api.entities.Conversation;
 import com.chattrix.api.entities.ConversationParticipant;
 import com.chattrix.api.responses.ConversationResponse;
+import com.chattrix.api.responses.ConversationSettingsResponse;
+import com.chattrix.api.utils.ConversationCursor;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.NoResultException;
 import jakarta.persistence.PersistenceContext;
 import jakarta.transaction.Transactional;
+import org.hibernate.Session;
 
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
 import java.util.*;
 import java.util.function.Function;
 import java.util.stream.Collectors;
@@ -144,6 +151,75 @@ public class ConversationRepository {
         }
     }
 
+    /**
+     * Batch update conversations.updated_at from write-behind activity buffer.
+     * Single statement for all conversations; never moves updated_at backwards.
+     *
+     * @return number of updated rows
+     */
+    @Transactional
+    public int batchUpdateActivity(Map<Long, Instant> activityByConversationId) {
+        if (activityByConversationId.isEmpty()) {
+            return 0;
+        }
+
+        Long[] ids = new Long[activityByConversationId.size()];
+        Timestamp[] timestamps = new Timestamp[ids.length];
+        int i = 0;
+        for (Map.Entry<Long, Instant> entry : activityByConversationId.entrySet()) {
+            ids[i] = entry.getKey();
+            timestamps[i] = Timestamp.from(entry.getValue());
+            i++;
+        }
+
+        String sql = "UPDATE conversations c SET updated_at = v.updated_at " +
+                "FROM unnest(?::bigint[], ?::timestamptz[]) AS v(id, updated_at) " +
+                "WHERE c.id = v.id AND (c.updated_at IS NULL OR c.updated_at < v.updated_at)";
+
+        int[] updated = new int[1];
+        em.unwrap(Session.class).doWork(connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(sql)) {
+                statement.setArray(1, connection.createArrayOf("bigint", ids));
+                statement.setArray(2, connection.createArrayOf("timestamptz", timestamps));
+                updated[0] = statement.executeUpdate();
+            }
+        });
+        return updated[0];
+    }
+
+    /**
+     * Find conversations by IDs with participants and users loaded
+     */
+    public List<Conversation> findByIdsWithParticipants(Collection<Long> conversationIds) {
+        if (conversationIds.isEmpty()) {
+            return List.of();
+        }
+
+        var entityGraph = em.createEntityGraph(Conversation.class);
+        entityGraph.addSubgraph("participants").addAttributeNodes("user");
+
+        return em.createQuery(
+                        "SELECT DISTINCT c FROM Conversation c " +
+                                "WHERE c.id IN :ids", Conversation.class)
+                .setParameter("ids", conversationIds)
+                .setHint("jakarta.persistence.fetchgraph", entityGraph)
+                .getResultList();
+    }
+
+    /**
+     * Find IDs of conversations with activity in the last 7 days, most recent first (cache warming)
+     */
+    public List<Long> findRecentlyActiveIds(int limit) {
+        Instant sevenDaysAgo = Instant.now().minus(7, ChronoUnit.DAYS);
+        return em.createQuery(
+                        "SELECT c.id FROM Conversation c " +
+                                "WHERE c.updatedAt >= :threshold " +
+                                "ORDER BY c.updatedAt DESC", Long.class)
+                .setParameter("threshold", sevenDaysAgo)
+                .setMaxResults(limit)
+                .getResultList();
+    }
+
     public Optional<Conversation> findById(Long conversationId) {
         Conversation conversation = em.find(Conversation.class, conversationId);
         return Optional.ofNullable(conversation);
@@ -168,30 +244,33 @@ public class ConversationRepository {
     }
 
     /**
-     * Find conversations by user ID with cursor and filter.
-     * Returns entities with participants eagerly loaded.
-     * Supports filters: all (default), unread, group, archived
-     * 
+     * Conversation list page for user as a projection straight into ConversationResponse
+     * (conversation, caller's participant settings, last message + sender) - one row per conversation.
+     * Participants are NOT included, see {@link #findParticipantResponses}.
+     * Supports filters: all (default), unread, group, direct, archived
+     * <p>
      * Sorting priority:
      * 1. Pinned conversations first (ordered by pinOrder ASC)
-     * 2. Then by updatedAt DESC (most recent first)
+     * 2. Then by last activity DESC (most recent first)
      * 3. Then by id DESC (for stable pagination)
+     * <p>
+     * The whole sort key lives on conversation_participants (unpinned rows store
+     * ConversationParticipant.UNPINNED_ORDER, last_activity_at is kept by the activity flush), so
+     * idx_cp_user_activity returns the rows already in order and the scan stops after limit + 1.
+     * The row's updatedAt is that last activity. Keyset pagination on the full sort key, so pages
+     * never skip or repeat conversations. Returns up to limit + 1 rows to detect next page.
      */
-    public List<Conversation> findByUserIdWithCursor(Long userId, Long cursor, int limit, String filter) {
-        // First, get conversation IDs with filtering and sorting
+    public List<ConversationResponse> findByUserIdWithCursor(Long userId, ConversationCursor cursor, int limit, String filter) {
         StringBuilder jpql = new StringBuilder(
-                "SELECT DISTINCT c.id, cp.pinned, cp.pinOrder, c.updatedAt " +
-                        "FROM Conversation c " +
-                        "JOIN c.participants cp " +
-                        "WHERE cp.user.id = :userId ");
-
-        // Apply archived filter
-        if ("archived".equalsIgnoreCase(filter)) {
-            jpql.append("AND cp.archived = true ");
-        } else {
-            // Default: exclude archived conversations
-            jpql.append("AND cp.archived = false ");
-        }
+                "SELECT c.id, c.type, c.name, c.avatarUrl, c.description, c.createdAt, cp.lastActivityAt, " +
+                        "cp.unreadCount, cp.muted, cp.mutedUntil, cp.pinned, cp.pinOrder, cp.archived, " +
+                        "lm.id, lm.content, lm.sentAt, lm.type, s.id, s.username, s.fullName, s.avatarUrl " +
+                        "FROM ConversationParticipant cp " +
+                        "JOIN cp.conversation c " +
+                        "LEFT JOIN c.lastMessage lm " +
+                        "LEFT JOIN lm.sender s " +
+                        "WHERE cp.user.id = :userId " +
+                        "AND cp.archived = :archived ");
 
         // Apply additional filters
         if ("unread".equalsIgnoreCase(filter)) {
@@ -202,55 +281,108 @@ public class ConversationRepository {
             jpql.append("AND c.type = 'DIRECT' ");
         }
 
-        // Cursor pagination - based on composite key (pinned, updatedAt, id)
+        // Keyset: rows strictly after cursor in (pinned DESC, pinOrder ASC, lastActivityAt DESC, conversation id DESC)
         if (cursor != null) {
-            // For cursor pagination with complex sorting, we need to compare the composite key
-            // This is simplified - in production, you might want to encode cursor as base64 JSON
-            jpql.append("AND c.id < :cursor ");
+            String afterActivity = "(cp.lastActivityAt < :cursorActivityAt " +
+                    "OR (cp.lastActivityAt = :cursorActivityAt AND cp.conversation.id < :cursorId))";
+            if (cursor.pinned()) {
+                jpql.append("AND (cp.pinned = false OR (cp.pinned = true AND (cp.pinOrder > :cursorPinOrder " +
+                        "OR (cp.pinOrder = :cursorPinOrder AND " + afterActivity + ")))) ");
+            } else {
+                // Equality on the leading sort columns, so lastActivityAt bounds the index range
+                jpql.append("AND cp.pinned = false AND cp.pinOrder = :cursorPinOrder " +
+                        "AND cp.lastActivityAt <= :cursorActivityAt AND ").append(afterActivity).append(" ");
+            }
         }
 
-        // Sorting: Pinned first (by pinOrder), then by updatedAt DESC, then by id DESC
-        jpql.append("ORDER BY cp.pinned DESC, cp.pinOrder ASC NULLS LAST, c.updatedAt DESC, c.id DESC");
+        jpql.append("ORDER BY cp.pinned DESC, cp.pinOrder ASC, cp.lastActivityAt DESC, cp.conversation.id DESC");
 
-        var idQuery = em.createQuery(jpql.toString(), Object[].class)
-                .setParameter("userId", userId);
+        var query = em.createQuery(jpql.toString(), Object[].class)
+                .setParameter("userId", userId)
+                .setParameter("archived", "archived".equalsIgnoreCase(filter));
 
         if (cursor != null) {
-            idQuery.setParameter("cursor", cursor);
+            query.setParameter("cursorActivityAt", cursor.lastActivityAt());
+            query.setParameter("cursorId", cursor.id());
+            query.setParameter("cursorPinOrder", cursor.pinned() && cursor.pinOrder() != null
+                    ? cursor.pinOrder() : ConversationParticipant.UNPINNED_ORDER);
         }
 
-        List<Object[]> results = idQuery.setMaxResults(limit + 1).getResultList();
+        return query.setMaxResults(limit + 1).getResultList().stream()
+                .map(ConversationRepository::toListResponse)
+                .collect(Collectors.toCollection(ArrayList::new));
+    }
 
-        if (results.isEmpty()) {
-            return List.of();
+    /**
+     * Participants of conversations as ParticipantResponse, grouped by conversation ID.
+     * One projection query for the whole page.
+     */
+    public Map<Long, List<ConversationResponse.ParticipantResponse>> findParticipantResponses(Collection<Long> conversationIds) {
+        if (conversationIds.isEmpty()) {
+            return Map.of();
         }
 
-        // Extract conversation IDs
-        List<Long> conversationIds = results.stream()
-                .map(row -> (Long) row[0])
-                .toList();
-
-        // Then fetch full conversations with participants using EntityGraph
-        // We need to maintain the same order as the ID query
-        var entityGraph = em.createEntityGraph(Conversation.class);
-        entityGraph.addSubgraph("participants").addAttributeNodes("user");
-
-        List<Conversation> conversations = em.createQuery(
-                        "SELECT DISTINCT c FROM Conversation c " +
-                                "WHERE c.id IN :ids", Conversation.class)
+        List<Object[]> rows = em.createQuery(
+                        "SELECT cp.conversation.id, u.id, u.username, u.fullName, u.avatarUrl, cp.role, u.lastSeen " +
+                                "FROM ConversationParticipant cp " +
+                                "JOIN cp.user u " +
+                                "WHERE cp.conversation.id IN :ids " +
+                                "ORDER BY cp.id", Object[].class)
                 .setParameter("ids", conversationIds)
-                .setHint("jakarta.persistence.fetchgraph", entityGraph)
                 .getResultList();
 
-        // Sort in memory to maintain the order from the first query
-        // This is necessary because JPA doesn't preserve order with IN clause
-        Map<Long, Conversation> conversationMap = conversations.stream()
-                .collect(Collectors.toMap(Conversation::getId, Function.identity()));
+        Map<Long, List<ConversationResponse.ParticipantResponse>> result = new HashMap<>();
+        for (Object[] row : rows) {
+            result.computeIfAbsent((Long) row[0], k -> new ArrayList<>())
+                    .add(ConversationResponse.ParticipantResponse.builder()
+                            .userId((Long) row[1])
+                            .username((String) row[2])
+                            .fullName((String) row[3])
+                            .avatarUrl((String) row[4])
+                            .role(row[5] != null ? row[5].toString() : null)
+                            .lastSeen((Instant) row[6])
+                            .build());
+        }
+        return result;
+    }
+
+    private static ConversationResponse toListResponse(Object[] row) {
+        ConversationResponse response = new ConversationResponse();
+        response.setId((Long) row[0]);
+        response.setType(row[1] != null ? row[1].toString() : null);
+        response.setName((String) row[2]);
+        response.setAvatarUrl((String) row[3]);
+        response.setDescription((String) row[4]);
+        response.setCreatedAt((Instant) row[5]);
+        response.setUpdatedAt((Instant) row[6]);
+        response.setUnreadCount((Integer) row[7]);
+
+        boolean muted = (Boolean) row[8];
+        response.setSettings(ConversationSettingsResponse.builder()
+                .conversationId(response.getId())
+                .muted(muted)
+                .mutedUntil((Instant) row[9])
+                .pinned((Boolean) row[10])
+                .pinOrder((Boolean) row[10] ? (Integer) row[11] : null)
+                .archived((Boolean) row[12])
+                .notificationsEnabled(!muted) // Inverse of muted
+                .build());
+
+        if (row[13] != null) {
+            ConversationResponse.MessageResponse lastMessage = new ConversationResponse.MessageResponse();
+            lastMessage.setId((Long) row[13]);
+            lastMessage.setContent((String) row[14]);
+            lastMessage.setSentAt((Instant) row[15]);
+            lastMessage.setType(row[16] != null ? row[16].toString() : null);
+            lastMessage.setSenderId((Long) row[17]);
+            lastMessage.setSenderUsername((String) row[18]);
+            lastMessage.setSenderFullName((String) row[19]);
+            lastMessage.setSenderAvatarUrl((String) row[20]);
+            response.setLastMessage(lastMessage);
+        }
 
-        return conversationIds.stream()
-                .map(conversationMap::get)
-                .filter(Objects::nonNull)
-                .toList();
+        response.setParticipants(new ArrayList<>());
+        return response;
     }
 
     /**
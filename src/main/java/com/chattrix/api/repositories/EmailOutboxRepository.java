@@ -0,0 +1,113 @@
+package com.chattrix.api.repositories;
+
+import com.chattrix.api.entities.EmailOutbox;
+import com.chattrix.api.enums.EmailOutboxStatus;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+
+import java.time.Instant;
+import java.util.List;
+
+@ApplicationScoped
+public class EmailOutboxRepository {
+
+    @PersistenceContext
+    private EntityManager em;
+
+    public EmailOutbox save(EmailOutbox outbox) {
+        if (outbox.getId() == null) {
+            em.persist(outbox);
+            return outbox;
+        }
+        return em.merge(outbox);
+    }
+
+    /**
+     * Lock due rows (pending, or sending with expired lease) without blocking other dispatchers
+     */
+    @SuppressWarnings("unchecked")
+    public List<Long> lockDueIds(Instant now, int limit) {
+        List<Number> ids = em.createNativeQuery(
+                        "SELECT id FROM email_outbox " +
+                                "WHERE (status = 'PENDING' AND next_attempt_at <= :now) " +
+                                "   OR (status = 'SENDING' AND locked_until < :now) " +
+                                "ORDER BY next_attempt_at " +
+                                "LIMIT :limit " +
+                                "FOR UPDATE SKIP LOCKED")
+                .setParameter("now", now)
+                .setParameter("limit", limit)
+                .getResultList();
+        return ids.stream().map(Number::longValue).toList();
+    }
+
+    /**
+     * Mark locked rows as SENDING with a lease, so a crashed dispatcher's rows are picked up again
+     */
+    public void markSending(List<Long> ids, Instant lockedUntil, String claimToken) {
+        em.createQuery("UPDATE EmailOutbox e SET e.status = :status, e.lockedUntil = :lockedUntil, " +
+                        "e.claimToken = :claimToken, e.attempts = e.attempts + 1 WHERE e.id IN :ids")
+                .setParameter("status", EmailOutboxStatus.SENDING)
+                .setParameter("lockedUntil", lockedUntil)
+                .setParameter("claimToken", claimToken)
+                .setParameter("ids", ids)
+                .executeUpdate();
+    }
+
+    public List<EmailOutbox> findByIds(List<Long> ids) {
+        return em.createQuery("SELECT e FROM EmailOutbox e WHERE e.id IN :ids ORDER BY e.id", EmailOutbox.class)
+                .setParameter("ids", ids)
+                .getResultList();
+    }
+
+    /**
+     * Results below apply only while the row is still held by the given claim
+     *
+     * @return rows updated (rows re-claimed after their lease expired are left alone)
+     */
+    public int markSent(List<Long> ids, String claimToken, Instant sentAt) {
+        return em.createQuery("UPDATE EmailOutbox e SET e.status = :status, e.sentAt = :sentAt, " +
+                        "e.lockedUntil = NULL, e.claimToken = NULL, e.lastError = NULL " +
+                        "WHERE e.id IN :ids AND e.claimToken = :claimToken")
+                .setParameter("status", EmailOutboxStatus.SENT)
+                .setParameter("sentAt", sentAt)
+                .setParameter("ids", ids)
+                .setParameter("claimToken", claimToken)
+                .executeUpdate();
+    }
+
+    public int markRetry(Long id, String claimToken, Instant nextAttemptAt, String error) {
+        return em.createQuery("UPDATE EmailOutbox e SET e.status = :status, e.nextAttemptAt = :nextAttemptAt, " +
+                        "e.lockedUntil = NULL, e.claimToken = NULL, e.lastError = :error " +
+                        "WHERE e.id = :id AND e.claimToken = :claimToken")
+                .setParameter("status", EmailOutboxStatus.PENDING)
+                .setParameter("nextAttemptAt", nextAttemptAt)
+                .setParameter("error", error)
+                .setParameter("id", id)
+                .setParameter("claimToken", claimToken)
+                .executeUpdate();
+    }
+
+    public int markFailed(Long id, String claimToken, String error) {
+        return em.createQuery("UPDATE EmailOutbox e SET e.status = :status, e.lockedUntil = NULL, " +
+                        "e.claimToken = NULL, e.lastError = :error WHERE e.id = :id AND e.claimToken = :claimToken")
+                .setParameter("status", EmailOutboxStatus.FAILED)
+                .setParameter("error", error)
+                .setParameter("id", id)
+                .setParameter("claimToken", claimToken)
+                .executeUpdate();
+    }
+
+    public long countByStatus(EmailOutboxStatus status) {
+        return em.createQuery("SELECT COUNT(e) FROM EmailOutbox e WHERE e.status = :status", Long.class)
+                .setParameter("status", status)
+                .getSingleResult();
+    }
+
+    public int deleteSentBefore(Instant before) {
+        return em.createQuery("DELETE FROM EmailOutbox e WHERE e.status = :status AND e.sentAt < :before")
+                .setParameter("status", EmailOutboxStatus.SENT)
+                .setParameter("before", before)
+                .executeUpdate();
+    }
+}
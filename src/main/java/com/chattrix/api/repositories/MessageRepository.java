@@ -266,6 +266,134 @@ public class MessageRepository {
         return typedQuery.getResultList();
     }
 
+    /**
+     * Full-text search in a conversation over messages.search_vector (see MessageSearchIndex).
+     * Sort RELEVANCE orders by ts_rank_cd then id, ASC/DESC by id; the cursor is always a message id.
+     *
+     * @param tsQuery query built by SearchText.toPrefixTsQuery
+     */
+    public List<Message> fullTextSearchByCursor(Long conversationId, String tsQuery, String type, Long senderId, Long cursor, int limit, String sort) {
+        return fullTextSearch("m.conversation_id = :conversationId", "conversationId", conversationId,
+                tsQuery, type, senderId, cursor, limit, sort);
+    }
+
+    /**
+     * Full-text search across the user's conversations, same ordering and cursor as fullTextSearchByCursor
+     */
+    public List<Message> globalFullTextSearchByCursor(Long userId, String tsQuery, String type, Long cursor, int limit, String sort) {
+        return fullTextSearch(
+                "m.conversation_id IN (SELECT cp.conversation_id FROM conversation_participants cp WHERE cp.user_id = :userId)",
+                "userId", userId, tsQuery, type, null, cursor, limit, sort);
+    }
+
+    private List<Message> fullTextSearch(String scope, String scopeParam, Long scopeId, String tsQuery,
+                                         String type, Long senderId, Long cursor, int limit, String sort) {
+        String messageType = null;
+        if (type != null && !type.trim().isEmpty()) {
+            try {
+                messageType = MessageType.valueOf(type.toUpperCase()).name();
+            } catch (IllegalArgumentException e) {
+                return List.of();
+            }
+        }
+
+        String rank = "ts_rank_cd(m.search_vector, to_tsquery('simple', :tsQuery))";
+        StringBuilder sql = new StringBuilder("SELECT m.id FROM messages m WHERE ")
+                .append(scope)
+                .append(" AND m.deleted = false AND m.search_vector @@ to_tsquery('simple', :tsQuery)");
+
+        if (messageType != null) {
+            sql.append(" AND m.type = :type");
+        }
+
+        if (senderId != null) {
+            sql.append(" AND m.sender_id = :senderId");
+        }
+
+        if ("RELEVANCE".equalsIgnoreCase(sort)) {
+            if (cursor != null) {
+                // Keyset on (rank, id): the cursor message's rank is recomputed for the same query
+                sql.append(" AND (").append(rank).append(", m.id) < (")
+                        .append("SELECT ts_rank_cd(c.search_vector, to_tsquery('simple', :tsQuery)), c.id ")
+                        .append("FROM messages c WHERE c.id = :cursor)");
+            }
+            sql.append(" ORDER BY ").append(rank).append(" DESC, m.id DESC");
+        } else {
+            boolean ascending = "ASC".equalsIgnoreCase(sort);
+            if (cursor != null) {
+                sql.append(ascending ? " AND m.id > :cursor" : " AND m.id < :cursor");
+            }
+            sql.append(" ORDER BY m.id ").append(ascending ? "ASC" : "DESC");
+        }
+        sql.append(" LIMIT :limit");
+
+        Query query = em.createNativeQuery(sql.toString());
+        query.setParameter(scopeParam, scopeId);
+        query.setParameter("tsQuery", tsQuery);
+        if (messageType != null) {
+            query.setParameter("type", messageType);
+        }
+        if (senderId != null) {
+            query.setParameter("senderId", senderId);
+        }
+        if (cursor != null) {
+            query.setParameter("cursor", cursor);
+        }
+        query.setParameter("limit", limit + 1);
+
+        @SuppressWarnings("unchecked")
+        List<Number> rows = query.getResultList();
+        if (rows.isEmpty()) {
+            return List.of();
+        }
+        return findByIdsInOrder(rows.stream().map(Number::longValue).toList());
+    }
+
+    /**
+     * Messages with sender and conversation in one query, in the order of {@code ids}; missing
+     * and deleted ids are left out
+     */
+    public List<Message> findByIdsInOrder(List<Long> ids) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        Map<Long, Message> byId = new HashMap<>();
+        em.createQuery(
+                        "SELECT m FROM Message m " +
+                        "LEFT JOIN FETCH m.sender " +
+                        "LEFT JOIN FETCH m.conversation " +
+                        "WHERE m.id IN :ids",
+                        Message.class
+                )
+                .setParameter("ids", ids)
+                .getResultList()
+                .forEach(m -> byId.put(m.getId(), m));
+
+        List<Message> messages = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            Message message = byId.get(id);
+            if (message != null) {
+                messages.add(message);
+            }
+        }
+        return messages;
+    }
+
+    /**
+     * Messages after {@code afterId} in id order as (id, conversation_id, content, created_at),
+     * for feeding EmbeddedMessageIndex
+     */
+    @SuppressWarnings("unchecked")
+    public List<Object[]> findForSearchIndex(long afterId, int limit) {
+        return em.createNativeQuery(
+                        "SELECT m.id, m.conversation_id, m.content, m.created_at FROM messages m " +
+                        "WHERE m.id > :afterId AND m.deleted = false " +
+                        "ORDER BY m.id LIMIT :limit")
+                .setParameter("afterId", afterId)
+                .setParameter("limit", limit)
+                .getResultList();
+    }
+
     /**
      * Find media files with cursor-based pagination and date filtering
      */
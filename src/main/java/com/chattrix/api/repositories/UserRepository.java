@@ -2,21 +2,23 @@ package com.chattrix.api.repositories;
 
 import com.chattrix.api.entities.User;
 import com.chattrix.api.responses.UserResponse;
+import com.chattrix.api.utils.SearchText;
+import com.chattrix.api.utils.UserSearchCursor;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.NoResultException;
 import jakarta.persistence.PersistenceContext;
 import jakarta.transaction.Transactional;
+import org.hibernate.Session;
 
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
 import java.time.Instant;
 import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
-import java.util.HashSet;
 import java.util.List;
-import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
-import java.util.stream.Collectors;
 
 @ApplicationScoped
 public class UserRepository {
@@ -118,144 +120,111 @@ public class UserRepository {
     }
 
     /**
-     * Find online users - now uses in-memory tracking via UserStatusService
-     * This method is deprecated and returns empty list
-     * @deprecated Use UserStatusService.isUserOnline() instead
+     * User search for the search box, one page of ranked matches with the caller's contact and direct
+     * conversation for each (no per-result queries).
+     * <p>
+     * Queries of 3+ characters match anywhere in username, full name or email; shorter ones match
+     * the start of the username or of a word of the full name. Both are trigram index scans (UserSearchIndex).
+     * Ranking: exact username, exact full name, username prefix, full name prefix, full name word prefix,
+     * anything else; then newest user. Keyset on (score, id) carried by the cursor.
+     * <p>
+     * Top-K: every score tier is its own branch (a user lands in the first tier it matches) with its own
+     * ORDER BY id DESC LIMIT, so at most limit + 1 rows per tier are ranked instead of every match;
+     * tiers before the cursor's are not queried at all.
+     *
+     * @param folded compare through search_text() (accent-insensitive), otherwise lower()
      */
-    @Deprecated
-    public List<User> findByIsOnlineTrue() {
-        // Online status is now tracked in-memory via UserStatusService
-        // This method is kept for backward compatibility but returns empty list
-        return List.of();
-    }
-
-    /**
-     * Find online users in a conversation - now uses in-memory tracking
-     * This method is deprecated and returns empty list
-     * @deprecated Use UserStatusService.isUserOnline() for each participant instead
-     */
-    @Deprecated
-    public List<User> findOnlineUsersByConversationId(Long conversationId) {
-        // Online status is now tracked in-memory via UserStatusService
-        // This method is kept for backward compatibility but returns empty list
-        return List.of();
-    }
+    @SuppressWarnings("unchecked")
+    public List<UserSearchHit> searchUsersByCursor(String query, Long excludeUserId, UserSearchCursor cursor,
+                                                   int limit, boolean folded) {
+        String fold = folded ? "search_text" : "lower";
+        String term = folded ? SearchText.fold(query).trim() : query.toLowerCase().trim();
+        String escaped = escapeLike(term);
+        boolean substring = term.length() >= 3;
+
+        // Tier conditions in score order (score = index + 1); the last tier exists for substring queries only
+        List<String> tiers = new ArrayList<>(List.of(
+                fold + "(u.username) = :term",
+                fold + "(u.full_name) = :term",
+                fold + "(u.username) LIKE :prefix",
+                fold + "(u.full_name) LIKE :prefix",
+                fold + "(u.full_name) LIKE :wordPrefix"));
+        if (substring) {
+            tiers.add(fold + "(u.username) LIKE :contains OR " + fold + "(u.full_name) LIKE :contains " +
+                    "OR lower(u.email) LIKE :emailContains");
+        }
 
-    /**
-     * Find stale online users - no longer needed as online status is in-memory
-     * This method is deprecated and returns empty list
-     * @deprecated Online status cleanup is now handled by UserStatusService
-     */
-    @Deprecated
-    public List<User> findStaleOnlineUsers(Instant threshold) {
-        // Online status is now tracked in-memory via UserStatusService
-        // No database cleanup needed
-        return List.of();
-    }
+        List<String> branches = new ArrayList<>();
+        for (int i = 0; i < tiers.size(); i++) {
+            int score = i + 1;
+            if (cursor != null && score < cursor.score()) {
+                continue;
+            }
+            StringBuilder branch = new StringBuilder("(SELECT u.id, " + score + " AS score FROM users u " +
+                    "WHERE u.id <> :excludeUserId AND (" + tiers.get(i) + ")");
+            for (String higher : tiers.subList(0, i)) {
+                branch.append(" AND (").append(higher).append(") IS NOT TRUE");  // NULL full_name is no match
+            }
+            if (cursor != null && score == cursor.score()) {
+                branch.append(" AND u.id < :cursorId");
+            }
+            branch.append(" ORDER BY u.id DESC LIMIT :limit)");
+            branches.add(branch.toString());
+        }
+        if (branches.isEmpty()) {
+            return List.of();
+        }
 
-    public List<User> searchUsers(String query, Long excludeUserId, int limit) {
-        String searchPattern = "%" + query.toLowerCase() + "%";
-        return em.createQuery(
-                        "SELECT u FROM User u " +
-                                "WHERE u.id != :excludeUserId " +
-                                "AND (LOWER(u.username) LIKE :query " +
-                                "OR LOWER(u.fullName) LIKE :query " +
-                                "OR LOWER(u.email) LIKE :query) " +
-                                "ORDER BY " +
-                                "CASE " +
-                                "  WHEN LOWER(u.username) = :exactQuery THEN 1 " +
-                                "  WHEN LOWER(u.fullName) = :exactQuery THEN 2 " +
-                                "  WHEN LOWER(u.username) LIKE :startQuery THEN 3 " +
-                                "  WHEN LOWER(u.fullName) LIKE :startQuery THEN 4 " +
-                                "  ELSE 5 " +
-                                "END, " +
-                                "u.fullName ASC", User.class)
+        // Contact and direct conversation only for the page, after the limit
+        String sql = "SELECT m.id, m.score, " +
+                "  EXISTS (SELECT 1 FROM contacts c WHERE c.user_id = :excludeUserId AND c.contact_user_id = m.id), " +
+                "  (SELECT cv.id FROM conversations cv " +
+                "     JOIN conversation_participants p1 ON p1.conversation_id = cv.id AND p1.user_id = :excludeUserId " +
+                "     JOIN conversation_participants p2 ON p2.conversation_id = cv.id AND p2.user_id = m.id " +
+                "   WHERE cv.type = 'DIRECT' ORDER BY cv.updated_at DESC LIMIT 1) " +
+                "FROM (SELECT t.id, t.score FROM (" + String.join(" UNION ALL ", branches) + ") t " +
+                "      ORDER BY t.score, t.id DESC LIMIT :limit) m " +
+                "ORDER BY m.score, m.id DESC";
+
+        var nativeQuery = em.createNativeQuery(sql)
                 .setParameter("excludeUserId", excludeUserId)
-                .setParameter("query", searchPattern)
-                .setParameter("exactQuery", query.toLowerCase())
-                .setParameter("startQuery", query.toLowerCase() + "%")
-                .setMaxResults(limit)
-                .getResultList();
-    }
+                .setParameter("term", term)
+                .setParameter("prefix", escaped + "%")
+                .setParameter("wordPrefix", "% " + escaped + "%")
+                .setParameter("limit", limit + 1);
+        if (substring) {
+            nativeQuery.setParameter("contains", "%" + escaped + "%")
+                    .setParameter("emailContains", "%" + escapeLike(query.toLowerCase().trim()) + "%");
+        }
+        if (cursor != null) {
+            nativeQuery.setParameter("cursorId", cursor.id());
+        }
 
-    public List<User> searchUsersWithPagination(String query, Long excludeUserId, int page, int size) {
-        String searchPattern = "%" + query.toLowerCase() + "%";
-        return em.createQuery(
-                        "SELECT u FROM User u " +
-                                "WHERE u.id != :excludeUserId " +
-                                "AND (LOWER(u.username) LIKE :query " +
-                                "OR LOWER(u.fullName) LIKE :query " +
-                                "OR LOWER(u.email) LIKE :query) " +
-                                "ORDER BY " +
-                                "CASE " +
-                                "  WHEN LOWER(u.username) = :exactQuery THEN 1 " +
-                                "  WHEN LOWER(u.fullName) = :exactQuery THEN 2 " +
-                                "  WHEN LOWER(u.username) LIKE :startQuery THEN 3 " +
-                                "  WHEN LOWER(u.fullName) LIKE :startQuery THEN 4 " +
-                                "  ELSE 5 " +
-                                "END, " +
-                                "u.fullName ASC", User.class)
-                .setParameter("excludeUserId", excludeUserId)
-                .setParameter("query", searchPattern)
-                .setParameter("exactQuery", query.toLowerCase())
-                .setParameter("startQuery", query.toLowerCase() + "%")
-                .setFirstResult(page * size)
-                .setMaxResults(size)
-                .getResultList();
+        List<Object[]> rows = nativeQuery.getResultList();
+        return rows.stream()
+                .map(row -> new UserSearchHit(
+                        ((Number) row[0]).longValue(),
+                        ((Number) row[1]).intValue(),
+                        (Boolean) row[2],
+                        row[3] != null ? ((Number) row[3]).longValue() : null))
+                .toList();
     }
 
     /**
-     * Search users with cursor-based pagination.
-     * Uses user ID as cursor for efficient pagination.
+     * A user search match with the searcher's relation to it
+     *
+     * @param score          rank tier, see searchUsersByCursor
+     * @param conversationId the searcher's most recent DIRECT conversation with the user, null if none
      */
-    public List<User> searchUsersWithCursor(String query, Long excludeUserId, Long cursor, int limit) {
-        String searchPattern = "%" + query.toLowerCase() + "%";
-        
-        StringBuilder jpql = new StringBuilder(
-                "SELECT u FROM User u " +
-                "WHERE u.id != :excludeUserId " +
-                "AND (LOWER(u.username) LIKE :query " +
-                "OR LOWER(u.fullName) LIKE :query " +
-                "OR LOWER(u.email) LIKE :query) ");
-        
-        if (cursor != null) {
-            jpql.append("AND u.id < :cursor ");
-        }
-        
-        jpql.append("ORDER BY " +
-                "CASE " +
-                "  WHEN LOWER(u.username) = :exactQuery THEN 1 " +
-                "  WHEN LOWER(u.fullName) = :exactQuery THEN 2 " +
-                "  WHEN LOWER(u.username) LIKE :startQuery THEN 3 " +
-                "  WHEN LOWER(u.fullName) LIKE :startQuery THEN 4 " +
-                "  ELSE 5 " +
-                "END, " +
-                "u.id DESC");
-        
-        var query_obj = em.createQuery(jpql.toString(), User.class)
-                .setParameter("excludeUserId", excludeUserId)
-                .setParameter("query", searchPattern)
-                .setParameter("exactQuery", query.toLowerCase())
-                .setParameter("startQuery", query.toLowerCase() + "%");
-        
-        if (cursor != null) {
-            query_obj.setParameter("cursor", cursor);
+    public record UserSearchHit(Long userId, int score, boolean contact, Long conversationId) {
+
+        public UserSearchCursor cursor() {
+            return new UserSearchCursor(score, userId);
         }
-        
-        return query_obj.setMaxResults(limit + 1).getResultList();
     }
 
-    public long countSearchUsers(String query, Long excludeUserId) {
-        String searchPattern = "%" + query.toLowerCase() + "%";
-        return em.createQuery(
-                        "SELECT COUNT(u) FROM User u " +
-                                "WHERE u.id != :excludeUserId " +
-                                "AND (LOWER(u.username) LIKE :query " +
-                                "OR LOWER(u.fullName) LIKE :query " +
-                                "OR LOWER(u.email) LIKE :query)", Long.class)
-                .setParameter("excludeUserId", excludeUserId)
-                .setParameter("query", searchPattern)
-                .getSingleResult();
+    private static String escapeLike(String value) {
+        return value.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
     }
 
     @Transactional
@@ -298,44 +267,6 @@ public class UserRepository {
                 .getResultList();
     }
 
-    /**
-     * Find all users who should receive status updates for a given user
-     * (users who have this user as a contact OR share a conversation with them)
-     */
-    public List<Long> findUserIdsWhoShouldReceiveStatusUpdates(Long userId) {
-        // Get users who have this user as a contact (bidirectional)
-        List<Long> contactUserIds = em.createQuery(
-                        "SELECT DISTINCT c.user.id FROM Contact c " +
-                                "WHERE c.contactUser.id = :userId AND c.status = 'ACCEPTED'", Long.class)
-                .setParameter("userId", userId)
-                .getResultList();
-
-        // Get users who are contacts of this user
-        List<Long> contactedByUserIds = em.createQuery(
-                        "SELECT DISTINCT c.contactUser.id FROM Contact c " +
-                                "WHERE c.user.id = :userId AND c.status = 'ACCEPTED'", Long.class)
-                .setParameter("userId", userId)
-                .getResultList();
-
-        // Get users in same conversations
-        List<Long> conversationMemberIds = em.createQuery(
-                        "SELECT DISTINCT cp.user.id FROM ConversationParticipant cp " +
-                                "WHERE cp.conversation.id IN (" +
-                                "  SELECT cp2.conversation.id FROM ConversationParticipant cp2 " +
-                                "  WHERE cp2.user.id = :userId" +
-                                ") AND cp.user.id != :userId", Long.class)
-                .setParameter("userId", userId)
-                .getResultList();
-
-        // Merge all results and remove duplicates using Set
-        Set<Long> allUserIds = new HashSet<>();
-        allUserIds.addAll(contactUserIds);
-        allUserIds.addAll(contactedByUserIds);
-        allUserIds.addAll(conversationMemberIds);
-
-        return new ArrayList<>(allUserIds);
-    }
-
     /**
      * Find users whose birthday is today (same month and day, regardless of year)
      */
@@ -378,55 +309,61 @@ public class UserRepository {
     }
 
     /**
-     * Find recent active users for cache warming
+     * Find IDs of recent active users for cache warming, most recently seen first
      * Returns users who have been active in the last 7 days
      */
-    public List<User> findRecentActiveUsers(int limit) {
+    public List<Long> findRecentActiveUserIds(int limit) {
         Instant sevenDaysAgo = Instant.now().minus(7, ChronoUnit.DAYS);
         return em.createQuery(
-                        "SELECT u FROM User u " +
+                        "SELECT u.id FROM User u " +
                                 "WHERE u.lastSeen >= :threshold " +
-                                "ORDER BY u.lastSeen DESC", User.class)
+                                "ORDER BY u.lastSeen DESC", Long.class)
                 .setParameter("threshold", sevenDaysAgo)
                 .setMaxResults(limit)
                 .getResultList();
     }
     
     /**
-     * Batch update lastSeen for multiple users in single query.
-     * Uses CASE WHEN for efficient batch update.
-     * 
-     * Example: Update 100 users in 1 query instead of 100 separate queries.
-     * 
-     * @param updates Map of userId -> lastSeen timestamp
+     * Batch update lastSeen given as parallel (userId, lastSeen) arrays, one prepared UPDATE ... FROM unnest statement.
+     * Rows whose stored lastSeen is already within {@code toleranceSeconds} of the new value are skipped
+     * (no row lock, no dead tuple). Caller chunks to keep transactions bounded.
+     *
+     * @return number of updated rows
      */
     @Transactional
-    public void batchUpdateLastSeen(Map<Long, Instant> updates) {
-        if (updates == null || updates.isEmpty()) {
-            return;
-        }
-        
-        // Build CASE WHEN query for batch update
-        StringBuilder sql = new StringBuilder("UPDATE users SET last_seen = CASE id ");
-        
-        for (Map.Entry<Long, Instant> entry : updates.entrySet()) {
-            sql.append("WHEN ").append(entry.getKey())
-               .append(" THEN TIMESTAMP '").append(entry.getValue()).append("' ");
-        }
-        
-        sql.append("END WHERE id IN (");
-        sql.append(updates.keySet().stream()
-            .map(String::valueOf)
-            .collect(Collectors.joining(",")));
-        sql.append(")");
-        
-        int updatedCount = em.createNativeQuery(sql.toString()).executeUpdate();
-        
-        // Log if mismatch (some users might have been deleted)
-        if (updatedCount != updates.size()) {
-            System.out.println("Warning: Batch update expected " + updates.size() + 
-                " users but updated " + updatedCount);
+    public int batchUpdateLastSeen(Long[] userIds, Timestamp[] lastSeen, int toleranceSeconds) {
+        if (userIds.length == 0) {
+            return 0;
         }
+
+        String sql = "UPDATE users u SET last_seen = v.last_seen " +
+                "FROM unnest(?::bigint[], ?::timestamptz[]) AS v(id, last_seen) " +
+                "WHERE u.id = v.id AND (u.last_seen IS NULL OR u.last_seen < v.last_seen - make_interval(secs => ?))";
+
+        int[] updated = new int[1];
+        em.unwrap(Session.class).doWork(connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(sql)) {
+                statement.setArray(1, connection.createArrayOf("bigint", userIds));
+                statement.setArray(2, connection.createArrayOf("timestamptz", lastSeen));
+                statement.setInt(3, toleranceSeconds);
+                updated[0] = statement.executeUpdate();
+            }
+        });
+        return updated[0];
+    }
+
+    /**
+     * Replace avatar URL only if it still holds the expected value
+     * (user may have uploaded a custom avatar while the generated one was in flight)
+     */
+    public int updateAvatarUrlIfUnchanged(Long userId, String expectedUrl, String newUrl) {
+        return em.createQuery("UPDATE User u SET u.avatarUrl = :newUrl, u.updatedAt = :now " +
+                        "WHERE u.id = :userId AND u.avatarUrl = :expectedUrl")
+                .setParameter("newUrl", newUrl)
+                .setParameter("now", Instant.now())
+                .setParameter("userId", userId)
+                .setParameter("expectedUrl", expectedUrl)
+                .executeUpdate();
     }
 
     public List<User> findAllById(Set<Long> allUserIds) {
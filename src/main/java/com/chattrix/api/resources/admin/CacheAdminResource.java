@@ -1,9 +1,16 @@
 package com.chattrix.api.resources.admin;
 
 import com.chattrix.api.filters.Secured;
+import com.chattrix.api.services.auth.LoginThrottleService;
+import com.chattrix.api.services.auth.PasswordHashingService;
 import com.chattrix.api.services.cache.CacheManager;
 import com.chattrix.api.services.cache.UnreadCountSyncService;
+import com.chattrix.api.services.message.EmbeddedMessageIndex;
 import com.chattrix.api.services.message.MessageBatchService;
+import com.chattrix.api.services.notification.EmailOutboxService;
+import com.chattrix.api.services.notification.SmtpTransportPool;
+import com.chattrix.api.services.user.PresenceAggregator;
+import com.chattrix.api.services.user.PresenceEngine;
 import jakarta.inject.Inject;
 import jakarta.ws.rs.*;
 import jakarta.ws.rs.core.MediaType;
@@ -21,11 +28,19 @@ import java.util.Map;
  * - GET /api/admin/cache/stats - Get cache statistics
  * - GET /api/admin/cache/health - Get cache health status
  * - GET /api/admin/cache/metrics - Get detailed metrics
+ * - GET /api/admin/cache/metrics/prometheus - Get cache metrics in Prometheus text format
  * - POST /api/admin/cache/clear - Clear all caches
  * - POST /api/admin/cache/warmup - Warm up caches
+ * - GET /api/admin/cache/warmup/stats - Get warm-up progress
  * - POST /api/admin/sync/unread-counts - Force sync unread counts
+ * - GET /api/admin/sync/unread-counts/stats - Get unread count sync statistics
  * - POST /api/admin/sync/messages - Force flush message buffer
  * - GET /api/admin/buffer/stats - Get message buffer statistics
+ * - GET /api/admin/auth/hashing/stats - Get password hashing pool statistics
+ * - GET /api/admin/email/outbox/stats - Get email outbox statistics
+ * - GET /api/admin/presence/stats - Get presence engine and debouncing/batching statistics
+ * - GET /api/admin/search/messages/index/stats - Get embedded message index statistics
+ * - POST /api/admin/search/messages/index/rebuild - Rebuild the embedded message index from the database
  */
 @Path("/api/admin")
 @Produces(MediaType.APPLICATION_JSON)
@@ -42,6 +57,27 @@ public class CacheAdminResource {
     @Inject
     private MessageBatchService messageBatchService;
 
+    @Inject
+    private PasswordHashingService passwordHashingService;
+
+    @Inject
+    private LoginThrottleService loginThrottleService;
+
+    @Inject
+    private EmailOutboxService emailOutboxService;
+
+    @Inject
+    private PresenceAggregator presenceAggregator;
+
+    @Inject
+    private PresenceEngine presenceEngine;
+
+    @Inject
+    private SmtpTransportPool smtpTransportPool;
+
+    @Inject
+    private EmbeddedMessageIndex embeddedMessageIndex;
+
     // ==================== CACHE MANAGEMENT ====================
 
     /**
@@ -81,6 +117,17 @@ public class CacheAdminResource {
         return Response.ok(metrics).build();
     }
 
+    /**
+     * Get cache metrics in Prometheus text exposition format (hit/miss, loads, evictions by cause, load-time histogram)
+     */
+    @GET
+    @Path("/cache/metrics/prometheus")
+    @Secured
+    @Produces("text/plain; version=0.0.4; charset=utf-8")
+    public Response getCacheMetricsPrometheus() {
+        return Response.ok(cacheManager.exportPrometheusMetrics()).build();
+    }
+
     /**
      * Get cache efficiency report with recommendations
      */
@@ -112,20 +159,25 @@ public class CacheAdminResource {
     }
 
     /**
-     * Warm up caches (pre-load frequently accessed data)
+     * Warm up caches (pre-load frequently accessed data), returns warm-up progress
      */
     @POST
     @Path("/cache/warmup")
     @Secured
     public Response warmUpCaches() {
         log.info("Admin: Warming up caches");
-        cacheManager.warmUp();
-        
-        Map<String, String> response = new HashMap<>();
-        response.put("status", "success");
-        response.put("message", "Cache warm-up completed");
-        
-        return Response.ok(response).build();
+        return Response.ok(cacheManager.warmUp()).build();
+    }
+
+    /**
+     * Get progress of the current or last cache warm-up (per stage: planned, loaded, failed, skipped)
+     */
+    @GET
+    @Path("/cache/warmup/stats")
+    @Secured
+    public Response getWarmupStats() {
+        log.info("Admin: Getting cache warm-up statistics");
+        return Response.ok(cacheManager.getWarmupStats()).build();
     }
 
     // ==================== SYNC OPERATIONS ====================
@@ -160,6 +212,17 @@ public class CacheAdminResource {
         }
     }
 
+    /**
+     * Get unread count sync statistics (duration, rows written, lag)
+     */
+    @GET
+    @Path("/sync/unread-counts/stats")
+    @Secured
+    public Response getUnreadCountSyncStats() {
+        log.info("Admin: Getting unread count sync statistics");
+        return Response.ok(unreadCountSyncService.getStats()).build();
+    }
+
     /**
      * Force flush message buffer to database
      */
@@ -222,6 +285,92 @@ public class CacheAdminResource {
         return Response.ok(response).build();
     }
 
+    // ==================== AUTH ====================
+
+    /**
+     * Get password hashing pool statistics (hash time, queue wait, rejections) and login throttle counters
+     */
+    @GET
+    @Path("/auth/hashing/stats")
+    @Secured
+    public Response getPasswordHashingStats() {
+        log.info("Admin: Getting password hashing statistics");
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("hashing", passwordHashingService.getStats());
+        response.put("delayedByBackoff", loginThrottleService.getDelayedByBackoffCount());
+        response.put("delayedByAccountBackoff", loginThrottleService.getDelayedByAccountBackoffCount());
+        response.put("blockedByIp", loginThrottleService.getBlockedByIpCount());
+
+        return Response.ok(response).build();
+    }
+
+    // ==================== EMAIL ====================
+
+    /**
+     * Get email outbox statistics (queue depth, sent/retried/failed counters, SMTP connections opened)
+     */
+    @GET
+    @Path("/email/outbox/stats")
+    @Secured
+    public Response getEmailOutboxStats() {
+        log.info("Admin: Getting email outbox statistics");
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("outbox", emailOutboxService.getStats());
+        response.put("smtpConnectionsOpened", smtpTransportPool.getConnectionsOpened());
+
+        return Response.ok(response).build();
+    }
+
+    /**
+     * Get presence statistics: online users, heartbeat timeouts and lastSeen batches (engine);
+     * transitions, flaps suppressed by the grace window, batches and frames sent (broadcast)
+     */
+    @GET
+    @Path("/presence/stats")
+    @Secured
+    public Response getPresenceStats() {
+        log.info("Admin: Getting presence statistics");
+        Map<String, Object> response = new HashMap<>();
+        response.put("engine", presenceEngine.getStats());
+        response.put("broadcast", presenceAggregator.getStats());
+        return Response.ok(response).build();
+    }
+
+    // ==================== SEARCH ====================
+
+    /**
+     * Get embedded message index statistics (segments, buffered postings, high-water mark, rebuild time)
+     */
+    @GET
+    @Path("/search/messages/index/stats")
+    @Secured
+    public Response getMessageIndexStats() {
+        log.info("Admin: Getting embedded message index statistics");
+        return Response.ok(embeddedMessageIndex.getStats()).build();
+    }
+
+    /**
+     * Rebuild the embedded message index from the database (background; global search falls back meanwhile)
+     */
+    @POST
+    @Path("/search/messages/index/rebuild")
+    @Secured
+    public Response rebuildMessageIndex() {
+        log.info("Admin: Rebuilding embedded message index");
+
+        Map<String, String> response = new HashMap<>();
+        if (!embeddedMessageIndex.rebuild()) {
+            response.put("status", "error");
+            response.put("message", "Embedded message index is disabled");
+            return Response.status(Response.Status.CONFLICT).entity(response).build();
+        }
+        response.put("status", "success");
+        response.put("message", "Embedded message index rebuild started");
+        return Response.ok(response).build();
+    }
+
     // ==================== SYSTEM INFO ====================
 
     /**
@@ -9,9 +9,12 @@ import com.chattrix.api.responses.UserResponse;
 import com.chattrix.api.security.UserContext;
 import com.chattrix.api.services.auth.AuthService;
 import com.chattrix.api.services.auth.VerificationService;
+import com.chattrix.api.utils.ClientIpResolver;
 import jakarta.inject.Inject;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 import jakarta.ws.rs.*;
+import jakarta.ws.rs.core.Context;
 import jakarta.ws.rs.core.MediaType;
 import jakarta.ws.rs.core.Response;
 
@@ -29,6 +32,12 @@ public class AuthResource {
     @Inject
     private VerificationService verificationService;
 
+    @Inject
+    private ClientIpResolver clientIpResolver;
+
+    @Context
+    private HttpServletRequest httpRequest;
+
     @POST
     @Path("/register")
     @RateLimited(maxRequests = 3, windowSeconds = 300)
@@ -43,7 +52,7 @@ public class AuthResource {
     @Path("/login")
     @RateLimited(maxRequests = 10)
     public Response login(@Valid LoginRequest request) {
-        AuthResponse authResponse = authService.login(request);
+        AuthResponse authResponse = authService.login(request, clientIpResolver.resolve(httpRequest));
         return Response.ok(ApiResponse.success(authResponse, "Login successful")).build();
     }
 
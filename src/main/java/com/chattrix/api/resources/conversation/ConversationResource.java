@@ -38,7 +38,7 @@ public class ConversationResource {
     @GET
     public Response getConversations(
             @QueryParam("filter") @DefaultValue("all") String filter,
-            @QueryParam("cursor") Long cursor,
+            @QueryParam("cursor") String cursor,
             @QueryParam("limit") @DefaultValue("20") int limit) {
         var result = conversationService.getConversations(userContext.getCurrentUserId(), filter, cursor, limit);
         return Response.ok(ApiResponse.success(result, "Conversations retrieved successfully")).build();
@@ -26,7 +26,7 @@ public class ConversationSearchResource {
     private UserContext userContext;
 
     /**
-     * Search messages in a specific conversation
+     * Search messages in a specific conversation, sort DESC, ASC (by id) or RELEVANCE
      */
     @GET
     @Path("/messages")
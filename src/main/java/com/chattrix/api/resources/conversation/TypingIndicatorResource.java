@@ -1,5 +1,6 @@
 package com.chattrix.api.resources.conversation;
 
+import com.chattrix.api.exceptions.BusinessException;
 import com.chattrix.api.filters.Secured;
 import com.chattrix.api.responses.ApiResponse;
 import com.chattrix.api.security.UserContext;
@@ -23,7 +24,9 @@ public class TypingIndicatorResource {
     @POST
     @Path("/start")
     public Response startTyping(@PathParam("conversationId") Long conversationId) {
-        typingIndicatorService.startTyping(conversationId, userContext.getCurrentUserId());
+        if (!typingIndicatorService.startTyping(conversationId, userContext.getCurrentUserId())) {
+            throw BusinessException.forbidden("You are not a participant of this conversation");
+        }
         return Response.ok(ApiResponse.success(null, "Started typing")).build();
     }
 
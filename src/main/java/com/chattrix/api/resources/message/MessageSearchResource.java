@@ -37,10 +37,11 @@ public class MessageSearchResource {
             @QueryParam("query") @NotBlank(message = "Search query is required") String query,
             @QueryParam("type") String type,
             @QueryParam("cursor") Long cursor,
-            @QueryParam("limit") @DefaultValue("20") int limit) {
+            @QueryParam("limit") @DefaultValue("20") int limit,
+            @QueryParam("sort") @DefaultValue("RELEVANCE") String sort) {
 
         Long userId = userContext.getCurrentUserId();
-        CursorPaginatedResponse<GlobalSearchResultResponse> results = searchService.globalSearch(userId, query, type, cursor, limit);
+        CursorPaginatedResponse<GlobalSearchResultResponse> results = searchService.globalSearch(userId, query, type, cursor, limit, sort);
 
         return Response.ok(ApiResponse.success(results, "Search completed successfully")).build();
     }
@@ -23,7 +23,7 @@ public class UserSearchResource {
     @GET
     public Response searchUsers(
             @QueryParam("query") @DefaultValue("") String query,
-            @QueryParam("cursor") Long cursor,
+            @QueryParam("cursor") String cursor,
             @QueryParam("limit") @DefaultValue("20") int limit) {
 
         var result = userSearchService.searchUsersWithCursor(
@@ -1,15 +1,19 @@
 package com.chattrix.api.resources.user;
 
 import com.chattrix.api.entities.User;
+import com.chattrix.api.exceptions.BusinessException;
 import com.chattrix.api.filters.Secured;
 import com.chattrix.api.filters.UserPrincipal;
-import com.chattrix.api.mappers.UserMapper;
-import com.chattrix.api.repositories.ConversationParticipantRepository;
 import com.chattrix.api.repositories.UserRepository;
 import com.chattrix.api.responses.ApiResponse;
 import com.chattrix.api.responses.UserResponse;
 import com.chattrix.api.responses.UserStatusResponse;
-import com.chattrix.api.services.cache.OnlineStatusCache;
+import com.chattrix.api.services.cache.ConversationMembershipCache;
+import com.chattrix.api.services.cache.PresenceAudienceIndex;
+import com.chattrix.api.services.cache.UserProfileCache;
+import com.chattrix.api.services.notification.ChatSessionService;
+import com.chattrix.api.services.user.PresenceEngine;
+import com.chattrix.api.services.user.PresenceQueryService;
 import jakarta.inject.Inject;
 import jakarta.ws.rs.*;
 import jakarta.ws.rs.core.Context;
@@ -17,9 +21,11 @@ import jakarta.ws.rs.core.MediaType;
 import jakarta.ws.rs.core.Response;
 import jakarta.ws.rs.core.SecurityContext;
 
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
-import java.util.stream.Collectors;
 
 @Path("/v1/users/status")
 @Produces(MediaType.APPLICATION_JSON)
@@ -27,22 +33,34 @@ import java.util.stream.Collectors;
 @Secured
 public class UserStatusResource {
 
+    // Conversations per online-count request (one conversation list page is at most 100)
+    private static final int MAX_COUNT_CONVERSATIONS = 100;
+
     @Inject
-    private OnlineStatusCache onlineStatusCache;
-    
+    private PresenceEngine presenceEngine;
+
     @Inject
-    private UserRepository userRepository;
+    private PresenceQueryService presenceQueryService;
+
+    @Inject
+    private ConversationMembershipCache membershipCache;
+
+    @Inject
+    private PresenceAudienceIndex audienceIndex;
+
+    @Inject
+    private UserProfileCache userProfileCache;
 
     @Inject
-    private UserMapper userMapper;
-    
+    private ChatSessionService chatSessionService;
+
     @Inject
-    private ConversationParticipantRepository participantRepository;
+    private UserRepository userRepository;
 
     @GET
     @Path("/online")
     public Response getOnlineUsers(@Context SecurityContext securityContext) {
-        Set<Long> onlineUserIds = onlineStatusCache.getOnlineUserIds();
+        Set<Long> onlineUserIds = presenceEngine.getOnlineUserIds();
         List<UserResponse> userDtos = userRepository.findByIdsAsDTO(onlineUserIds);
         return Response.ok(ApiResponse.success(userDtos, "Online users retrieved successfully")).build();
     }
@@ -50,28 +68,47 @@ public class UserStatusResource {
     @GET
     @Path("/online/conversation/{conversationId}")
     public Response getOnlineUsersInConversation(@Context SecurityContext securityContext, @PathParam("conversationId") Long conversationId) {
-        // Get all participant user IDs in conversation
-        List<Long> participantUserIds = participantRepository.findByConversationId(conversationId)
-                .stream()
-                .map(cp -> cp.getUser().getId())
-                .toList();
-        
-        // Filter to only online users
-        Set<Long> onlineUserIds = onlineStatusCache.getOnlineUserIds();
-        Set<Long> onlineParticipantIds = participantUserIds.stream()
-                .filter(onlineUserIds::contains)
-                .collect(Collectors.toSet());
-        
-        // Fetch user DTOs for online participants
-        List<UserResponse> userDtos = userRepository.findByIdsAsDTO(onlineParticipantIds);
+        Long userId = getCurrentUser(securityContext).getId();
+        if (!membershipCache.isParticipant(conversationId, userId)) {
+            throw BusinessException.forbidden("You are not a participant of this conversation");
+        }
+
+        // Membership and profiles from cache, online flags from memory
+        Set<Long> onlineParticipantIds = presenceQueryService.getOnlineMembers(conversationId);
+        List<UserResponse> userDtos = new ArrayList<>(userProfileCache.getAll(onlineParticipantIds).values());
         return Response.ok(ApiResponse.success(userDtos, "Online users in conversation retrieved successfully")).build();
     }
 
+    @GET
+    @Path("/online/contacts")
+    public Response getOnlineContacts(@Context SecurityContext securityContext) {
+        Set<Long> onlineContactIds = presenceQueryService.getOnlineContacts(getCurrentUser(securityContext).getId());
+        List<UserResponse> userDtos = new ArrayList<>(userProfileCache.getAll(onlineContactIds).values());
+        return Response.ok(ApiResponse.success(userDtos, "Online contacts retrieved successfully")).build();
+    }
+
+    /**
+     * Online participant count per conversation; conversations the user isn't part of are left out
+     * before any membership is loaded, so callers can't fill the membership cache with arbitrary conversations
+     */
+    @GET
+    @Path("/online/counts")
+    public Response getOnlineCounts(@Context SecurityContext securityContext, @QueryParam("conversationId") List<Long> conversationIds) {
+        if (conversationIds.size() > MAX_COUNT_CONVERSATIONS) {
+            throw BusinessException.badRequest("At most " + MAX_COUNT_CONVERSATIONS + " conversations per request");
+        }
+        Long userId = getCurrentUser(securityContext).getId();
+        Set<Long> ids = new HashSet<>(conversationIds);
+        ids.retainAll(audienceIndex.getConversationIds(userId));
+        Map<Long, Integer> counts = presenceQueryService.getOnlineCounts(ids);
+        return Response.ok(ApiResponse.success(counts, "Online counts retrieved successfully")).build();
+    }
+
     @GET
     @Path("/{userId}")
     public Response getUserStatus(@Context SecurityContext securityContext, @PathParam("userId") Long userId) {
-        boolean isOnline = onlineStatusCache.isOnline(userId);
-        int sessionCount = isOnline ? 1 : 0;  // Simplified: online = 1 session
+        boolean isOnline = presenceEngine.isOnline(userId);
+        int sessionCount = isOnline ? chatSessionService.getUserSessions(userId).size() : 0;
 
         UserStatusResponse statusDto = new UserStatusResponse(userId, isOnline, sessionCount);
         return Response.ok(ApiResponse.success(statusDto, "User status retrieved successfully")).build();
@@ -15,12 +15,10 @@ import com.chattrix.api.requests.LoginRequest;
 import com.chattrix.api.requests.RegisterRequest;
 import com.chattrix.api.responses.AuthResponse;
 import com.chattrix.api.responses.UserResponse;
-import com.chattrix.api.services.cache.OnlineStatusCache;
 import com.chattrix.api.services.common.AvatarService;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
 import jakarta.transaction.Transactional;
-import org.mindrot.jbcrypt.BCrypt;
 
 import java.time.Instant;
 import java.util.Date;
@@ -54,11 +52,15 @@ public class AuthService {
     private AvatarService avatarService;
 
     @Inject
-    private OnlineStatusCache onlineStatusCache;
+    private PasswordHashingService passwordHashingService;
+
+    @Inject
+    private LoginThrottleService loginThrottleService;
 
     /**
      * Register new user
-     * Flow: Request -> Mapper -> Entity -> Hash password -> Save -> Generate avatar -> Send verification email
+     * Flow: Request -> Mapper -> Entity -> Hash password -> Placeholder avatar -> Save -> Queue verification email
+     * Real avatar is generated off the request path after commit (see AvatarService.scheduleAvatarGeneration)
      */
     @Transactional
     public void register(RegisterRequest request) {
@@ -66,38 +68,52 @@ public class AuthService {
         User newUser = userMapper.toEntity(request);
         
         // 2. Hash password
-        String hashedPassword = BCrypt.hashpw(request.getPassword(), BCrypt.gensalt());
+        String hashedPassword = passwordHashingService.hash(request.getPassword());
         newUser.setPassword(hashedPassword);
+
+        // 3. Deterministic placeholder avatar (no remote call)
+        String placeholderUrl = avatarService.buildPlaceholderUrl(newUser.getUsername(), newUser.getFullName());
+        newUser.setAvatarUrl(placeholderUrl);
         
-        // 3. Save user
+        // 4. Save user (single insert)
         userRepository.save(newUser);
 
-        // 4. Generate and upload avatar
-        String avatarUrl = avatarService.generateAndUploadAvatar(
-            newUser.getId().toString(), 
-            newUser.getFullName()
-        );
-        newUser.setAvatarUrl(avatarUrl);
-        userRepository.save(newUser);
+        // 5. Generate and upload real avatar asynchronously after commit
+        avatarService.scheduleAvatarGeneration(newUser, placeholderUrl);
 
-        // 5. Send verification email
+        // 6. Send verification email
         verificationService.sendVerificationEmailByEmail(newUser.getEmail());
     }
 
     /**
      * Login user
-     * Flow: Validate credentials -> Update online status -> Generate tokens -> Return response
+     * Flow: Throttle check -> Validate credentials -> Rehash if needed -> Update online status -> Generate tokens
      */
     @Transactional
-    public AuthResponse login(LoginRequest request) {
-        // 1. Find user by username or email
-        User user = userRepository.findByUsernameOrEmail(request.getUsernameOrEmail().trim())
-                .orElseThrow(() -> BusinessException.unauthorized("Invalid username/email or password"));
+    public AuthResponse login(LoginRequest request, String clientIp) {
+        String usernameOrEmail = request.getUsernameOrEmail().trim();
+
+        // 0. Per-(account, IP) backoff / per-IP throttling (before any BCrypt work)
+        loginThrottleService.checkAndRecordAttempt(usernameOrEmail, clientIp);
 
-        // 2. Validate password
-        if (!BCrypt.checkpw(request.getPassword(), user.getPassword())) {
+        // 1. Find user by username or email
+        User user = userRepository.findByUsernameOrEmail(usernameOrEmail)
+                .orElseThrow(() -> {
+                    loginThrottleService.recordFailure(usernameOrEmail, clientIp);
+                    return BusinessException.unauthorized("Invalid username/email or password");
+                });
+
+        // 2. Validate password (on dedicated hashing pool)
+        if (!passwordHashingService.verify(request.getPassword(), user.getPassword())) {
+            loginThrottleService.recordFailure(usernameOrEmail, clientIp);
             throw BusinessException.unauthorized("Invalid username/email or password");
         }
+        loginThrottleService.recordSuccess(usernameOrEmail, clientIp);
+
+        // 2b. Transparent rehash when cost factor was changed (saved together with lastSeen below)
+        if (passwordHashingService.needsRehash(user.getPassword())) {
+            user.setPassword(passwordHashingService.rehash(request.getPassword()));
+        }
 
         // 3. Check email verification
         if (!user.isEmailVerified()) {
@@ -106,19 +122,16 @@ public class AuthService {
             );
         }
 
-        // 4. Update online status (cache only)
-        onlineStatusCache.markOnline(user.getId());
-        
-        // 5. Update lastSeen in DB
+        // 4. Update lastSeen in DB (online status follows the WebSocket connection)
         user.setLastSeen(Instant.now());
         userRepository.save(user);
 
-        // 6. Generate tokens
+        // 5. Generate tokens
         String jti = UUID.randomUUID().toString();
         String accessToken = tokenService.generateAccessToken(user, jti);
         RefreshToken refreshToken = tokenService.generateRefreshToken(user, jti, accessToken);
 
-        // 7. Build and return response
+        // 6. Build and return response
         return AuthResponse.builder()
                 .accessToken(accessToken)
                 .refreshToken(refreshToken.getToken())
@@ -148,14 +161,11 @@ public class AuthService {
         User user = userRepository.findById(userId)
                 .orElseThrow(() -> BusinessException.notFound("User not found", "RESOURCE_NOT_FOUND"));
 
-        // 2. Mark offline in cache
-        onlineStatusCache.markOffline(userId);
-        
-        // 3. Update lastSeen
+        // 2. Update lastSeen
         user.setLastSeen(Instant.now());
         userRepository.save(user);
 
-        // 4. Invalidate access token
+        // 3. Invalidate access token
         Date expiration = tokenService.getExpirationFromToken(accessToken);
         InvalidatedToken invalidatedToken = InvalidatedToken.builder()
                 .token(accessToken)
@@ -164,7 +174,7 @@ public class AuthService {
                 .build();
         invalidatedTokenRepository.save(invalidatedToken);
 
-        // 5. Revoke refresh token
+        // 4. Revoke refresh token
         String tokenId = tokenService.getTokenId(accessToken);
         refreshTokenRepository.findByAccessTokenId(tokenId).ifPresent(refreshToken -> {
             refreshToken.revoke();
@@ -174,7 +184,7 @@ public class AuthService {
 
     /**
      * Logout from all devices
-     * Flow: Mark offline -> Update lastSeen -> Revoke all refresh tokens
+     * Flow: Update lastSeen -> Revoke all refresh tokens
      */
     @Transactional
     public void logoutAllDevices(Long userId) {
@@ -182,14 +192,11 @@ public class AuthService {
         User user = userRepository.findById(userId)
                 .orElseThrow(() -> BusinessException.notFound("User not found", "RESOURCE_NOT_FOUND"));
 
-        // 2. Mark offline in cache
-        onlineStatusCache.markOffline(userId);
-        
-        // 3. Update lastSeen
+        // 2. Update lastSeen
         user.setLastSeen(Instant.now());
         userRepository.save(user);
 
-        // 4. Revoke all refresh tokens
+        // 3. Revoke all refresh tokens
         refreshTokenRepository.revokeAllByUser(user);
     }
 
@@ -252,7 +259,7 @@ public class AuthService {
                 .orElseThrow(() -> BusinessException.notFound("User not found", "RESOURCE_NOT_FOUND"));
 
         // 2. Validate current password
-        if (!BCrypt.checkpw(request.getCurrentPassword(), user.getPassword())) {
+        if (!passwordHashingService.verify(request.getCurrentPassword(), user.getPassword())) {
             throw BusinessException.badRequest("Current password is incorrect", "BAD_REQUEST");
         }
 
@@ -265,7 +272,7 @@ public class AuthService {
         }
 
         // 4. Hash and save new password
-        String hashedPassword = BCrypt.hashpw(request.getNewPassword(), BCrypt.gensalt());
+        String hashedPassword = passwordHashingService.hash(request.getNewPassword());
         user.setPassword(hashedPassword);
         userRepository.save(user);
     }
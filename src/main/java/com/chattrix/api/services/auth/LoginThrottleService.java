@@ -0,0 +1,176 @@
+package com.chattrix.api.services.auth;
+
+import com.chattrix.api.config.PasswordHashingConfig;
+import com.chattrix.api.exceptions.BusinessException;
+import com.chattrix.api.services.cache.CacheRegistry;
+import com.chattrix.api.services.cache.CacheStatsRecorder;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.annotation.PostConstruct;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Per-(account, IP) backoff, per-account ceiling and per-IP login throttling, checked BEFORE any BCrypt work.
+ * <p>
+ * - Account + IP: after freeFailedAttempts failures each further attempt must wait a delay doubling
+ *   per failure (capped), reset on successful login. Keyed by the pair, so guessing from one client
+ *   never locks the real user (on another IP) out of the account
+ * - Account: failures from all IPs together, so a botnet doesn't get free attempts per IP. After
+ *   accountFreeFailedAttempts the same doubling backoff applies, capped low (accountBackoffMaxSeconds):
+ *   guesses against the account are rate limited, while the real user waits seconds at most, never locked out
+ * - IP: counts all attempts (credential stuffing rotates accounts, not IPs); the IP comes from
+ *   ClientIpResolver, which only honours X-Forwarded-For from trusted proxies
+ * Failure records expire loginWindowSeconds after the last failure, IP windows after the first attempt.
+ */
+@ApplicationScoped
+@Slf4j
+public class LoginThrottleService {
+
+    private static final int MAX_TRACKED_KEYS = 100_000;
+
+    @Inject
+    private PasswordHashingConfig config;
+
+    @Inject
+    private CacheRegistry cacheRegistry;
+
+    private Cache<String, Failures> failures;
+    private Cache<String, Failures> accountFailures;
+    private Cache<String, AtomicInteger> ipAttempts;
+
+    private final CacheStatsRecorder failuresStats = new CacheStatsRecorder();
+    private final CacheStatsRecorder accountFailuresStats = new CacheStatsRecorder();
+    private final CacheStatsRecorder ipAttemptsStats = new CacheStatsRecorder();
+
+    private final LongAdder delayedByBackoff = new LongAdder();
+    private final LongAdder delayedByAccountBackoff = new LongAdder();
+    private final LongAdder blockedByIp = new LongAdder();
+
+    @PostConstruct
+    public void init() {
+        failures = Caffeine.newBuilder()
+                .expireAfterWrite(Math.max(config.getLoginWindowSeconds(), config.getBackoffMaxSeconds()), TimeUnit.SECONDS)
+                .maximumSize(MAX_TRACKED_KEYS)
+                .recordStats(() -> failuresStats)
+                .build();
+        accountFailures = Caffeine.newBuilder()
+                .expireAfterWrite(Math.max(config.getLoginWindowSeconds(), config.getAccountBackoffMaxSeconds()), TimeUnit.SECONDS)
+                .maximumSize(MAX_TRACKED_KEYS)
+                .recordStats(() -> accountFailuresStats)
+                .build();
+        ipAttempts = Caffeine.newBuilder()
+                .expireAfterWrite(config.getLoginWindowSeconds(), TimeUnit.SECONDS)
+                .maximumSize(MAX_TRACKED_KEYS)
+                .recordStats(() -> ipAttemptsStats)
+                .build();
+
+        cacheRegistry.register("login_account_ip_failures", failures, failuresStats);
+        cacheRegistry.register("login_account_failures", accountFailures, accountFailuresStats);
+        cacheRegistry.register("login_ip_attempts", ipAttempts, ipAttemptsStats);
+    }
+
+    /**
+     * Check throttle limits and count this attempt against the client IP
+     * Throws 429 if the account is in backoff (for this IP or overall) or the IP is over its limit
+     */
+    public void checkAndRecordAttempt(String usernameOrEmail, String clientIp) {
+        long now = System.currentTimeMillis();
+        Failures recorded = failures.getIfPresent(key(usernameOrEmail, clientIp));
+        if (recorded != null) {
+            long waitMillis = recorded.retryAtMillis(config.getFreeFailedAttempts(), config.getBackoffMaxSeconds(), config) - now;
+            if (waitMillis > 0) {
+                delayedByBackoff.increment();
+                long waitSeconds = TimeUnit.MILLISECONDS.toSeconds(waitMillis + 999);
+                log.warn("Login delayed for account {} from IP {}: {} failed attempts, retry in {}s",
+                        usernameOrEmail, clientIp, recorded.count(), waitSeconds);
+                throw BusinessException.tooManyRequests(
+                        "Too many failed login attempts. Please try again in " + waitSeconds + " seconds.");
+            }
+        }
+
+        Failures accountRecorded = accountFailures.getIfPresent(accountKey(usernameOrEmail));
+        if (accountRecorded != null) {
+            long waitMillis = accountRecorded.retryAtMillis(config.getAccountFreeFailedAttempts(),
+                    config.getAccountBackoffMaxSeconds(), config) - now;
+            if (waitMillis > 0) {
+                delayedByAccountBackoff.increment();
+                long waitSeconds = TimeUnit.MILLISECONDS.toSeconds(waitMillis + 999);
+                log.warn("Login delayed for account {}: {} failed attempts from all IPs, retry in {}s",
+                        usernameOrEmail, accountRecorded.count(), waitSeconds);
+                throw BusinessException.tooManyRequests(
+                        "Too many failed login attempts. Please try again in " + waitSeconds + " seconds.");
+            }
+        }
+
+        if (clientIp != null) {
+            int attempts = ipAttempts.get(clientIp, k -> new AtomicInteger()).incrementAndGet();
+            if (attempts > config.getMaxAttemptsPerIp()) {
+                blockedByIp.increment();
+                log.warn("Login throttled for IP {}: {} attempts", clientIp, attempts);
+                throw BusinessException.tooManyRequests(
+                        "Too many login attempts. Please try again in " + config.getLoginWindowSeconds() + " seconds.");
+            }
+        }
+    }
+
+    /**
+     * Record failed login for account from the client IP
+     */
+    public void recordFailure(String usernameOrEmail, String clientIp) {
+        long now = System.currentTimeMillis();
+        failures.asMap().merge(key(usernameOrEmail, clientIp), new Failures(1, now),
+                (current, added) -> new Failures(current.count() + 1, now));
+        accountFailures.asMap().merge(accountKey(usernameOrEmail), new Failures(1, now),
+                (current, added) -> new Failures(current.count() + 1, now));
+    }
+
+    /**
+     * Reset failed login counter for account and client IP after successful login.
+     * The account-wide count is left to expire, so a guessing botnet doesn't restart when the user logs in.
+     */
+    public void recordSuccess(String usernameOrEmail, String clientIp) {
+        failures.invalidate(key(usernameOrEmail, clientIp));
+    }
+
+    public long getDelayedByBackoffCount() {
+        return delayedByBackoff.sum();
+    }
+
+    public long getDelayedByAccountBackoffCount() {
+        return delayedByAccountBackoff.sum();
+    }
+
+    public long getBlockedByIpCount() {
+        return blockedByIp.sum();
+    }
+
+    private String key(String usernameOrEmail, String clientIp) {
+        return accountKey(usernameOrEmail) + "|" + (clientIp != null ? clientIp : "");
+    }
+
+    private String accountKey(String usernameOrEmail) {
+        return usernameOrEmail.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private record Failures(int count, long lastFailureMillis) {
+
+        /**
+         * Free attempts first, then base, 2 x base, 4 x base ... up to maxSeconds after the last failure
+         */
+        long retryAtMillis(int freeAttempts, int maxSeconds, PasswordHashingConfig config) {
+            int excess = count - freeAttempts;
+            if (excess < 0) {
+                return 0;
+            }
+            long delaySeconds = Math.min((long) config.getBackoffBaseSeconds() << Math.min(excess, 20), maxSeconds);
+            return lastFailureMillis + TimeUnit.SECONDS.toMillis(delaySeconds);
+        }
+    }
+}
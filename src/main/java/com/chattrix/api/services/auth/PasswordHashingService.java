@@ -0,0 +1,226 @@
+package com.chattrix.api.services.auth;
+
+import com.chattrix.api.config.PasswordHashingConfig;
+import com.chattrix.api.exceptions.BusinessException;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.mindrot.jbcrypt.BCrypt;
+
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Runs BCrypt hashing/verification on a dedicated bounded pool instead of request threads.
+ * <p>
+ * - Fixed number of hashing threads, bounded queue (rejects when full)
+ * - Jobs that waited longer than the queue SLO are dropped before running BCrypt
+ * - Cost factor is configurable; hashes with a different cost are reported by {@link #needsRehash}
+ */
+@ApplicationScoped
+@Slf4j
+public class PasswordHashingService {
+
+    private static final String BUSY_CODE = "AUTH_BUSY";
+    private static final String BUSY_MESSAGE = "Server is busy, please try again in a few seconds";
+
+    @Inject
+    private PasswordHashingConfig config;
+
+    private ThreadPoolExecutor executor;
+
+    // Metrics
+    private final LongAdder hashCount = new LongAdder();
+    private final LongAdder verifyCount = new LongAdder();
+    private final LongAdder rehashCount = new LongAdder();
+    private final LongAdder rejectedCount = new LongAdder();
+    private final LongAdder queueTimeoutCount = new LongAdder();
+    private final LongAdder totalWorkNanos = new LongAdder();
+    private final LongAdder totalQueueWaitNanos = new LongAdder();
+    private final AtomicLong maxWorkNanos = new AtomicLong();
+    private final AtomicLong maxQueueWaitNanos = new AtomicLong();
+
+    @PostConstruct
+    public void init() {
+        AtomicInteger threadCounter = new AtomicInteger();
+        executor = new ThreadPoolExecutor(
+                config.getPoolSize(),
+                config.getPoolSize(),
+                0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(config.getQueueCapacity()),
+                r -> {
+                    Thread thread = new Thread(r, "PasswordHasher-" + threadCounter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy()
+        );
+
+        log.info("PasswordHashingService initialized. Pool: {}, Queue: {}, Cost: {}",
+                config.getPoolSize(), config.getQueueCapacity(), config.getBcryptCost());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (executor != null) {
+            executor.shutdown();
+            try {
+                if (!executor.awaitTermination(5, TimeUnit.SECONDS))
+                    executor.shutdownNow();
+            } catch (InterruptedException e) {
+                executor.shutdownNow();
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Hash raw password with the configured cost
+     */
+    public String hash(String rawPassword) {
+        hashCount.increment();
+        return execute(() -> BCrypt.hashpw(rawPassword, BCrypt.gensalt(config.getBcryptCost())));
+    }
+
+    /**
+     * Verify raw password against stored BCrypt hash
+     */
+    public boolean verify(String rawPassword, String hashedPassword) {
+        verifyCount.increment();
+        return execute(() -> BCrypt.checkpw(rawPassword, hashedPassword));
+    }
+
+    /**
+     * Check whether stored hash was produced with a different cost than configured
+     * Format: $2a$10$... (cost is the 2 digits after the second '$')
+     */
+    public boolean needsRehash(String hashedPassword) {
+        if (hashedPassword == null || hashedPassword.length() < 7 || hashedPassword.charAt(0) != '$') {
+            return true;
+        }
+        try {
+            int cost = Integer.parseInt(hashedPassword.substring(4, 6));
+            return cost != config.getBcryptCost();
+        } catch (NumberFormatException e) {
+            return true;
+        }
+    }
+
+    /**
+     * Hash password again with current cost (transparent rehash on successful login)
+     */
+    public String rehash(String rawPassword) {
+        rehashCount.increment();
+        return hash(rawPassword);
+    }
+
+    private <T> T execute(Callable<T> work) {
+        long enqueuedAt = System.nanoTime();
+        long queueTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(config.getQueueTimeoutMillis());
+
+        Future<T> future;
+        try {
+            future = executor.submit(() -> {
+                long startedAt = System.nanoTime();
+                long waited = startedAt - enqueuedAt;
+                totalQueueWaitNanos.add(waited);
+                maxQueueWaitNanos.accumulateAndGet(waited, Math::max);
+
+                // Caller has most likely given up already - don't burn CPU on BCrypt
+                if (waited > queueTimeoutNanos) {
+                    queueTimeoutCount.increment();
+                    throw new QueueTimeoutException();
+                }
+
+                try {
+                    return work.call();
+                } finally {
+                    long took = System.nanoTime() - startedAt;
+                    totalWorkNanos.add(took);
+                    maxWorkNanos.accumulateAndGet(took, Math::max);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            rejectedCount.increment();
+            log.warn("Password hashing queue full ({} queued), rejecting request", executor.getQueue().size());
+            throw BusinessException.serviceUnavailable(BUSY_MESSAGE, BUSY_CODE);
+        }
+
+        try {
+            return future.get(config.getQueueTimeoutMillis() + config.getHashTimeoutMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            queueTimeoutCount.increment();
+            throw BusinessException.serviceUnavailable(BUSY_MESSAGE, BUSY_CODE);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof QueueTimeoutException) {
+                throw BusinessException.serviceUnavailable(BUSY_MESSAGE, BUSY_CODE);
+            }
+            if (cause instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new RuntimeException("Password hashing failed", cause);
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw BusinessException.serviceUnavailable(BUSY_MESSAGE, BUSY_CODE);
+        }
+    }
+
+    /**
+     * Get hashing pool statistics
+     */
+    public HashingStats getStats() {
+        long completed = executor.getCompletedTaskCount();
+        return HashingStats.builder()
+                .bcryptCost(config.getBcryptCost())
+                .poolSize(config.getPoolSize())
+                .activeThreads(executor.getActiveCount())
+                .queueSize(executor.getQueue().size())
+                .queueCapacity(config.getQueueCapacity())
+                .hashCount(hashCount.sum())
+                .verifyCount(verifyCount.sum())
+                .rehashCount(rehashCount.sum())
+                .rejectedCount(rejectedCount.sum())
+                .queueTimeoutCount(queueTimeoutCount.sum())
+                .completedCount(completed)
+                .avgWorkMillis(completed > 0 ? totalWorkNanos.sum() / 1_000_000.0 / completed : 0.0)
+                .maxWorkMillis(maxWorkNanos.get() / 1_000_000.0)
+                .avgQueueWaitMillis(completed > 0 ? totalQueueWaitNanos.sum() / 1_000_000.0 / completed : 0.0)
+                .maxQueueWaitMillis(maxQueueWaitNanos.get() / 1_000_000.0)
+                .build();
+    }
+
+    private static class QueueTimeoutException extends RuntimeException {
+        QueueTimeoutException() {
+            super(null, null, false, false);
+        }
+    }
+
+    @Builder
+    @Getter
+    public static class HashingStats {
+        private final int bcryptCost;
+        private final int poolSize;
+        private final int activeThreads;
+        private final int queueSize;
+        private final int queueCapacity;
+        private final long hashCount;
+        private final long verifyCount;
+        private final long rehashCount;
+        private final long rejectedCount;
+        private final long queueTimeoutCount;
+        private final long completedCount;
+        private final double avgWorkMillis;
+        private final double maxWorkMillis;
+        private final double avgQueueWaitMillis;
+        private final double maxQueueWaitMillis;
+    }
+}
@@ -14,7 +14,6 @@ import com.chattrix.api.services.notification.EmailService;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
 import jakarta.transaction.Transactional;
-import org.mindrot.jbcrypt.BCrypt;
 
 import java.time.Instant;
 import java.time.temporal.ChronoUnit;
@@ -33,6 +32,9 @@ public class VerificationService {
     @Inject
     private EmailService emailService;
 
+    @Inject
+    private PasswordHashingService passwordHashingService;
+
     /**
      * Send verification email
      * Flow: Find user -> Validate -> Delete old tokens -> Generate OTP -> Save token -> Send email
@@ -193,7 +195,7 @@ public class VerificationService {
         userTokenRepository.save(token);
 
         // 6. Hash and update password
-        String hashedPassword = BCrypt.hashpw(request.getNewPassword(), BCrypt.gensalt());
+        String hashedPassword = passwordHashingService.hash(request.getNewPassword());
         user.setPassword(hashedPassword);
         userRepository.save(user);
     }
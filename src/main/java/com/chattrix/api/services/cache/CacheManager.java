@@ -1,5 +1,7 @@
 package com.chattrix.api.services.cache;
 
+import com.chattrix.api.services.user.PresenceEngine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
 import lombok.Builder;
@@ -7,7 +9,7 @@ import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
 
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -17,9 +19,10 @@ import java.util.Set;
  * Provides unified interface for cache operations, monitoring, and health checks
  * <p>
  * Manages:
- * - OnlineStatusCache - User online/offline status
  * - UserProfileCache - User profile data
  * - ConversationCache - Conversation metadata
+ * - ConversationMembershipCache - Participant IDs per conversation
+ * - PresenceAudienceIndex - Contacts and conversations per user (status fan-out)
  * - MessageCache - Recent messages (Write-Behind)
  * - UnreadCountCache - Unread message counts (Write-Behind)
  */
@@ -27,8 +30,14 @@ import java.util.Set;
 @Slf4j
 public class CacheManager {
 
+    // Recommendations/health only for caches with enough traffic to be meaningful
+    private static final long MIN_REQUESTS_FOR_ANALYSIS = 1_000;
+    private static final double LOW_HIT_RATE = 0.6;
+    private static final double DEGRADED_HIT_RATE = 0.5;
+    private static final double SLOW_LOAD_MILLIS = 50.0;
+
     @Inject
-    private OnlineStatusCache onlineStatusCache;
+    private PresenceEngine presenceEngine;
 
     @Inject
     private UserProfileCache userProfileCache;
@@ -36,20 +45,35 @@ public class CacheManager {
     @Inject
     private ConversationCache conversationCache;
 
+    @Inject
+    private ConversationMembershipCache membershipCache;
+
+    @Inject
+    private PresenceAudienceIndex audienceIndex;
+
     @Inject
     private MessageCache messageCache;
 
     @Inject
     private UnreadCountCache unreadCountCache;
 
+    @Inject
+    private CacheRegistry cacheRegistry;
+
+    @Inject
+    private CacheWarmer cacheWarmer;
+
     /**
-     * Clear all caches (use with caution - causes cache miss storm)
+     * Clear all caches
+     * Read-through caches load each key once however many requests miss it concurrently (single-flight),
+     * but the first requests after a clear still pay for those loads
      */
     public void clearAll() {
         log.warn("Clearing ALL caches - this will cause temporary performance degradation");
-        onlineStatusCache.clearAll();
         userProfileCache.clear();
         conversationCache.clear();
+        membershipCache.clear();
+        audienceIndex.clear();
         messageCache.clear();
         unreadCountCache.clear();
         log.info("All caches cleared");
@@ -74,21 +98,23 @@ public class CacheManager {
         log.debug("Invalidating caches for conversation: {} with {} participants",
                 conversationId, participantIds.size());
         conversationCache.invalidateForAllParticipants(conversationId, participantIds);
-        messageCache.invalidate(conversationId);
+        // Note: MessageCache is NOT invalidated - message writers update its recent window in place
         // Note: UnreadCountCache is NOT invalidated (Write-Behind pattern)
     }
 
     /**
-     * Warm up caches on application startup
-     * Pre-loads frequently accessed data to improve initial response times
+     * Warm up caches from recent activity (see {@link CacheWarmer}), also run on application startup
+     * Returns once warm-up finished or its time budget ran out
      */
-    public void warmUp() {
-        log.info("Starting cache warm-up...");
-        // Can be extended to preload:
-        // - Top 100 active users
-        // - Recent conversations
-        // - Popular groups
-        log.info("Cache warm-up completed");
+    public CacheWarmer.WarmupStats warmUp() {
+        return cacheWarmer.warmUpAll();
+    }
+
+    /**
+     * Progress of the current or last warm-up
+     */
+    public CacheWarmer.WarmupStats getWarmupStats() {
+        return cacheWarmer.getStats();
     }
 
     // ==================== MONITORING & STATISTICS ====================
@@ -101,8 +127,8 @@ public class CacheManager {
         stats.append("╔════════════════════════════════════════════════════════════╗\n");
         stats.append("║              CACHE STATISTICS REPORT                      ║\n");
         stats.append("╠════════════════════════════════════════════════════════════╣\n");
-        stats.append("║ Online Status Cache                                        ║\n");
-        stats.append("║ ").append(String.format("%-56s", onlineStatusCache.getCacheStats())).append(" ║\n");
+        stats.append("║ Presence                                                   ║\n");
+        stats.append("║ ").append(String.format("%-56s", "Online users: " + presenceEngine.getOnlineCount())).append(" ║\n");
         stats.append("╠════════════════════════════════════════════════════════════╣\n");
         stats.append("║ User Profile Cache                                         ║\n");
         stats.append("║ ").append(String.format("%-56s", userProfileCache.getStats())).append(" ║\n");
@@ -110,6 +136,12 @@ public class CacheManager {
         stats.append("║ Conversation Cache                                         ║\n");
         stats.append("║ ").append(String.format("%-56s", conversationCache.getStats())).append(" ║\n");
         stats.append("╠════════════════════════════════════════════════════════════╣\n");
+        stats.append("║ Membership Cache                                           ║\n");
+        stats.append("║ ").append(String.format("%-56s", membershipCache.getStats())).append(" ║\n");
+        stats.append("╠════════════════════════════════════════════════════════════╣\n");
+        stats.append("║ Presence Audience Index                                    ║\n");
+        stats.append("║ ").append(String.format("%-56s", audienceIndex.getStats())).append(" ║\n");
+        stats.append("╠════════════════════════════════════════════════════════════╣\n");
         stats.append("║ Message Cache                                              ║\n");
         stats.append("║ ").append(String.format("%-56s", messageCache.getStats())).append(" ║\n");
         stats.append("╠════════════════════════════════════════════════════════════╣\n");
@@ -121,82 +153,60 @@ public class CacheManager {
 
     /**
      * Get detailed cache metrics for monitoring systems (Prometheus, etc.)
+     * Keyed by registry name, see {@link CacheRegistry}
      */
     public Map<String, CacheMetrics> getDetailedMetrics() {
-        Map<String, CacheMetrics> metrics = new HashMap<>();
-
-        // Note: Actual metrics would come from Caffeine cache.stats()
-        // This is a simplified version
-
-        metrics.put("online_status", CacheMetrics.builder()
-                .name("OnlineStatusCache")
-                .size(onlineStatusCache.getOnlineUserCount())
-                .hitRate(0.0) // Would come from cache.stats()
-                .missRate(0.0)
-                .evictionCount(0L)
-                .build());
-
-        metrics.put("user_profile", CacheMetrics.builder()
-                .name("UserProfileCache")
-                .size(userProfileCache.getCachedUserIds().size())
-                .hitRate(0.0)
-                .missRate(0.0)
-                .evictionCount(0L)
-                .build());
-
-        metrics.put("conversation", CacheMetrics.builder()
-                .name("ConversationCache")
-                .size(0L) // Estimate
-                .hitRate(0.0)
-                .missRate(0.0)
-                .evictionCount(0L)
-                .build());
-
-        metrics.put("message", CacheMetrics.builder()
-                .name("MessageCache")
-                .size(0L) // Estimate
-                .hitRate(0.0)
-                .missRate(0.0)
-                .evictionCount(0L)
-                .build());
-
-        metrics.put("unread_count", CacheMetrics.builder()
-                .name("UnreadCountCache")
-                .size(0L) // Estimate
-                .hitRate(0.0)
-                .missRate(0.0)
-                .evictionCount(0L)
-                .build());
+        Map<String, CacheMetrics> metrics = new LinkedHashMap<>();
+
+        for (CacheRegistry.CacheSnapshot snapshot : cacheRegistry.getSnapshots()) {
+            metrics.put(snapshot.getName(), CacheMetrics.builder()
+                    .name(snapshot.getName())
+                    .size(snapshot.getSize())
+                    .maximumSize(snapshot.getMaximumSize())
+                    .hitCount(snapshot.getHitCount())
+                    .missCount(snapshot.getMissCount())
+                    .hitRate(snapshot.getHitRate())
+                    .missRate(snapshot.getMissRate())
+                    .loadCount(snapshot.getLoadSuccessCount() + snapshot.getLoadFailureCount())
+                    .averageLoadPenaltyMillis(snapshot.getAverageLoadPenaltyMillis())
+                    .evictionCount(snapshot.getEvictionCount())
+                    .evictionsByCause(snapshot.getEvictionsByCause())
+                    .build());
+        }
 
         return metrics;
     }
 
+    /**
+     * Export all cache metrics in Prometheus text format
+     */
+    public String exportPrometheusMetrics() {
+        return cacheRegistry.exportPrometheus();
+    }
+
     /**
      * Get cache health status for health check endpoints
+     * DEGRADED when a cache with enough traffic has hit rate below 50%
      */
     public CacheHealthStatus getHealthStatus() {
-        long onlineStatusSize = onlineStatusCache.getOnlineUserCount();
-        long userProfileSize = userProfileCache.getCachedUserIds().size();
-
-        // Health check criteria:
-        // - All caches are accessible
-        // - No excessive evictions
-        // - Hit rates are reasonable (> 50%)
-        boolean healthy = true;
-        String status = "HEALTHY";
+        List<CacheRegistry.CacheSnapshot> snapshots = cacheRegistry.getSnapshots();
 
-        // Add health checks here
-        // For example: if hit rate < 50%, mark as degraded
+        List<String> degraded = snapshots.stream()
+                .filter(s -> s.getRequestCount() >= MIN_REQUESTS_FOR_ANALYSIS && s.getHitRate() < DEGRADED_HIT_RATE)
+                .map(CacheRegistry.CacheSnapshot::getName)
+                .toList();
+        String status = degraded.isEmpty() ? "HEALTHY" : "DEGRADED";
 
         return CacheHealthStatus.builder()
                 .status(status)
-                .healthy(healthy)
-                .onlineStatusCacheSize(onlineStatusSize)
-                .userProfileCacheSize(userProfileSize)
-                .conversationCacheSize(0L) // Estimate
-                .messageCacheSize(0L) // Estimate
-                .unreadCountCacheSize(0L) // Estimate
-                .totalCacheSize(onlineStatusSize + userProfileSize)
+                .healthy(degraded.isEmpty())
+                .degradedCaches(degraded)
+                .onlineUsers(presenceEngine.getOnlineCount())
+                .userProfileCacheSize(sizeOf("user_profile"))
+                .conversationCacheSize(sizeOf("conversation"))
+                .messageCacheSize(sizeOf("message"))
+                .unreadCountCacheSize(sizeOf("unread_count"))
+                .totalCacheSize(calculateTotalCacheSize(snapshots))
                 .build();
     }
 
@@ -205,35 +215,93 @@ public class CacheManager {
      * Useful for identifying cache tuning opportunities
      */
     public CacheEfficiencyReport getEfficiencyReport() {
+        List<CacheRegistry.CacheSnapshot> snapshots = cacheRegistry.getSnapshots();
         return CacheEfficiencyReport.builder()
-                .overallHitRate(calculateOverallHitRate())
-                .totalCacheSize(calculateTotalCacheSize())
-                .recommendations(generateRecommendations())
+                .overallHitRate(calculateOverallHitRate(snapshots))
+                .totalCacheSize(calculateTotalCacheSize(snapshots))
+                .recommendations(generateRecommendations(snapshots))
                 .build();
     }
 
     // ==================== HELPER METHODS ====================
 
-    private double calculateOverallHitRate() {
-        // Weighted average of all cache hit rates
-        // Would need to collect actual stats from each cache
-        return 0.65; // Placeholder
+    private long sizeOf(String cacheName) {
+        CacheRegistry.CacheSnapshot snapshot = cacheRegistry.getSnapshot(cacheName);
+        return snapshot != null ? snapshot.getSize() : 0L;
     }
 
-    private long calculateTotalCacheSize() {
-        return onlineStatusCache.getOnlineUserCount()
-                + userProfileCache.getCachedUserIds().size();
+    /**
+     * Request-weighted hit rate over all caches
+     */
+    private double calculateOverallHitRate(List<CacheRegistry.CacheSnapshot> snapshots) {
+        long hits = 0;
+        long requests = 0;
+        for (CacheRegistry.CacheSnapshot snapshot : snapshots) {
+            hits += snapshot.getHitCount();
+            requests += snapshot.getRequestCount();
+        }
+        return requests > 0 ? (double) hits / requests : 0.0;
     }
 
-    private List<String> generateRecommendations() {
-        List<String> recommendations = new ArrayList<>();
+    private long calculateTotalCacheSize(List<CacheRegistry.CacheSnapshot> snapshots) {
+        return snapshots.stream().mapToLong(CacheRegistry.CacheSnapshot::getSize).sum();
+    }
 
-        // Example recommendations based on metrics
-        // In production, these would be based on actual cache stats
+    /**
+     * Recommendations per cache from recorded stats.
+     * Hit-rate and load checks skip caches with fewer than MIN_REQUESTS_FOR_ANALYSIS lookups (not enough data).
+     */
+    private List<String> generateRecommendations(List<CacheRegistry.CacheSnapshot> snapshots) {
+        List<String> recommendations = new ArrayList<>();
 
-        recommendations.add("✓ Cache hit rates are healthy (>60%)");
-        recommendations.add("✓ No excessive evictions detected");
-        recommendations.add("ℹ Consider increasing MessageCache size if hit rate drops below 60%");
+        for (CacheRegistry.CacheSnapshot s : snapshots) {
+            // Failed write-behind flushes matter regardless of lookup volume
+            CacheRegistry.WriteBehindStats writeBehind = s.getWriteBehind();
+            if (writeBehind != null && writeBehind.restoredCount() > 0) {
+                recommendations.add(String.format(
+                        "⚠ %s: %d of %d flushed entries failed to write and were re-queued (%d pending) - check DB errors",
+                        s.getName(), writeBehind.restoredCount(), writeBehind.drainedCount(), writeBehind.dirtyCount()));
+            }
+
+            if (s.getRequestCount() < MIN_REQUESTS_FOR_ANALYSIS) {
+                continue;
+            }
+
+            long sizeEvictions = s.getEvictionsByCause().getOrDefault(RemovalCause.SIZE.name(), 0L);
+            long expiredEvictions = s.getEvictionsByCause().getOrDefault(RemovalCause.EXPIRED.name(), 0L);
+            boolean nearCapacity = s.getMaximumSize() != null && s.getSize() >= s.getMaximumSize() * 0.9;
+
+            if (s.getHitRate() < LOW_HIT_RATE) {
+                if (sizeEvictions > 0 && nearCapacity) {
+                    recommendations.add(String.format(
+                            "⚠ %s: hit rate %.1f%% with %d size evictions at %d/%d entries - increase maximumSize",
+                            s.getName(), s.getHitRate() * 100, sizeEvictions, s.getSize(), s.getMaximumSize()));
+                } else if (expiredEvictions > sizeEvictions) {
+                    recommendations.add(String.format(
+                            "⚠ %s: hit rate %.1f%%, mostly expiry evictions (%d) - consider a longer TTL",
+                            s.getName(), s.getHitRate() * 100, expiredEvictions));
+                } else {
+                    recommendations.add(String.format(
+                            "⚠ %s: hit rate %.1f%% without eviction pressure - entries are rarely reused, check access pattern",
+                            s.getName(), s.getHitRate() * 100));
+                }
+            }
+
+            if (s.getAverageLoadPenaltyMillis() > SLOW_LOAD_MILLIS) {
+                recommendations.add(String.format(
+                        "⚠ %s: average load takes %.1f ms - consider bulk loading or warming this cache",
+                        s.getName(), s.getAverageLoadPenaltyMillis()));
+            }
+
+            if (s.getLoadFailureCount() > 0) {
+                recommendations.add(String.format("⚠ %s: %d failed loads", s.getName(), s.getLoadFailureCount()));
+            }
+        }
+
+        if (recommendations.isEmpty()) {
+            recommendations.add(String.format(
+                    "✓ No issues detected (caches with at least %d lookups analysed)", MIN_REQUESTS_FOR_ANALYSIS));
+        }
 
         return recommendations;
     }
@@ -243,7 +311,8 @@ public class CacheManager {
     public static class CacheHealthStatus {
         private String status; // HEALTHY, DEGRADED, UNHEALTHY
         private boolean healthy;
-        private long onlineStatusCacheSize;
+        private List<String> degradedCaches;
+        private long onlineUsers;
         private long userProfileCacheSize;
         private long conversationCacheSize;
         private long messageCacheSize;
@@ -256,9 +325,15 @@ public class CacheManager {
     public static class CacheMetrics {
         private String name;
         private long size;
+        private Long maximumSize;
+        private long hitCount;
+        private long missCount;
         private double hitRate;
         private double missRate;
+        private long loadCount;
+        private double averageLoadPenaltyMillis;
         private long evictionCount;
+        private Map<String, Long> evictionsByCause;
     }
 
     @Builder
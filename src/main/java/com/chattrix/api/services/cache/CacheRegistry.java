@@ -0,0 +1,276 @@
+package com.chattrix.api.services.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Policy;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import jakarta.annotation.PreDestroy;
+import jakarta.enterprise.context.ApplicationScoped;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Registry of all caches in the application.
+ * <p>
+ * Every cache registers itself on startup with its {@link CacheStatsRecorder}:
+ * <pre>
+ * private final CacheStatsRecorder statsRecorder = new CacheStatsRecorder();
+ * private final Cache&lt;K, V&gt; cache = Caffeine.newBuilder()...recordStats(() -> statsRecorder).build();
+ *
+ * &#64;PostConstruct
+ * public void init() { cacheRegistry.register("name", cache, statsRecorder); }
+ * </pre>
+ * Caches not built on Caffeine (the unread counter store) report to a recorder themselves and register
+ * with a size supplier, plus write-behind counters if they buffer writes.
+ * <p>
+ * Snapshots feed CacheManager metrics/recommendations and the Prometheus export.
+ * <p>
+ * Loading caches run background loads (refresh-ahead, coalesced bulk loads) on {@link #loaderExecutor()}.
+ */
+@ApplicationScoped
+@Slf4j
+public class CacheRegistry {
+
+    private static final String METRIC_PREFIX = "chattrix_cache_";
+    private static final int LOADER_THREADS = 4;
+
+    private final Map<String, Source> caches = new ConcurrentHashMap<>();
+
+    private final AtomicInteger loaderThreadCounter = new AtomicInteger();
+    private final ExecutorService loaderExecutor = Executors.newFixedThreadPool(LOADER_THREADS, r -> {
+        Thread thread = new Thread(r, "CacheLoader-" + loaderThreadCounter.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * Register cache under unique name (snake_case, used as Prometheus label)
+     */
+    public void register(String name, Cache<?, ?> cache, CacheStatsRecorder statsRecorder) {
+        add(name, new CaffeineSource(cache, statsRecorder));
+    }
+
+    /**
+     * Register cache that is not backed by Caffeine. It records lookups, loads and evictions on
+     * statsRecorder itself; size and write-behind counters (null if it writes through) are read per snapshot.
+     */
+    public void register(String name, CacheStatsRecorder statsRecorder, LongSupplier size, Long maximumSize,
+                         Supplier<WriteBehindStats> writeBehind) {
+        add(name, new CustomSource(statsRecorder, size, maximumSize, writeBehind));
+    }
+
+    private void add(String name, Source source) {
+        if (caches.putIfAbsent(name, source) != null) {
+            log.warn("Cache '{}' is already registered, ignoring", name);
+            return;
+        }
+        log.debug("Registered cache '{}'", name);
+    }
+
+    /**
+     * Executor for cache loads that don't run on the caller's thread.
+     * Own threads instead of the common pool, so loads see the deployment class loader.
+     */
+    public Executor loaderExecutor() {
+        return loaderExecutor;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        loaderExecutor.shutdownNow();
+    }
+
+    /**
+     * Get snapshot of one cache, null if not registered
+     */
+    public CacheSnapshot getSnapshot(String name) {
+        Source registered = caches.get(name);
+        return registered != null ? registered.snapshot(name) : null;
+    }
+
+    /**
+     * Get snapshots of all registered caches, sorted by name
+     */
+    public List<CacheSnapshot> getSnapshots() {
+        return caches.entrySet().stream()
+                .sorted(Map.Entry.comparingByKey())
+                .map(entry -> entry.getValue().snapshot(entry.getKey()))
+                .toList();
+    }
+
+    /**
+     * Export all caches in Prometheus text exposition format (version 0.0.4)
+     */
+    public String exportPrometheus() {
+        List<CacheSnapshot> snapshots = getSnapshots();
+        StringBuilder out = new StringBuilder();
+
+        header(out, "size", "gauge", "Estimated number of entries");
+        snapshots.forEach(s -> sample(out, "size", s.getName(), null, s.getSize()));
+
+        header(out, "max_size", "gauge", "Configured maximum size (absent if unbounded)");
+        snapshots.stream().filter(s -> s.getMaximumSize() != null)
+                .forEach(s -> sample(out, "max_size", s.getName(), null, s.getMaximumSize()));
+
+        header(out, "requests_total", "counter", "Cache lookups by result");
+        snapshots.forEach(s -> {
+            sample(out, "requests_total", s.getName(), "result=\"hit\"", s.getHitCount());
+            sample(out, "requests_total", s.getName(), "result=\"miss\"", s.getMissCount());
+        });
+
+        header(out, "loads_total", "counter", "Cache loads by result");
+        snapshots.forEach(s -> {
+            sample(out, "loads_total", s.getName(), "result=\"success\"", s.getLoadSuccessCount());
+            sample(out, "loads_total", s.getName(), "result=\"failure\"", s.getLoadFailureCount());
+        });
+
+        header(out, "evictions_total", "counter", "Evictions by removal cause");
+        snapshots.forEach(s -> s.getEvictionsByCause().forEach((cause, count) ->
+                sample(out, "evictions_total", s.getName(), "cause=\"" + cause + "\"", count)));
+
+        header(out, "load_duration_seconds", "histogram", "Time spent loading values on miss");
+        for (CacheSnapshot s : snapshots) {
+            long cumulative = 0;
+            long[] buckets = s.getLoadBucketCounts();
+            for (int i = 0; i < buckets.length; i++) {
+                cumulative += buckets[i];
+                String le = i < CacheStatsRecorder.LOAD_BUCKETS_SECONDS.length
+                        ? Double.toString(CacheStatsRecorder.LOAD_BUCKETS_SECONDS[i])
+                        : "+Inf";
+                sample(out, "load_duration_seconds_bucket", s.getName(), "le=\"" + le + "\"", cumulative);
+            }
+            out.append(METRIC_PREFIX).append("load_duration_seconds_sum{cache=\"").append(s.getName()).append("\"} ")
+                    .append(s.getTotalLoadTimeNanos() / 1_000_000_000.0).append('\n');
+            sample(out, "load_duration_seconds_count", s.getName(), null, cumulative);
+        }
+
+        List<CacheSnapshot> writeBehind = snapshots.stream().filter(s -> s.getWriteBehind() != null).toList();
+        if (!writeBehind.isEmpty()) {
+            header(out, "dirty_entries", "gauge", "Entries changed but not yet written to the database");
+            writeBehind.forEach(s -> sample(out, "dirty_entries", s.getName(), null, s.getWriteBehind().dirtyCount()));
+
+            header(out, "flushes_total", "counter", "Write-behind flushes");
+            writeBehind.forEach(s -> sample(out, "flushes_total", s.getName(), null, s.getWriteBehind().flushCount()));
+
+            header(out, "flushed_entries_total", "counter", "Entries drained by write-behind flushes by result");
+            writeBehind.forEach(s -> {
+                WriteBehindStats stats = s.getWriteBehind();
+                sample(out, "flushed_entries_total", s.getName(), "result=\"success\"",
+                        stats.drainedCount() - stats.restoredCount());
+                sample(out, "flushed_entries_total", s.getName(), "result=\"failure\"", stats.restoredCount());
+            });
+        }
+
+        return out.toString();
+    }
+
+    private static void header(StringBuilder out, String metric, String type, String help) {
+        out.append("# HELP ").append(METRIC_PREFIX).append(metric).append(' ').append(help).append('\n');
+        out.append("# TYPE ").append(METRIC_PREFIX).append(metric).append(' ').append(type).append('\n');
+    }
+
+    private static void sample(StringBuilder out, String metric, String cache, String extraLabel, long value) {
+        out.append(METRIC_PREFIX).append(metric).append("{cache=\"").append(cache).append('"');
+        if (extraLabel != null) {
+            out.append(',').append(extraLabel);
+        }
+        out.append("} ").append(value).append('\n');
+    }
+
+    private interface Source {
+        CacheSnapshot snapshot(String name);
+    }
+
+    private record CaffeineSource(Cache<?, ?> cache, CacheStatsRecorder statsRecorder) implements Source {
+
+        @Override
+        public CacheSnapshot snapshot(String name) {
+            Long maximumSize = cache.policy().eviction()
+                    .map(Policy.Eviction::getMaximum)
+                    .orElse(null);
+            // Weighted caches report total weight (e.g. entries across per-user buckets), not buckets
+            long size = cache.policy().eviction()
+                    .map(eviction -> eviction.weightedSize().orElse(cache.estimatedSize()))
+                    .orElse(cache.estimatedSize());
+
+            return fromRecorder(name, statsRecorder)
+                    .size(size)
+                    .maximumSize(maximumSize)
+                    .build();
+        }
+    }
+
+    private record CustomSource(CacheStatsRecorder statsRecorder, LongSupplier size, Long maximumSize,
+                                Supplier<WriteBehindStats> writeBehind) implements Source {
+
+        @Override
+        public CacheSnapshot snapshot(String name) {
+            return fromRecorder(name, statsRecorder)
+                    .size(size.getAsLong())
+                    .maximumSize(maximumSize)
+                    .writeBehind(writeBehind != null ? writeBehind.get() : null)
+                    .build();
+        }
+    }
+
+    private static CacheSnapshot.CacheSnapshotBuilder fromRecorder(String name, CacheStatsRecorder statsRecorder) {
+        CacheStats stats = statsRecorder.snapshot();
+        Map<String, Long> evictions = new LinkedHashMap<>();
+        statsRecorder.evictionsByCause().forEach((cause, count) -> evictions.put(cause.name(), count));
+
+        return CacheSnapshot.builder()
+                .name(name)
+                .hitCount(stats.hitCount())
+                .missCount(stats.missCount())
+                .hitRate(stats.hitRate())
+                .missRate(stats.missRate())
+                .loadSuccessCount(stats.loadSuccessCount())
+                .loadFailureCount(stats.loadFailureCount())
+                .totalLoadTimeNanos(stats.totalLoadTime())
+                .averageLoadPenaltyMillis(stats.averageLoadPenalty() / 1_000_000.0)
+                .evictionCount(stats.evictionCount())
+                .evictionsByCause(evictions)
+                .loadBucketCounts(statsRecorder.loadBucketCounts());
+    }
+
+    /**
+     * Counters of a write-behind cache: pending entries, flushes, entries drained by flushes
+     * and entries put back after a failed write
+     */
+    public record WriteBehindStats(long dirtyCount, long flushCount, long drainedCount, long restoredCount) {
+    }
+
+    @Builder
+    @Getter
+    public static class CacheSnapshot {
+        private final String name;
+        private final long size;
+        private final Long maximumSize;
+        private final long hitCount;
+        private final long missCount;
+        private final double hitRate;
+        private final double missRate;
+        private final long loadSuccessCount;
+        private final long loadFailureCount;
+        private final long totalLoadTimeNanos;
+        private final double averageLoadPenaltyMillis;
+        private final long evictionCount;
+        private final Map<String, Long> evictionsByCause;
+        private final long[] loadBucketCounts;
+        // Null unless the cache buffers writes
+        private final WriteBehindStats writeBehind;
+
+        public long getRequestCount() {
+            return hitCount + missCount;
+        }
+    }
+}
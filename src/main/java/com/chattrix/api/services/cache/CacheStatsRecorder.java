@@ -0,0 +1,101 @@
+package com.chattrix.api.services.cache;
+
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.github.benmanes.caffeine.cache.stats.ConcurrentStatsCounter;
+import com.github.benmanes.caffeine.cache.stats.StatsCounter;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Caffeine StatsCounter that also keeps a load-time histogram and eviction counts per removal cause.
+ * Pass to Caffeine with {@code .recordStats(() -> recorder)} and register the cache in {@link CacheRegistry}.
+ */
+public class CacheStatsRecorder implements StatsCounter {
+
+    // Upper bounds of load-time buckets in seconds (Prometheus "le" labels), +Inf is implicit
+    static final double[] LOAD_BUCKETS_SECONDS = {0.0005, 0.001, 0.005, 0.01, 0.05, 0.1, 0.5, 1, 5};
+
+    private final StatsCounter delegate = new ConcurrentStatsCounter();
+    private final LongAdder[] loadBuckets = new LongAdder[LOAD_BUCKETS_SECONDS.length + 1];
+    private final Map<RemovalCause, LongAdder> evictionsByCause = new EnumMap<>(RemovalCause.class);
+
+    public CacheStatsRecorder() {
+        for (int i = 0; i < loadBuckets.length; i++) {
+            loadBuckets[i] = new LongAdder();
+        }
+        for (RemovalCause cause : RemovalCause.values()) {
+            if (cause.wasEvicted()) {
+                evictionsByCause.put(cause, new LongAdder());
+            }
+        }
+    }
+
+    @Override
+    public void recordHits(int count) {
+        delegate.recordHits(count);
+    }
+
+    @Override
+    public void recordMisses(int count) {
+        delegate.recordMisses(count);
+    }
+
+    @Override
+    public void recordLoadSuccess(long loadTime) {
+        delegate.recordLoadSuccess(loadTime);
+        recordLoadTime(loadTime);
+    }
+
+    @Override
+    public void recordLoadFailure(long loadTime) {
+        delegate.recordLoadFailure(loadTime);
+        recordLoadTime(loadTime);
+    }
+
+    @Override
+    public void recordEviction(int weight, RemovalCause cause) {
+        delegate.recordEviction(weight, cause);
+        LongAdder counter = evictionsByCause.get(cause);
+        if (counter != null) {
+            counter.increment();
+        }
+    }
+
+    @Override
+    public CacheStats snapshot() {
+        return delegate.snapshot();
+    }
+
+    /**
+     * Non-cumulative load counts per bucket, last element is the +Inf bucket
+     */
+    public long[] loadBucketCounts() {
+        long[] counts = new long[loadBuckets.length];
+        for (int i = 0; i < loadBuckets.length; i++) {
+            counts[i] = loadBuckets[i].sum();
+        }
+        return counts;
+    }
+
+    /**
+     * Eviction counts keyed by removal cause (SIZE, EXPIRED, COLLECTED)
+     */
+    public Map<RemovalCause, Long> evictionsByCause() {
+        Map<RemovalCause, Long> result = new EnumMap<>(RemovalCause.class);
+        evictionsByCause.forEach((cause, counter) -> result.put(cause, counter.sum()));
+        return result;
+    }
+
+    private void recordLoadTime(long loadTimeNanos) {
+        double seconds = loadTimeNanos / (double) TimeUnit.SECONDS.toNanos(1);
+        int bucket = 0;
+        while (bucket < LOAD_BUCKETS_SECONDS.length && seconds > LOAD_BUCKETS_SECONDS[bucket]) {
+            bucket++;
+        }
+        loadBuckets[bucket].increment();
+    }
+}
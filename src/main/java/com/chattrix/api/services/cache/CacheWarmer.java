@@ -1,69 +1,284 @@
 package com.chattrix.api.services.cache;
 
-import com.chattrix.api.entities.User;
-import com.chattrix.api.mappers.UserMapper;
+import com.chattrix.api.config.CacheWarmupConfig;
+import com.chattrix.api.repositories.ConversationRepository;
 import com.chattrix.api.repositories.UserRepository;
-import com.chattrix.api.responses.UserResponse;
+import com.chattrix.api.responses.ConversationResponse;
+import com.chattrix.api.responses.CursorPaginatedResponse;
+import com.chattrix.api.services.conversation.ConversationService;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
+import lombok.Builder;
+import lombok.Getter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntSupplier;
+import java.util.stream.IntStream;
 
 /**
  * Service to warm up caches on application startup or on-demand
+ * <p>
+ * Driven by recent activity, all stages run in parallel on a dedicated pool:
+ * - User profiles of users seen in the last 7 days (bulk loads of CHUNK_SIZE)
+ * - First page of the conversation list for the most recently seen of them,
+ *   which also loads their unread counters for that page
+ * - Participant sets of the conversations with the most recent activity
+ * <p>
+ * Work not started within the time budget is skipped (counted per stage), so a slow DB
+ * delays nothing but the warm-up itself. Progress is exposed through {@link #getStats()}.
  */
 @ApplicationScoped
 public class CacheWarmer {
-    
+
     private static final Logger logger = LoggerFactory.getLogger(CacheWarmer.class);
-    private static final int HOT_USERS_LIMIT = 1000;
-    
+    private static final int CHUNK_SIZE = 500;
+
+    @Inject
+    private CacheWarmupConfig config;
+
     @Inject
     private UserRepository userRepository;
-    
+
     @Inject
-    private UserMapper userMapper;
-    
+    private ConversationRepository conversationRepository;
+
     @Inject
     private UserProfileCache userProfileCache;
-    
+
+    @Inject
+    private ConversationMembershipCache membershipCache;
+
+    @Inject
+    private ConversationService conversationService;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+    private volatile Run lastRun;
+
     /**
-     * Warm up user profile cache with hot users
-     * Hot users = users with recent activity
+     * Warm up all caches, returns once every stage finished or the time budget ran out.
+     * If a warm-up is already running, returns its current progress without starting another.
      */
-    public void warmUpUserProfiles() {
-        logger.info("Warming up user profile cache...");
-        
+    public WarmupStats warmUpAll() {
+        if (!running.compareAndSet(false, true)) {
+            logger.info("Cache warm-up already running, skipping");
+            return getStats();
+        }
+
+        Run run = new Run(Duration.ofSeconds(config.getBudgetSeconds()));
+        lastRun = run;
+        logger.info("Starting cache warm-up (budget {}s, {} threads)...", config.getBudgetSeconds(), config.getThreads());
+
+        AtomicInteger threadCounter = new AtomicInteger();
+        ExecutorService workers = Executors.newFixedThreadPool(config.getThreads(), r -> {
+            Thread thread = new Thread(r, "CacheWarmer-" + threadCounter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
         try {
-            // Get hot users (users with recent lastSeen)
-            List<User> hotUsers = userRepository.findRecentActiveUsers(HOT_USERS_LIMIT);
-            
-            // Convert to UserResponse and cache
-            Map<Long, UserResponse> userProfiles = hotUsers.stream()
-                .collect(Collectors.toMap(
-                    User::getId,
-                    userMapper::toResponse
-                ));
-            
-            userProfileCache.putAll(userProfiles);
-            
-            logger.info("User profile cache warmed up with {} users", userProfiles.size());
+            List<Long> userIds = userRepository.findRecentActiveUserIds(config.getUserLimit());
+            List<Long> conversationIds = conversationRepository.findRecentlyActiveIds(config.getConversationLimit());
+
+            // Bulk stages first: few cheap tasks, done early even when the budget runs out on list views
+            for (List<Long> chunk : chunks(userIds)) {
+                run.userProfiles.submit(workers, run, chunk.size(),
+                        () -> userProfileCache.getAll(new HashSet<>(chunk)).size());
+            }
+            for (List<Long> chunk : chunks(conversationIds)) {
+                run.memberships.submit(workers, run, chunk.size(),
+                        () -> membershipCache.getParticipantIds(new HashSet<>(chunk)).size());
+            }
+            for (Long userId : userIds.subList(0, Math.min(config.getListViewUserLimit(), userIds.size()))) {
+                run.listViews.submit(workers, run, 1, () -> warmUpListView(run, userId));
+            }
+
+            workers.shutdown();
+            if (!workers.awaitTermination(run.remainingNanos(), TimeUnit.NANOSECONDS)) {
+                run.budgetExceeded = true;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            run.failed = true;
         } catch (Exception e) {
-            logger.error("Error warming up user profile cache", e);
+            logger.error("Error warming up caches", e);
+            run.failed = true;
+        } finally {
+            // In-flight loads finish on their own (daemon threads), nothing new starts
+            workers.shutdownNow();
+            run.finishedAt = Instant.now();
+            running.set(false);
+        }
+
+        WarmupStats stats = getStats();
+        logger.info("Cache warm-up {} in {} ms: {}", stats.getState(), stats.getElapsedMillis(), stats.getStages());
+        return stats;
+    }
+
+    /**
+     * Run {@link #warmUpAll()} on a background thread
+     */
+    public CompletableFuture<WarmupStats> warmUpAllAsync() {
+        return CompletableFuture.supplyAsync(this::warmUpAll, r -> {
+            Thread thread = new Thread(r, "CacheWarmup");
+            thread.setDaemon(true);
+            thread.start();
+        });
+    }
+
+    /**
+     * Progress of the current or last warm-up
+     */
+    public WarmupStats getStats() {
+        Run run = lastRun;
+        if (run == null) {
+            return WarmupStats.builder().state("IDLE").stages(Map.of()).build();
+        }
+
+        Instant end = run.finishedAt != null ? run.finishedAt : Instant.now();
+        Map<String, StageStats> stages = new LinkedHashMap<>();
+        for (Stage stage : List.of(run.userProfiles, run.listViews, run.unreadCounts, run.memberships)) {
+            stages.put(stage.name, stage.snapshot());
         }
+        return WarmupStats.builder()
+                .state(run.state())
+                .startedAt(run.startedAt)
+                .finishedAt(run.finishedAt)
+                .elapsedMillis(Duration.between(run.startedAt, end).toMillis())
+                .budgetMillis(run.budget.toMillis())
+                .stages(stages)
+                .build();
     }
-    
+
+    private int warmUpListView(Run run, Long userId) {
+        // Same path as the API: loads and caches the first page (a hit if already cached)
+        CursorPaginatedResponse<ConversationResponse> page =
+                conversationService.getConversations(userId, null, null, config.getListViewPageSize());
+        run.unreadCounts.record(page.getItems().size());
+        return 1;
+    }
+
+    private static List<List<Long>> chunks(List<Long> ids) {
+        int count = (ids.size() + CHUNK_SIZE - 1) / CHUNK_SIZE;
+        return IntStream.range(0, count)
+                .mapToObj(i -> ids.subList(i * CHUNK_SIZE, Math.min((i + 1) * CHUNK_SIZE, ids.size())))
+                .toList();
+    }
+
+    /**
+     * One warm-up run: deadline and per-stage progress
+     */
+    private static final class Run {
+        private final Instant startedAt = Instant.now();
+        private final long deadlineNanos;
+        private final Duration budget;
+        private final Stage userProfiles = new Stage("userProfiles");
+        private final Stage listViews = new Stage("listViews");
+        private final Stage unreadCounts = new Stage("unreadCounts");
+        private final Stage memberships = new Stage("memberships");
+        private volatile Instant finishedAt;
+        private volatile boolean budgetExceeded;
+        private volatile boolean failed;
+
+        Run(Duration budget) {
+            this.budget = budget;
+            this.deadlineNanos = System.nanoTime() + budget.toNanos();
+        }
+
+        long remainingNanos() {
+            return Math.max(0, deadlineNanos - System.nanoTime());
+        }
+
+        String state() {
+            if (finishedAt == null) {
+                return "RUNNING";
+            }
+            if (failed) {
+                return "FAILED";
+            }
+            return budgetExceeded ? "BUDGET_EXCEEDED" : "COMPLETED";
+        }
+    }
+
     /**
-     * Warm up all caches
+     * Item counters of one stage; an item is a user, conversation or counter.
+     * Planned items missing from loaded (without failures) no longer exist in the DB.
      */
-    public void warmUpAll() {
-        logger.info("Starting cache warm-up...");
-        warmUpUserProfiles();
-        // Add more warm-up methods as needed
-        logger.info("Cache warm-up completed");
+    private static final class Stage {
+        private final String name;
+        private final AtomicInteger planned = new AtomicInteger();
+        private final AtomicInteger loaded = new AtomicInteger();
+        private final AtomicInteger failed = new AtomicInteger();
+        private final AtomicInteger skipped = new AtomicInteger();
+
+        Stage(String name) {
+            this.name = name;
+        }
+
+        void submit(ExecutorService workers, Run run, int items, IntSupplier task) {
+            planned.addAndGet(items);
+            workers.execute(() -> {
+                if (run.remainingNanos() == 0 || Thread.currentThread().isInterrupted()) {
+                    skipped.addAndGet(items);
+                    return;
+                }
+                try {
+                    loaded.addAndGet(task.getAsInt());
+                } catch (Exception e) {
+                    failed.addAndGet(items);
+                    logger.warn("Cache warm-up {} task failed: {}", name, e.getMessage());
+                }
+            });
+        }
+
+        void record(int items) {
+            planned.addAndGet(items);
+            loaded.addAndGet(items);
+        }
+
+        StageStats snapshot() {
+            return StageStats.builder()
+                    .planned(planned.get())
+                    .loaded(loaded.get())
+                    .failed(failed.get())
+                    .skipped(skipped.get())
+                    .build();
+        }
+    }
+
+    @Builder
+    @Getter
+    public static class WarmupStats {
+        private final String state;
+        private final Instant startedAt;
+        private final Instant finishedAt;
+        private final long elapsedMillis;
+        private final long budgetMillis;
+        private final Map<String, StageStats> stages;
+    }
+
+    @Builder
+    @Getter
+    public static class StageStats {
+        private final int planned;
+        private final int loaded;
+        private final int failed;
+        private final int skipped;
+
+        @Override
+        public String toString() {
+            return String.format("loaded %d/%d (failed %d, skipped %d)", loaded, planned, failed, skipped);
+        }
     }
 }
@@ -0,0 +1,53 @@
+package com.chattrix.api.services.cache;
+
+import com.chattrix.api.config.CacheWarmupConfig;
+import jakarta.annotation.PostConstruct;
+import jakarta.ejb.Singleton;
+import jakarta.ejb.Startup;
+import jakarta.ejb.TransactionAttribute;
+import jakarta.ejb.TransactionAttributeType;
+import jakarta.inject.Inject;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Starts cache warm-up on deployment.
+ * Deployment (and so readiness) waits for it at most cache.warmup.readiness.timeout.seconds,
+ * after that warm-up continues in the background within its own budget.
+ */
+@Singleton
+@Startup
+@Slf4j
+public class CacheWarmupStartup {
+
+    @Inject
+    private CacheWarmer cacheWarmer;
+
+    @Inject
+    private CacheWarmupConfig config;
+
+    @PostConstruct
+    @TransactionAttribute(TransactionAttributeType.NOT_SUPPORTED)
+    public void init() {
+        if (!config.isEnabled()) {
+            log.info("Cache warm-up on startup disabled");
+            return;
+        }
+
+        Future<CacheWarmer.WarmupStats> warmUp = cacheWarmer.warmUpAllAsync();
+        try {
+            warmUp.get(config.getReadinessTimeoutSeconds(), TimeUnit.SECONDS);
+        } catch (TimeoutException e) {
+            log.info("Cache warm-up still running after {}s, continuing in background",
+                    config.getReadinessTimeoutSeconds());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            log.error("Cache warm-up failed", e.getCause());
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package com.chattrix.api.services.cache;
+
+/**
+ * An accepted contact between two users was created or removed
+ *
+ * @param userId        owner of the contact entry
+ * @param contactUserId the other user
+ * @param connected     true if the users are now contacts, false if an entry was removed
+ */
+public record ContactChanged(Long userId, Long contactUserId, boolean connected) {
+}
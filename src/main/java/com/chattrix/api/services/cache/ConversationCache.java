@@ -1,108 +1,611 @@
 package com.chattrix.api.services.cache;
 
 import com.chattrix.api.responses.ConversationResponse;
+import com.chattrix.api.responses.ConversationSettingsResponse;
+import com.chattrix.api.utils.ConversationCursor;
 import com.github.benmanes.caffeine.cache.Cache;
 import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.Resource;
 import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.transaction.Status;
+import jakarta.transaction.Synchronization;
+import jakarta.transaction.TransactionSynchronizationRegistry;
 
-import java.util.Map;
-import java.util.Set;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
-import java.util.stream.Collectors;
+import java.util.function.Consumer;
+import java.util.function.UnaryOperator;
 
 /**
  * Cache for conversation metadata (lastMessage, unreadCount, participants)
  * Used to speed up conversation list loading
+ * <p>
+ * Two levels instead of one flat "userId_conversationId" map:
+ * - userId -> {@link UserEntries}: immutable snapshot of that user's cached conversations
+ *   (sorted long[] of conversation IDs + parallel arrays), replaced atomically on every write.
+ *   Caffeine bounds the total number of conversations through a weigher.
+ * - conversationId -> userIds: secondary index of who has the conversation cached.
+ * <p>
+ * Invalidating one user or one conversation touches only the affected entries;
+ * lookups allocate nothing beyond the boxed userId.
  */
 @ApplicationScoped
 public class ConversationCache {
-    
+
     private static final int CACHE_EXPIRY_MINUTES = 10;
     private static final int MAX_CACHE_SIZE = 100_000;
-    
-    // Cache key: userId_conversationId
-    private final Cache<String, ConversationResponse> cache = Caffeine.newBuilder()
-        .expireAfterWrite(CACHE_EXPIRY_MINUTES, TimeUnit.MINUTES)
-        .maximumSize(MAX_CACHE_SIZE)
+    private static final int MAX_ENTRIES_PER_USER = 1_000;
+
+    private static final long EXPIRY_NANOS = TimeUnit.MINUTES.toNanos(CACHE_EXPIRY_MINUTES);
+
+    @Inject
+    private CacheRegistry cacheRegistry;
+
+    @Resource
+    private TransactionSynchronizationRegistry transactionRegistry;
+
+    private final CacheStatsRecorder statsRecorder = new CacheStatsRecorder();
+
+    // conversationId -> users holding it in their UserEntries; may over-approximate (entries pruned
+    // on write stay indexed until the conversation is invalidated) - extra users are a no-op
+    private final Map<Long, Set<Long>> usersByConversation = new ConcurrentHashMap<>();
+
+    // Weight = number of conversations held for the user; stats are recorded per conversation lookup
+    private final Cache<Long, UserEntries> cache = Caffeine.newBuilder()
+        .expireAfterAccess(CACHE_EXPIRY_MINUTES, TimeUnit.MINUTES)
+        .maximumWeight(MAX_CACHE_SIZE)
+        .weigher((Long userId, UserEntries entries) -> entries.size())
+        .evictionListener((Long userId, UserEntries entries, RemovalCause cause) -> unindexUser(userId, entries))
+        .recordStats(() -> statsRecorder)
         .build();
-    
-    /**
-     * Generate cache key
-     */
-    private String getCacheKey(Long userId, Long conversationId) {
-        return userId + "_" + conversationId;
+
+    @PostConstruct
+    public void init() {
+        cacheRegistry.register("conversation", cache, statsRecorder);
     }
-    
+
     /**
      * Get conversation from cache
      */
     public ConversationResponse get(Long userId, Long conversationId) {
-        return cache.getIfPresent(getCacheKey(userId, conversationId));
+        UserEntries entries = cache.asMap().get(userId);
+        ConversationResponse response = entries != null ? entries.get(conversationId, System.nanoTime()) : null;
+        if (response != null) {
+            statsRecorder.recordHits(1);
+        } else {
+            statsRecorder.recordMisses(1);
+        }
+        return response != null ? copyOf(response) : null;
     }
-    
+
     /**
      * Put conversation into cache
      */
     public void put(Long userId, Long conversationId, ConversationResponse conversation) {
-        cache.put(getCacheKey(userId, conversationId), conversation);
+        putAll(userId, Map.of(conversationId, conversation));
     }
-    
+
     /**
      * Put multiple conversations into cache
      */
     public void putAll(Long userId, Map<Long, ConversationResponse> conversations) {
-        Map<String, ConversationResponse> cacheEntries = conversations.entrySet().stream()
-            .collect(Collectors.toMap(
-                entry -> getCacheKey(userId, entry.getKey()),
-                Map.Entry::getValue
-            ));
-        cache.putAll(cacheEntries);
+        if (conversations.isEmpty()) {
+            return;
+        }
+        index(userId, conversations.keySet());
+        long now = System.nanoTime();
+        cache.asMap().compute(userId, (id, entries) ->
+                (entries != null ? entries : UserEntries.EMPTY).with(copies(conversations), now));
     }
-    
+
+    // ==================== LIST VIEW ====================
+
+    /**
+     * First page (up to limit) of the user's non-archived conversation list, or null if not cached
+     */
+    public ListView getList(Long userId, int limit) {
+        UserEntries entries = cache.asMap().get(userId);
+        ListView view = entries != null ? entries.list(limit, System.nanoTime()) : null;
+        if (view != null) {
+            statsRecorder.recordHits(1);
+        } else {
+            statsRecorder.recordMisses(1);
+        }
+        return view;
+    }
+
+    /**
+     * Cache first page of the user's conversation list, already in list order.
+     * complete = the list has no further conversations.
+     */
+    public void putList(Long userId, List<ConversationResponse> ordered, boolean complete) {
+        index(userId, ordered.stream().map(ConversationResponse::getId).toList());
+        List<ConversationResponse> copies = ordered.stream().map(ConversationCache::copyOf).toList();
+        long now = System.nanoTime();
+        cache.asMap().compute(userId, (id, entries) ->
+                (entries != null ? entries : UserEntries.EMPTY).withList(copies, complete, now));
+    }
+
+    /**
+     * New message in conversation: update lastMessage/updatedAt in place and move the
+     * conversation up in every participant's list view (auto-unarchive included).
+     * Inside a transaction the views change only once it commits; a rolled back send leaves them untouched.
+     */
+    public void onNewMessage(Long conversationId, Set<Long> participantIds,
+                             ConversationResponse.MessageResponse lastMessage, Instant activityAt) {
+        int status = transactionRegistry != null ? transactionRegistry.getTransactionStatus() : Status.STATUS_NO_TRANSACTION;
+        if (status == Status.STATUS_NO_TRANSACTION) {
+            applyNewMessage(conversationId, participantIds, lastMessage, activityAt);
+            return;
+        }
+        if (status != Status.STATUS_ACTIVE) {
+            return;  // Marked for rollback
+        }
+        Set<Long> participants = Set.copyOf(participantIds);
+        transactionRegistry.registerInterposedSynchronization(new Synchronization() {
+            @Override
+            public void beforeCompletion() {
+            }
+
+            @Override
+            public void afterCompletion(int completionStatus) {
+                if (completionStatus == Status.STATUS_COMMITTED) {
+                    applyNewMessage(conversationId, participants, lastMessage, activityAt);
+                }
+            }
+        });
+    }
+
+    private void applyNewMessage(Long conversationId, Set<Long> participantIds,
+                                 ConversationResponse.MessageResponse lastMessage, Instant activityAt) {
+        UnaryOperator<ConversationResponse> update = response -> {
+            // Never replace a newer last message (a flush may report a message after a later send)
+            ConversationResponse.MessageResponse current = response.getLastMessage();
+            if (current == null || current.getSentAt() == null || lastMessage.getSentAt() == null
+                    || !lastMessage.getSentAt().isBefore(current.getSentAt())) {
+                response.setLastMessage(lastMessage);
+            }
+            if (response.getUpdatedAt() == null || activityAt.isAfter(response.getUpdatedAt())) {
+                response.setUpdatedAt(activityAt);
+            }
+            if (response.getSettings() != null) {
+                response.getSettings().setArchived(false);
+            }
+            return response;
+        };
+        for (Long userId : affectedUsers(conversationId, participantIds)) {
+            cache.asMap().computeIfPresent(userId, (id, entries) -> entries.updated(conversationId, update, true));
+        }
+    }
+
+    /**
+     * Per-user settings change (mute, pin) applied in place; the list is re-sorted.
+     * mayEnterList: the change can move a conversation not held in the view into it (pin)
+     */
+    public void updateSettings(Long userId, Long conversationId, boolean mayEnterList,
+                               Consumer<ConversationSettingsResponse> update) {
+        cache.asMap().computeIfPresent(userId, (id, entries) -> entries.updated(conversationId, response -> {
+            if (response.getSettings() != null) {
+                update.accept(response.getSettings());
+            }
+            return response;
+        }, mayEnterList));
+    }
+
+    /**
+     * Conversation left the user's list (archived): drop it, the rest of the view stays valid
+     */
+    public void removeFromList(Long userId, Long conversationId) {
+        cache.asMap().computeIfPresent(userId, (id, entries) -> entries.withoutListed(conversationId));
+        unindex(conversationId, userId);
+    }
+
+    /**
+     * Drop the user's list view (entries by ID stay cached)
+     */
+    public void invalidateList(Long userId) {
+        cache.asMap().computeIfPresent(userId, (id, entries) -> entries.withoutList());
+    }
+
+    // ==================== INVALIDATION ====================
+
     /**
      * Invalidate conversation for specific user
      */
     public void invalidate(Long userId, Long conversationId) {
-        cache.invalidate(getCacheKey(userId, conversationId));
+        cache.asMap().computeIfPresent(userId, (id, entries) -> entries.without(conversationId));
+        unindex(conversationId, userId);
     }
-    
+
     /**
      * Invalidate conversation for all participants
      * Call this when new message arrives or conversation is updated
+     * <p>
+     * Entries in a list view are marked stale (reloaded on next read, position kept) instead of removed.
      */
     public void invalidateForAllParticipants(Long conversationId, Set<Long> participantIds) {
-        Set<String> keys = participantIds.stream()
-            .map(userId -> getCacheKey(userId, conversationId))
-            .collect(Collectors.toSet());
-        cache.invalidateAll(keys);
+        for (Long userId : affectedUsers(conversationId, participantIds)) {
+            cache.asMap().computeIfPresent(userId, (id, entries) -> entries.stale(conversationId));
+        }
     }
-    
+
     /**
      * Invalidate all conversations for a user
      */
     public void invalidateAllForUser(Long userId) {
-        String prefix = userId + "_";
-        Set<String> keysToInvalidate = cache.asMap().keySet().stream()
-            .filter(key -> key.startsWith(prefix))
-            .collect(Collectors.toSet());
-        cache.invalidateAll(keysToInvalidate);
+        UserEntries removed = cache.asMap().remove(userId);
+        if (removed != null) {
+            unindexUser(userId, removed);
+        }
     }
-    
+
     /**
      * Clear all cache
      */
     public void clear() {
         cache.invalidateAll();
+        usersByConversation.clear();
+    }
+
+    /**
+     * Number of cached conversations across all users
+     */
+    public long size() {
+        return cache.policy().eviction()
+                .map(eviction -> eviction.weightedSize().orElse(cache.estimatedSize()))
+                .orElse(cache.estimatedSize());
     }
-    
+
     /**
      * Get cache statistics
      */
     public String getStats() {
         return String.format(
-            "ConversationCache - Size: %d, Hit Rate: %.2f%%",
+            "ConversationCache - Size: %d, Users: %d, Hit Rate: %.2f%%",
+            size(),
             cache.estimatedSize(),
-            cache.stats().hitRate() * 100
+            statsRecorder.snapshot().hitRate() * 100
         );
     }
+
+    /**
+     * Users holding the conversation (secondary index) plus its participants - covers a user
+     * re-added while its evicted entries were being unindexed, and views that don't hold it yet
+     */
+    private Set<Long> affectedUsers(Long conversationId, Set<Long> participantIds) {
+        Set<Long> userIds = new HashSet<>(participantIds);
+        Set<Long> indexed = usersByConversation.get(conversationId);
+        if (indexed != null) {
+            userIds.addAll(indexed);
+        }
+        return userIds;
+    }
+
+    // Index before writing: a concurrent per-conversation invalidation must be able to find the new entries
+    private void index(Long userId, Collection<Long> conversationIds) {
+        for (Long conversationId : conversationIds) {
+            usersByConversation.computeIfAbsent(conversationId, id -> ConcurrentHashMap.newKeySet()).add(userId);
+        }
+    }
+
+    private void unindexUser(Long userId, UserEntries entries) {
+        for (long conversationId : entries.conversationIds) {
+            unindex(conversationId, userId);
+        }
+    }
+
+    private void unindex(Long conversationId, Long userId) {
+        usersByConversation.computeIfPresent(conversationId, (id, userIds) -> {
+            userIds.remove(userId);
+            return userIds.isEmpty() ? null : userIds;
+        });
+    }
+
+    private static Map<Long, ConversationResponse> copies(Map<Long, ConversationResponse> conversations) {
+        Map<Long, ConversationResponse> copies = new HashMap<>();
+        conversations.forEach((id, response) -> copies.put(id, copyOf(response)));
+        return copies;
+    }
+
+    /**
+     * Copy that callers may mutate (settings, updatedAt, unreadCount, participants' online) without touching the cached value
+     */
+    private static ConversationResponse copyOf(ConversationResponse response) {
+        ConversationSettingsResponse settings = response.getSettings();
+        ConversationSettingsResponse settingsCopy = settings == null ? null : ConversationSettingsResponse.builder()
+                .conversationId(settings.getConversationId())
+                .muted(settings.getMuted())
+                .mutedUntil(settings.getMutedUntil())
+                .blocked(settings.getBlocked())
+                .notificationsEnabled(settings.getNotificationsEnabled())
+                .customNickname(settings.getCustomNickname())
+                .theme(settings.getTheme())
+                .pinned(settings.getPinned())
+                .pinOrder(settings.getPinOrder())
+                .archived(settings.getArchived())
+                .hidden(settings.getHidden())
+                .build();
+        return new ConversationResponse(response.getId(), response.getType(), response.getName(),
+                response.getAvatarUrl(), response.getDescription(), response.getCreatedAt(), response.getUpdatedAt(),
+                copyOf(response.getParticipants()), response.getLastMessage(), response.getUnreadCount(), settingsCopy);
+    }
+
+    private static List<ConversationResponse.ParticipantResponse> copyOf(List<ConversationResponse.ParticipantResponse> participants) {
+        if (participants == null) {
+            return null;
+        }
+        List<ConversationResponse.ParticipantResponse> copies = new ArrayList<>(participants.size());
+        for (ConversationResponse.ParticipantResponse p : participants) {
+            copies.add(new ConversationResponse.ParticipantResponse(p.getUserId(), p.getUsername(), p.getFullName(),
+                    p.getAvatarUrl(), p.getRole(), p.getOnline(), p.getLastSeen()));
+        }
+        return copies;
+    }
+
+    /**
+     * Immutable per-user entries: conversation IDs sorted for binary search with parallel slots,
+     * plus the optional list view (first page of the inbox as ordered IDs). Expired entries are
+     * skipped on read and pruned on write.
+     * <p>
+     * The list view is always a correct prefix of the user's conversation list: any change that
+     * could bring a conversation not held in the view into that prefix drops the view instead.
+     */
+    static final class UserEntries {
+
+        static final UserEntries EMPTY = new UserEntries(new long[0], new Slot[0], null, false);
+
+        private final long[] conversationIds;
+        private final Slot[] slots;
+        private final long[] listOrder;   // null = no list view
+        private final boolean listComplete;
+
+        private UserEntries(long[] conversationIds, Slot[] slots, long[] listOrder, boolean listComplete) {
+            this.conversationIds = conversationIds;
+            this.slots = slots;
+            this.listOrder = listOrder;
+            this.listComplete = listComplete;
+        }
+
+        int size() {
+            return conversationIds.length;
+        }
+
+        ConversationResponse get(long conversationId, long now) {
+            int index = Arrays.binarySearch(conversationIds, conversationId);
+            return index >= 0 && slots[index].isFresh(now) && !slots[index].stale() ? slots[index].value() : null;
+        }
+
+        ListView list(int limit, long now) {
+            if (listOrder == null || (listOrder.length < limit && !listComplete)) {
+                return null;
+            }
+            int count = Math.min(limit, listOrder.length);
+            List<ConversationResponse> items = new ArrayList<>(count);
+            Set<Long> staleIds = new HashSet<>();
+            for (int i = 0; i < count; i++) {
+                int index = Arrays.binarySearch(conversationIds, listOrder[i]);
+                if (index < 0 || !slots[index].isFresh(now)) {
+                    return null;
+                }
+                items.add(copyOf(slots[index].value()));
+                if (slots[index].stale()) {
+                    staleIds.add(listOrder[i]);
+                }
+            }
+            return new ListView(items, staleIds, listOrder.length > limit || !listComplete);
+        }
+
+        UserEntries with(Map<Long, ConversationResponse> additions, long now) {
+            long[] addedIds = new long[additions.size()];
+            int n = 0;
+            for (Long id : additions.keySet()) {
+                addedIds[n++] = id;
+            }
+            Arrays.sort(addedIds);
+
+            // Merge the two sorted runs, dropping expired entries and entries being replaced
+            int capacity = conversationIds.length + addedIds.length;
+            long[] ids = new long[capacity];
+            Slot[] newSlots = new Slot[capacity];
+            int size = 0;
+            int i = 0;
+            int j = 0;
+            while (i < conversationIds.length || j < addedIds.length) {
+                if (j == addedIds.length || (i < conversationIds.length && conversationIds[i] < addedIds[j])) {
+                    if (slots[i].isFresh(now)) {
+                        ids[size] = conversationIds[i];
+                        newSlots[size++] = slots[i];
+                    }
+                    i++;
+                } else {
+                    if (i < conversationIds.length && conversationIds[i] == addedIds[j]) {
+                        i++;
+                    }
+                    ids[size] = addedIds[j];
+                    newSlots[size++] = new Slot(additions.get(addedIds[j]), now, false);
+                    j++;
+                }
+            }
+            UserEntries merged = new UserEntries(
+                    Arrays.copyOf(ids, size), Arrays.copyOf(newSlots, size), listOrder, listComplete).sorted();
+            return merged.size() > MAX_ENTRIES_PER_USER ? merged.oldestDropped(size - MAX_ENTRIES_PER_USER) : merged;
+        }
+
+        UserEntries withList(List<ConversationResponse> ordered, boolean complete, long now) {
+            Map<Long, ConversationResponse> additions = new HashMap<>();
+            long[] order = new long[ordered.size()];
+            for (int i = 0; i < order.length; i++) {
+                order[i] = ordered.get(i).getId();
+                additions.put(order[i], ordered.get(i));
+            }
+            UserEntries merged = new UserEntries(conversationIds, slots, null, false).with(additions, now);
+            return new UserEntries(merged.conversationIds, merged.slots, order, complete);
+        }
+
+        /**
+         * Remove entry; the list view is dropped if it held the conversation
+         */
+        UserEntries without(long conversationId) {
+            int index = Arrays.binarySearch(conversationIds, conversationId);
+            if (index < 0) {
+                return this;
+            }
+            boolean listed = listOrder != null && indexOf(listOrder, conversationId) >= 0;
+            return removed(index, listed ? null : listOrder);
+        }
+
+        /**
+         * Remove entry and its list position - the conversation left the list (archived)
+         */
+        UserEntries withoutListed(long conversationId) {
+            int index = Arrays.binarySearch(conversationIds, conversationId);
+            if (index < 0) {
+                return this;
+            }
+            int position = listOrder != null ? indexOf(listOrder, conversationId) : -1;
+            return removed(index, position >= 0 ? remove(listOrder, position) : listOrder);
+        }
+
+        /**
+         * Conversation changed in a way not applied here (members, name, ...): listed entries are
+         * kept in place and reloaded on read, others removed. If the user has a view without the
+         * conversation, the conversation may now belong to it, so the view is dropped.
+         */
+        UserEntries stale(long conversationId) {
+            int index = Arrays.binarySearch(conversationIds, conversationId);
+            boolean listed = listOrder != null && indexOf(listOrder, conversationId) >= 0;
+            if (listed && index >= 0) {
+                return replaced(index, new Slot(slots[index].value(), slots[index].writtenAt(), true), false);
+            }
+            if (index >= 0) {
+                return removed(index, null);
+            }
+            return listOrder != null ? withoutList() : this;
+        }
+
+        /**
+         * Apply update to a held entry; if absent and it may enter the list, the view is dropped
+         */
+        UserEntries updated(long conversationId, UnaryOperator<ConversationResponse> update, boolean mayEnterList) {
+            int index = Arrays.binarySearch(conversationIds, conversationId);
+            if (index < 0) {
+                return mayEnterList && listOrder != null ? withoutList() : this;
+            }
+            Slot slot = slots[index];
+            ConversationResponse value = update.apply(copyOf(slot.value()));
+            boolean listed = listOrder != null && indexOf(listOrder, conversationId) >= 0;
+            UserEntries result = replaced(index, new Slot(value, slot.writtenAt(), slot.stale()), true);
+            if (listOrder != null && !listed && mayEnterList) {
+                return result.withoutList();
+            }
+            return result;
+        }
+
+        UserEntries withoutList() {
+            return listOrder == null ? this
+                    : conversationIds.length == 0 ? null : new UserEntries(conversationIds, slots, null, false);
+        }
+
+        private UserEntries replaced(int index, Slot slot, boolean resort) {
+            Slot[] newSlots = slots.clone();
+            newSlots[index] = slot;
+            UserEntries result = new UserEntries(conversationIds, newSlots, listOrder, listComplete);
+            return resort ? result.sorted() : result;
+        }
+
+        private UserEntries removed(int index, long[] newListOrder) {
+            if (conversationIds.length == 1 && newListOrder == null) {
+                return null;  // drop the user entry entirely
+            }
+            return new UserEntries(remove(conversationIds, index), remove(slots, index), newListOrder,
+                    newListOrder != null && listComplete);
+        }
+
+        /**
+         * Re-sort the list view after values changed (sort keys: pin, pinOrder, updatedAt, id)
+         */
+        private UserEntries sorted() {
+            if (listOrder == null || listOrder.length < 2) {
+                return this;
+            }
+            ConversationResponse[] listed = new ConversationResponse[listOrder.length];
+            for (int i = 0; i < listOrder.length; i++) {
+                int index = Arrays.binarySearch(conversationIds, listOrder[i]);
+                if (index < 0) {
+                    return new UserEntries(conversationIds, slots, null, false);  // view lost an entry
+                }
+                listed[i] = slots[index].value();
+            }
+            Arrays.sort(listed, ConversationCursor.LIST_ORDER);
+            long[] order = new long[listed.length];
+            for (int i = 0; i < listed.length; i++) {
+                order[i] = listed[i].getId();
+            }
+            return new UserEntries(conversationIds, slots, order, listComplete);
+        }
+
+        private UserEntries oldestDropped(int count) {
+            long[] sortedTimes = new long[slots.length];
+            for (int i = 0; i < slots.length; i++) {
+                sortedTimes[i] = slots[i].writtenAt();
+            }
+            Arrays.sort(sortedTimes);
+            long cutoff = sortedTimes[count - 1];
+            int dropped = 0;
+            int size = 0;
+            long[] ids = new long[conversationIds.length];
+            Slot[] newSlots = new Slot[conversationIds.length];
+            for (int i = 0; i < conversationIds.length; i++) {
+                if (dropped < count && slots[i].writtenAt() <= cutoff) {
+                    dropped++;
+                    continue;
+                }
+                ids[size] = conversationIds[i];
+                newSlots[size++] = slots[i];
+            }
+            return new UserEntries(Arrays.copyOf(ids, size), Arrays.copyOf(newSlots, size), listOrder, listComplete);
+        }
+
+        private static int indexOf(long[] array, long value) {
+            for (int i = 0; i < array.length; i++) {
+                if (array[i] == value) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        private static long[] remove(long[] array, int index) {
+            long[] result = new long[array.length - 1];
+            System.arraycopy(array, 0, result, 0, index);
+            System.arraycopy(array, index + 1, result, index, result.length - index);
+            return result;
+        }
+
+        private static Slot[] remove(Slot[] array, int index) {
+            Slot[] result = new Slot[array.length - 1];
+            System.arraycopy(array, 0, result, 0, index);
+            System.arraycopy(array, index + 1, result, index, result.length - index);
+            return result;
+        }
+    }
+
+    private record Slot(ConversationResponse value, long writtenAt, boolean stale) {
+
+        boolean isFresh(long now) {
+            return now - writtenAt < EXPIRY_NANOS;
+        }
+    }
+
+    /**
+     * First page of a user's conversation list served from memory.
+     * Items are copies; staleIds must be reloaded before use, hasMore drives the next cursor.
+     */
+    public record ListView(List<ConversationResponse> items, Set<Long> staleIds, boolean hasMore) {
+    }
 }
@@ -0,0 +1,151 @@
+package com.chattrix.api.services.cache;
+
+import com.chattrix.api.repositories.ConversationParticipantRepository;
+import com.github.benmanes.caffeine.cache.AsyncLoadingCache;
+import com.github.benmanes.caffeine.cache.CacheLoader;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import jakarta.annotation.PostConstruct;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Event;
+import jakarta.enterprise.event.Observes;
+import jakarta.enterprise.event.TransactionPhase;
+import jakarta.inject.Inject;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cache for conversation membership: conversationId → participant user IDs
+ * Serves participant checks and fan-out lookups without loading Conversation/Participant entities.
+ * <p>
+ * - Single-flight: concurrent misses for one conversation (e.g. a large group right after a clear)
+ *   share one query; bulk loads register every missing key before querying, so they coalesce too
+ * - Refresh-ahead: entries read after REFRESH_MINUTES are reloaded in the background, old set served meanwhile
+ * - Weighted by member count, so a few huge groups can't crowd out thousands of small chats
+ * <p>
+ * Membership changes call {@link #membersJoined}/{@link #memberLeft}: the entry is dropped immediately and again after
+ * the transaction commits, so a load that read the DB before the commit isn't kept.
+ */
+@ApplicationScoped
+@Slf4j
+public class ConversationMembershipCache {
+
+    private static final int CACHE_EXPIRY_MINUTES = 30;
+    private static final int REFRESH_MINUTES = 5;
+    private static final long MAX_MEMBER_IDS = 2_000_000;
+
+    @Inject
+    private CacheRegistry cacheRegistry;
+
+    @Inject
+    private ConversationParticipantRepository participantRepository;
+
+    @Inject
+    private Event<MembershipChanged> membershipChangedEvent;
+
+    private final CacheStatsRecorder statsRecorder = new CacheStatsRecorder();
+
+    private LoadingCache<Long, Set<Long>> cache;
+
+    @PostConstruct
+    public void init() {
+        AsyncLoadingCache<Long, Set<Long>> asyncCache = Caffeine.newBuilder()
+            .expireAfterAccess(CACHE_EXPIRY_MINUTES, TimeUnit.MINUTES)
+            .refreshAfterWrite(REFRESH_MINUTES, TimeUnit.MINUTES)
+            .maximumWeight(MAX_MEMBER_IDS)
+            .weigher((Long conversationId, Set<Long> members) -> Math.max(1, members.size()))
+            .executor(cacheRegistry.loaderExecutor())
+            .recordStats(() -> statsRecorder)
+            .buildAsync(new CacheLoader<>() {
+                @Override
+                public Set<Long> load(Long conversationId) {
+                    return loadAll(Set.of(conversationId)).get(conversationId);
+                }
+
+                @Override
+                public Map<Long, Set<Long>> loadAll(Set<? extends Long> conversationIds) {
+                    Map<Long, Set<Long>> loaded = participantRepository.findUserIdsByConversationIds(Set.copyOf(conversationIds));
+                    Map<Long, Set<Long>> members = new HashMap<>();
+                    // Conversations without participants are cached as empty (deleted / unknown IDs)
+                    for (Long conversationId : conversationIds) {
+                        members.put(conversationId, Set.copyOf(loaded.getOrDefault(conversationId, Set.of())));
+                    }
+                    return members;
+                }
+            });
+        cache = asyncCache.synchronous();
+        cacheRegistry.register("conversation_membership", cache, statsRecorder);
+    }
+
+    /**
+     * Participant user IDs of a conversation (immutable, empty if none)
+     */
+    public Set<Long> getParticipantIds(Long conversationId) {
+        return cache.get(conversationId);
+    }
+
+    /**
+     * Participant user IDs of several conversations, all misses loaded with one query
+     */
+    public Map<Long, Set<Long>> getParticipantIds(Set<Long> conversationIds) {
+        return cache.getAll(conversationIds);
+    }
+
+    /**
+     * Check if user is a participant of conversation
+     */
+    public boolean isParticipant(Long conversationId, Long userId) {
+        return getParticipantIds(conversationId).contains(userId);
+    }
+
+    /**
+     * Users were added to a conversation: drop its membership, again once the surrounding
+     * transaction (if any) has committed
+     */
+    public void membersJoined(Long conversationId, Collection<Long> userIds) {
+        changed(new MembershipChanged(conversationId, Set.copyOf(userIds), Set.of()));
+    }
+
+    /**
+     * User left or was removed from a conversation, see {@link #membersJoined}
+     */
+    public void memberLeft(Long conversationId, Long userId) {
+        changed(new MembershipChanged(conversationId, Set.of(), Set.of(userId)));
+    }
+
+    private void changed(MembershipChanged change) {
+        cache.invalidate(change.conversationId());
+        membershipChangedEvent.fire(change);
+    }
+
+    /**
+     * Second invalidation, after commit: a concurrent load may have read the old membership
+     */
+    public void onMembershipChanged(@Observes(during = TransactionPhase.AFTER_SUCCESS) MembershipChanged change) {
+        cache.invalidate(change.conversationId());
+        log.debug("Membership of conversation {} invalidated", change.conversationId());
+    }
+
+    /**
+     * Clear all cache
+     */
+    public void clear() {
+        cache.invalidateAll();
+    }
+
+    /**
+     * Get cache statistics
+     */
+    public String getStats() {
+        return String.format(
+            "MembershipCache - Size: %d, Hit Rate: %.2f%%",
+            cache.estimatedSize(),
+            cache.stats().hitRate() * 100
+        );
+    }
+}
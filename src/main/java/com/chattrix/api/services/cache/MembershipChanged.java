@@ -0,0 +1,13 @@
+package com.chattrix.api.services.cache;
+
+import java.util.Set;
+
+/**
+ * Participants of a conversation were added or removed
+ *
+ * @param conversationId conversation whose membership changed
+ * @param joined         users added to the conversation
+ * @param left           users who left or were removed
+ */
+public record MembershipChanged(Long conversationId, Set<Long> joined, Set<Long> left) {
+}
@@ -3,19 +3,35 @@ package com.chattrix.api.services.cache;
 import com.chattrix.api.responses.MessageResponse;
 import com.github.benmanes.caffeine.cache.Cache;
 import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.Resource;
 import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.transaction.Status;
+import jakarta.transaction.Synchronization;
+import jakarta.transaction.TransactionSynchronizationRegistry;
 import lombok.extern.slf4j.Slf4j;
 
-import java.util.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
-import java.util.stream.Collectors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.UnaryOperator;
 
 /**
  * Cache for recent messages in conversations
  * Supports Write-Behind pattern: messages cached before DB insert
  * 
- * Cache structure: conversationId → UnflushedMessages (Map + List for fast lookup)
+ * Cache structure: conversationId → MessageRing (fixed-size ring + ID index, plus recent window)
+ *
+ * Recent window: the latest RECENT_WINDOW_SIZE persisted messages, loaded read-through by the first
+ * page of MessageService.getMessages and kept warm by the write path (flush, direct insert, edit,
+ * delete, reaction, pin) instead of being invalidated. Entries still expire CACHE_EXPIRY_MINUTES
+ * after creation, which bounds staleness of sender profile fields.
  */
 @ApplicationScoped
 @Slf4j
@@ -23,90 +39,321 @@ public class MessageCache {
     
     private static final int CACHE_EXPIRY_MINUTES = 5;
     private static final int MAX_CACHE_SIZE = 5_000;
-    private static final int MAX_MESSAGES_PER_CONVERSATION = 100;  // Increased for write-behind
-    
+    private static final int MAX_MESSAGES_PER_CONVERSATION = 128;  // Power of two (ring mask), write-behind headroom
+    public static final int RECENT_WINDOW_SIZE = 50;               // Persisted messages kept per conversation
+
     /**
-     * Container for unflushed messages with both Map (O(1) lookup) and List (ordering)
+     * Fixed-capacity ring of the latest messages of one conversation, newest overwriting oldest.
+     * <p>
+     * - Append: one getAndIncrement on the sequence + one slot write, no lock
+     * - Update/remove/ID change: CAS on the slot found through the ID index
+     * - Read: walk the ring newest-first straight into the caller's result, no snapshot copy;
+     *   a slot whose sequence doesn't match was overwritten (or is still being written) and is skipped
+     * <p>
+     * Slots are immutable; flushed slots stay readable by ID but are not returned as unflushed.
+     * <p>
+     * The recent window is copy-on-write under the ring monitor (changes are rare next to appends).
+     * Every window change bumps windowVersion, even without a loaded window, so a read-through load
+     * that raced with a change is not installed. Changes made inside a transaction reach DB readers
+     * only at commit: while one is in flight (pendingTransactions > 0) no load is installed at all.
      */
-    private static class UnflushedMessages {
-        // Map for O(1) lookup by ID
-        private final Map<Long, MessageResponse> messageMap = new ConcurrentHashMap<>();
-        // List for ordering (most recent first)
-        private final List<MessageResponse> messageList = new ArrayList<>();
-        
-        public synchronized void add(MessageResponse message) {
-            messageMap.put(message.getId(), message);
-            messageList.add(0, message);  // Prepend (most recent first)
-            
-            // Keep only MAX_MESSAGES_PER_CONVERSATION
-            if (messageList.size() > MAX_MESSAGES_PER_CONVERSATION) {
-                MessageResponse removed = messageList.remove(messageList.size() - 1);
-                messageMap.remove(removed.getId());
+    static final class MessageRing {
+        private static final int MASK = MAX_MESSAGES_PER_CONVERSATION - 1;
+
+        private final AtomicReferenceArray<Slot> slots = new AtomicReferenceArray<>(MAX_MESSAGES_PER_CONVERSATION);
+        private final AtomicLong sequence = new AtomicLong();
+        private final Map<Long, Slot> byId = new ConcurrentHashMap<>();
+        private final AtomicLong windowVersion = new AtomicLong();
+        private final AtomicInteger pendingTransactions = new AtomicInteger();
+        private volatile RecentWindow window;
+
+        void add(MessageResponse message) {
+            long seq = sequence.getAndIncrement();
+            Slot slot = new Slot(seq, message.getId(), message, false);
+            Slot overwritten = slots.getAndSet((int) (seq & MASK), slot);
+            if (overwritten != null) {
+                byId.remove(overwritten.id(), overwritten);
             }
+            byId.put(slot.id(), slot);
         }
-        
-        public MessageResponse get(Long id) {
-            return messageMap.get(id);
+
+        MessageResponse get(Long id) {
+            Slot slot = byId.get(id);
+            return slot != null ? slot.message() : null;
         }
-        
-        public synchronized List<MessageResponse> getAll() {
-            return new ArrayList<>(messageList);
+
+        /**
+         * Unflushed messages, newest first
+         */
+        List<MessageResponse> getUnflushed() {
+            long end = sequence.get();
+            long start = Math.max(0, end - MAX_MESSAGES_PER_CONVERSATION);
+            List<MessageResponse> result = new ArrayList<>();
+            for (long seq = end - 1; seq >= start; seq--) {
+                Slot slot = slots.get((int) (seq & MASK));
+                if (slot != null && slot.seq() == seq && !slot.flushed()) {
+                    result.add(slot.message());
+                }
+            }
+            return result;
         }
-        
-        public synchronized void updateId(Long tempId, Long realId) {
-            MessageResponse message = messageMap.remove(tempId);
-            if (message != null) {
-                message.setId(realId);
-                messageMap.put(realId, message);
+
+        /**
+         * Message was inserted: re-key it under its real ID and stop reporting it as unflushed.
+         * It enters the recent window before the slot is marked flushed, so a concurrent reader may
+         * see it twice (deduplicated by ID) but never miss it.
+         */
+        void updateId(Long tempId, Long realId) {
+            Slot current = byId.get(tempId);
+            if (current == null) {
+                dropWindow();  // Overwritten before its flush - the window can't account for it
+                return;
             }
+            current.message().setId(realId);
+            addToWindow(current.message());
+            replace(tempId, slot -> new Slot(slot.seq(), realId, slot.message(), true));
         }
-        
-        public synchronized void remove(Long id) {
-            MessageResponse message = messageMap.remove(id);
-            if (message != null) {
-                messageList.remove(message);
+
+        /**
+         * Replace message content in place (keeps its position)
+         */
+        boolean update(MessageResponse message) {
+            return replace(message.getId(), slot -> new Slot(slot.seq(), slot.id(), message, slot.flushed()));
+        }
+
+        void remove(Long id) {
+            replace(id, slot -> null);
+        }
+
+        /**
+         * Current window version, or -1 while a transaction that changed this conversation is in flight
+         */
+        long windowVersion() {
+            long version = windowVersion.get();
+            return pendingTransactions.get() == 0 ? version : -1;
+        }
+
+        void beginTransaction() {
+            pendingTransactions.incrementAndGet();
+        }
+
+        /**
+         * Transaction that changed this conversation completed; a rolled back change may be in the window
+         */
+        void endTransaction(boolean committed) {
+            if (committed) {
+                windowVersion.incrementAndGet();
+            } else {
+                dropWindow();
             }
+            pendingTransactions.decrementAndGet();
         }
-        
-        public int size() {
-            return messageMap.size();
+
+        /**
+         * Persisted messages newest first, or null if no window is loaded or it holds fewer than
+         * count messages without being the complete history
+         */
+        List<MessageResponse> recent(int count) {
+            RecentWindow current = window;
+            if (current == null || (current.messages().size() < count && !current.complete())) {
+                return null;
+            }
+            return current.messages().size() <= count ? current.messages() : current.messages().subList(0, count);
         }
-        
-        public boolean isEmpty() {
-            return messageMap.isEmpty();
+
+        /**
+         * Install a window loaded from the DB at windowVersion {@code version}
+         *
+         * @return false if the window changed since (the loaded list may be stale)
+         */
+        synchronized boolean installWindow(List<MessageResponse> newestFirst, boolean complete, long version) {
+            if (version < 0 || windowVersion.get() != version) {
+                return false;
+            }
+            window = new RecentWindow(List.copyOf(newestFirst), complete);
+            return true;
+        }
+
+        synchronized void addToWindow(MessageResponse message) {
+            windowVersion.incrementAndGet();
+            RecentWindow current = window;
+            if (current == null) {
+                return;
+            }
+            List<MessageResponse> messages = new ArrayList<>(current.messages().size() + 1);
+            messages.add(message);
+            for (MessageResponse existing : current.messages()) {
+                if (!existing.getId().equals(message.getId())) {
+                    messages.add(existing);
+                }
+            }
+            boolean complete = current.complete();
+            if (messages.size() > RECENT_WINDOW_SIZE) {
+                messages = messages.subList(0, RECENT_WINDOW_SIZE);
+                complete = false;
+            }
+            window = new RecentWindow(List.copyOf(messages), complete);
+        }
+
+        synchronized void updateInWindow(MessageResponse message) {
+            windowVersion.incrementAndGet();
+            RecentWindow current = window;
+            if (current == null) {
+                return;
+            }
+            if (quotedInWindow(current, message.getId())) {
+                window = null;  // Reply previews of the change can't be rebuilt here
+                return;
+            }
+            List<MessageResponse> messages = new ArrayList<>(current.messages());
+            messages.replaceAll(existing -> existing.getId().equals(message.getId()) ? message : existing);
+            window = new RecentWindow(List.copyOf(messages), current.complete());
+        }
+
+        synchronized void removeFromWindow(Long id) {
+            windowVersion.incrementAndGet();
+            RecentWindow current = window;
+            if (current == null) {
+                return;
+            }
+            if (quotedInWindow(current, id)) {
+                window = null;
+                return;
+            }
+            List<MessageResponse> messages = new ArrayList<>(current.messages());
+            messages.removeIf(existing -> existing.getId().equals(id));
+            window = new RecentWindow(List.copyOf(messages), current.complete());
         }
+
+        private static boolean quotedInWindow(RecentWindow current, Long id) {
+            for (MessageResponse existing : current.messages()) {
+                if (id.equals(existing.getReplyToMessageId())) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        synchronized void dropWindow() {
+            windowVersion.incrementAndGet();
+            window = null;
+        }
+
+        boolean isEmpty() {
+            return byId.isEmpty() && window == null;
+        }
+
+        int size() {
+            return byId.size();
+        }
+
+        private boolean replace(Long id, UnaryOperator<Slot> change) {
+            while (true) {
+                Slot current = byId.get(id);
+                if (current == null) {
+                    return false;
+                }
+                Slot updated = change.apply(current);
+                if (slots.compareAndSet((int) (current.seq() & MASK), current, updated)) {
+                    byId.remove(id, current);
+                    if (updated != null) {
+                        byId.put(updated.id(), updated);
+                    }
+                    return true;
+                }
+                Slot inRing = slots.get((int) (current.seq() & MASK));
+                if (inRing == null || inRing.seq() != current.seq()) {
+                    // Slot overwritten by a newer message (or removed): the index entry is stale
+                    byId.remove(id, current);
+                    return false;
+                }
+                // Same message replaced concurrently - retry against the new slot
+            }
+        }
+    }
+
+    private record Slot(long seq, Long id, MessageResponse message, boolean flushed) {
+    }
+
+    /**
+     * @param messages latest persisted messages, newest first (immutable)
+     * @param complete true if messages is the whole conversation history
+     */
+    private record RecentWindow(List<MessageResponse> messages, boolean complete) {
     }
     
-    // Cache key: conversationId → UnflushedMessages
-    private final Cache<Long, UnflushedMessages> cache = Caffeine.newBuilder()
+    @Inject
+    private CacheRegistry cacheRegistry;
+
+    @Resource
+    private TransactionSynchronizationRegistry transactionRegistry;
+
+    private final CacheStatsRecorder statsRecorder = new CacheStatsRecorder();
+
+    // Cache key: conversationId → MessageRing
+    private final Cache<Long, MessageRing> cache = Caffeine.newBuilder()
         .expireAfterWrite(CACHE_EXPIRY_MINUTES, TimeUnit.MINUTES)
         .maximumSize(MAX_CACHE_SIZE)
-        .recordStats()
+        .recordStats(() -> statsRecorder)
         .build();
+
+    @PostConstruct
+    public void init() {
+        cacheRegistry.register("message", cache, statsRecorder);
+    }
     
     /**
      * Get unflushed messages from cache (Write-Behind pattern)
      * These are messages waiting to be batch inserted to DB
      */
     public List<MessageResponse> getUnflushed(Long conversationId) {
-        UnflushedMessages messages = cache.getIfPresent(conversationId);
-        return messages != null ? messages.getAll() : new ArrayList<>();
+        MessageRing messages = cache.getIfPresent(conversationId);
+        return messages != null ? messages.getUnflushed() : new ArrayList<>();
     }
     
     /**
      * Get single unflushed message by ID (O(1) lookup)
      */
     public MessageResponse getUnflushedById(Long conversationId, Long messageId) {
-        UnflushedMessages messages = cache.getIfPresent(conversationId);
+        MessageRing messages = cache.getIfPresent(conversationId);
         return messages != null ? messages.get(messageId) : null;
     }
     
+    /**
+     * Get the latest count persisted messages (newest first) from the recent window.
+     * Returns null on a miss: no window loaded, or too few messages left in it after deletes.
+     */
+    public List<MessageResponse> getRecent(Long conversationId, int count) {
+        MessageRing messages = cache.getIfPresent(conversationId);
+        return messages != null ? messages.recent(count) : null;
+    }
+
+    /**
+     * Window version to capture before reading the latest messages from the DB for {@link #putRecent}
+     */
+    public long recentVersion(Long conversationId) {
+        return cache.get(conversationId, k -> new MessageRing()).windowVersion();
+    }
+
+    /**
+     * Install the latest persisted messages (newest first) read from the DB at {@code version}.
+     * Skipped if a message of the conversation was added, changed or removed since.
+     *
+     * @param complete true if the DB returned the whole history
+     */
+    public void putRecent(Long conversationId, List<MessageResponse> newestFirst, boolean complete, long version) {
+        MessageRing messages = cache.getIfPresent(conversationId);
+        if (messages != null && !messages.installWindow(newestFirst, complete, version)) {
+            log.debug("Recent window for conversation {} changed while loading, not installed", conversationId);
+        }
+    }
+
     /**
      * Add message to cache (Write-Behind: before DB insert)
      * Message will be flushed to DB by MessageBatchService
      */
     public void addUnflushed(Long conversationId, MessageResponse message) {
-        UnflushedMessages messages = cache.get(conversationId, k -> new UnflushedMessages());
+        MessageRing messages = cache.get(conversationId, k -> new MessageRing());
         messages.add(message);
         
         log.debug("Added unflushed message {} to conversation {}. Total unflushed: {}", 
@@ -118,7 +365,7 @@ public class MessageCache {
      * Called by MessageBatchService after batch insert
      */
     public void removeAfterFlush(Long conversationId, List<Long> flushedIds) {
-        UnflushedMessages messages = cache.getIfPresent(conversationId);
+        MessageRing messages = cache.getIfPresent(conversationId);
         if (messages != null) {
             flushedIds.forEach(messages::remove);
             
@@ -129,42 +376,31 @@ public class MessageCache {
     }
     
     /**
-     * Update temp ID to real ID after DB flush
+     * Update temp ID to real ID after DB flush (message moves into the recent window)
      * Called by MessageBatchService after batch insert
      */
     public void updateMessageId(Long conversationId, Long tempId, Long realId) {
-        UnflushedMessages messages = cache.getIfPresent(conversationId);
-        if (messages != null) {
-            messages.updateId(tempId, realId);
-        }
+        changing(conversationId).updateId(tempId, realId);
     }
     
     /**
-     * Update message in cache (for edit/update operations)
+     * Update message in cache (for edit/reaction/pin/poll/event operations)
      * Incremental update instead of full invalidation
      */
     public void updateMessage(Long conversationId, MessageResponse updatedMessage) {
-        UnflushedMessages messages = cache.getIfPresent(conversationId);
-        if (messages != null) {
-            MessageResponse existing = messages.get(updatedMessage.getId());
-            if (existing != null) {
-                // Remove old and add updated
-                messages.remove(updatedMessage.getId());
-                messages.add(updatedMessage);
-                log.debug("Updated message in cache: conversationId={}, messageId={}", 
-                        conversationId, updatedMessage.getId());
-            }
-        }
+        MessageRing messages = changing(conversationId);
+        messages.update(updatedMessage);
+        messages.updateInWindow(updatedMessage);
+        log.debug("Updated message in cache: conversationId={}, messageId={}", 
+                conversationId, updatedMessage.getId());
     }
     
     /**
-     * Add new message to cache (incremental update)
+     * Add new message that was saved directly to DB (no Write-Behind) to the recent window
      * More efficient than invalidating entire cache
      */
     public void addMessage(Long conversationId, MessageResponse message) {
-        UnflushedMessages messages = cache.get(conversationId, k -> new UnflushedMessages());
-        messages.add(message);
-        
+        changing(conversationId).addToWindow(message);
         log.debug("Added message to cache: conversationId={}, messageId={}", 
                 conversationId, message.getId());
     }
@@ -173,23 +409,53 @@ public class MessageCache {
      * Remove message from cache (for delete operations)
      */
     public void removeMessage(Long conversationId, Long messageId) {
-        UnflushedMessages messages = cache.getIfPresent(conversationId);
-        if (messages != null) {
-            messages.remove(messageId);
-            
-            if (messages.isEmpty()) {
-                cache.invalidate(conversationId);
-            }
-        }
+        MessageRing messages = changing(conversationId);
+        messages.remove(messageId);
+        messages.removeFromWindow(messageId);
     }
     
     /**
-     * Invalidate messages for conversation
+     * Drop the recent window of a conversation (reloaded on next first-page read).
+     * Unflushed messages are kept - they exist nowhere else until the next flush.
      */
     public void invalidate(Long conversationId) {
-        cache.invalidate(conversationId);
+        changing(conversationId).dropWindow();
+    }
+
+    /**
+     * Entry of a conversation about to change. Created if absent (a concurrent window load
+     * may be about to create it) and held off loads until the current transaction completes.
+     */
+    private MessageRing changing(Long conversationId) {
+        MessageRing messages = cache.get(conversationId, k -> new MessageRing());
+        trackTransaction(messages);
+        return messages;
     }
     
+    /**
+     * Hold off window loads for this conversation until the current transaction (if any) completes:
+     * a load reading the DB before the commit would miss the change just applied to the window.
+     * Registered once per conversation and transaction.
+     */
+    private void trackTransaction(MessageRing messages) {
+        if (transactionRegistry == null || transactionRegistry.getTransactionStatus() != Status.STATUS_ACTIVE
+                || transactionRegistry.getResource(messages) != null) {
+            return;
+        }
+        transactionRegistry.putResource(messages, Boolean.TRUE);
+        messages.beginTransaction();
+        transactionRegistry.registerInterposedSynchronization(new Synchronization() {
+            @Override
+            public void beforeCompletion() {
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                messages.endTransaction(status == Status.STATUS_COMMITTED);
+            }
+        });
+    }
+
     /**
      * Clear all cache
      */
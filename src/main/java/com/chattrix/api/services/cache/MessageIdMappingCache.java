@@ -2,7 +2,9 @@ package com.chattrix.api.services.cache;
 
 import com.github.benmanes.caffeine.cache.Cache;
 import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.annotation.PostConstruct;
 import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
 import lombok.extern.slf4j.Slf4j;
 
 import java.util.Map;
@@ -23,20 +25,32 @@ public class MessageIdMappingCache {
     private static final int TTL_HOURS = 1;  // Mappings expire after 1 hour
     private static final int MAX_SIZE = 50_000;  // Max 50K mappings
 
+    @Inject
+    private CacheRegistry cacheRegistry;
+
+    private final CacheStatsRecorder idMappingsStats = new CacheStatsRecorder();
+    private final CacheStatsRecorder conversationMappingsStats = new CacheStatsRecorder();
+
     // Global map: tempId -> realId (with TTL)
     private final Cache<Long, Long> idMappings = Caffeine.newBuilder()
             .expireAfterWrite(TTL_HOURS, TimeUnit.HOURS)
             .maximumSize(MAX_SIZE)
-            .recordStats()
+            .recordStats(() -> idMappingsStats)
             .build();
     
     // Per-conversation map: conversationId -> Map<tempId, realId> (with TTL)
     private final Cache<Long, Map<Long, Long>> conversationMappings = Caffeine.newBuilder()
             .expireAfterWrite(TTL_HOURS, TimeUnit.HOURS)
             .maximumSize(10_000)  // Max 10K conversations
-            .recordStats()
+            .recordStats(() -> conversationMappingsStats)
             .build();
 
+    @PostConstruct
+    public void init() {
+        cacheRegistry.register("message_id_mapping", idMappings, idMappingsStats);
+        cacheRegistry.register("message_id_mapping_by_conversation", conversationMappings, conversationMappingsStats);
+    }
+
     /**
      * Store mapping from temporary ID to real ID
      */
@@ -0,0 +1,184 @@
+package com.chattrix.api.services.cache;
+
+import com.chattrix.api.repositories.ContactRepository;
+import com.chattrix.api.repositories.ConversationParticipantRepository;
+import com.github.benmanes.caffeine.cache.AsyncLoadingCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import jakarta.annotation.PostConstruct;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.enterprise.event.TransactionPhase;
+import jakarta.inject.Inject;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+import java.util.function.UnaryOperator;
+
+/**
+ * Presence audience index: who hears about a user's online/offline changes
+ * (ACCEPTED contacts in either direction + members of the user's conversations).
+ * <p>
+ * Per user only the edges are kept - contact IDs and conversation IDs. Members are expanded from
+ * {@link ConversationMembershipCache} at fan-out time, so a group join touches the joining user's
+ * entry only, not one entry per member.
+ * <p>
+ * - Loaded on miss with two indexed queries (single-flight, like the other loading caches)
+ * - Maintained in place after commit from {@link MembershipChanged} and {@link ContactChanged};
+ *   refresh-ahead is only a backstop for changes made outside the services
+ */
+@ApplicationScoped
+@Slf4j
+public class PresenceAudienceIndex {
+
+    private static final int CACHE_EXPIRY_MINUTES = 30;
+    private static final int REFRESH_MINUTES = 30;
+    private static final long MAX_EDGES = 2_000_000;
+
+    @Inject
+    private CacheRegistry cacheRegistry;
+
+    @Inject
+    private ContactRepository contactRepository;
+
+    @Inject
+    private ConversationParticipantRepository participantRepository;
+
+    @Inject
+    private ConversationMembershipCache membershipCache;
+
+    private final CacheStatsRecorder statsRecorder = new CacheStatsRecorder();
+
+    private LoadingCache<Long, Edges> cache;
+
+    @PostConstruct
+    public void init() {
+        AsyncLoadingCache<Long, Edges> asyncCache = Caffeine.newBuilder()
+            .expireAfterAccess(CACHE_EXPIRY_MINUTES, TimeUnit.MINUTES)
+            .refreshAfterWrite(REFRESH_MINUTES, TimeUnit.MINUTES)
+            .maximumWeight(MAX_EDGES)
+            .weigher((Long userId, Edges edges) -> 1 + edges.contactIds().size() + edges.conversationIds().size())
+            .executor(cacheRegistry.loaderExecutor())
+            .recordStats(() -> statsRecorder)
+            .buildAsync(userId -> new Edges(
+                Set.copyOf(contactRepository.findConnectedUserIds(userId)),
+                Set.copyOf(participantRepository.findConversationIdsByUserId(userId))));
+        cache = asyncCache.synchronous();
+        cacheRegistry.register("presence_audience", cache, statsRecorder);
+    }
+
+    /**
+     * Users who should receive the user's status changes and pass {@code filter}
+     * (e.g. currently connected), the user excluded.
+     * Filter is applied while expanding, so large groups never build a full audience set.
+     */
+    public Set<Long> getAudience(Long userId, Predicate<Long> filter) {
+        Edges edges = cache.get(userId);
+        Set<Long> audience = new HashSet<>();
+        for (Long contactId : edges.contactIds()) {
+            if (filter.test(contactId)) {
+                audience.add(contactId);
+            }
+        }
+
+        Map<Long, Set<Long>> members = membershipCache.getParticipantIds(edges.conversationIds());
+        for (Set<Long> memberIds : members.values()) {
+            for (Long memberId : memberIds) {
+                if (!memberId.equals(userId) && !audience.contains(memberId) && filter.test(memberId)) {
+                    audience.add(memberId);
+                }
+            }
+        }
+        return audience;
+    }
+
+    /**
+     * ACCEPTED contacts of the user, either direction (immutable)
+     */
+    public Set<Long> getContactIds(Long userId) {
+        return cache.get(userId).contactIds();
+    }
+
+    /**
+     * Conversations the user participates in (immutable)
+     */
+    public Set<Long> getConversationIds(Long userId) {
+        return cache.get(userId).conversationIds();
+    }
+
+    /**
+     * Joined/left users gain/lose the conversation (after commit, so a reload sees the same state)
+     */
+    public void onMembershipChanged(@Observes(during = TransactionPhase.AFTER_SUCCESS) MembershipChanged change) {
+        Long conversationId = change.conversationId();
+        change.joined().forEach(userId -> update(userId, edges -> edges.withConversation(conversationId, true)));
+        change.left().forEach(userId -> update(userId, edges -> edges.withConversation(conversationId, false)));
+    }
+
+    /**
+     * New contacts are added to both users in place. A removed entry may leave the reverse
+     * direction in place, so both users are reloaded instead.
+     */
+    public void onContactChanged(@Observes(during = TransactionPhase.AFTER_SUCCESS) ContactChanged change) {
+        if (change.connected()) {
+            update(change.userId(), edges -> edges.withContact(change.contactUserId(), true));
+            update(change.contactUserId(), edges -> edges.withContact(change.userId(), true));
+        } else {
+            cache.invalidateAll(Set.of(change.userId(), change.contactUserId()));
+        }
+        log.debug("Presence audience updated for contact change {} -> {}", change.userId(), change.contactUserId());
+    }
+
+    private void update(Long userId, UnaryOperator<Edges> change) {
+        // Not cached, or still loading: drop it so an in-flight load that read the old state isn't kept
+        if (cache.asMap().computeIfPresent(userId, (id, edges) -> change.apply(edges)) == null) {
+            cache.invalidate(userId);
+        }
+    }
+
+    /**
+     * Clear all cache
+     */
+    public void clear() {
+        cache.invalidateAll();
+    }
+
+    /**
+     * Get cache statistics
+     */
+    public String getStats() {
+        return String.format(
+            "PresenceAudience - Size: %d, Hit Rate: %.2f%%",
+            cache.estimatedSize(),
+            cache.stats().hitRate() * 100
+        );
+    }
+
+    private record Edges(Set<Long> contactIds, Set<Long> conversationIds) {
+
+        Edges withContact(Long contactId, boolean add) {
+            return new Edges(with(contactIds, contactId, add), conversationIds);
+        }
+
+        Edges withConversation(Long conversationId, boolean add) {
+            return new Edges(contactIds, with(conversationIds, conversationId, add));
+        }
+
+        private static Set<Long> with(Set<Long> ids, Long id, boolean add) {
+            if (ids.contains(id) == add) {
+                return ids;
+            }
+            Set<Long> copy = new HashSet<>(ids);
+            if (add) {
+                copy.add(id);
+            } else {
+                copy.remove(id);
+            }
+            return Set.copyOf(copy);
+        }
+    }
+}
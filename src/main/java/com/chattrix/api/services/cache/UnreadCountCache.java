@@ -1,140 +1,263 @@
 package com.chattrix.api.services.cache;
 
-import com.github.benmanes.caffeine.cache.Cache;
-import com.github.benmanes.caffeine.cache.Caffeine;
+import com.chattrix.api.repositories.ConversationParticipantRepository;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import jakarta.annotation.PostConstruct;
 import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
 import lombok.extern.slf4j.Slf4j;
 
-import java.util.HashMap;
-import java.util.Map;
-import java.util.concurrent.TimeUnit;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * In-memory cache for unread message counts.
  * Prevents race conditions and deadlocks from direct DB updates.
- * 
- * Cache structure: "conversationId:userId" → AtomicInteger (unread count)
- * 
+ *
+ * Backed by {@link UnreadCounterStore}: packed (conversationId, userId) long key → count,
+ * no per-increment allocation, dirty bit per counter.
+ *
+ * Read-through: a miss loads conversation_participants.unread_count (in bulk for a user's
+ * conversations) and adds the pending delta. Writes are deltas (+N, or reset then +N) that
+ * UnreadCountSyncService applies to the DB row, so restarts, evictions and direct DB
+ * increments never get overwritten by a partial in-memory count.
+ *
+ * Registered in {@link CacheRegistry} as "unread_count": lookups, bulk loads, trimmed counters
+ * (SIZE evictions) and write-behind counters (dirty, flushes, drained/restored) are recorded there.
+ *
  * This acts as a Redis-like counter without needing external Redis.
- * Periodically synced to DB by UnreadCountSyncService.
  */
 @ApplicationScoped
 @Slf4j
 public class UnreadCountCache {
-    
-    private static final int CACHE_EXPIRY_HOURS = 24;
+
+    // Clean (already synced) counters beyond this are dropped after each sync
     private static final int MAX_CACHE_SIZE = 100_000;
-    
-    // Cache key: "conversationId:userId" → unread count
-    private final Cache<String, AtomicInteger> cache = Caffeine.newBuilder()
-        .expireAfterAccess(CACHE_EXPIRY_HOURS, TimeUnit.HOURS)
-        .maximumSize(MAX_CACHE_SIZE)
-        .build();
-    
+
+    @Inject
+    private CacheRegistry cacheRegistry;
+
+    @Inject
+    private ConversationParticipantRepository participantRepository;
+
+    private final UnreadCounterStore store = new UnreadCounterStore();
+    private final CacheStatsRecorder statsRecorder = new CacheStatsRecorder();
+
+    private final LongAdder flushCount = new LongAdder();
+    private final LongAdder drainedCount = new LongAdder();
+    private final LongAdder restoredCount = new LongAdder();
+
+    // Wall-clock time of the oldest change not yet drained, 0 if none (sync lag metric)
+    private final AtomicLong dirtySinceMillis = new AtomicLong();
+
+    @PostConstruct
+    public void init() {
+        cacheRegistry.register("unread_count", statsRecorder, store::size, (long) MAX_CACHE_SIZE, this::writeBehindStats);
+    }
+
     /**
-     * Get unread count for user in conversation
+     * Get unread count for user in conversation (loads from DB on miss)
      */
     public int get(Long conversationId, Long userId) {
-        String key = buildKey(conversationId, userId);
-        AtomicInteger count = cache.getIfPresent(key);
-        return count != null ? count.get() : 0;
+        return getAll(userId, List.of(conversationId)).getOrDefault(conversationId, 0);
+    }
+
+    /**
+     * Get unread counts for user in several conversations, loading all misses with one query
+     */
+    public Map<Long, Integer> getAll(Long userId, Collection<Long> conversationIds) {
+        Map<Long, Integer> counts = new HashMap<>();
+        List<Long> missing = new ArrayList<>();
+        for (Long conversationId : conversationIds) {
+            int count = store.get(UnreadCounterStore.pack(conversationId, userId), -1);
+            if (count >= 0) {
+                counts.put(conversationId, count);
+            } else {
+                missing.add(conversationId);
+            }
+        }
+        statsRecorder.recordHits(counts.size());
+        statsRecorder.recordMisses(missing.size());
+        if (missing.isEmpty()) {
+            return counts;
+        }
+
+        long epoch = store.flushEpoch();
+        long startNanos = System.nanoTime();
+        Map<Long, Integer> loaded;
+        try {
+            loaded = participantRepository.getUnreadCountMap(userId, missing);
+        } catch (RuntimeException e) {
+            statsRecorder.recordLoadFailure(System.nanoTime() - startNanos);
+            throw e;
+        }
+        statsRecorder.recordLoadSuccess(System.nanoTime() - startNanos);
+        for (Long conversationId : missing) {
+            Integer dbValue = loaded.get(conversationId);
+            if (dbValue != null) {
+                counts.put(conversationId, store.load(UnreadCounterStore.pack(conversationId, userId), dbValue, epoch));
+            }
+        }
+        log.debug("Loaded {} unread counts for user {}", loaded.size(), userId);
+        return counts;
     }
-    
+
+    /**
+     * Flush epoch to capture before reading unread counts from the DB by other means
+     * (e.g. a list projection), then pass to {@link #resolve}
+     */
+    public long loadEpoch() {
+        return store.flushEpoch();
+    }
+
+    /**
+     * Resolve current unread count from a DB value read in {@code epoch}:
+     * cached value if loaded, otherwise DB value plus pending delta (kept as loaded value if still safe)
+     */
+    public int resolve(Long conversationId, Long userId, int dbValue, long epoch) {
+        return store.load(UnreadCounterStore.pack(conversationId, userId), dbValue, epoch);
+    }
+
     /**
      * Set unread count for user in conversation
      */
     public void set(Long conversationId, Long userId, int count) {
-        String key = buildKey(conversationId, userId);
-        cache.put(key, new AtomicInteger(count));
+        store.set(UnreadCounterStore.pack(conversationId, userId), count);
+        touchDirty();
         log.debug("Set unread count: conversationId={}, userId={}, count={}", conversationId, userId, count);
     }
-    
+
     /**
      * Increment unread count for user in conversation
-     * Thread-safe using AtomicInteger
      */
-    public int increment(Long conversationId, Long userId) {
-        String key = buildKey(conversationId, userId);
-        AtomicInteger count = cache.get(key, k -> new AtomicInteger(0));
-        int newCount = count.incrementAndGet();
-        log.debug("Incremented unread count: conversationId={}, userId={}, newCount={}", conversationId, userId, newCount);
-        return newCount;
+    public void increment(Long conversationId, Long userId) {
+        incrementBy(conversationId, userId, 1);
     }
-    
+
     /**
      * Increment unread count by amount
      */
-    public int incrementBy(Long conversationId, Long userId, int amount) {
-        String key = buildKey(conversationId, userId);
-        AtomicInteger count = cache.get(key, k -> new AtomicInteger(0));
-        int newCount = count.addAndGet(amount);
-        log.debug("Incremented unread count by {}: conversationId={}, userId={}, newCount={}", 
-                amount, conversationId, userId, newCount);
-        return newCount;
+    public void incrementBy(Long conversationId, Long userId, int amount) {
+        store.add(UnreadCounterStore.pack(conversationId, userId), amount);
+        touchDirty();
+        log.debug("Incremented unread count by {}: conversationId={}, userId={}", amount, conversationId, userId);
     }
-    
+
     /**
-     * Reset unread count to 0 for user in conversation
+     * Increment unread count for every participant except the sender
+     */
+    public void incrementForOthers(Long conversationId, Collection<Long> participantIds, Long senderId, int amount) {
+        for (Long participantId : participantIds) {
+            if (!participantId.equals(senderId)) {
+                store.add(UnreadCounterStore.pack(conversationId, participantId), amount);
+            }
+        }
+        touchDirty();
+    }
+
+    /**
+     * Reset unread count to 0 for user in conversation.
+     * Atomic with concurrent increments: those after the reset count from 0, earlier pending ones are dropped.
      */
     public void reset(Long conversationId, Long userId) {
-        String key = buildKey(conversationId, userId);
-        cache.put(key, new AtomicInteger(0));
+        store.reset(UnreadCounterStore.pack(conversationId, userId));
+        touchDirty();
         log.debug("Reset unread count: conversationId={}, userId={}", conversationId, userId);
     }
-    
+
     /**
-     * Remove from cache (will be reloaded from DB on next access)
+     * Drop cached value (will be reloaded from DB on next access); pending changes are still synced
      */
     public void invalidate(Long conversationId, Long userId) {
-        String key = buildKey(conversationId, userId);
-        cache.invalidate(key);
+        store.unload(UnreadCounterStore.pack(conversationId, userId));
     }
-    
+
+    /**
+     * Pass changes made since the last drain to consumer (packed key, delta, reset) and clear them.
+     * Consumer runs under a stripe lock - collect only. Call {@link #completeFlush()} after writing.
+     *
+     * @return number of drained counters
+     */
+    public int drainDirty(UnreadCounterStore.DeltaConsumer consumer) {
+        dirtySinceMillis.set(0);
+        int drained = store.drainDirty(consumer);
+        flushCount.increment();
+        drainedCount.add(drained);
+        return drained;
+    }
+
+    /**
+     * Mark the end of a flush started by drainDirty (drained changes written or restored)
+     */
+    public void completeFlush() {
+        store.completeFlush();
+    }
+
+    /**
+     * Put back a drained change after a failed write
+     */
+    public void restore(long key, int delta, boolean reset, long dirtySince) {
+        store.restore(key, delta, reset);
+        restoredCount.increment();
+        dirtySinceMillis.accumulateAndGet(dirtySince, (current, since) -> current == 0 ? since : Math.min(current, since));
+    }
+
     /**
-     * Get all cached entries for syncing to DB
-     * Returns map of "conversationId:userId" → count
+     * Time of the oldest change not yet drained, 0 if nothing is pending
      */
-    public Map<String, Integer> getAllForSync() {
-        Map<String, Integer> result = new HashMap<>();
-        cache.asMap().forEach((key, atomicCount) -> {
-            result.put(key, atomicCount.get());
-        });
-        return result;
+    public long getDirtySinceMillis() {
+        return dirtySinceMillis.get();
+    }
+
+    public int dirtyCount() {
+        return store.dirtyCount();
     }
-    
+
     /**
-     * Clear all cache
+     * Drop clean counters above MAX_CACHE_SIZE (called after sync)
+     */
+    public int trim() {
+        int trimmed = store.trimClean(MAX_CACHE_SIZE);
+        for (int i = 0; i < trimmed; i++) {
+            statsRecorder.recordEviction(1, RemovalCause.SIZE);
+        }
+        return trimmed;
+    }
+
+    public int size() {
+        return store.size();
+    }
+
+    /**
+     * Clear all synced counters - pending changes are kept so they still reach the DB
      */
     public void clear() {
-        cache.invalidateAll();
-        log.info("Cleared all unread count cache");
+        int removed = store.trimClean(0);
+        log.info("Cleared unread count cache: removed={}, pending={}", removed, store.dirtyCount());
+    }
+
+    private CacheRegistry.WriteBehindStats writeBehindStats() {
+        return new CacheRegistry.WriteBehindStats(
+                store.dirtyCount(), flushCount.sum(), drainedCount.sum(), restoredCount.sum());
     }
-    
+
+    private void touchDirty() {
+        // Plain read first: only the first change after a drain pays for the CAS
+        if (dirtySinceMillis.get() == 0) {
+            dirtySinceMillis.compareAndSet(0, System.currentTimeMillis());
+        }
+    }
+
     /**
      * Get cache statistics
      */
     public String getStats() {
         return String.format(
-            "UnreadCountCache - Size: %d, Hit Rate: %.2f%%",
-            cache.estimatedSize(),
-            cache.stats().hitRate() * 100
+            "UnreadCountCache - Size: %d, Dirty: %d, Heap: %d KB",
+            store.size(),
+            store.dirtyCount(),
+            store.estimatedHeapBytes() / 1024
         );
     }
-    
-    private String buildKey(Long conversationId, Long userId) {
-        return conversationId + ":" + userId;
-    }
-    
-    /**
-     * Parse key back to conversationId and userId
-     * Returns [conversationId, userId]
-     */
-    public static Long[] parseKey(String key) {
-        String[] parts = key.split(":");
-        return new Long[] {
-            Long.parseLong(parts[0]),
-            Long.parseLong(parts[1])
-        };
-    }
 }
@@ -6,12 +6,19 @@ import jakarta.annotation.PreDestroy;
 import jakarta.ejb.Schedule;
 import jakarta.ejb.Singleton;
 import jakarta.ejb.Startup;
+import jakarta.ejb.TransactionAttribute;
+import jakarta.ejb.TransactionAttributeType;
 import jakarta.inject.Inject;
-import jakarta.transaction.Transactional;
+import lombok.Builder;
+import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
 
-import java.util.Map;
+import java.time.Instant;
+import java.util.Arrays;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
  * Background service to sync unread counts from cache to database.
@@ -21,11 +28,17 @@ import java.util.concurrent.atomic.AtomicBoolean;
  * 1. Increment happens in-memory (fast, no DB lock)
  * 2. Periodic sync to DB (batched, efficient)
  * 3. On shutdown, force sync to prevent data loss
+ *
+ * Only counters changed since the last sync are written, as deltas (+N, or reset then +N),
+ * CHUNK_SIZE rows per UPDATE ... FROM unnest statement, each chunk in its own short transaction.
  */
 @Singleton
 @Startup
 @Slf4j
 public class UnreadCountSyncService {
+
+    // Rows per statement/transaction - keeps row locks short-lived under large backlogs
+    private static final int CHUNK_SIZE = 1_000;
     
     @Inject
     private UnreadCountCache unreadCountCache;
@@ -34,6 +47,22 @@ public class UnreadCountSyncService {
     private ConversationParticipantRepository participantRepository;
     
     private final AtomicBoolean isRunning = new AtomicBoolean(true);
+
+    // One flush at a time: drainDirty/completeFlush bracket a single flush epoch,
+    // and @PreDestroy runs without the container's singleton lock
+    private final ReentrantLock flushLock = new ReentrantLock();
+
+    private final LongAdder syncCount = new LongAdder();
+    private final LongAdder rowsDrained = new LongAdder();
+    private final LongAdder rowsWritten = new LongAdder();
+    private final LongAdder failedChunks = new LongAdder();
+    private final LongAdder totalDurationMillis = new LongAdder();
+    private final AtomicLong maxDurationMillis = new AtomicLong();
+    private final AtomicLong maxLagMillis = new AtomicLong();
+    private volatile long lastDurationMillis;
+    private volatile long lastLagMillis;
+    private volatile int lastRowsWritten;
+    private volatile Instant lastSyncAt;
     
     @PostConstruct
     public void init() {
@@ -41,52 +70,130 @@ public class UnreadCountSyncService {
     }
     
     /**
-     * Scheduled sync every 30 seconds
-     * EJB Timer automatically handles transaction boundaries
+     * Scheduled sync every 30 seconds.
+     * Runs without a surrounding transaction: every chunk commits on its own.
      */
     @Schedule(hour = "*", minute = "*", second = "*/30", persistent = false)
-    @Transactional
+    @TransactionAttribute(TransactionAttributeType.NOT_SUPPORTED)
     public void syncToDatabase() {
-        if (!isRunning.get()) {
-            log.debug("Sync skipped - service is shutting down");
-            return;
-        }
-        
+        flushLock.lock();
         try {
-            Map<String, Integer> allCounts = unreadCountCache.getAllForSync();
-            
-            if (allCounts.isEmpty()) {
-                log.debug("No unread counts to sync");
+            if (!isRunning.get()) {
+                log.debug("Sync skipped - service is shutting down");
                 return;
             }
-            
-            log.info("Syncing {} unread counts to database", allCounts.size());
-            int syncedCount = 0;
-            int errorCount = 0;
-            
-            for (Map.Entry<String, Integer> entry : allCounts.entrySet()) {
-                try {
-                    Long[] ids = UnreadCountCache.parseKey(entry.getKey());
-                    Long conversationId = ids[0];
-                    Long userId = ids[1];
-                    Integer count = entry.getValue();
-                    
-                    // Update DB with cached count
-                    participantRepository.setUnreadCount(conversationId, userId, count);
-                    syncedCount++;
-                    
-                } catch (Exception e) {
-                    log.error("Failed to sync unread count for key: {}", entry.getKey(), e);
-                    errorCount++;
+            flush();
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    /**
+     * Write all changed counters to the database. Caller holds flushLock.
+     */
+    private void flush() {
+        try {
+            long startNanos = System.nanoTime();
+            long dirtySince = unreadCountCache.getDirtySinceMillis();
+
+            // Only counters changed since the last sync
+            DrainBuffer drained = new DrainBuffer(unreadCountCache.dirtyCount());
+            int changed;
+            int written = 0;
+            int errorChunks = 0;
+            try {
+                unreadCountCache.drainDirty(drained);
+                changed = drained.size;
+
+                if (changed == 0) {
+                    log.debug("No unread counts to sync");
+                    return;
                 }
+
+                log.info("Syncing {} changed unread counts to database", changed);
+
+                for (int from = 0; from < changed; from += CHUNK_SIZE) {
+                    int to = Math.min(from + CHUNK_SIZE, changed);
+                    try {
+                        written += writeChunk(drained, from, to);
+                    } catch (Exception e) {
+                        log.error("Failed to sync unread count chunk [{}, {})", from, to, e);
+                        for (int i = from; i < to; i++) {
+                            unreadCountCache.restore(drained.keys[i], drained.deltas[i], drained.resets[i], dirtySince);
+                        }
+                        errorChunks++;
+                    }
+                }
+            } finally {
+                unreadCountCache.completeFlush();
             }
-            
-            log.info("Unread count sync completed: synced={}, errors={}", syncedCount, errorCount);
+
+            int trimmed = unreadCountCache.trim();
+            recordSync(startNanos, dirtySince, changed, written, errorChunks);
+
+            log.info("Unread count sync completed: changed={}, written={}, failedChunks={}, trimmed={}",
+                    changed, written, errorChunks, trimmed);
             
         } catch (Exception e) {
             log.error("Error during unread count sync", e);
         }
     }
+
+    /**
+     * Get sync statistics (duration, rows written, lag between first unsynced change and its write)
+     */
+    public SyncStats getStats() {
+        long count = syncCount.sum();
+        long dirtySince = unreadCountCache.getDirtySinceMillis();
+        return SyncStats.builder()
+                .syncCount(count)
+                .lastSyncAt(lastSyncAt)
+                .lastDurationMillis(lastDurationMillis)
+                .averageDurationMillis(count > 0 ? (double) totalDurationMillis.sum() / count : 0.0)
+                .maxDurationMillis(maxDurationMillis.get())
+                .lastRowsWritten(lastRowsWritten)
+                .rowsDrained(rowsDrained.sum())
+                .rowsWritten(rowsWritten.sum())
+                .failedChunks(failedChunks.sum())
+                .pendingCounters(unreadCountCache.dirtyCount())
+                .currentLagMillis(dirtySince > 0 ? System.currentTimeMillis() - dirtySince : 0)
+                .lastLagMillis(lastLagMillis)
+                .maxLagMillis(maxLagMillis.get())
+                .build();
+    }
+
+    private int writeChunk(DrainBuffer drained, int from, int to) {
+        int length = to - from;
+        Long[] conversationIds = new Long[length];
+        Long[] userIds = new Long[length];
+        Integer[] deltas = new Integer[length];
+        Boolean[] resets = new Boolean[length];
+        for (int i = 0; i < length; i++) {
+            long key = drained.keys[from + i];
+            conversationIds[i] = UnreadCounterStore.conversationId(key);
+            userIds[i] = UnreadCounterStore.userId(key);
+            deltas[i] = drained.deltas[from + i];
+            resets[i] = drained.resets[from + i];
+        }
+        return participantRepository.batchApplyUnreadDeltas(conversationIds, userIds, deltas, resets);
+    }
+
+    private void recordSync(long startNanos, long dirtySince, int changed, int written, int errorChunks) {
+        long durationMillis = (System.nanoTime() - startNanos) / 1_000_000;
+        long lagMillis = dirtySince > 0 ? System.currentTimeMillis() - dirtySince : 0;
+
+        syncCount.increment();
+        rowsDrained.add(changed);
+        rowsWritten.add(written);
+        failedChunks.add(errorChunks);
+        totalDurationMillis.add(durationMillis);
+        maxDurationMillis.accumulateAndGet(durationMillis, Math::max);
+        maxLagMillis.accumulateAndGet(lagMillis, Math::max);
+        lastDurationMillis = durationMillis;
+        lastLagMillis = lagMillis;
+        lastRowsWritten = written;
+        lastSyncAt = Instant.now();
+    }
     
     /**
      * Force sync on shutdown to prevent data loss
@@ -94,13 +201,64 @@ public class UnreadCountSyncService {
     @PreDestroy
     public void shutdown() {
         log.info("UnreadCountSyncService shutting down - forcing final sync");
+
+        // Stop new timer runs first, then wait for an in-flight one before the final flush
         isRunning.set(false);
-        
+        flushLock.lock();
         try {
-            syncToDatabase();
+            flush();
             log.info("Final sync completed successfully");
         } catch (Exception e) {
             log.error("Error during final sync on shutdown", e);
+        } finally {
+            flushLock.unlock();
         }
     }
+
+    /**
+     * Growable primitive buffer for drained (key, delta, reset) entries - drain runs under stripe locks, so no DB work here
+     */
+    private static final class DrainBuffer implements UnreadCounterStore.DeltaConsumer {
+        private long[] keys;
+        private int[] deltas;
+        private boolean[] resets;
+        private int size;
+
+        DrainBuffer(int expected) {
+            keys = new long[Math.max(expected, 16)];
+            deltas = new int[keys.length];
+            resets = new boolean[keys.length];
+        }
+
+        @Override
+        public void accept(long key, int delta, boolean reset) {
+            if (size == keys.length) {
+                keys = Arrays.copyOf(keys, size * 2);
+                deltas = Arrays.copyOf(deltas, size * 2);
+                resets = Arrays.copyOf(resets, size * 2);
+            }
+            keys[size] = key;
+            deltas[size] = delta;
+            resets[size] = reset;
+            size++;
+        }
+    }
+
+    @Builder
+    @Getter
+    public static class SyncStats {
+        private final long syncCount;
+        private final Instant lastSyncAt;
+        private final long lastDurationMillis;
+        private final double averageDurationMillis;
+        private final long maxDurationMillis;
+        private final int lastRowsWritten;
+        private final long rowsDrained;
+        private final long rowsWritten;
+        private final long failedChunks;
+        private final int pendingCounters;
+        private final long currentLagMillis;
+        private final long lastLagMillis;
+        private final long maxLagMillis;
+    }
 }
@@ -0,0 +1,429 @@
+package com.chattrix.api.services.cache;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Primitive counter store for unread counts, keyed by packed (conversationId, userId).
+ * <p>
+ * - Key: conversationId << 32 | userId (both IDs must fit in 32 bits), no String/Long allocation
+ * - Striped: 64 independent open-addressing tables, each with its own lock, so concurrent
+ *   increments for different keys rarely contend (same idea as LongAdder cells)
+ * - Delta based: each counter keeps the change not yet persisted (+N, or "reset, then +N")
+ *   next to the absolute value. Sync applies deltas, so increments made directly in the DB
+ *   and writes from a previous flush are never overwritten with a stale absolute value.
+ * - Loaded flag: the absolute value is only known after a read-through load (or a reset).
+ *   A counter that was only incremented carries its delta but no value.
+ * <p>
+ * Loads race with flushes: a DB value read while drained deltas are still being written
+ * may or may not include them. Every drain/flush moves the flush epoch (odd while a flush
+ * is in progress), and {@link #load} only adopts a DB value read in the still-current even epoch.
+ * The check runs under the stripe lock, so a drain cannot slip in between.
+ * <p>
+ * Heap per counter: 8 (key) + 4 (value) + 4 (delta) + 1 (flags) bytes per slot, tables kept
+ * at most 2/3 full -> ~26 bytes per counter, versus ~150 bytes for String key + AtomicInteger + Caffeine node.
+ */
+public class UnreadCounterStore {
+
+    private static final int STRIPES = 64;
+    private static final int INITIAL_STRIPE_CAPACITY = 64;
+
+    private static final byte USED = 1;
+    private static final byte DIRTY = 2;
+    private static final byte DELETED = 4;
+    private static final byte LOADED = 8;
+    private static final byte RESET = 16;
+
+    private final Stripe[] stripes = new Stripe[STRIPES];
+    private final AtomicLong flushEpoch = new AtomicLong();
+
+    public UnreadCounterStore() {
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new Stripe(INITIAL_STRIPE_CAPACITY);
+        }
+    }
+
+    /**
+     * Pack conversation and user ID into one long key
+     */
+    public static long pack(long conversationId, long userId) {
+        if ((conversationId >>> 32) != 0 || (userId >>> 32) != 0) {
+            throw new IllegalArgumentException(
+                    "IDs must fit in 32 bits: conversationId=" + conversationId + ", userId=" + userId);
+        }
+        return conversationId << 32 | userId;
+    }
+
+    public static long conversationId(long key) {
+        return key >>> 32;
+    }
+
+    public static long userId(long key) {
+        return key & 0xFFFF_FFFFL;
+    }
+
+    /**
+     * Get absolute counter value, or defaultValue if not loaded
+     */
+    public int get(long key, int defaultValue) {
+        return stripeFor(key).get(key, defaultValue);
+    }
+
+    /**
+     * Current flush epoch - capture before reading DB values passed to {@link #load}
+     */
+    public long flushEpoch() {
+        return flushEpoch.get();
+    }
+
+    /**
+     * Adopt a DB value read in flush epoch {@code epoch} as the absolute value (plus pending delta).
+     * If a flush started or finished since the read, the value is not stored.
+     *
+     * @return best known absolute value
+     */
+    public int load(long key, int dbValue, long epoch) {
+        return stripeFor(key).load(key, dbValue, epoch, flushEpoch);
+    }
+
+    /**
+     * Add delta to counter (created unloaded if absent) and mark it dirty
+     */
+    public void add(long key, int delta) {
+        stripeFor(key).add(key, delta);
+    }
+
+    /**
+     * Reset counter to 0: pending delta is discarded and the next sync writes an absolute value
+     */
+    public void reset(long key) {
+        stripeFor(key).reset(key, 0);
+    }
+
+    /**
+     * Set counter to value (reset, then +value)
+     */
+    public void set(long key, int value) {
+        stripeFor(key).reset(key, value);
+    }
+
+    /**
+     * Put back a drained delta whose write failed. Dropped if the counter was reset since the drain.
+     */
+    public void restore(long key, int delta, boolean reset) {
+        stripeFor(key).restore(key, delta, reset);
+    }
+
+    /**
+     * Forget the loaded value; pending delta (if any) is kept for the next sync
+     */
+    public void unload(long key) {
+        stripeFor(key).unload(key);
+    }
+
+    /**
+     * Pass every dirty counter's pending change to consumer and clear it.
+     * Consumer runs under the stripe lock - it must only collect, not block.
+     * Starts a flush: call {@link #completeFlush()} once the drained changes are written (or restored).
+     *
+     * @return number of drained counters
+     */
+    public int drainDirty(DeltaConsumer consumer) {
+        flushEpoch.updateAndGet(epoch -> (epoch & 1) == 0 ? epoch + 1 : epoch);
+        int drained = 0;
+        for (Stripe stripe : stripes) {
+            drained += stripe.drainDirty(consumer);
+        }
+        return drained;
+    }
+
+    /**
+     * End the flush started by {@link #drainDirty}
+     */
+    public void completeFlush() {
+        flushEpoch.updateAndGet(epoch -> (epoch & 1) == 1 ? epoch + 1 : epoch);
+    }
+
+    /**
+     * Remove clean (already synced) counters until at most maxEntries remain
+     *
+     * @return number of removed counters
+     */
+    public int trimClean(int maxEntries) {
+        int excess = size() - maxEntries;
+        if (excess <= 0) {
+            return 0;
+        }
+        int perStripe = excess / STRIPES + 1;
+        int removed = 0;
+        for (Stripe stripe : stripes) {
+            removed += stripe.removeClean(perStripe);
+        }
+        return removed;
+    }
+
+    public int size() {
+        int size = 0;
+        for (Stripe stripe : stripes) {
+            size += stripe.size();
+        }
+        return size;
+    }
+
+    public int dirtyCount() {
+        int dirty = 0;
+        for (Stripe stripe : stripes) {
+            dirty += stripe.dirtyCount();
+        }
+        return dirty;
+    }
+
+    /**
+     * Approximate heap used by the tables (array payloads only)
+     */
+    public long estimatedHeapBytes() {
+        long bytes = 0;
+        for (Stripe stripe : stripes) {
+            bytes += (long) stripe.capacity() * (Long.BYTES + 2 * Integer.BYTES + 1);
+        }
+        return bytes;
+    }
+
+    public void clear() {
+        for (Stripe stripe : stripes) {
+            stripe.clear();
+        }
+    }
+
+    private Stripe stripeFor(long key) {
+        return stripes[(int) (mix(key) >>> 58)];  // top 6 bits -> 64 stripes
+    }
+
+    private static long mix(long key) {
+        long h = key * 0x9E37_79B9_7F4A_7C15L;
+        return h ^ (h >>> 29);
+    }
+
+    @FunctionalInterface
+    public interface DeltaConsumer {
+        /**
+         * @param delta change since the last drain
+         * @param reset true if the counter was reset before delta was applied (write absolute delta)
+         */
+        void accept(long key, int delta, boolean reset);
+    }
+
+    /**
+     * Open-addressing (linear probing) long -> (value, delta) table guarded by its own monitor
+     */
+    private static final class Stripe {
+        private long[] keys;
+        private int[] values;
+        private int[] deltas;
+        private byte[] flags;
+        private int size;
+        private int deleted;
+        private int dirty;
+
+        Stripe(int capacity) {
+            allocate(capacity);
+        }
+
+        synchronized int get(long key, int defaultValue) {
+            int index = indexOf(key);
+            return index >= 0 && (flags[index] & LOADED) != 0 ? values[index] : defaultValue;
+        }
+
+        synchronized int load(long key, int dbValue, long epoch, AtomicLong flushEpoch) {
+            int index = indexOf(key);
+            if (index >= 0 && (flags[index] & LOADED) != 0) {
+                return values[index];
+            }
+            int pending = index >= 0 ? deltas[index] : 0;
+            if ((epoch & 1) != 0 || flushEpoch.get() != epoch) {
+                return Math.max(dbValue + pending, 0);  // uncertain - serve, but don't keep
+            }
+            if (index < 0) {
+                index = insertionIndex(key);
+            }
+            values[index] = Math.max(dbValue + pending, 0);
+            flags[index] |= LOADED;
+            return values[index];
+        }
+
+        synchronized void add(long key, int delta) {
+            int index = insertionIndex(key);
+            deltas[index] += delta;
+            if ((flags[index] & LOADED) != 0) {
+                values[index] = Math.max(values[index] + delta, 0);
+            }
+            setDirtyBit(index);
+        }
+
+        synchronized void reset(long key, int value) {
+            int index = insertionIndex(key);
+            values[index] = value;
+            deltas[index] = value;
+            flags[index] |= LOADED | RESET;
+            setDirtyBit(index);
+        }
+
+        synchronized void restore(long key, int delta, boolean reset) {
+            int index = insertionIndex(key);
+            if ((flags[index] & RESET) != 0) {
+                return;  // reset after the drain supersedes the failed change
+            }
+            deltas[index] += delta;
+            if (reset) {
+                flags[index] |= RESET;
+            }
+            setDirtyBit(index);
+        }
+
+        synchronized void unload(long key) {
+            int index = indexOf(key);
+            if (index < 0) {
+                return;
+            }
+            if ((flags[index] & DIRTY) != 0) {
+                flags[index] &= ~LOADED;
+            } else {
+                removeAt(index);
+            }
+        }
+
+        synchronized int drainDirty(DeltaConsumer consumer) {
+            if (dirty == 0) {
+                return 0;
+            }
+            int drained = 0;
+            for (int i = 0; i < flags.length; i++) {
+                if ((flags[i] & DIRTY) != 0) {
+                    boolean reset = (flags[i] & RESET) != 0;
+                    if (deltas[i] != 0 || reset) {
+                        consumer.accept(keys[i], deltas[i], reset);
+                        drained++;
+                    }
+                    deltas[i] = 0;
+                    flags[i] &= ~(DIRTY | RESET);
+                }
+            }
+            dirty = 0;
+            return drained;
+        }
+
+        synchronized int removeClean(int max) {
+            int removed = 0;
+            for (int i = 0; i < flags.length && removed < max; i++) {
+                if ((flags[i] & USED) != 0 && (flags[i] & DIRTY) == 0) {
+                    removeAt(i);
+                    removed++;
+                }
+            }
+            return removed;
+        }
+
+        synchronized int size() {
+            return size;
+        }
+
+        synchronized int dirtyCount() {
+            return dirty;
+        }
+
+        synchronized int capacity() {
+            return keys.length;
+        }
+
+        synchronized void clear() {
+            allocate(INITIAL_STRIPE_CAPACITY);
+        }
+
+        private int indexOf(long key) {
+            int mask = keys.length - 1;
+            int index = (int) mix(key) & mask;
+            while (flags[index] != 0) {
+                if ((flags[index] & USED) != 0 && keys[index] == key) {
+                    return index;
+                }
+                index = (index + 1) & mask;
+            }
+            return -1;
+        }
+
+        private int insertionIndex(long key) {
+            int existing = indexOf(key);
+            if (existing >= 0) {
+                return existing;
+            }
+            if ((size + deleted + 1) * 3 > keys.length * 2) {
+                // Grow only if live entries need it, otherwise rehash in place to drop tombstones
+                rehash(size * 3 >= keys.length ? keys.length * 2 : keys.length);
+            }
+            int mask = keys.length - 1;
+            int index = (int) mix(key) & mask;
+            while ((flags[index] & USED) != 0) {
+                index = (index + 1) & mask;
+            }
+            if ((flags[index] & DELETED) != 0) {
+                deleted--;
+            }
+            keys[index] = key;
+            values[index] = 0;
+            deltas[index] = 0;
+            flags[index] = USED;
+            size++;
+            return index;
+        }
+
+        private void setDirtyBit(int index) {
+            if ((flags[index] & DIRTY) == 0) {
+                flags[index] |= DIRTY;
+                dirty++;
+            }
+        }
+
+        private void removeAt(int index) {
+            if ((flags[index] & DIRTY) != 0) {
+                dirty--;
+            }
+            flags[index] = DELETED;
+            size--;
+            deleted++;
+        }
+
+        private void rehash(int newCapacity) {
+            long[] oldKeys = keys;
+            int[] oldValues = values;
+            int[] oldDeltas = deltas;
+            byte[] oldFlags = flags;
+            allocate(newCapacity);
+            int mask = newCapacity - 1;
+            for (int i = 0; i < oldFlags.length; i++) {
+                if ((oldFlags[i] & USED) != 0) {
+                    int index = (int) mix(oldKeys[i]) & mask;
+                    while (flags[index] != 0) {
+                        index = (index + 1) & mask;
+                    }
+                    keys[index] = oldKeys[i];
+                    values[index] = oldValues[i];
+                    deltas[index] = oldDeltas[i];
+                    flags[index] = oldFlags[i];
+                    size++;
+                    if ((oldFlags[i] & DIRTY) != 0) {
+                        dirty++;
+                    }
+                }
+            }
+        }
+
+        private void allocate(int capacity) {
+            keys = new long[capacity];
+            values = new int[capacity];
+            deltas = new int[capacity];
+            flags = new byte[capacity];
+            size = 0;
+            deleted = 0;
+            dirty = 0;
+        }
+    }
+}
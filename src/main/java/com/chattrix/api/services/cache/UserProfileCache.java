@@ -1,79 +1,122 @@
 package com.chattrix.api.services.cache;
 
+import com.chattrix.api.repositories.UserRepository;
 import com.chattrix.api.responses.UserResponse;
-import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.AsyncLoadingCache;
+import com.github.benmanes.caffeine.cache.CacheLoader;
 import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import jakarta.annotation.PostConstruct;
 import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
 
+import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 /**
  * Cache for user profile information (avatar, username, fullName)
  * Used to reduce DB queries when displaying messages, conversations, etc.
+ * <p>
+ * Read-through with single-flight loading: a missing key is loaded once no matter how many
+ * requests ask for it concurrently (async cache - later callers join the in-flight future,
+ * also for bulk getAll), so a clear costs one query per key rather than one per request.
+ * Entries read after REFRESH_MINUTES are reloaded in the background while the old value is served.
  */
 @ApplicationScoped
 public class UserProfileCache {
-    
+
     private static final int CACHE_EXPIRY_HOURS = 1;
+    private static final int REFRESH_MINUTES = 10;
     private static final int MAX_CACHE_SIZE = 50_000;
-    
-    private final Cache<Long, UserResponse> cache = Caffeine.newBuilder()
-        .expireAfterWrite(CACHE_EXPIRY_HOURS, TimeUnit.HOURS)
-        .maximumSize(MAX_CACHE_SIZE)
-        .build();
-    
+
+    @Inject
+    private CacheRegistry cacheRegistry;
+
+    @Inject
+    private UserRepository userRepository;
+
+    private final CacheStatsRecorder statsRecorder = new CacheStatsRecorder();
+
+    private LoadingCache<Long, UserResponse> cache;
+
+    @PostConstruct
+    public void init() {
+        AsyncLoadingCache<Long, UserResponse> asyncCache = Caffeine.newBuilder()
+            .expireAfterWrite(CACHE_EXPIRY_HOURS, TimeUnit.HOURS)
+            .refreshAfterWrite(REFRESH_MINUTES, TimeUnit.MINUTES)
+            .maximumSize(MAX_CACHE_SIZE)
+            .executor(cacheRegistry.loaderExecutor())
+            .recordStats(() -> statsRecorder)
+            .buildAsync(new CacheLoader<>() {
+                @Override
+                public UserResponse load(Long userId) {
+                    return loadAll(Set.of(userId)).get(userId);
+                }
+
+                @Override
+                public Map<Long, UserResponse> loadAll(Set<? extends Long> userIds) {
+                    return userRepository.findByIdsAsDTO(new HashSet<>(userIds)).stream()
+                        .collect(Collectors.toMap(UserResponse::getId, Function.identity()));
+                }
+            });
+        cache = asyncCache.synchronous();
+        cacheRegistry.register("user_profile", cache, statsRecorder);
+    }
+
     /**
-     * Get user profile from cache
+     * Get user profile (loads from DB on miss), null if the user doesn't exist
      */
     public UserResponse get(Long userId) {
-        return cache.getIfPresent(userId);
+        return cache.get(userId);
     }
-    
+
     /**
-     * Get multiple user profiles from cache
+     * Get multiple user profiles, loading all misses with one query.
+     * Users that don't exist are absent from the result.
      */
     public Map<Long, UserResponse> getAll(Set<Long> userIds) {
-        return cache.getAllPresent(userIds);
+        return cache.getAll(userIds);
     }
-    
+
     /**
      * Put user profile into cache
      */
     public void put(Long userId, UserResponse userProfile) {
         cache.put(userId, userProfile);
     }
-    
+
     /**
      * Put multiple user profiles into cache
      */
     public void putAll(Map<Long, UserResponse> userProfiles) {
         cache.putAll(userProfiles);
     }
-    
+
     /**
      * Invalidate user profile (when user updates profile)
      */
     public void invalidate(Long userId) {
         cache.invalidate(userId);
     }
-    
+
     /**
      * Invalidate multiple user profiles
      */
     public void invalidateAll(Set<Long> userIds) {
         cache.invalidateAll(userIds);
     }
-    
+
     /**
      * Clear all cache
      */
     public void clear() {
         cache.invalidateAll();
     }
-    
+
     /**
      * Get cache statistics
      */
@@ -84,7 +127,7 @@ public class UserProfileCache {
             cache.stats().hitRate() * 100
         );
     }
-    
+
     /**
      * Get cached user IDs
      */
@@ -5,7 +5,6 @@ import com.chattrix.api.entities.CallParticipant;
 import com.chattrix.api.enums.CallStatus;
 import com.chattrix.api.repositories.CallRepository;
 import com.chattrix.api.services.notification.WebSocketNotificationService;
-import com.chattrix.api.services.cache.OnlineStatusCache;
 import jakarta.annotation.PostConstruct;
 import jakarta.annotation.PreDestroy;
 import jakarta.enterprise.context.ApplicationScoped;
@@ -41,8 +40,6 @@ public class CallCleanupScheduler {
     @Inject
     private CallRepository callRepository;
     @Inject
-    private OnlineStatusCache onlineStatusCache;
-    @Inject
     private WebSocketNotificationService webSocketService;
 
     @PostConstruct
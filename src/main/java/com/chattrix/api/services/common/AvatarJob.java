@@ -0,0 +1,10 @@
+package com.chattrix.api.services.common;
+
+/**
+ * Pending avatar generation for a newly registered user
+ *
+ * @param userId         ID người dùng
+ * @param placeholderUrl URL tạm đang lưu trong DB (cũng là ảnh nguồn để upload)
+ */
+public record AvatarJob(Long userId, String placeholderUrl) {
+}
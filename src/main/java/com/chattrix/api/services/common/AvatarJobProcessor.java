@@ -0,0 +1,42 @@
+package com.chattrix.api.services.common;
+
+import com.chattrix.api.repositories.UserRepository;
+import com.chattrix.api.services.cache.UserProfileCache;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.transaction.Transactional;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Lưu kết quả avatar job vào DB (transaction ngắn, tách khỏi upload)
+ */
+@ApplicationScoped
+public class AvatarJobProcessor {
+
+    private static final Logger logger = LoggerFactory.getLogger(AvatarJobProcessor.class);
+
+    @Inject
+    private UserRepository userRepository;
+
+    @Inject
+    private UserProfileCache userProfileCache;
+
+    /**
+     * Thay placeholder bằng URL avatar thật (bỏ qua nếu user đã đổi avatar trong lúc chờ).
+     * REQUIRES_NEW: chạy trên thread của queue, luôn trong transaction riêng
+     *
+     * @return true nếu đã cập nhật
+     */
+    @Transactional(Transactional.TxType.REQUIRES_NEW)
+    public boolean apply(AvatarJob job, String avatarUrl) {
+        int updated = userRepository.updateAvatarUrlIfUnchanged(job.userId(), job.placeholderUrl(), avatarUrl);
+        if (updated > 0) {
+            userProfileCache.invalidate(job.userId());
+            logger.debug("Avatar updated for user {}: {}", job.userId(), avatarUrl);
+        } else {
+            logger.info("Avatar for user {} changed before generation completed, keeping current one", job.userId());
+        }
+        return updated > 0;
+    }
+}
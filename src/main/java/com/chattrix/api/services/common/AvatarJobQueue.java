@@ -0,0 +1,13 @@
+package com.chattrix.api.services.common;
+
+/**
+ * Queue for off-request-path avatar generation.
+ * Implementation is selected by avatar.queue (cloudinary | local), see AvatarConfig.
+ */
+public interface AvatarJobQueue {
+
+    /**
+     * Enqueue avatar generation job (never blocks the caller on the upload)
+     */
+    void enqueue(AvatarJob job);
+}
@@ -1,8 +1,12 @@
 package com.chattrix.api.services.common;
 
+import com.chattrix.api.entities.User;
 import com.cloudinary.Cloudinary;
 import com.cloudinary.utils.ObjectUtils;
 import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Event;
+import jakarta.enterprise.event.Observes;
+import jakarta.enterprise.event.TransactionPhase;
 import jakarta.inject.Inject;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -35,21 +39,21 @@ public class AvatarService {
     @Inject
     private Cloudinary cloudinary;
 
+    @Inject
+    private AvatarJobQueue avatarJobQueue;
+
+    @Inject
+    private Event<AvatarJob> avatarJobEvent;
+
     /**
-     * Tạo avatar từ tên người dùng và upload lên Cloudinary
+     * Upload avatar đã tạo (ui-avatars URL) lên Cloudinary
      *
-     * @param userId   ID người dùng (dùng làm public_id)
-     * @param fullName Tên đầy đủ (dùng để tạo chữ cái)
+     * @param userId    ID người dùng (dùng làm public_id)
+     * @param sourceUrl URL ảnh nguồn
      * @return URL của avatar trên Cloudinary
      */
-    public String generateAndUploadAvatar(String userId, String fullName) {
+    public String uploadGeneratedAvatar(String userId, String sourceUrl) {
         try {
-            // Chọn màu ngẫu nhiên dựa trên userId để đảm bảo consistent
-            String color = selectColorForUser(userId);
-
-            // Tạo URL avatar từ ui-avatars.com với size 512px (chất lượng cao)
-            String avatarSourceUrl = buildAvatarUrl(fullName, color);
-
             // Upload lên Cloudinary
             Map uploadParams = ObjectUtils.asMap(
                     "public_id", "avatars/" + userId,
@@ -58,7 +62,7 @@ public class AvatarService {
                     "folder", "avatars"
             );
 
-            Map uploadResult = cloudinary.uploader().upload(avatarSourceUrl, uploadParams);
+            Map uploadResult = cloudinary.uploader().upload(sourceUrl, uploadParams);
 
             // Trả về secure URL
             String avatarUrl = (String) uploadResult.get("secure_url");
@@ -72,6 +76,36 @@ public class AvatarService {
         }
     }
 
+    /**
+     * Tạo URL avatar tạm (placeholder) có tính xác định, không cần gọi Cloudinary.
+     * Màu chọn theo username để URL có sẵn trước khi user được lưu (chưa có ID).
+     *
+     * @param username Username (dùng để chọn màu)
+     * @param fullName Tên đầy đủ (dùng để tạo chữ cái)
+     * @return URL ui-avatars.com
+     */
+    public String buildPlaceholderUrl(String username, String fullName) {
+        return buildAvatarUrl(fullName, selectColorForUser(username));
+    }
+
+    /**
+     * Lên lịch tạo avatar bất đồng bộ sau khi transaction đăng ký commit thành công
+     *
+     * @param user           User vừa được lưu (đã có ID)
+     * @param placeholderUrl URL placeholder hiện tại của user
+     */
+    public void scheduleAvatarGeneration(User user, String placeholderUrl) {
+        avatarJobEvent.fire(new AvatarJob(user.getId(), placeholderUrl));
+    }
+
+    /**
+     * Chỉ đưa job vào queue khi transaction đã commit (user row đã tồn tại với các connection khác).
+     * Queue chạy job trên thread riêng, không chặn request
+     */
+    public void onAvatarJob(@Observes(during = TransactionPhase.AFTER_SUCCESS) AvatarJob job) {
+        avatarJobQueue.enqueue(job);
+    }
+
     /**
      * Xóa avatar của người dùng trên Cloudinary
      *
@@ -0,0 +1,109 @@
+package com.chattrix.api.services.common;
+
+import com.chattrix.api.config.AvatarConfig;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.inject.Typed;
+import jakarta.inject.Inject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Avatar job queue uploading to Cloudinary on a small bounded pool.
+ * Concurrency toward Cloudinary = pool size; when the queue is full the job is dropped
+ * and the user keeps the placeholder (which is already a valid image URL).
+ */
+@ApplicationScoped
+@Typed(CloudinaryAvatarJobQueue.class)
+public class CloudinaryAvatarJobQueue implements AvatarJobQueue {
+
+    private static final Logger logger = LoggerFactory.getLogger(CloudinaryAvatarJobQueue.class);
+
+    @Inject
+    private AvatarConfig avatarConfig;
+
+    @Inject
+    private AvatarService avatarService;
+
+    @Inject
+    private AvatarJobProcessor avatarJobProcessor;
+
+    private ThreadPoolExecutor executor;
+
+    @PostConstruct
+    public void init() {
+        AtomicInteger threadCounter = new AtomicInteger();
+        executor = new ThreadPoolExecutor(
+                avatarConfig.getUploadConcurrency(),
+                avatarConfig.getUploadConcurrency(),
+                0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(avatarConfig.getQueueCapacity()),
+                r -> {
+                    Thread thread = new Thread(r, "AvatarUpload-" + threadCounter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy()
+        );
+        logger.info("CloudinaryAvatarJobQueue initialized. Concurrency: {}, Queue: {}",
+                avatarConfig.getUploadConcurrency(), avatarConfig.getQueueCapacity());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (executor != null) {
+            executor.shutdown();
+            try {
+                if (!executor.awaitTermination(10, TimeUnit.SECONDS))
+                    executor.shutdownNow();
+            } catch (InterruptedException e) {
+                executor.shutdownNow();
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    @Override
+    public void enqueue(AvatarJob job) {
+        try {
+            executor.execute(() -> process(job));
+        } catch (RejectedExecutionException e) {
+            logger.warn("Avatar queue full, user {} keeps placeholder avatar", job.userId());
+        }
+    }
+
+    private void process(AvatarJob job) {
+        int maxAttempts = avatarConfig.getMaxAttempts();
+        for (int attempt = 1; attempt <= maxAttempts; attempt++) {
+            try {
+                String avatarUrl = avatarService.uploadGeneratedAvatar(job.userId().toString(), job.placeholderUrl());
+                avatarJobProcessor.apply(job, avatarUrl);
+                return;
+            } catch (Exception e) {
+                logger.warn("Avatar generation failed for user {} (attempt {}/{}): {}",
+                        job.userId(), attempt, maxAttempts, e.getMessage());
+                if (attempt < maxAttempts && !sleepBackoff(attempt)) {
+                    return;
+                }
+            }
+        }
+        logger.error("Avatar generation gave up for user {}, keeping placeholder", job.userId());
+    }
+
+    private boolean sleepBackoff(int attempt) {
+        try {
+            Thread.sleep(1000L << (attempt - 1));
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package com.chattrix.api.services.common;
+
+import jakarta.annotation.Resource;
+import jakarta.enterprise.concurrent.ManagedExecutorService;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.inject.Typed;
+import jakarta.inject.Inject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Local stand-in for offline development/testing (avatar.queue=local).
+ * Runs the job on the container's managed executor without calling Cloudinary: the placeholder
+ * URL is kept as the final avatar. Never on the request thread, whose transaction has already ended.
+ */
+@ApplicationScoped
+@Typed(LocalAvatarJobQueue.class)
+public class LocalAvatarJobQueue implements AvatarJobQueue {
+
+    private static final Logger logger = LoggerFactory.getLogger(LocalAvatarJobQueue.class);
+
+    @Inject
+    private AvatarJobProcessor avatarJobProcessor;
+
+    @Resource
+    private ManagedExecutorService executor;
+
+    private final AtomicLong processedCount = new AtomicLong();
+
+    @Override
+    public void enqueue(AvatarJob job) {
+        executor.execute(() -> {
+            try {
+                avatarJobProcessor.apply(job, job.placeholderUrl());
+                processedCount.incrementAndGet();
+                logger.debug("Local avatar job processed for user {}", job.userId());
+            } catch (Exception e) {
+                logger.error("Local avatar job failed for user {}", job.userId(), e);
+            }
+        });
+    }
+
+    public long getProcessedCount() {
+        return processedCount.get();
+    }
+}
@@ -0,0 +1,163 @@
+package com.chattrix.api.services.conversation;
+
+import jakarta.annotation.Resource;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.transaction.Status;
+import jakarta.transaction.Synchronization;
+import jakarta.transaction.TransactionSynchronizationRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Write-behind buffer for conversation activity caused by sending messages.
+ * <p>
+ * Every message used to UPDATE conversations.updated_at and un-archive participants row by row
+ * inside the send transaction. Instead the latest activity time and the participants to un-archive
+ * are coalesced here per conversation and flushed by ConversationActivitySyncService as one batched UPDATE.
+ * <p>
+ * Until the flush, readers overlay the pending state via {@link #getPendingActivity} so the
+ * conversation list is still ordered by the real last activity.
+ * <p>
+ * Activity recorded inside a transaction is buffered only once it commits, so a failed send
+ * neither moves the conversation up nor un-archives it.
+ */
+@ApplicationScoped
+@Slf4j
+public class ConversationActivityBuffer {
+
+    // conversationId -> pending activity (immutable, replaced atomically via compute)
+    private final Map<Long, PendingActivity> pending = new ConcurrentHashMap<>();
+
+    @Resource
+    private TransactionSynchronizationRegistry transactionRegistry;
+
+    /**
+     * Record activity in conversation, after the current transaction (if any) commits
+     *
+     * @param participantIds   all participants (used to find pending conversations of a user)
+     * @param unarchiveUserIds participants whose archived flag must be cleared
+     */
+    public void recordActivity(Long conversationId, Instant activityAt,
+                               Collection<Long> participantIds, Collection<Long> unarchiveUserIds) {
+        int status = transactionRegistry != null ? transactionRegistry.getTransactionStatus() : Status.STATUS_NO_TRANSACTION;
+        if (status == Status.STATUS_NO_TRANSACTION) {
+            record(conversationId, activityAt, participantIds, unarchiveUserIds);
+            return;
+        }
+        if (status != Status.STATUS_ACTIVE) {
+            return;  // Marked for rollback
+        }
+        Set<Long> participants = Set.copyOf(participantIds);
+        Set<Long> unarchive = Set.copyOf(unarchiveUserIds);
+        transactionRegistry.registerInterposedSynchronization(new Synchronization() {
+            @Override
+            public void beforeCompletion() {
+            }
+
+            @Override
+            public void afterCompletion(int completionStatus) {
+                if (completionStatus == Status.STATUS_COMMITTED) {
+                    record(conversationId, activityAt, participants, unarchive);
+                }
+            }
+        });
+    }
+
+    private void record(Long conversationId, Instant activityAt,
+                        Collection<Long> participantIds, Collection<Long> unarchiveUserIds) {
+        pending.compute(conversationId, (id, current) -> current == null
+                ? new PendingActivity(activityAt, Set.copyOf(participantIds), Set.copyOf(unarchiveUserIds))
+                : current.merge(activityAt, participantIds, unarchiveUserIds));
+    }
+
+    /**
+     * User archived the conversation after sending - don't un-archive it on flush
+     */
+    public void cancelUnarchive(Long conversationId, Long userId) {
+        pending.computeIfPresent(conversationId, (id, current) -> current.withoutUnarchive(userId));
+    }
+
+    /**
+     * Get pending (not yet flushed) activity of conversation, or null
+     */
+    public PendingActivity getPendingActivity(Long conversationId) {
+        return pending.get(conversationId);
+    }
+
+    /**
+     * Get IDs of conversations with pending activity that the user participates in
+     */
+    public Set<Long> getPendingConversationIds(Long userId) {
+        Set<Long> result = new HashSet<>();
+        pending.forEach((conversationId, activity) -> {
+            if (activity.participantIds().contains(userId)) {
+                result.add(conversationId);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Remove and return all pending activity for flushing
+     */
+    public Map<Long, PendingActivity> drain() {
+        Map<Long, PendingActivity> drained = new HashMap<>();
+        for (Long conversationId : pending.keySet()) {
+            PendingActivity activity = pending.remove(conversationId);
+            if (activity != null) {
+                drained.put(conversationId, activity);
+            }
+        }
+        return drained;
+    }
+
+    /**
+     * Put back activity whose flush failed (merged with anything recorded meanwhile)
+     */
+    public void requeue(Map<Long, PendingActivity> failed) {
+        failed.forEach((conversationId, activity) ->
+                pending.merge(conversationId, activity, (current, old) ->
+                        current.merge(old.activityAt(), old.participantIds(), old.unarchiveUserIds())));
+        log.warn("Requeued activity for {} conversations after failed flush", failed.size());
+    }
+
+    public int size() {
+        return pending.size();
+    }
+
+    public record PendingActivity(Instant activityAt, Set<Long> participantIds, Set<Long> unarchiveUserIds) {
+
+        PendingActivity merge(Instant otherActivityAt, Collection<Long> otherParticipantIds,
+                              Collection<Long> otherUnarchiveUserIds) {
+            Instant latest = otherActivityAt.isAfter(activityAt) ? otherActivityAt : activityAt;
+            return new PendingActivity(latest, union(participantIds, otherParticipantIds),
+                    union(unarchiveUserIds, otherUnarchiveUserIds));
+        }
+
+        // Hot path: same participants on every message, so avoid copying when nothing is added
+        private static Set<Long> union(Set<Long> current, Collection<Long> other) {
+            if (current.containsAll(other)) {
+                return current;
+            }
+            Set<Long> result = new HashSet<>(current);
+            result.addAll(other);
+            return Set.copyOf(result);
+        }
+
+        PendingActivity withoutUnarchive(Long userId) {
+            if (!unarchiveUserIds.contains(userId)) {
+                return this;
+            }
+            Set<Long> unarchive = new HashSet<>(unarchiveUserIds);
+            unarchive.remove(userId);
+            return new PendingActivity(activityAt, participantIds, Set.copyOf(unarchive));
+        }
+
+        public boolean isUnarchiving(Long userId) {
+            return unarchiveUserIds.contains(userId);
+        }
+    }
+}
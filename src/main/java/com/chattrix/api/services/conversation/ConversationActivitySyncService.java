@@ -0,0 +1,99 @@
+package com.chattrix.api.services.conversation;
+
+import com.chattrix.api.repositories.ConversationParticipantRepository;
+import com.chattrix.api.repositories.ConversationRepository;
+import com.chattrix.api.services.conversation.ConversationActivityBuffer.PendingActivity;
+import jakarta.annotation.PreDestroy;
+import jakarta.ejb.Schedule;
+import jakarta.ejb.Singleton;
+import jakarta.ejb.Startup;
+import jakarta.inject.Inject;
+import jakarta.transaction.Transactional;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Flushes ConversationActivityBuffer to database every 2 seconds.
+ * <p>
+ * - One UPDATE for conversations.updated_at of all active conversations
+ * - One UPDATE for last_activity_at of their participants (the conversation list sort key)
+ * - One UPDATE for all participants to un-archive
+ * On failure the drained activity is put back and retried on the next run.
+ */
+@Singleton
+@Startup
+@Slf4j
+public class ConversationActivitySyncService {
+
+    @Inject
+    private ConversationActivityBuffer activityBuffer;
+
+    @Inject
+    private ConversationRepository conversationRepository;
+
+    @Inject
+    private ConversationParticipantRepository participantRepository;
+
+    private final AtomicBoolean isRunning = new AtomicBoolean(true);
+
+    @Schedule(hour = "*", minute = "*", second = "*/2", persistent = false)
+    @Transactional
+    public void syncToDatabase() {
+        if (!isRunning.get()) {
+            return;
+        }
+        flush();
+    }
+
+    private void flush() {
+        Map<Long, PendingActivity> drained = activityBuffer.drain();
+        if (drained.isEmpty()) {
+            return;
+        }
+
+        Map<Long, Instant> activityByConversation = new HashMap<>(drained.size());
+        List<Long> unarchiveConversationIds = new ArrayList<>();
+        List<Long> unarchiveUserIds = new ArrayList<>();
+
+        drained.forEach((conversationId, activity) -> {
+            activityByConversation.put(conversationId, activity.activityAt());
+            for (Long userId : activity.unarchiveUserIds()) {
+                unarchiveConversationIds.add(conversationId);
+                unarchiveUserIds.add(userId);
+            }
+        });
+
+        try {
+            int touched = conversationRepository.batchUpdateActivity(activityByConversation);
+            int participants = participantRepository.batchUpdateLastActivity(activityByConversation);
+            int unarchived = participantRepository.batchUnarchive(
+                    unarchiveConversationIds.toArray(Long[]::new),
+                    unarchiveUserIds.toArray(Long[]::new));
+
+            log.debug("Conversation activity flushed: conversations={}, updated={}, participants={}, unarchived={}",
+                    drained.size(), touched, participants, unarchived);
+        } catch (Exception e) {
+            log.error("Failed to flush conversation activity for {} conversations", drained.size(), e);
+            activityBuffer.requeue(drained);
+        }
+    }
+
+    /**
+     * Force flush on shutdown to prevent losing last activity
+     */
+    @PreDestroy
+    public void shutdown() {
+        isRunning.set(false);
+        try {
+            flush();
+        } catch (Exception e) {
+            log.error("Error during final conversation activity flush", e);
+        }
+    }
+}
@@ -5,6 +5,7 @@ import com.chattrix.api.entities.User;
 import com.chattrix.api.mappers.ConversationMapper;
 import com.chattrix.api.responses.ConversationResponse;
 import com.chattrix.api.services.notification.ChatSessionService;
+import com.chattrix.api.services.user.PresenceQueryService;
 import com.chattrix.api.websocket.WebSocketEventType;
 import com.chattrix.api.websocket.dto.*;
 import jakarta.enterprise.context.ApplicationScoped;
@@ -26,6 +27,9 @@ public class ConversationBroadcastService {
     @Inject
     private ConversationMapper conversationMapper;
 
+    @Inject
+    private PresenceQueryService presenceQueryService;
+
     /**
      * Broadcast conversation created event to all participants
      */
@@ -37,7 +41,8 @@ public class ConversationBroadcastService {
             // Map conversation to response for each participant
             conversation.getParticipants().forEach(participant -> {
                 Long userId = participant.getUser().getId();
-                ConversationResponse conversationResponse = conversationMapper.toResponseWithUnreadCount(conversation, userId);
+                ConversationResponse conversationResponse = presenceQueryService.applyOnline(
+                        conversationMapper.toResponseWithUnreadCount(conversation, userId));
 
                 ConversationCreatedDto dto = ConversationCreatedDto.builder()
                         .conversation(conversationResponse)
@@ -0,0 +1,61 @@
+package com.chattrix.api.services.conversation;
+
+import com.chattrix.api.entities.ConversationParticipant;
+import com.chattrix.api.utils.SearchSchema;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.Resource;
+import jakarta.ejb.Singleton;
+import jakarta.ejb.Startup;
+import jakarta.ejb.TransactionAttribute;
+import jakarta.ejb.TransactionAttributeType;
+import lombok.extern.slf4j.Slf4j;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+
+/**
+ * Fills the conversation list sort columns of conversation_participants for rows written before
+ * they existed (hbm2ddl adds the columns empty):
+ * <p>
+ * - last_activity_at from conversations.updated_at
+ * - pin_order = {@link ConversationParticipant#UNPINNED_ORDER} for unpinned rows
+ * <p>
+ * Runs before the application serves requests, since NULLs would sort out of place in idx_cp_user_activity.
+ * Both updates only touch rows still missing the value, so after the first start they are no-ops.
+ * The superseded idx_cp_user_list is dropped.
+ */
+@Singleton
+@Startup
+@Slf4j
+public class ConversationListSchema {
+
+    @Resource(lookup = "java:jboss/datasources/ChattrixDS")
+    private DataSource dataSource;
+
+    @PostConstruct
+    @TransactionAttribute(TransactionAttributeType.NOT_SUPPORTED)
+    public void init() {
+        try (Connection conn = dataSource.getConnection()) {
+            conn.setAutoCommit(true);
+            int activity = update(conn, "UPDATE conversation_participants cp " +
+                    "SET last_activity_at = COALESCE(c.updated_at, c.created_at, cp.joined_at) " +
+                    "FROM conversations c WHERE c.id = cp.conversation_id AND cp.last_activity_at IS NULL");
+            int pinOrder = update(conn, "UPDATE conversation_participants SET pin_order = "
+                    + ConversationParticipant.UNPINNED_ORDER + " WHERE pin_order IS NULL");
+            SearchSchema.execute(conn, "DROP INDEX CONCURRENTLY IF EXISTS idx_cp_user_list");
+            if (activity > 0 || pinOrder > 0) {
+                log.info("Conversation list columns backfilled: lastActivityAt={}, pinOrder={}", activity, pinOrder);
+            }
+        } catch (Exception e) {
+            log.error("Conversation list column backfill failed", e);
+        }
+    }
+
+    private static int update(Connection conn, String sql) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            return stmt.executeUpdate();
+        }
+    }
+}
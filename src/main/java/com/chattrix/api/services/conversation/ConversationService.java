@@ -20,8 +20,13 @@ import com.chattrix.api.responses.ConversationResponse;
 import com.chattrix.api.responses.CursorPaginatedResponse;
 import com.chattrix.api.services.cache.CacheManager;
 import com.chattrix.api.services.cache.ConversationCache;
+import com.chattrix.api.services.cache.ConversationMembershipCache;
+import com.chattrix.api.services.cache.SingleFlight;
+import com.chattrix.api.services.cache.UnreadCountCache;
 import com.chattrix.api.services.conversation.ConversationBroadcastService;
 import com.chattrix.api.services.message.SystemMessageService;
+import com.chattrix.api.services.user.PresenceQueryService;
+import com.chattrix.api.utils.ConversationCursor;
 import com.chattrix.api.utils.PaginationHelper;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
@@ -53,11 +58,21 @@ public class ConversationService {
     @Inject
     private UserMapper userMapper;
     @Inject
+    private PresenceQueryService presenceQueryService;
+    @Inject
     private ConversationCache conversationCache;
     @Inject
+    private ConversationMembershipCache membershipCache;
+    @Inject
     private CacheManager cacheManager;
     @Inject
     private ConversationBroadcastService conversationBroadcastService;
+    @Inject
+    private ConversationActivityBuffer activityBuffer;
+    @Inject
+    private UnreadCountCache unreadCountCache;
+
+    private final SingleFlight<ListLoad, CursorPaginatedResponse<ConversationResponse>> listLoads = new SingleFlight<>();
 
     @Transactional
     public ConversationResponse createConversation(Long currentUserId, CreateConversationRequest request) {
@@ -108,7 +123,7 @@ public class ConversationService {
         Conversation reloadedConv = conversationRepository.findById(currentUserId, conv.getId())
                 .orElseThrow(() -> BusinessException.notFound("Conversation restored but not found"));
 
-        return conversationMapper.toResponseWithUnreadCount(reloadedConv, currentUserId);
+        return presenceQueryService.applyOnline(conversationMapper.toResponseWithUnreadCount(reloadedConv, currentUserId));
     }
 
     private ConversationResponse createNewConversation(Long currentUserId, Set<Long> targetUserIds, CreateConversationRequest request) {
@@ -139,6 +154,7 @@ public class ConversationService {
         }
 
         Conversation savedConv = conversationRepository.save(conversation);
+        membershipCache.membersJoined(savedConv.getId(), userMap.keySet());
 
         if (savedConv.isGroupConversation() && !targetUserIds.isEmpty()) {
             systemMessageService.createUserAddedMessage(
@@ -159,12 +175,12 @@ public class ConversationService {
                 currentUser.getUsername()
         );
 
-        return conversationMapper.toResponseWithUnreadCount(reloadedConv, currentUserId);
+        return presenceQueryService.applyOnline(conversationMapper.toResponseWithUnreadCount(reloadedConv, currentUserId));
     }
 
     /**
-     * Get conversations with cursor-based pagination and filtering.
-     * Cursor is the conversation ID of the last item from previous page.
+     * Get conversations with keyset cursor pagination and filtering.
+     * Cursor is opaque (see {@link ConversationCursor}) and encodes the sort key of the last item.
      * 
      * Supported filters:
      * - all: All conversations (default)
@@ -174,7 +190,7 @@ public class ConversationService {
      * - archived: Archived conversations
      */
     @Transactional
-    public CursorPaginatedResponse<ConversationResponse> getConversations(Long userId, String filter, Long cursor, int limit) {
+    public CursorPaginatedResponse<ConversationResponse> getConversations(Long userId, String filter, String cursor, int limit) {
         // Validate filter
         if (filter != null && !filter.equals("all") && !filter.equals("direct") && !filter.equals("group") 
                 && !filter.equals("unread") && !filter.equals("archived")) {
@@ -182,28 +198,194 @@ public class ConversationService {
         }
 
         limit = PaginationHelper.validateLimit(limit);
+        ConversationCursor decodedCursor = ConversationCursor.decode(cursor);
+
+        // First page of the inbox is served from the cached list view when present
+        boolean listView = decodedCursor == null && (filter == null || "all".equalsIgnoreCase(filter));
+        if (listView) {
+            ConversationCache.ListView view = conversationCache.getList(userId, limit);
+            if (view != null) {
+                return fromListView(userId, view, limit);
+            }
+
+            // Concurrent misses for the same inbox page (several devices, retries after a clear) share one load
+            int pageLimit = limit;
+            return listLoads.load(new ListLoad(userId, pageLimit),
+                    () -> loadConversations(userId, filter, null, pageLimit, true));
+        }
 
-        // Query entities
-        List<Conversation> conversations =
-                conversationRepository.findByUserIdWithCursor(userId, cursor, limit, filter);
-        var result = PaginationHelper.processForPagination(conversations, limit);
+        return loadConversations(userId, filter, decodedCursor, limit, false);
+    }
 
-        // Map with userId - mapper automatically extracts unreadCount
-        List<ConversationResponse> responses = conversationMapper.toResponseListWithUnreadCount(result.items(), userId);
+    private CursorPaginatedResponse<ConversationResponse> loadConversations(Long userId, String filter,
+                                                                            ConversationCursor decodedCursor,
+                                                                            int limit, boolean listView) {
+        // Projection query: one row per conversation, already in response shape
+        long unreadEpoch = unreadCountCache.loadEpoch();
+        List<ConversationResponse> rows =
+                conversationRepository.findByUserIdWithCursor(userId, decodedCursor, limit, filter);
+        var result = PaginationHelper.processForPagination(rows, limit);
+        // End of the range read from DB (by DB keys, before any overlay); rows after it belong to later pages
+        ConversationCursor readUpTo = result.hasMore() && !result.items().isEmpty()
+                ? ConversationCursor.from(result.items().getLast()) : null;
 
-        Long nextCursor = result.hasMore() && !responses.isEmpty()
-                ? responses.getLast().getId()
-                : null;
+        // Participants for the whole page in one query
+        Map<Long, List<ConversationResponse.ParticipantResponse>> participants = conversationRepository
+                .findParticipantResponses(result.items().stream().map(ConversationResponse::getId).toList());
+        result.items().forEach(r -> r.setParticipants(participants.getOrDefault(r.getId(), new ArrayList<>())));
+
+        List<ConversationResponse> merged = applyPendingActivity(userId, filter, decodedCursor, readUpTo, result.items());
+        // Rows pushed off the page by pending conversations are served by the next page
+        boolean hasMore = result.hasMore() || merged.size() > limit;
+        List<ConversationResponse> responses = merged.size() > limit ? new ArrayList<>(merged.subList(0, limit)) : merged;
+
+        // Cursor from the page actually returned, so the rows pushed off sort after it. A page left
+        // empty by pending conversations shown elsewhere continues after the rows it read instead of ending the list
+        ConversationCursor next = !responses.isEmpty() ? ConversationCursor.from(responses.getLast()) : readUpTo;
+        String nextCursor = hasMore && next != null ? next.encode() : null;
+
+        if (listView) {
+            conversationCache.putList(userId, responses, !hasMore && responses.size() < limit);
+        }
+
+        // Unread counts not yet synced by UnreadCountSyncService; DB values double as read-through load
+        for (ConversationResponse response : responses) {
+            int dbUnread = response.getUnreadCount() != null ? response.getUnreadCount() : 0;
+            response.setUnreadCount(unreadCountCache.resolve(response.getId(), userId, dbUnread, unreadEpoch));
+        }
+        presenceQueryService.applyOnline(responses);
 
         return new CursorPaginatedResponse<>(responses, nextCursor, limit);
     }
 
+    /**
+     * Build the first page from the cached list view. Entries marked stale (membership or
+     * conversation details changed) are reloaded in one query and written back to the view.
+     */
+    private CursorPaginatedResponse<ConversationResponse> fromListView(Long userId, ConversationCache.ListView view, int limit) {
+        List<ConversationResponse> responses = new ArrayList<>(view.items());
+
+        if (!view.staleIds().isEmpty()) {
+            Map<Long, ConversationResponse> reloaded = new HashMap<>();
+            for (Conversation conversation : conversationRepository.findByIdsWithParticipants(view.staleIds())) {
+                ConversationResponse response = conversationMapper.toResponseWithUnreadCount(conversation, userId);
+                applyPendingActivity(response, userId);
+                reloaded.put(response.getId(), response);
+            }
+
+            Map<Long, ConversationResponse> refreshed = new HashMap<>();
+            responses.replaceAll(response -> reloaded.getOrDefault(response.getId(), response));
+            responses.removeIf(response -> {
+                if (!view.staleIds().contains(response.getId())) {
+                    return false;
+                }
+                if (reloaded.containsKey(response.getId()) && matchesListFilter(response, "all")) {
+                    refreshed.put(response.getId(), response);
+                    return false;
+                }
+                conversationCache.removeFromList(userId, response.getId());  // archived, left or deleted
+                return true;
+            });
+            conversationCache.putAll(userId, refreshed);
+            responses.sort(ConversationCursor.LIST_ORDER);
+        }
+
+        Map<Long, Integer> unreadCounts = unreadCountCache.getAll(userId,
+                responses.stream().map(ConversationResponse::getId).toList());
+        responses.forEach(response -> response.setUnreadCount(unreadCounts.getOrDefault(response.getId(), 0)));
+        presenceQueryService.applyOnline(responses);
+
+        String nextCursor = view.hasMore() && !responses.isEmpty()
+                ? ConversationCursor.from(responses.getLast()).encode()
+                : null;
+        return new CursorPaginatedResponse<>(responses, nextCursor, limit);
+    }
+
+    /**
+     * Overlay conversation activity not yet flushed by ConversationActivitySyncService
+     * (updatedAt from new messages, auto-unarchive) so list ordering is correct between flushes.
+     * <p>
+     * Every pending conversation of the user is placed where its overlaid activity sorts: on this page if
+     * that is after {@code after} (the request cursor, null on the first page) and not past {@code readUpTo}
+     * (the last row read from DB, null if the DB has no more), otherwise on the page that covers it.
+     * Its stale DB row is dropped wherever it appears. The merged list is sorted but not cut to the page size.
+     */
+    private List<ConversationResponse> applyPendingActivity(Long userId, String filter, ConversationCursor after,
+                                                            ConversationCursor readUpTo,
+                                                            List<ConversationResponse> responses) {
+        Set<Long> pendingIds = activityBuffer.getPendingConversationIds(userId);
+        if (pendingIds.isEmpty()) {
+            return responses;
+        }
+
+        List<ConversationResponse> merged = new ArrayList<>(responses.size());
+        List<ConversationResponse> pending = new ArrayList<>();
+        for (ConversationResponse response : responses) {
+            if (pendingIds.remove(response.getId())) {
+                pending.add(response);
+            } else {
+                merged.add(response);
+            }
+        }
+
+        // Pending conversations not read on this page may have moved into it
+        if (!pendingIds.isEmpty()) {
+            for (Conversation conversation : conversationRepository.findByIdsWithParticipants(pendingIds)) {
+                pending.add(conversationMapper.toResponseWithUnreadCount(conversation, userId));
+            }
+        }
+
+        boolean archivedView = "archived".equalsIgnoreCase(filter);
+        for (ConversationResponse response : pending) {
+            applyPendingActivity(response, userId);
+            boolean listed = archivedView
+                    ? response.getSettings() != null && Boolean.TRUE.equals(response.getSettings().getArchived())
+                    : matchesListFilter(response, filter);
+            if (listed && (after == null || after.isBefore(response)) && (readUpTo == null || !readUpTo.isBefore(response))) {
+                merged.add(response);
+            }
+        }
+
+        merged.sort(ConversationCursor.LIST_ORDER);
+        return merged;
+    }
+
+    private boolean applyPendingActivity(ConversationResponse response, Long userId) {
+        ConversationActivityBuffer.PendingActivity pending = activityBuffer.getPendingActivity(response.getId());
+        if (pending == null) {
+            return false;
+        }
+        if (response.getUpdatedAt() == null || pending.activityAt().isAfter(response.getUpdatedAt())) {
+            response.setUpdatedAt(pending.activityAt());
+        }
+        if (pending.isUnarchiving(userId) && response.getSettings() != null
+                && Boolean.TRUE.equals(response.getSettings().getArchived())) {
+            response.getSettings().setArchived(false);
+            return true;
+        }
+        return false;
+    }
+
+    private boolean matchesListFilter(ConversationResponse response, String filter) {
+        if (response.getSettings() == null || Boolean.TRUE.equals(response.getSettings().getArchived())) {
+            return false;
+        }
+        if ("unread".equalsIgnoreCase(filter)) {
+            return response.getUnreadCount() != null && response.getUnreadCount() > 0;
+        } else if ("group".equalsIgnoreCase(filter)) {
+            return ConversationType.GROUP.name().equals(response.getType());
+        } else if ("direct".equalsIgnoreCase(filter)) {
+            return ConversationType.DIRECT.name().equals(response.getType());
+        }
+        return true;
+    }
+
     @Transactional
     public ConversationResponse getConversation(Long userId, Long conversationId) {
         Conversation conversation = conversationRepository.findById(userId, conversationId)
                 .orElseThrow(() -> BusinessException.notFound("Conversation not found"));
 
-        return conversationMapper.toResponseWithUnreadCount(conversation, userId);
+        return presenceQueryService.applyOnline(conversationMapper.toResponseWithUnreadCount(conversation, userId));
     }
 
     public List<ConversationMemberResponse> getConversationMembers(Long userId, Long conversationId) {
@@ -214,11 +396,11 @@ public class ConversationService {
         List<User> users = conversation.getParticipants().stream()
                 .map(ConversationParticipant::getUser)
                 .toList();
-        return userMapper.toConversationMemberResponseList(users);
+        return presenceQueryService.applyMembersOnline(userMapper.toConversationMemberResponseList(users));
     }
 
     public CursorPaginatedResponse<ConversationMemberResponse> getConversationMembersWithCursor(Long userId, Long conversationId, Long cursor, int limit) {
-        if (!participantRepository.isUserParticipant(conversationId, userId))
+        if (!membershipCache.isParticipant(conversationId, userId))
             throw BusinessException.forbidden("You are not a participant of this conversation");
 
         limit = PaginationHelper.validateLimit(limit);
@@ -230,7 +412,7 @@ public class ConversationService {
         List<User> users = result.items().stream()
                 .map(ConversationParticipant::getUser)
                 .toList();
-        List<ConversationMemberResponse> responses = userMapper.toConversationMemberResponseList(users);
+        List<ConversationMemberResponse> responses = presenceQueryService.applyMembersOnline(userMapper.toConversationMemberResponseList(users));
 
         Long nextCursor = result.hasMore() && !responses.isEmpty()
                 ? responses.get(responses.size() - 1).getId()
@@ -299,7 +481,7 @@ public class ConversationService {
                 currentUser.getUsername()
         );
 
-        return conversationMapper.toResponseWithUnreadCount(updatedConv, userId);
+        return presenceQueryService.applyOnline(conversationMapper.toResponseWithUnreadCount(updatedConv, userId));
     }
 
     @Transactional
@@ -317,8 +499,9 @@ public class ConversationService {
         participant.setArchived(true);
         participant.setArchivedAt(Instant.now());
         participantRepository.save(participant);
+        activityBuffer.cancelUnarchive(conversationId, userId);
 
-        conversationCache.invalidate(userId, conversationId);
+        conversationCache.removeFromList(userId, conversationId);
     }
 
     @Transactional
@@ -340,7 +523,7 @@ public class ConversationService {
         participant.setArchivedAt(null);
         participantRepository.save(participant);
 
-        conversationCache.invalidate(userId, conversationId);
+        conversationCache.updateSettings(userId, conversationId, true, settings -> settings.setArchived(false));
     }
 
     @Transactional
@@ -359,7 +542,11 @@ public class ConversationService {
         }
 
         participantRepository.save(participant);
-        conversationCache.invalidate(userId, conversationId);
+        conversationCache.updateSettings(userId, conversationId, false, settings -> {
+            settings.setMuted(true);
+            settings.setMutedUntil(participant.getMutedUntil());
+            settings.setNotificationsEnabled(false);
+        });
     }
 
     @Transactional
@@ -373,7 +560,11 @@ public class ConversationService {
         participant.setMutedUntil(null);
         participantRepository.save(participant);
 
-        conversationCache.invalidate(userId, conversationId);
+        conversationCache.updateSettings(userId, conversationId, false, settings -> {
+            settings.setMuted(false);
+            settings.setMutedUntil(null);
+            settings.setNotificationsEnabled(true);
+        });
     }
 
     @Transactional
@@ -393,7 +584,10 @@ public class ConversationService {
         participant.setPinOrder(maxPinOrder != null ? maxPinOrder + 1 : 1);
         participantRepository.save(participant);
 
-        conversationCache.invalidate(userId, conversationId);
+        conversationCache.updateSettings(userId, conversationId, true, settings -> {
+            settings.setPinned(true);
+            settings.setPinOrder(participant.getPinOrder());
+        });
     }
 
     @Transactional
@@ -418,7 +612,9 @@ public class ConversationService {
             adjustPinOrdersAfterUnpin(userId, oldPinOrder);
         }
 
+        // Other pin orders shifted and the conversation may drop below the cached first page
         conversationCache.invalidate(userId, conversationId);
+        conversationCache.invalidateList(userId);
     }
 
     @Transactional
@@ -483,6 +679,7 @@ public class ConversationService {
         participantRepository.save(participant);
 
         conversationCache.invalidate(userId, conversationId);
+        conversationCache.invalidateList(userId);
         log.info("Reordered pinned conversation {} for user {} from {} to {}",
                 conversationId, userId, oldPinOrder, newPinOrder);
     }
@@ -527,6 +724,7 @@ public class ConversationService {
                     .collect(Collectors.toList());
 
             participantRepository.delete(participant);
+            membershipCache.memberLeft(conversationId, userId);
 
             // Broadcast conversation deleted event
             conversationBroadcastService.broadcastConversationDeleted(
@@ -571,6 +769,7 @@ public class ConversationService {
         // Now safe to leave
         conversation.getParticipants().remove(participant);
         conversationRepository.save(conversation);
+        membershipCache.memberLeft(conversationId, userId);
 
         systemMessageService.createUserLeftMessage(conversationId, userId);
 
@@ -630,6 +829,7 @@ public class ConversationService {
 
         // Create ONE system message for all added members
         if (!newlyAddedUserIds.isEmpty()) {
+            membershipCache.membersJoined(conversationId, newlyAddedUserIds);
             systemMessageService.createUserAddedMessage(conversationId, newlyAddedUserIds, userId);
 
             // Broadcast members added event
@@ -678,6 +878,7 @@ public class ConversationService {
 
         conversation.getParticipants().remove(participant);
         conversationRepository.save(conversation);
+        membershipCache.memberLeft(conversationId, memberUserId);
 
         systemMessageService.createUserKickedMessage(conversationId, memberUserId, userId);
 
@@ -751,6 +952,7 @@ public class ConversationService {
                 .fullName(participant.getUser().getFullName())
                 .avatarUrl(participant.getUser().getAvatarUrl())
                 .role(participant.getRole().name())
+                .online(presenceQueryService.isOnline(participant.getUser().getId()))
                 .build();
     }
 
@@ -763,7 +965,7 @@ public class ConversationService {
     }
 
     private void validateGroupAdmin(Long conversationId, Long userId) {
-        if (!participantRepository.isUserParticipant(conversationId, userId)) {
+        if (!membershipCache.isParticipant(conversationId, userId)) {
             throw BusinessException.forbidden("Access denied");
         }
         Conversation c = conversationRepository.findById(conversationId).orElseThrow();
@@ -783,6 +985,12 @@ public class ConversationService {
                 .orElseThrow(() -> BusinessException.notFound("User not found"));
 
         List<Conversation> conversations = conversationRepository.findMutualGroups(currentUserId, otherUserId);
-        return conversationMapper.toResponseListWithUnreadCount(conversations, currentUserId);
+        return presenceQueryService.applyOnline(conversationMapper.toResponseListWithUnreadCount(conversations, currentUserId));
+    }
+
+    /**
+     * Single-flight key for first-page inbox loads
+     */
+    private record ListLoad(Long userId, int limit) {
     }
 }
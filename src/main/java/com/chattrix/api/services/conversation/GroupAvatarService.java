@@ -8,6 +8,7 @@ import com.chattrix.api.repositories.ConversationRepository;
 import com.chattrix.api.requests.UpdateGroupAvatarRequest;
 import com.chattrix.api.responses.ConversationResponse;
 import com.chattrix.api.services.message.SystemMessageService;
+import com.chattrix.api.services.user.PresenceQueryService;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
 import jakarta.transaction.Transactional;
@@ -20,6 +21,9 @@ public class GroupAvatarService {
     @Inject
     private ConversationMapper conversationMapper;
 
+    @Inject
+    private PresenceQueryService presenceQueryService;
+
     @Inject
     private GroupPermissionsService groupPermissionsService;
 
@@ -54,7 +58,7 @@ public class GroupAvatarService {
         // Create system message
         systemMessageService.createGroupAvatarChangedMessage(conversationId, userId);
 
-        return conversationMapper.toResponseWithUnreadCount(conversation, userId);
+        return presenceQueryService.applyOnline(conversationMapper.toResponseWithUnreadCount(conversation, userId));
     }
 
     /**
@@ -80,6 +84,6 @@ public class GroupAvatarService {
         conversation.setAvatarUrl(null);
         conversationRepository.save(conversation);
 
-        return conversationMapper.toResponseWithUnreadCount(conversation, userId);
+        return presenceQueryService.applyOnline(conversationMapper.toResponseWithUnreadCount(conversation, userId));
     }
 }
@@ -14,6 +14,7 @@ import com.chattrix.api.repositories.ConversationRepository;
 import com.chattrix.api.repositories.GroupPermissionsRepository;
 import com.chattrix.api.requests.UpdateGroupPermissionsRequest;
 import com.chattrix.api.responses.GroupPermissionsResponse;
+import com.chattrix.api.services.cache.ConversationMembershipCache;
 import com.chattrix.api.services.message.MessageCreationService;
 import com.chattrix.api.services.message.SystemMessageService;
 import jakarta.enterprise.context.ApplicationScoped;
@@ -35,6 +36,9 @@ public class GroupPermissionsService {
     @Inject
     private ConversationParticipantRepository participantRepository;
 
+    @Inject
+    private ConversationMembershipCache membershipCache;
+
     @Inject
     private ConversationBroadcastService conversationBroadcastService;
 
@@ -57,7 +61,7 @@ public class GroupPermissionsService {
         }
 
         // Validate user is participant
-        if (!participantRepository.isUserParticipant(conversationId, userId)) {
+        if (!membershipCache.isParticipant(conversationId, userId)) {
             throw BusinessException.forbidden("You are not a participant of this conversation");
         }
 
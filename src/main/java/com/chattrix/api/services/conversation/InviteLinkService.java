@@ -16,6 +16,7 @@ import com.chattrix.api.responses.InviteLinkInfoResponse;
 import com.chattrix.api.responses.InviteLinkResponse;
 import com.chattrix.api.responses.JoinViaInviteResponse;
 import com.chattrix.api.responses.UserBasicResponse;
+import com.chattrix.api.services.cache.ConversationMembershipCache;
 import com.chattrix.api.services.invite.QRCodeService;
 import com.google.zxing.WriterException;
 import jakarta.enterprise.context.ApplicationScoped;
@@ -28,6 +29,7 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 import java.util.stream.Collectors;
 
@@ -41,6 +43,9 @@ public class InviteLinkService {
     @Inject
     private ConversationParticipantRepository participantRepository;
 
+    @Inject
+    private ConversationMembershipCache membershipCache;
+
     @Inject
     private AppConfig appConfig;
 
@@ -293,6 +298,7 @@ public class InviteLinkService {
                 .build();
 
         participantRepository.save(participant);
+        membershipCache.membersJoined(conversation.getId(), Set.of(userId));
 
         Integer currentUses = getIntegerValue(inviteLink.get("currentUses"));
         inviteLink.put("currentUses", currentUses + 1);
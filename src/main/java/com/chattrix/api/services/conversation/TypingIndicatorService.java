@@ -1,104 +1,297 @@
 package com.chattrix.api.services.conversation;
 
+import com.chattrix.api.responses.UserResponse;
+import com.chattrix.api.services.cache.ConversationMembershipCache;
+import com.chattrix.api.services.cache.UserProfileCache;
+import com.chattrix.api.services.notification.ChatSessionService;
+import com.chattrix.api.utils.TimerWheel;
+import com.chattrix.api.websocket.WebSocketEventType;
+import com.chattrix.api.websocket.dto.TypingIndicatorResponseDto;
+import com.chattrix.api.websocket.dto.TypingUserDto;
+import com.chattrix.api.websocket.dto.WebSocketMessage;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import lombok.extern.slf4j.Slf4j;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
-import java.util.concurrent.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
+/**
+ * Typing indicator engine: who is typing where, expiry, and typing.indicator frames.
+ * <p>
+ * - Two indexes: conversation -> typing users (what gets sent) and user -> conversations with
+ *   deadlines, so a disconnect or timeout touches only the user's own k conversations
+ * - Expiry runs on one timing wheel keyed by user, holding the user's earliest deadline; keystrokes
+ *   only move the deadline in the user's index, the wheel entry is moved when it falls due
+ * - Frames are throttled per conversation: a change is sent at once if nothing was sent in the last
+ *   THROTTLE_MILLIS, otherwise the ticker sends the latest state when the window ends
+ * - Membership comes from {@link ConversationMembershipCache}; each online member gets the typing
+ *   users other than itself, and a user whose own change is the only change isn't sent anything
+ * <p>
+ * One daemon thread ticks every TICK_MILLIS for both expiry and deferred frames.
+ */
 @ApplicationScoped
+@Slf4j
 public class TypingIndicatorService {
 
-    // Timeout sau 3 giây không có activity thì tự động stop typing
-    private static final long TYPING_TIMEOUT_SECONDS = 3;
-    // Map từ conversationId -> Set<userId> đang typing
-    private final Map<Long, Set<Long>> conversationTypingUsers = new ConcurrentHashMap<>();
-    // Map từ key(conversationId_userId) -> ScheduledFuture để auto-stop typing sau timeout
-    private final Map<String, ScheduledFuture<?>> typingTimeouts = new ConcurrentHashMap<>();
-    private final ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(5);
+    // Typing stops automatically after 3 seconds without a typing.start
+    private static final long TYPING_TIMEOUT_MILLIS = 3_000;
+    private static final long THROTTLE_MILLIS = 300;
+    private static final long TICK_MILLIS = 100;
+    private static final int WHEEL_SLOTS = 64;
 
-    /**
-     * Đánh dấu user đang typing trong conversation
-     */
-    public void startTyping(Long conversationId, Long userId) {
-        conversationTypingUsers.computeIfAbsent(conversationId, k -> ConcurrentHashMap.newKeySet()).add(userId);
-
-        // Reset timeout timer cho user này
-        String key = conversationId + "_" + userId;
-        ScheduledFuture<?> oldTimeout = typingTimeouts.get(key);
-        if (oldTimeout != null) {
-            oldTimeout.cancel(false);
-        }
+    @Inject
+    private ConversationMembershipCache membershipCache;
+
+    @Inject
+    private ChatSessionService chatSessionService;
+
+    @Inject
+    private UserProfileCache userProfileCache;
 
-        // Tạo timeout mới
-        ScheduledFuture<?> newTimeout = scheduler.schedule(() -> {
-            stopTyping(conversationId, userId);
-        }, TYPING_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+    // conversationId -> typing users and throttle state, removed once idle
+    private final ConcurrentMap<Long, ConversationTyping> conversations = new ConcurrentHashMap<>();
 
-        typingTimeouts.put(key, newTimeout);
+    // userId -> (conversationId -> deadline), mutated only inside compute for the user
+    private final ConcurrentMap<Long, Map<Long, Long>> users = new ConcurrentHashMap<>();
+
+    private final TimerWheel expiries = new TimerWheel(WHEEL_SLOTS, TICK_MILLIS, System.currentTimeMillis());
+
+    private ScheduledExecutorService ticker;
+
+    @PostConstruct
+    public void init() {
+        ticker = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "TypingTicker");
+            thread.setDaemon(true);
+            return thread;
+        });
+        ticker.scheduleAtFixedRate(() -> tick(System.currentTimeMillis()), TICK_MILLIS, TICK_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        ticker.shutdownNow();
     }
 
     /**
-     * Đánh dấu user đã ngừng typing trong conversation
+     * Mark the user as typing in the conversation (or extend it)
+     *
+     * @return false if the user isn't a participant of the conversation
      */
-    public void stopTyping(Long conversationId, Long userId) {
-        Set<Long> typingUsers = conversationTypingUsers.get(conversationId);
-        if (typingUsers != null) {
-            typingUsers.remove(userId);
-            if (typingUsers.isEmpty()) {
-                conversationTypingUsers.remove(conversationId);
+    public boolean startTyping(Long conversationId, Long userId) {
+        if (!membershipCache.isParticipant(conversationId, userId)) {
+            return false;
+        }
+        long now = System.currentTimeMillis();
+        long deadline = now + TYPING_TIMEOUT_MILLIS;
+        boolean[] started = new boolean[1];
+        users.compute(userId, (id, typing) -> {
+            Map<Long, Long> deadlines = typing != null ? typing : new HashMap<>();
+            started[0] = deadlines.put(conversationId, deadline) == null;
+            // A scheduled deadline is never later than this one, the wheel moves it when it falls due
+            if (expiries.deadline(userId) == null) {
+                expiries.schedule(userId, deadline);
             }
+            return deadlines;
+        });
+        if (started[0]) {
+            changed(conversationId, userId, true, now);
         }
+        return true;
+    }
 
-        // Hủy timeout timer
-        String key = conversationId + "_" + userId;
-        ScheduledFuture<?> timeout = typingTimeouts.remove(key);
-        if (timeout != null) {
-            timeout.cancel(false);
+    /**
+     * Mark the user as no longer typing in the conversation
+     */
+    public void stopTyping(Long conversationId, Long userId) {
+        boolean[] stopped = new boolean[1];
+        users.computeIfPresent(userId, (id, deadlines) -> {
+            stopped[0] = deadlines.remove(conversationId) != null;
+            if (deadlines.isEmpty()) {
+                expiries.cancel(userId);
+                return null;
+            }
+            return deadlines;
+        });
+        if (stopped[0]) {
+            changed(conversationId, userId, false, System.currentTimeMillis());
         }
     }
 
     /**
-     * Lấy danh sách users đang typing trong conversation (trừ user hiện tại)
+     * Typing users of the conversation, {@code excludeUserId} left out
      */
     public Set<Long> getTypingUsersInConversation(Long conversationId, Long excludeUserId) {
-        Set<Long> typingUsers = conversationTypingUsers.get(conversationId);
-        if (typingUsers == null) {
+        ConversationTyping state = conversations.get(conversationId);
+        if (state == null) {
             return Set.of();
         }
-
-        return typingUsers.stream()
+        return state.typing.stream()
                 .filter(userId -> !userId.equals(excludeUserId))
                 .collect(Collectors.toSet());
     }
 
-    /**
-     * Kiểm tra user có đang typing trong conversation không
-     */
     public boolean isUserTyping(Long conversationId, Long userId) {
-        Set<Long> typingUsers = conversationTypingUsers.get(conversationId);
-        return typingUsers != null && typingUsers.contains(userId);
+        ConversationTyping state = conversations.get(conversationId);
+        return state != null && state.typing.contains(userId);
     }
 
     /**
-     * Cleanup khi user disconnect
+     * Stop the user's typing everywhere (last session closed), O(conversations the user types in)
      */
     public void removeUserFromAllConversations(Long userId) {
-        conversationTypingUsers.forEach((conversationId, typingUsers) -> {
-            typingUsers.remove(userId);
+        Map<Long, Long> deadlines = users.remove(userId);
+        expiries.cancel(userId);
+        if (deadlines != null) {
+            long now = System.currentTimeMillis();
+            deadlines.keySet().forEach(conversationId -> changed(conversationId, userId, false, now));
+        }
+    }
+
+    /**
+     * Expire typing and send deferred frames; a typing.start stops at most one tick after its deadline's tick ends
+     */
+    void tick(long now) {
+        try {
+            expiries.advance(now, (userId, deadline) -> expire(userId, now));
+            for (Long conversationId : conversations.keySet()) {
+                flush(conversationId, now);
+            }
+        } catch (Exception e) {
+            log.error("Error processing typing indicators", e);
+        }
+    }
+
+    /**
+     * The user's earliest deadline came: stop conversations whose deadline passed, schedule the next one
+     */
+    private void expire(Long userId, long now) {
+        List<Long> expired = new ArrayList<>();
+        users.computeIfPresent(userId, (id, deadlines) -> {
+            long next = Long.MAX_VALUE;
+            for (Iterator<Map.Entry<Long, Long>> it = deadlines.entrySet().iterator(); it.hasNext(); ) {
+                Map.Entry<Long, Long> entry = it.next();
+                if (entry.getValue() <= now) {
+                    expired.add(entry.getKey());
+                    it.remove();
+                } else {
+                    next = Math.min(next, entry.getValue());
+                }
+            }
+            if (deadlines.isEmpty()) {
+                return null;
+            }
+            expiries.schedule(userId, next);
+            return deadlines;
         });
+        expired.forEach(conversationId -> changed(conversationId, userId, false, now));
+    }
 
-        // Remove empty conversations
-        conversationTypingUsers.entrySet().removeIf(entry -> entry.getValue().isEmpty());
+    /**
+     * Apply a typing change to the conversation and send it now if the throttle window is open
+     */
+    private void changed(Long conversationId, Long userId, boolean typing, long now) {
+        boolean[] due = new boolean[1];
+        conversations.compute(conversationId, (id, existing) -> {
+            ConversationTyping state = existing != null ? existing : new ConversationTyping();
+            boolean modified = typing ? state.typing.add(userId) : state.typing.remove(userId);
+            if (modified) {
+                state.changed.add(userId);
+                state.dirty = true;
+                due[0] = now - state.lastSentMillis >= THROTTLE_MILLIS;
+            }
+            return state.isIdle() ? null : state;
+        });
+        if (due[0]) {
+            flush(conversationId, now);
+        }
+    }
 
-        // Cancel all timeouts for this user
-        typingTimeouts.entrySet().removeIf(entry -> {
-            if (entry.getKey().endsWith("_" + userId)) {
-                entry.getValue().cancel(false);
-                return true;
+    /**
+     * Send the conversation's pending change if its throttle window is over; drops idle state
+     */
+    private void flush(Long conversationId, long now) {
+        Pending[] pending = new Pending[1];
+        conversations.computeIfPresent(conversationId, (id, state) -> {
+            if (state.dirty && now - state.lastSentMillis >= THROTTLE_MILLIS) {
+                pending[0] = new Pending(Set.copyOf(state.typing), Set.copyOf(state.changed));
+                state.changed.clear();
+                state.dirty = false;
+                state.lastSentMillis = now;
             }
-            return false;
+            return state.isIdle() ? null : state;
         });
+        if (pending[0] != null) {
+            send(conversationId, pending[0]);
+        }
+    }
+
+    private void send(Long conversationId, Pending pending) {
+        // Profiles from cache (misses loaded in one query, shared with concurrent requests)
+        Map<Long, UserResponse> profiles = userProfileCache.getAll(pending.typing());
+        List<TypingUserDto> typingUsers = pending.typing().stream()
+                .map(profiles::get)
+                .filter(Objects::nonNull)
+                .map(TypingIndicatorService::toTypingUser)
+                .toList();
+        WebSocketMessage<TypingIndicatorResponseDto> shared = message(conversationId, typingUsers);
+
+        for (Long memberId : membershipCache.getParticipantIds(conversationId)) {
+            if (!chatSessionService.isUserOnline(memberId)) {
+                continue;
+            }
+            if (pending.changed().size() == 1 && pending.changed().contains(memberId)) {
+                continue;  // Only the member's own typing changed, what it sees is the same
+            }
+            WebSocketMessage<TypingIndicatorResponseDto> msg = pending.typing().contains(memberId)
+                    ? message(conversationId, typingUsers.stream().filter(u -> !u.getUserId().equals(memberId)).toList())
+                    : shared;
+            chatSessionService.sendMessageToUser(memberId, msg);
+        }
+    }
+
+    private static WebSocketMessage<TypingIndicatorResponseDto> message(Long conversationId, List<TypingUserDto> typingUsers) {
+        return new WebSocketMessage<>(WebSocketEventType.TYPING_INDICATOR,
+                new TypingIndicatorResponseDto(conversationId, typingUsers));
+    }
+
+    private static TypingUserDto toTypingUser(UserResponse user) {
+        TypingUserDto typingUser = new TypingUserDto();
+        typingUser.setUserId(user.getId());
+        typingUser.setUsername(user.getUsername());
+        typingUser.setFullName(user.getFullName());
+        return typingUser;
+    }
+
+    /**
+     * Mutated only inside compute for the conversation; typing is also read by status queries
+     */
+    private static final class ConversationTyping {
+        final Set<Long> typing = ConcurrentHashMap.newKeySet();
+        final Set<Long> changed = new HashSet<>();
+        boolean dirty;
+        long lastSentMillis;
+
+        boolean isIdle() {
+            return typing.isEmpty() && !dirty;
+        }
+    }
+
+    private record Pending(Set<Long> typing, Set<Long> changed) {
     }
 }
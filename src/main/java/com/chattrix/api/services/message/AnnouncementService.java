@@ -15,6 +15,7 @@ import com.chattrix.api.requests.CreateAnnouncementRequest;
 import com.chattrix.api.responses.CursorPaginatedResponse;
 import com.chattrix.api.responses.MessageResponse;
 import com.chattrix.api.services.cache.CacheManager;
+import com.chattrix.api.services.cache.ConversationMembershipCache;
 import com.chattrix.api.services.cache.MessageCache;
 import com.chattrix.api.services.notification.ChatSessionService;
 import com.chattrix.api.utils.PaginationHelper;
@@ -42,6 +43,9 @@ public class AnnouncementService {
     @Inject
     private ConversationParticipantRepository participantRepository;
 
+    @Inject
+    private ConversationMembershipCache membershipCache;
+
     @Inject
     private UserRepository userRepository;
 
@@ -92,8 +96,8 @@ public class AnnouncementService {
         conversation.setLastMessage(announcement);
         conversationRepository.save(conversation);
 
-        // Invalidate caches (CRITICAL - lastMessage changed)
-        messageCache.invalidate(conversationId);
+        // Add to recent messages, invalidate conversation caches (CRITICAL - lastMessage changed)
+        messageCache.addMessage(conversationId, messageMapper.toResponse(announcement));
         Set<Long> participantIds = conversation.getParticipants().stream()
                 .map(p -> p.getUser().getId())
                 .collect(Collectors.toSet());
@@ -113,7 +117,7 @@ public class AnnouncementService {
         limit = PaginationHelper.validateLimit(limit);
         
         // Check if user is participant
-        if (!participantRepository.isUserParticipant(conversationId, userId))
+        if (!membershipCache.isParticipant(conversationId, userId))
             throw BusinessException.forbidden("You are not a member of this group");
 
         // Query DTO directly - no mapping needed
@@ -158,8 +162,8 @@ public class AnnouncementService {
         // Delete
         messageRepository.delete(message);
 
-        // Invalidate caches
-        messageCache.invalidate(conversationId);
+        // Remove from recent messages
+        messageCache.removeMessage(conversationId, messageId);
 
         // Broadcast deletion
         AnnouncementDeleteEventDto payload = AnnouncementDeleteEventDto.builder()
@@ -0,0 +1,594 @@
+package com.chattrix.api.services.message;
+
+import com.chattrix.api.config.MessageSearchConfig;
+import com.chattrix.api.repositories.MessageRepository;
+import com.chattrix.api.utils.SearchText;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.ejb.Lock;
+import jakarta.ejb.LockType;
+import jakarta.ejb.Singleton;
+import jakarta.ejb.Startup;
+import jakarta.ejb.TransactionAttribute;
+import jakarta.ejb.TransactionAttributeType;
+import jakarta.inject.Inject;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.LongConsumer;
+
+/**
+ * Optional in-process inverted index for global message search (search.messages.embedded.enabled).
+ * <p>
+ * - Postings are term -> conversation -> message ids; a search reads only the caller's conversations
+ *   (sorted ids, binary-searched or merge-walked against each term's conversation directory)
+ * - New postings collect in memory and are written as immutable, memory-mapped segments
+ *   ({@link MessageIndexSegment}); adjacent segments are merged once there are more than max.segments
+ * - Fed by tailing messages by id once the flush pipeline has committed them (rows younger than
+ *   TAIL_SETTLE_SECONDS wait, so a late commit with a lower id isn't skipped); this also covers
+ *   messages saved outside the batch path. Edits are added by {@link #update}
+ * - Survives restarts: segments are reopened and tailing resumes after their highest message id;
+ *   unflushed postings are simply read again. Rebuilt from the DB when empty, unreadable, or on demand
+ * <p>
+ * Postings are never removed: results are candidates that callers check against the loaded messages
+ * (deleted, edited). All writes run on one worker thread except {@link #update}.
+ */
+@Singleton
+@Startup
+@Lock(LockType.READ)
+@Slf4j
+public class EmbeddedMessageIndex {
+
+    private static final int TAIL_INTERVAL_SECONDS = 2;
+    private static final int TAIL_SETTLE_SECONDS = 10;
+    private static final int TAIL_BATCH_SIZE = 5_000;
+    private static final int BUFFER_MAX_AGE_SECONDS = 300;
+    private static final int MERGE_FACTOR = 4;
+    private static final long MAX_SEGMENT_BYTES = 1L << 30;
+    private static final int MAX_TERM_LENGTH = 64;
+
+    @Inject
+    private MessageSearchConfig config;
+
+    @Inject
+    private MessageRepository messageRepository;
+
+    private Path directory;
+    private ScheduledExecutorService worker;
+
+    // Ascending generations; replaced as a whole, read without locking
+    private volatile List<MessageIndexSegment> segments = List.of();
+
+    // term -> conversation -> ids; flushing is the buffer being written, still searched until published
+    private final ReentrantReadWriteLock bufferLock = new ReentrantReadWriteLock();
+    private TreeMap<String, TreeMap<Long, LongList>> buffer = new TreeMap<>();
+    private TreeMap<String, TreeMap<Long, LongList>> flushing;
+    private int bufferedPostings;
+    private long bufferStartedMillis;
+
+    // Worker thread only
+    private long nextGeneration;
+
+    private volatile long highWaterMark;
+    private volatile boolean ready;
+    private volatile boolean closing;
+
+    private final LongAdder messagesIndexed = new LongAdder();
+    private final LongAdder searches = new LongAdder();
+    private final AtomicLong segmentsWritten = new AtomicLong();
+    private final AtomicLong merges = new AtomicLong();
+    private volatile Instant lastRebuildAt;
+    private volatile long lastRebuildMillis;
+
+    @PostConstruct
+    @TransactionAttribute(TransactionAttributeType.NOT_SUPPORTED)
+    public void init() {
+        if (!config.isEmbeddedEnabled()) {
+            return;
+        }
+
+        directory = Paths.get(config.getEmbeddedDirectory());
+        worker = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "EmbeddedMessageIndex");
+            thread.setDaemon(true);
+            return thread;
+        });
+        worker.execute(this::open);
+        worker.scheduleWithFixedDelay(this::tick, TAIL_INTERVAL_SECONDS, TAIL_INTERVAL_SECONDS, TimeUnit.SECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (worker == null) {
+            return;
+        }
+        closing = true;
+        worker.execute(() -> {
+            try {
+                flush(true);
+            } catch (Exception e) {
+                log.warn("Could not write message index buffer on shutdown, it will be re-read: {}", e.getMessage());
+            }
+        });
+        worker.shutdown();
+        try {
+            if (!worker.awaitTermination(30, TimeUnit.SECONDS)) {
+                worker.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            worker.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * True once the index has caught up with the messages table (after startup or a rebuild)
+     */
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * Ids of messages in the given conversations containing every token (the last one as a prefix),
+     * newest first, below {@code cursor} if set
+     *
+     * @param conversationIds conversations to search, ascending
+     */
+    public List<Long> search(long[] conversationIds, List<String> tokens, Long cursor, int maxResults) {
+        searches.increment();
+        if (tokens.isEmpty() || conversationIds.length == 0) {
+            return List.of();
+        }
+        // Consistent view: a flush swaps the buffer and publishes its segment under the write lock
+        List<MessageIndexSegment> current;
+        TreeMap<String, TreeMap<Long, LongList>> live;
+        TreeMap<String, TreeMap<Long, LongList>> written;
+        bufferLock.readLock().lock();
+        try {
+            current = segments;
+            live = buffer;
+            written = flushing;
+        } finally {
+            bufferLock.readLock().unlock();
+        }
+
+        long[] matches = null;
+        for (int i = 0; i < tokens.size(); i++) {
+            String token = tokens.get(i);
+            boolean prefix = i == tokens.size() - 1;
+            LongList ids = new LongList();
+            for (MessageIndexSegment segment : current) {
+                segment.collect(token, prefix, conversationIds, ids);
+            }
+            // A swapped-out buffer is no longer modified, only the live one needs the lock
+            bufferLock.readLock().lock();
+            try {
+                collect(live, token, prefix, conversationIds, ids);
+            } finally {
+                bufferLock.readLock().unlock();
+            }
+            if (written != null) {
+                collect(written, token, prefix, conversationIds, ids);
+            }
+
+            long[] sorted = ids.toSortedDistinct();
+            matches = matches == null ? sorted : intersect(matches, sorted);
+            if (matches.length == 0) {
+                return List.of();
+            }
+        }
+
+        List<Long> result = new ArrayList<>(Math.min(maxResults, matches.length));
+        for (int i = matches.length - 1; i >= 0 && result.size() < maxResults; i--) {
+            if (cursor == null || matches[i] < cursor) {
+                result.add(matches[i]);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Index the new content of an edited message (old terms are filtered out by callers' checks)
+     */
+    public void update(Long messageId, Long conversationId, String content) {
+        if (worker != null) {
+            add(messageId, conversationId, content);
+        }
+    }
+
+    /**
+     * Drop all segments and index the messages table again in the background; search falls back meanwhile
+     *
+     * @return false if the index is disabled
+     */
+    public boolean rebuild() {
+        if (worker == null) {
+            return false;
+        }
+        worker.execute(() -> {
+            try {
+                reset();
+                tail();
+                flush(true);
+            } catch (Exception e) {
+                log.error("Message index rebuild failed", e);
+            }
+        });
+        return true;
+    }
+
+    public EmbeddedIndexStats getStats() {
+        List<MessageIndexSegment> current = segments;
+        int buffered;
+        bufferLock.readLock().lock();
+        try {
+            buffered = bufferedPostings;
+        } finally {
+            bufferLock.readLock().unlock();
+        }
+        return EmbeddedIndexStats.builder()
+                .enabled(worker != null)
+                .ready(ready)
+                .segments(current.size())
+                .segmentBytes(current.stream().mapToLong(MessageIndexSegment::getSizeBytes).sum())
+                .terms(current.stream().mapToLong(MessageIndexSegment::getTermCount).sum())
+                .bufferedPostings(buffered)
+                .highWaterMark(highWaterMark)
+                .messagesIndexed(messagesIndexed.sum())
+                .segmentsWritten(segmentsWritten.get())
+                .merges(merges.get())
+                .searches(searches.sum())
+                .lastRebuildAt(lastRebuildAt)
+                .lastRebuildMillis(lastRebuildMillis)
+                .build();
+    }
+
+    private void open() {
+        try {
+            Files.createDirectories(directory);
+            List<MessageIndexSegment> opened = new ArrayList<>();
+            try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "segment-*.seg")) {
+                for (Path file : files) {
+                    opened.add(MessageIndexSegment.open(file));
+                }
+            }
+
+            // A merge interrupted before deleting its inputs leaves segments another one covers
+            List<MessageIndexSegment> live = new ArrayList<>();
+            for (MessageIndexSegment segment : opened) {
+                if (opened.stream().anyMatch(segment::isCoveredBy)) {
+                    segment.delete();
+                } else {
+                    live.add(segment);
+                }
+            }
+            live.sort(Comparator.comparingLong(MessageIndexSegment::getFirstGeneration));
+
+            segments = List.copyOf(live);
+            nextGeneration = live.isEmpty() ? 1 : live.get(live.size() - 1).getLastGeneration() + 1;
+            highWaterMark = live.stream().mapToLong(MessageIndexSegment::getMaxMessageId).max().orElse(0);
+            log.info("Message index opened: {} segments, resuming after message {}", live.size(), highWaterMark);
+        } catch (IOException e) {
+            log.error("Message index in {} unreadable, rebuilding from the database", directory, e);
+            try {
+                reset();
+            } catch (IOException resetError) {
+                log.error("Could not clear message index directory {}", directory, resetError);
+            }
+        }
+    }
+
+    private void tick() {
+        try {
+            tail();
+            flush(false);
+            merge();
+        } catch (Exception e) {
+            log.error("Error updating message index", e);
+        }
+    }
+
+    /**
+     * Index committed messages after the high-water mark until caught up
+     */
+    private void tail() throws IOException {
+        boolean rebuilding = !ready;
+        long start = System.currentTimeMillis();
+        while (!closing) {
+            List<Object[]> rows = messageRepository.findForSearchIndex(highWaterMark, TAIL_BATCH_SIZE);
+            long settledBefore = System.currentTimeMillis() - TAIL_SETTLE_SECONDS * 1000L;
+            boolean caughtUp = rows.size() < TAIL_BATCH_SIZE;
+            for (Object[] row : rows) {
+                if (epochMillis(row[3]) > settledBefore) {
+                    caughtUp = true;
+                    break;
+                }
+                long messageId = ((Number) row[0]).longValue();
+                add(messageId, ((Number) row[1]).longValue(), (String) row[2]);
+                highWaterMark = messageId;
+            }
+            flush(false);
+            if (caughtUp) {
+                break;
+            }
+        }
+
+        if (rebuilding && !closing) {
+            ready = true;
+            lastRebuildAt = Instant.now();
+            lastRebuildMillis = System.currentTimeMillis() - start;
+            log.info("Message index ready: caught up to message {} in {}ms", highWaterMark, lastRebuildMillis);
+        }
+    }
+
+    private void add(long messageId, long conversationId, String content) {
+        List<String> words = SearchText.words(content);
+        bufferLock.writeLock().lock();
+        try {
+            if (bufferedPostings == 0) {
+                bufferStartedMillis = System.currentTimeMillis();
+            }
+            for (String word : words) {
+                if (word.length() <= MAX_TERM_LENGTH) {
+                    buffer.computeIfAbsent(word, w -> new TreeMap<>())
+                            .computeIfAbsent(conversationId, c -> new LongList())
+                            .add(messageId);
+                    bufferedPostings++;
+                }
+            }
+        } finally {
+            bufferLock.writeLock().unlock();
+        }
+        messagesIndexed.increment();
+    }
+
+    /**
+     * Write the buffer as a segment when it's large or old enough (or always if forced).
+     * A failed write keeps it in flushing and is retried on the next call.
+     */
+    private void flush(boolean force) throws IOException {
+        bufferLock.writeLock().lock();
+        try {
+            if (flushing == null) {
+                boolean due = bufferedPostings >= config.getEmbeddedFlushPostings()
+                        || System.currentTimeMillis() - bufferStartedMillis >= BUFFER_MAX_AGE_SECONDS * 1000L;
+                if (bufferedPostings == 0 || !(force || due)) {
+                    return;
+                }
+                flushing = buffer;
+                buffer = new TreeMap<>();
+                bufferedPostings = 0;
+            }
+        } finally {
+            bufferLock.writeLock().unlock();
+        }
+
+        TreeMap<String, TreeMap<Long, LongList>> pending = flushing;
+        long generation = nextGeneration++;
+        MessageIndexSegment segment = MessageIndexSegment.write(directory, generation, generation, highWaterMark,
+                new MessageIndexSegment.Source() {
+                    @Override
+                    public Iterable<String> terms() {
+                        return pending.keySet();
+                    }
+
+                    @Override
+                    public SortedMap<Long, long[]> postings(String term) {
+                        TreeMap<Long, long[]> postings = new TreeMap<>();
+                        pending.get(term).forEach((conversationId, ids) -> postings.put(conversationId, ids.toSortedDistinct()));
+                        return postings;
+                    }
+                });
+
+        List<MessageIndexSegment> updated = new ArrayList<>(segments);
+        updated.add(segment);
+        bufferLock.writeLock().lock();
+        try {
+            segments = List.copyOf(updated);
+            flushing = null;
+        } finally {
+            bufferLock.writeLock().unlock();
+        }
+        segmentsWritten.incrementAndGet();
+    }
+
+    /**
+     * Merge the MERGE_FACTOR adjacent segments with the smallest total size while over max.segments
+     */
+    private void merge() throws IOException {
+        List<MessageIndexSegment> current = segments;
+        if (current.size() <= config.getEmbeddedMaxSegments()) {
+            return;
+        }
+
+        int best = -1;
+        long bestBytes = MAX_SEGMENT_BYTES;
+        for (int i = 0; i + MERGE_FACTOR <= current.size(); i++) {
+            long bytes = 0;
+            for (int j = i; j < i + MERGE_FACTOR; j++) {
+                bytes += current.get(j).getSizeBytes();
+            }
+            if (bytes < bestBytes) {
+                best = i;
+                bestBytes = bytes;
+            }
+        }
+        if (best < 0) {
+            return;
+        }
+
+        List<MessageIndexSegment> inputs = current.subList(best, best + MERGE_FACTOR);
+        MessageIndexSegment merged = MessageIndexSegment.merge(directory, inputs);
+
+        List<MessageIndexSegment> updated = new ArrayList<>(current.subList(0, best));
+        updated.add(merged);
+        updated.addAll(current.subList(best + MERGE_FACTOR, current.size()));
+        segments = List.copyOf(updated);
+        merges.incrementAndGet();
+
+        // Searches still holding the old list keep reading their mappings after the files are unlinked
+        for (MessageIndexSegment input : inputs) {
+            input.delete();
+        }
+        log.debug("Merged message index segments {}..{} ({} bytes)",
+                merged.getFirstGeneration(), merged.getLastGeneration(), merged.getSizeBytes());
+    }
+
+    private void reset() throws IOException {
+        ready = false;
+        bufferLock.writeLock().lock();
+        try {
+            buffer = new TreeMap<>();
+            flushing = null;
+            bufferedPostings = 0;
+        } finally {
+            bufferLock.writeLock().unlock();
+        }
+
+        List<MessageIndexSegment> old = segments;
+        segments = List.of();
+        highWaterMark = 0;
+        for (MessageIndexSegment segment : old) {
+            segment.delete();
+        }
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "segment-*")) {
+            for (Path file : files) {
+                Files.deleteIfExists(file);
+            }
+        }
+        log.info("Message index cleared, indexing messages from the database");
+    }
+
+    private static void collect(TreeMap<String, TreeMap<Long, LongList>> postings, String token, boolean prefix,
+                                long[] conversationIds, LongConsumer sink) {
+        SortedMap<String, TreeMap<Long, LongList>> terms = prefix
+                ? postings.subMap(token, token + Character.MAX_VALUE)
+                : postings.containsKey(token) ? postings.subMap(token, true, token, true) : null;
+        if (terms == null) {
+            return;
+        }
+        for (TreeMap<Long, LongList> byConversation : terms.values()) {
+            if (byConversation.size() < conversationIds.length) {
+                byConversation.forEach((conversationId, ids) -> {
+                    if (Arrays.binarySearch(conversationIds, conversationId) >= 0) {
+                        ids.forEach(sink);
+                    }
+                });
+            } else {
+                for (long conversationId : conversationIds) {
+                    LongList ids = byConversation.get(conversationId);
+                    if (ids != null) {
+                        ids.forEach(sink);
+                    }
+                }
+            }
+        }
+    }
+
+    private static long[] intersect(long[] a, long[] b) {
+        long[] result = new long[Math.min(a.length, b.length)];
+        int i = 0, j = 0, n = 0;
+        while (i < a.length && j < b.length) {
+            if (a[i] < b[j]) {
+                i++;
+            } else if (a[i] > b[j]) {
+                j++;
+            } else {
+                result[n++] = a[i];
+                i++;
+                j++;
+            }
+        }
+        return Arrays.copyOf(result, n);
+    }
+
+    private static long epochMillis(Object value) {
+        if (value instanceof Date date) {
+            return date.getTime();
+        }
+        if (value instanceof Instant instant) {
+            return instant.toEpochMilli();
+        }
+        if (value instanceof OffsetDateTime dateTime) {
+            return dateTime.toInstant().toEpochMilli();
+        }
+        return 0;
+    }
+
+    /**
+     * Growable long array, also used as a sink for segment lookups
+     */
+    private static final class LongList implements LongConsumer {
+        private long[] values = new long[4];
+        private int size;
+
+        void add(long value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        @Override
+        public void accept(long value) {
+            add(value);
+        }
+
+        void forEach(LongConsumer consumer) {
+            for (int i = 0; i < size; i++) {
+                consumer.accept(values[i]);
+            }
+        }
+
+        long[] toSortedDistinct() {
+            long[] sorted = Arrays.copyOf(values, size);
+            Arrays.sort(sorted);
+            int n = 0;
+            for (int i = 0; i < sorted.length; i++) {
+                if (n == 0 || sorted[n - 1] != sorted[i]) {
+                    sorted[n++] = sorted[i];
+                }
+            }
+            return Arrays.copyOf(sorted, n);
+        }
+    }
+
+    @Builder
+    @Getter
+    public static class EmbeddedIndexStats {
+        private boolean enabled;
+        private boolean ready;
+        private int segments;
+        private long segmentBytes;
+        private long terms;
+        private int bufferedPostings;
+        private long highWaterMark;
+        private long messagesIndexed;
+        private long segmentsWritten;
+        private long merges;
+        private long searches;
+        private Instant lastRebuildAt;
+        private long lastRebuildMillis;
+    }
+}
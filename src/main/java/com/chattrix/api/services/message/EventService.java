@@ -170,7 +170,7 @@ public class EventService {
         }
 
         messageRepository.save(message);
-        messageCache.invalidate(conversationId);
+        messageCache.updateMessage(conversationId, messageMapper.toResponse(message));
 
         log.info("Event updated: messageId={}", messageId);
 
@@ -196,7 +196,7 @@ public class EventService {
         message.setDeleted(true);
         message.setDeletedAt(Instant.now());
         messageRepository.save(message);
-        messageCache.invalidate(conversationId);
+        messageCache.updateMessage(conversationId, messageMapper.toResponse(message));
 
         log.info("Event deleted: messageId={}", messageId);
 
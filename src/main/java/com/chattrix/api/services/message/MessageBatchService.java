@@ -2,7 +2,11 @@ package com.chattrix.api.services.message;
 
 import com.chattrix.api.entities.Conversation;
 import com.chattrix.api.entities.Message;
+import com.chattrix.api.mappers.ConversationMapper;
 import com.chattrix.api.repositories.MessageRepository;
+import com.chattrix.api.services.cache.CacheRegistry;
+import com.chattrix.api.services.cache.CacheStatsRecorder;
+import com.chattrix.api.services.cache.ConversationCache;
 import com.chattrix.api.services.cache.MessageCache;
 import com.chattrix.api.services.cache.MessageIdMappingCache;
 import com.chattrix.api.services.cache.UnreadCountCache;
@@ -51,6 +55,12 @@ public class MessageBatchService {
     @Inject
     private UnreadCountCache unreadCountCache;
 
+    @Inject
+    private ConversationCache conversationCache;
+
+    @Inject
+    private ConversationMapper conversationMapper;
+
     @Inject
     private ChatSessionService chatSessionService;
 
@@ -60,6 +70,11 @@ public class MessageBatchService {
     @PersistenceContext
     private EntityManager entityManager;
 
+    @Inject
+    private CacheRegistry cacheRegistry;
+
+    private final CacheStatsRecorder bufferStats = new CacheStatsRecorder();
+
     // Buffer for pending messages (temp ID -> Message)
     private final Cache<Long, Message> messageBuffer = Caffeine.newBuilder()
             .expireAfterWrite(CACHE_EXPIRY_MINUTES, TimeUnit.MINUTES)
@@ -70,7 +85,7 @@ public class MessageBatchService {
                     flushSingleMessage(message);
                 }
             })
-            .recordStats()
+            .recordStats(() -> bufferStats)
             .build();
 
     // Counter for generating temporary IDs
@@ -85,6 +100,8 @@ public class MessageBatchService {
 
     @PostConstruct
     public void init() {
+        cacheRegistry.register("message_buffer", messageBuffer, bufferStats);
+
         scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
             Thread thread = new Thread(r, "MessageBatchFlush");
             thread.setDaemon(true);
@@ -453,6 +470,10 @@ public class MessageBatchService {
                     conversation.setLastMessage(latestMessage);
                     entityManager.merge(conversation);
 
+                    // Cached list views showed the buffered message under its temp ID
+                    conversationCache.onNewMessage(conversationId, conversation.getParticipantIds(),
+                            conversationMapper.toMessageResponse(latestMessage), latestMessage.getSentAt());
+
                     log.debug("Updated lastMessage for conversation {} to message {}",
                             conversationId, latestMessage.getId());
 
@@ -6,9 +6,9 @@ import com.chattrix.api.entities.Message;
 import com.chattrix.api.entities.User;
 import com.chattrix.api.enums.MessageType;
 import com.chattrix.api.exceptions.BusinessException;
+import com.chattrix.api.mappers.ConversationMapper;
 import com.chattrix.api.mappers.MessageMapper;
 import com.chattrix.api.mappers.WebSocketMapper;
-import com.chattrix.api.repositories.ConversationParticipantRepository;
 import com.chattrix.api.repositories.ConversationRepository;
 import com.chattrix.api.repositories.MessageRepository;
 import com.chattrix.api.repositories.UserRepository;
@@ -17,6 +17,7 @@ import com.chattrix.api.services.cache.CacheManager;
 import com.chattrix.api.services.cache.ConversationCache;
 import com.chattrix.api.services.cache.MessageCache;
 import com.chattrix.api.services.cache.MessageIdMappingCache;
+import com.chattrix.api.services.conversation.ConversationActivityBuffer;
 import com.chattrix.api.services.conversation.GroupPermissionsService;
 import com.chattrix.api.services.notification.ChatSessionService;
 import com.chattrix.api.websocket.WebSocketEventType;
@@ -48,10 +49,10 @@ public class MessageCreationService {
     @Inject
     private UserRepository userRepository;
     @Inject
-    private ConversationParticipantRepository participantRepository;
-    @Inject
     private MessageMapper messageMapper;
     @Inject
+    private ConversationMapper conversationMapper;
+    @Inject
     private WebSocketMapper webSocketMapper;
     @Inject
     private MessageCache messageCache;
@@ -67,6 +68,8 @@ public class MessageCreationService {
     private GroupPermissionsService groupPermissionsService;
     @Inject
     private MessageIdMappingCache idMappingCache;
+    @Inject
+    private ConversationActivityBuffer activityBuffer;
 
     /**
      * Create and send a message (used by both REST and WebSocket)
@@ -275,28 +278,26 @@ public class MessageCreationService {
             messageCache.addUnflushed(conversationId, response);
             log.debug("Message {} added to unflushed cache successfully", message.getId());
         } else {
-            messageCache.invalidate(conversationId);
+            messageCache.addMessage(conversationId, response);
         }
 
-        // 8. Update conversation (outside transaction for write-behind)
+        // 8. Update lastMessage directly only without write-behind (MessageBatchService sets it on flush)
         if (!useWriteBehind) {
             conversation.setLastMessage(message);
+            conversationRepository.save(conversation);
         }
-        conversation.setUpdatedAt(Instant.now());
-        conversationRepository.save(conversation);
-
-        // 9. Auto-unarchive for all participants
-        conversation.getParticipants().forEach(participant -> {
-            if (participant.isArchived()) {
-                participant.setArchived(false);
-                participant.setArchivedAt(null);
-                participantRepository.save(participant);
-            }
-        });
 
-        // 10. Invalidate caches (but NOT message cache for write-behind)
+        // 9. Conversation updatedAt + auto-unarchive: coalesced in memory once the send commits, flushed in batch
         Set<Long> participantIds = conversation.getParticipantIds();
-        conversationCache.invalidateForAllParticipants(conversationId, participantIds);
+        Set<Long> archivedUserIds = conversation.getParticipants().stream()
+                .filter(ConversationParticipant::isArchived)
+                .map(p -> p.getUser().getId())
+                .collect(Collectors.toSet());
+        activityBuffer.recordActivity(conversationId, message.getSentAt(), participantIds, archivedUserIds);
+
+        // 10. Move conversation up in cached list views once the send commits (but NOT message cache for write-behind)
+        conversationCache.onNewMessage(conversationId, participantIds,
+                conversationMapper.toMessageResponse(message), message.getSentAt());
         // Note: messageCache is NOT invalidated for write-behind pattern
         // Messages are in unflushed cache and will be synced after flush
 
@@ -332,7 +333,7 @@ public class MessageCreationService {
 
         ConversationUpdateDto updateDto = new ConversationUpdateDto();
         updateDto.setConversationId(conversation.getId());
-        updateDto.setUpdatedAt(conversation.getUpdatedAt());
+        updateDto.setUpdatedAt(getEffectiveUpdatedAt(conversation));
 
         if (conversation.getLastMessage() != null) {
             Message lastMsg = conversation.getLastMessage();
@@ -365,7 +366,7 @@ public class MessageCreationService {
 
         ConversationUpdateDto updateDto = new ConversationUpdateDto();
         updateDto.setConversationId(conversation.getId());
-        updateDto.setUpdatedAt(conversation.getUpdatedAt());
+        updateDto.setUpdatedAt(getEffectiveUpdatedAt(conversation));
 
         // Use temp message as lastMessage
         ConversationUpdateDto.LastMessageDto lastMessageDto = new ConversationUpdateDto.LastMessageDto();
@@ -385,6 +386,18 @@ public class MessageCreationService {
         );
     }
 
+    /**
+     * Conversation updatedAt including activity not yet flushed by ConversationActivitySyncService
+     */
+    private Instant getEffectiveUpdatedAt(Conversation conversation) {
+        ConversationActivityBuffer.PendingActivity pending = activityBuffer.getPendingActivity(conversation.getId());
+        if (pending == null) {
+            return conversation.getUpdatedAt();
+        }
+        Instant updatedAt = conversation.getUpdatedAt();
+        return updatedAt == null || pending.activityAt().isAfter(updatedAt) ? pending.activityAt() : updatedAt;
+    }
+
     /**
      * Send mention notifications to mentioned users
      * Should be called OUTSIDE transaction
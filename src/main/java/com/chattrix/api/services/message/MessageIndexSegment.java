@@ -0,0 +1,351 @@
+package com.chattrix.api.services.message;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.function.LongConsumer;
+
+/**
+ * Immutable on-disk segment of {@link EmbeddedMessageIndex}: term -> conversation -> message ids.
+ * <p>
+ * File layout (big-endian), postings first and dictionary last so a segment is written in one pass:
+ * <pre>
+ * header     int MAGIC, int VERSION, long firstGeneration, long lastGeneration, long maxMessageId
+ * postings   per term: int conversationCount,
+ *            conversationCount x (long conversationId, int idsOffset, int idCount)  sorted by conversationId,
+ *            then the ids of each conversation, ascending longs
+ * dictionary int termCount, termCount x (short length, UTF-8 bytes, int postingsOffset)  sorted by term
+ * footer     int dictionaryOffset, int MAGIC
+ * </pre>
+ * The file is memory-mapped; only the dictionary is copied to the heap. The fixed-width conversation
+ * directory lets a lookup binary-search the caller's conversations instead of reading every posting.
+ */
+final class MessageIndexSegment {
+
+    private static final int MAGIC = 0x43584958;
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 32;
+    private static final int FOOTER_BYTES = 8;
+    private static final int DIRECTORY_ENTRY_BYTES = 16;
+
+    private final Path path;
+    private final long firstGeneration;
+    private final long lastGeneration;
+    private final long maxMessageId;
+    private final String[] terms;
+    private final int[] offsets;
+    private final ByteBuffer data;
+
+    private MessageIndexSegment(Path path, long firstGeneration, long lastGeneration, long maxMessageId,
+                                String[] terms, int[] offsets, ByteBuffer data) {
+        this.path = path;
+        this.firstGeneration = firstGeneration;
+        this.lastGeneration = lastGeneration;
+        this.maxMessageId = maxMessageId;
+        this.terms = terms;
+        this.offsets = offsets;
+        this.data = data;
+    }
+
+    /**
+     * Postings a segment is written from: terms in ascending order, each with its postings
+     */
+    interface Source {
+        Iterable<String> terms();
+
+        /**
+         * Conversation id -> ascending, distinct message ids
+         */
+        SortedMap<Long, long[]> postings(String term);
+    }
+
+    static MessageIndexSegment open(Path path) throws IOException {
+        ByteBuffer data;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_BYTES + FOOTER_BYTES || size > Integer.MAX_VALUE) {
+                throw new IOException("Invalid segment size " + size + ": " + path);
+            }
+            data = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+        }
+
+        int size = data.capacity();
+        if (data.getInt(0) != MAGIC || data.getInt(4) != VERSION || data.getInt(size - 4) != MAGIC) {
+            throw new IOException("Not a message index segment (or incomplete): " + path);
+        }
+
+        ByteBuffer dictionary = data.duplicate();
+        dictionary.position(data.getInt(size - FOOTER_BYTES));
+        int termCount = dictionary.getInt();
+        String[] terms = new String[termCount];
+        int[] offsets = new int[termCount];
+        for (int i = 0; i < termCount; i++) {
+            byte[] bytes = new byte[dictionary.getShort()];
+            dictionary.get(bytes);
+            terms[i] = new String(bytes, StandardCharsets.UTF_8);
+            offsets[i] = dictionary.getInt();
+        }
+
+        return new MessageIndexSegment(path, data.getLong(8), data.getLong(16), data.getLong(24), terms, offsets, data);
+    }
+
+    /**
+     * Write a segment to a temporary file and move it into place, so a crash never leaves a partial segment
+     */
+    static MessageIndexSegment write(Path directory, long firstGeneration, long lastGeneration, long maxMessageId,
+                                     Source source) throws IOException {
+        Path path = directory.resolve(fileName(firstGeneration, lastGeneration));
+        Path temp = directory.resolve(path.getFileName() + ".tmp");
+
+        try (CountingOutput out = new CountingOutput(Files.newOutputStream(temp))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(firstGeneration);
+            out.writeLong(lastGeneration);
+            out.writeLong(maxMessageId);
+
+            List<String> terms = new ArrayList<>();
+            List<Integer> offsets = new ArrayList<>();
+            for (String term : source.terms()) {
+                SortedMap<Long, long[]> postings = source.postings(term);
+                if (postings.isEmpty()) {
+                    continue;
+                }
+                terms.add(term);
+                offsets.add(out.position());
+
+                out.writeInt(postings.size());
+                long idsOffset = out.position() + (long) postings.size() * DIRECTORY_ENTRY_BYTES;
+                for (Map.Entry<Long, long[]> entry : postings.entrySet()) {
+                    out.writeLong(entry.getKey());
+                    out.writeInt(Math.toIntExact(idsOffset));
+                    out.writeInt(entry.getValue().length);
+                    idsOffset += 8L * entry.getValue().length;
+                }
+                for (long[] ids : postings.values()) {
+                    for (long id : ids) {
+                        out.writeLong(id);
+                    }
+                }
+            }
+
+            int dictionaryOffset = out.position();
+            out.writeInt(terms.size());
+            for (int i = 0; i < terms.size(); i++) {
+                byte[] bytes = terms.get(i).getBytes(StandardCharsets.UTF_8);
+                out.writeShort(bytes.length);
+                out.write(bytes);
+                out.writeInt(offsets.get(i));
+            }
+            out.writeInt(dictionaryOffset);
+            out.writeInt(MAGIC);
+        } catch (IOException | ArithmeticException e) {
+            Files.deleteIfExists(temp);
+            throw e instanceof IOException io ? io : new IOException("Segment too large: " + path, e);
+        }
+
+        Files.move(temp, path, StandardCopyOption.ATOMIC_MOVE);
+        return open(path);
+    }
+
+    /**
+     * Merge adjacent segments (ascending generations) into one covering their generation range
+     */
+    static MessageIndexSegment merge(Path directory, List<MessageIndexSegment> segments) throws IOException {
+        long maxMessageId = segments.stream().mapToLong(MessageIndexSegment::getMaxMessageId).max().orElse(0);
+        TreeSet<String> terms = new TreeSet<>();
+        segments.forEach(segment -> terms.addAll(Arrays.asList(segment.terms)));
+
+        return write(directory, segments.get(0).firstGeneration, segments.get(segments.size() - 1).lastGeneration,
+                maxMessageId, new Source() {
+                    @Override
+                    public Iterable<String> terms() {
+                        return terms;
+                    }
+
+                    @Override
+                    public SortedMap<Long, long[]> postings(String term) {
+                        TreeMap<Long, long[]> merged = new TreeMap<>();
+                        for (MessageIndexSegment segment : segments) {
+                            int index = Arrays.binarySearch(segment.terms, term);
+                            if (index >= 0) {
+                                segment.readPostings(index).forEach((conversationId, ids) ->
+                                        merged.merge(conversationId, ids, MessageIndexSegment::union));
+                            }
+                        }
+                        return merged;
+                    }
+                });
+    }
+
+    /**
+     * Feed ids of messages containing the term (or, for a prefix, any term starting with it)
+     * in the given conversations to the sink; ids may repeat across terms
+     *
+     * @param conversationIds ascending conversation ids to restrict to
+     */
+    void collect(String term, boolean prefix, long[] conversationIds, LongConsumer sink) {
+        int from = lowerBound(term);
+        int to = prefix ? lowerBound(term + Character.MAX_VALUE) : from + 1;
+        for (int i = from; i < to && i < terms.length; i++) {
+            if (!prefix && !terms[i].equals(term)) {
+                return;
+            }
+            collectPostings(offsets[i], conversationIds, sink);
+        }
+    }
+
+    private void collectPostings(int offset, long[] conversationIds, LongConsumer sink) {
+        int count = data.getInt(offset);
+        int directory = offset + 4;
+        if (conversationIds.length < count / 8) {
+            // Few conversations: binary-search each in the directory
+            for (long conversationId : conversationIds) {
+                int entry = findConversation(directory, count, conversationId);
+                if (entry >= 0) {
+                    readIds(directory + entry * DIRECTORY_ENTRY_BYTES, sink);
+                }
+            }
+        } else {
+            // Merge-walk both sorted lists
+            int j = 0;
+            for (int entry = 0; entry < count && j < conversationIds.length; entry++) {
+                int position = directory + entry * DIRECTORY_ENTRY_BYTES;
+                long conversationId = data.getLong(position);
+                while (j < conversationIds.length && conversationIds[j] < conversationId) {
+                    j++;
+                }
+                if (j < conversationIds.length && conversationIds[j] == conversationId) {
+                    readIds(position, sink);
+                }
+            }
+        }
+    }
+
+    private int findConversation(int directory, int count, long conversationId) {
+        int low = 0;
+        int high = count - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            long value = data.getLong(directory + mid * DIRECTORY_ENTRY_BYTES);
+            if (value < conversationId) {
+                low = mid + 1;
+            } else if (value > conversationId) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+
+    private void readIds(int entryPosition, LongConsumer sink) {
+        int idsOffset = data.getInt(entryPosition + 8);
+        int idCount = data.getInt(entryPosition + 12);
+        for (int k = 0; k < idCount; k++) {
+            sink.accept(data.getLong(idsOffset + 8 * k));
+        }
+    }
+
+    private SortedMap<Long, long[]> readPostings(int termIndex) {
+        int offset = offsets[termIndex];
+        int count = data.getInt(offset);
+        TreeMap<Long, long[]> postings = new TreeMap<>();
+        for (int entry = 0; entry < count; entry++) {
+            int position = offset + 4 + entry * DIRECTORY_ENTRY_BYTES;
+            long[] ids = new long[data.getInt(position + 12)];
+            int idsOffset = data.getInt(position + 8);
+            for (int k = 0; k < ids.length; k++) {
+                ids[k] = data.getLong(idsOffset + 8 * k);
+            }
+            postings.put(data.getLong(position), ids);
+        }
+        return postings;
+    }
+
+    private int lowerBound(String term) {
+        int index = Arrays.binarySearch(terms, term);
+        return index >= 0 ? index : -index - 1;
+    }
+
+    /**
+     * Sorted union of two ascending id arrays, duplicates dropped
+     */
+    static long[] union(long[] a, long[] b) {
+        long[] result = new long[a.length + b.length];
+        int i = 0, j = 0, n = 0;
+        while (i < a.length || j < b.length) {
+            long next = j >= b.length || (i < a.length && a[i] <= b[j]) ? a[i++] : b[j++];
+            if (n == 0 || result[n - 1] != next) {
+                result[n++] = next;
+            }
+        }
+        return Arrays.copyOf(result, n);
+    }
+
+    /**
+     * True if this segment's generations lie within the other's (left behind by an interrupted merge)
+     */
+    boolean isCoveredBy(MessageIndexSegment other) {
+        return other != this && other.firstGeneration <= firstGeneration && lastGeneration <= other.lastGeneration;
+    }
+
+    void delete() throws IOException {
+        Files.deleteIfExists(path);
+    }
+
+    static String fileName(long firstGeneration, long lastGeneration) {
+        return String.format("segment-%010d-%010d.seg", firstGeneration, lastGeneration);
+    }
+
+    long getFirstGeneration() {
+        return firstGeneration;
+    }
+
+    long getLastGeneration() {
+        return lastGeneration;
+    }
+
+    long getMaxMessageId() {
+        return maxMessageId;
+    }
+
+    int getTermCount() {
+        return terms.length;
+    }
+
+    long getSizeBytes() {
+        return data.capacity();
+    }
+
+    /**
+     * DataOutputStream whose position fails instead of saturating at 2 GB
+     */
+    private static final class CountingOutput extends DataOutputStream {
+        CountingOutput(OutputStream out) {
+            super(new BufferedOutputStream(out, 1 << 16));
+        }
+
+        int position() {
+            if (written == Integer.MAX_VALUE) {
+                throw new ArithmeticException("Segment exceeds 2 GB");
+            }
+            return written;
+        }
+    }
+}
@@ -0,0 +1,168 @@
+package com.chattrix.api.services.message;
+
+import com.chattrix.api.config.MessageSearchConfig;
+import com.chattrix.api.utils.SearchSchema;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.Resource;
+import jakarta.ejb.Lock;
+import jakarta.ejb.LockType;
+import jakarta.ejb.Singleton;
+import jakarta.ejb.Startup;
+import jakarta.ejb.TransactionAttribute;
+import jakarta.ejb.TransactionAttributeType;
+import jakarta.inject.Inject;
+import lombok.extern.slf4j.Slf4j;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Full-text index over messages.content, kept by Postgres:
+ * <p>
+ * - search_text(text): accent folding shared with the other search indexes ({@link SearchSchema}),
+ *   the same folding {@link com.chattrix.api.utils.SearchText} does for queries
+ * - messages.search_vector: to_tsvector('simple', ...) over search_text(content) with every run of
+ *   non-alphanumerics turned into a space, set by a BEFORE INSERT OR UPDATE OF content trigger, so sends
+ *   and edits are indexed in their own statement. The Postgres parser would otherwise keep hosts, emails,
+ *   URLs and decimals as one lexeme, while queries are split on the same characters by SearchText.
+ * - the column comment records VECTOR_VERSION; when the expression or search_text() changes every row is rewritten
+ * - idx_messages_search_vector: GIN index, built CONCURRENTLY after existing rows are backfilled in chunks
+ * <p>
+ * Setup runs on a background thread outside any transaction (CREATE INDEX CONCURRENTLY needs autocommit);
+ * until the index is valid {@link #isReady()} is false and search keeps using LIKE.
+ */
+@Singleton
+@Startup
+@Lock(LockType.READ)
+@Slf4j
+public class MessageSearchIndex {
+
+    private static final String INDEX_NAME = "idx_messages_search_vector";
+
+    // Bump when VECTOR_SQL changes: existing rows are rewritten on the next start (also when search_text() changes)
+    private static final String VECTOR_VERSION = "search_vector v2, " + SearchSchema.SEARCH_TEXT_VERSION;
+    private static final String VECTOR_SQL =
+            "to_tsvector('simple', regexp_replace(search_text(coalesce(%s, '')), '[^[:alnum:]]+', ' ', 'g'))";
+
+    @Resource(lookup = "java:jboss/datasources/ChattrixDS")
+    private DataSource dataSource;
+
+    @Inject
+    private MessageSearchConfig config;
+
+    private volatile boolean ready;
+
+    @PostConstruct
+    @TransactionAttribute(TransactionAttributeType.NOT_SUPPORTED)
+    public void init() {
+        if (!config.isFullTextEnabled()) {
+            log.info("Full-text message search disabled");
+            return;
+        }
+
+        Thread setup = new Thread(this::setUp, "MessageSearchIndex");
+        setup.setDaemon(true);
+        setup.start();
+    }
+
+    /**
+     * True once the GIN index is valid and every message has a search_vector
+     */
+    public boolean isReady() {
+        return ready;
+    }
+
+    private void setUp() {
+        long start = System.currentTimeMillis();
+        try (Connection conn = dataSource.getConnection()) {
+            conn.setAutoCommit(true);
+            SearchSchema.createSearchTextFunction(conn);
+            createTrigger(conn);
+
+            boolean current = VECTOR_VERSION.equals(vectorVersion(conn));
+            if (current && SearchSchema.isIndexValid(conn, INDEX_NAME)) {
+                ready = true;
+                log.info("Full-text message search ready");
+                return;
+            }
+
+            long rows = backfill(conn, !current);
+            SearchSchema.createIndexConcurrently(conn, INDEX_NAME, "ON messages USING GIN (search_vector)");
+            SearchSchema.execute(conn, "COMMENT ON COLUMN messages.search_vector IS '" + VECTOR_VERSION + "'");
+            ready = true;
+            log.info("Full-text message search ready: {} messages backfilled, index built in {}ms",
+                    rows, System.currentTimeMillis() - start);
+        } catch (Exception e) {
+            log.error("Full-text message search setup failed, search keeps using LIKE", e);
+        }
+    }
+
+    private void createTrigger(Connection conn) throws SQLException {
+        SearchSchema.execute(conn, "ALTER TABLE messages ADD COLUMN IF NOT EXISTS search_vector tsvector");
+        SearchSchema.execute(conn, "CREATE OR REPLACE FUNCTION messages_search_vector_update() RETURNS trigger " +
+                "LANGUAGE plpgsql AS $$ BEGIN " +
+                "NEW.search_vector := " + VECTOR_SQL.formatted("NEW.content") + "; " +
+                "RETURN NEW; END $$");
+
+        // Created once, never dropped and recreated, so no insert runs without it
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(
+                     "SELECT 1 FROM pg_trigger WHERE tgname = 'messages_search_vector' " +
+                     "AND tgrelid = 'messages'::regclass")) {
+            if (rs.next()) {
+                return;
+            }
+        }
+        SearchSchema.execute(conn, "CREATE TRIGGER messages_search_vector BEFORE INSERT OR UPDATE OF content ON messages " +
+                "FOR EACH ROW EXECUTE FUNCTION messages_search_vector_update()");
+    }
+
+    /**
+     * Version of the expression the stored vectors were computed with, null if never recorded
+     */
+    private static String vectorVersion(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(
+                     "SELECT col_description('messages'::regclass, a.attnum) FROM pg_attribute a " +
+                     "WHERE a.attrelid = 'messages'::regclass AND a.attname = 'search_vector'")) {
+            return rs.next() ? rs.getString(1) : null;
+        }
+    }
+
+    /**
+     * Fill search_vector of rows written before the trigger existed (or, with rewrite, of every row
+     * after the expression changed), one id range per statement so no long transaction holds row locks
+     */
+    private long backfill(Connection conn, boolean rewrite) throws SQLException {
+        String pending = rewrite ? "" : " WHERE search_vector IS NULL";
+        long minId;
+        long maxId;
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT min(id), max(id) FROM messages" + pending)) {
+            rs.next();
+            minId = rs.getLong(1);
+            maxId = rs.getLong(2);
+            if (rs.wasNull()) {
+                return 0;
+            }
+        }
+
+        log.info("Backfilling search_vector for message ids {}..{} (rewrite={})", minId, maxId, rewrite);
+        int chunkSize = config.getBackfillChunkSize();
+        long rows = 0;
+        try (PreparedStatement stmt = conn.prepareStatement(
+                "UPDATE messages SET search_vector = " + VECTOR_SQL.formatted("content") + " " +
+                "WHERE id >= ? AND id < ?" + (rewrite ? "" : " AND search_vector IS NULL"))) {
+            for (long from = minId; from <= maxId; from += chunkSize) {
+                stmt.setLong(1, from);
+                stmt.setLong(2, from + chunkSize);
+                rows += stmt.executeUpdate();
+            }
+        }
+        return rows;
+    }
+}
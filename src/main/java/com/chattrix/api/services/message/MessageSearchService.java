@@ -1,9 +1,9 @@
 package com.chattrix.api.services.message;
 
 import com.chattrix.api.entities.Message;
+import com.chattrix.api.enums.MessageType;
 import com.chattrix.api.exceptions.BusinessException;
 import com.chattrix.api.mappers.MessageMapper;
-import com.chattrix.api.repositories.ConversationParticipantRepository;
 import com.chattrix.api.repositories.MessageRepository;
 import com.chattrix.api.responses.CursorPaginatedResponse;
 import com.chattrix.api.responses.GlobalSearchResultResponse;
@@ -11,46 +11,133 @@ import com.chattrix.api.responses.MediaSearchResponse;
 import com.chattrix.api.responses.MediaStatisticsResponse;
 import com.chattrix.api.responses.MessageContextResponse;
 import com.chattrix.api.responses.MessageResponse;
+import com.chattrix.api.services.cache.ConversationMembershipCache;
+import com.chattrix.api.services.cache.PresenceAudienceIndex;
 import com.chattrix.api.utils.PaginationHelper;
+import com.chattrix.api.utils.SearchText;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
 
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.stream.IntStream;
 
 @ApplicationScoped
 public class MessageSearchService {
 
+    // Candidates read from the embedded index per round; further rounds continue below the last one
+    private static final int EMBEDDED_MAX_CANDIDATES = 2_000;
+
     @Inject
     private MessageRepository messageRepository;
 
     @Inject
-    private ConversationParticipantRepository participantRepository;
+    private ConversationMembershipCache membershipCache;
 
     @Inject
     private MessageMapper messageMapper;
 
+    @Inject
+    private MessageSearchIndex messageSearchIndex;
+
+    @Inject
+    private EmbeddedMessageIndex embeddedMessageIndex;
+
+    @Inject
+    private PresenceAudienceIndex audienceIndex;
+
     /**
      * Global search - Search across all user's conversations with cursor-based pagination
+     *
+     * @param sort RELEVANCE (rank, then newest) or DESC (newest first, served by the embedded index if enabled)
      */
-    public CursorPaginatedResponse<GlobalSearchResultResponse> globalSearch(Long userId, String query, String type, Long cursor, int limit) {
+    public CursorPaginatedResponse<GlobalSearchResultResponse> globalSearch(Long userId, String query, String type, Long cursor, int limit, String sort) {
         // Bean Validation already checked: query is not blank
 
         limit = PaginationHelper.validateLimit(limit);
 
-        List<Message> messages = messageRepository.globalSearchMessagesByCursor(userId, query, type, cursor, limit);
+        // Newest first from the embedded index when enabled, otherwise full-text once the index is built;
+        // the LIKE fallback is newest first only
+        List<String> tokens = SearchText.tokens(query);
+        String tsQuery = SearchText.toPrefixTsQuery(query);
+        List<Message> messages;
+        if (!tokens.isEmpty() && !"RELEVANCE".equalsIgnoreCase(sort) && embeddedMessageIndex.isReady()) {
+            messages = searchEmbeddedIndex(userId, tokens, type, cursor, limit);
+        } else if (tsQuery != null && messageSearchIndex.isReady()) {
+            messages = messageRepository.globalFullTextSearchByCursor(userId, tsQuery, type, cursor, limit, sort);
+        } else {
+            messages = messageRepository.globalSearchMessagesByCursor(userId, query, type, cursor, limit);
+        }
 
         return PaginationHelper.buildResponse(messages, limit, this::toGlobalSearchResult, GlobalSearchResultResponse::getMessageId);
     }
 
+    /**
+     * Up to limit+1 matches from the embedded index, restricted to the user's conversations in memory.
+     * Candidates are checked against the loaded messages, since postings outlive edits and deletes.
+     * The index is read EMBEDDED_MAX_CANDIDATES ids at a time, continuing below the last candidate
+     * until the page is full or the index has no more, so filtered-out candidates never end pagination early.
+     */
+    private List<Message> searchEmbeddedIndex(Long userId, List<String> tokens, String type, Long cursor, int limit) {
+        MessageType messageType = null;
+        if (type != null && !type.trim().isEmpty()) {
+            try {
+                messageType = MessageType.valueOf(type.toUpperCase());
+            } catch (IllegalArgumentException e) {
+                return List.of();
+            }
+        }
+
+        long[] conversationIds = audienceIndex.getConversationIds(userId).stream()
+                .mapToLong(Long::longValue)
+                .sorted()
+                .toArray();
+
+        List<Message> matches = new ArrayList<>();
+        int batchSize = 2 * (limit + 1);
+        Long below = cursor;
+        while (matches.size() <= limit) {
+            List<Long> candidates = embeddedMessageIndex.search(conversationIds, tokens, below, EMBEDDED_MAX_CANDIDATES);
+            for (int from = 0; from < candidates.size() && matches.size() <= limit; from += batchSize) {
+                List<Long> batch = candidates.subList(from, Math.min(from + batchSize, candidates.size()));
+                for (Message message : messageRepository.findByIdsInOrder(batch)) {
+                    if ((messageType == null || message.getType() == messageType) && containsTokens(message.getContent(), tokens)) {
+                        matches.add(message);
+                        if (matches.size() > limit) {
+                            break;
+                        }
+                    }
+                }
+            }
+            if (candidates.size() < EMBEDDED_MAX_CANDIDATES) {
+                break;  // Index exhausted
+            }
+            below = candidates.getLast();
+        }
+        return matches;
+    }
+
+    private static boolean containsTokens(String content, List<String> tokens) {
+        Set<String> words = new HashSet<>(SearchText.words(content));
+        String prefix = tokens.get(tokens.size() - 1);
+        for (String token : tokens.subList(0, tokens.size() - 1)) {
+            if (!words.contains(token)) {
+                return false;
+            }
+        }
+        return words.stream().anyMatch(word -> word.startsWith(prefix));
+    }
+
     /**
      * Get message context - messages around a specific message
      */
     public MessageContextResponse getMessageContext(Long userId, Long conversationId, Long messageId, int contextSize) {
         // Verify user is participant
-        if (!participantRepository.isUserParticipant(conversationId, userId)) {
+        if (!membershipCache.isParticipant(conversationId, userId)) {
             throw BusinessException.forbidden("You are not a member of this conversation");
         }
 
@@ -108,7 +195,7 @@ public class MessageSearchService {
             Long cursor, int limit) {
         
         // Verify user is participant
-        if (!participantRepository.isUserParticipant(conversationId, userId)) {
+        if (!membershipCache.isParticipant(conversationId, userId)) {
             throw BusinessException.forbidden("You are not a member of this conversation");
         }
         
@@ -186,7 +273,7 @@ public class MessageSearchService {
      */
     public MediaStatisticsResponse getMediaStatistics(Long userId, Long conversationId) {
         // Verify user is participant
-        if (!participantRepository.isUserParticipant(conversationId, userId)) {
+        if (!membershipCache.isParticipant(conversationId, userId)) {
             throw BusinessException.forbidden("You are not a member of this conversation");
         }
         
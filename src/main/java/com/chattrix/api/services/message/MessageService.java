@@ -7,7 +7,6 @@ import com.chattrix.api.enums.MessageType;
 import com.chattrix.api.exceptions.BusinessException;
 import com.chattrix.api.mappers.MessageMapper;
 import com.chattrix.api.mappers.WebSocketMapper;
-import com.chattrix.api.repositories.ConversationParticipantRepository;
 import com.chattrix.api.repositories.ConversationRepository;
 import com.chattrix.api.repositories.MessageRepository;
 import com.chattrix.api.repositories.UserRepository;
@@ -16,9 +15,11 @@ import com.chattrix.api.responses.CursorPaginatedResponse;
 import com.chattrix.api.responses.MessageResponse;
 import com.chattrix.api.services.cache.CacheManager;
 import com.chattrix.api.services.cache.MessageCache;
+import com.chattrix.api.services.cache.UnreadCountCache;
 import com.chattrix.api.services.conversation.GroupPermissionsService;
 import com.chattrix.api.services.notification.ChatSessionService;
 import com.chattrix.api.utils.PaginationHelper;
+import com.chattrix.api.utils.SearchText;
 import com.chattrix.api.websocket.WebSocketEventType;
 import com.chattrix.api.websocket.dto.*;
 import jakarta.enterprise.context.ApplicationScoped;
@@ -40,8 +41,6 @@ public class MessageService {
     private ConversationRepository conversationRepository;
     @Inject
     private UserRepository userRepository;
-    @Inject
-    private ConversationParticipantRepository participantRepository;
 
     @Inject
     private MessageMapper messageMapper;
@@ -50,10 +49,17 @@ public class MessageService {
 
     @Inject
     private MessageCache messageCache;
+
+    @Inject
+    private UnreadCountCache unreadCountCache;
     @Inject
     private CacheManager cacheManager;
     @Inject
     private MessageCreationService messageCreationService;
+    @Inject
+    private MessageSearchIndex messageSearchIndex;
+    @Inject
+    private EmbeddedMessageIndex embeddedMessageIndex;
 
     @Inject
     private ChatSessionService chatSessionService;
@@ -67,24 +73,39 @@ public class MessageService {
 
         validateAndGetConversation(conversationId, userId);
 
-        // Write-Behind: Merge unflushed cache + flushed DB messages
-
-        // 1. Get unflushed messages from cache (not yet in DB)
-        List<MessageResponse> unflushedMessages = messageCache.getUnflushed(conversationId);
+        // Write-Behind: Merge unflushed cache + flushed messages (recent window or DB)
 
-        // 2. Get flushed messages from DB as entities
-        List<Message> flushedEntities =
-                messageRepository.findByConversationIdWithCursor(conversationId, cursor, limit, sort);
+        // 1. Get unflushed messages from cache (not yet in DB, newest - first page only,
+        //    their negative temp IDs would pass every cursor filter)
+        List<MessageResponse> unflushedMessages = cursor == null
+                ? messageCache.getUnflushed(conversationId)
+                : List.of();
 
-        // 3. Map entities to DTOs using MapStruct
-        List<MessageResponse> flushedResponses = flushedEntities.stream()
-                .map(messageMapper::toResponse)
-                .toList();
+        // 2. Get flushed messages: first page from the recent window (no SQL), otherwise from DB
+        boolean firstPage = cursor == null && !"ASC".equalsIgnoreCase(sort);
+        List<MessageResponse> flushedResponses = firstPage
+                ? messageCache.getRecent(conversationId, limit + 1)
+                : null;
+        if (flushedResponses == null && firstPage && limit < MessageCache.RECENT_WINDOW_SIZE) {
+            flushedResponses = loadRecentMessages(conversationId, limit);
+        }
+        if (flushedResponses == null) {
+            // 3. Map entities to DTOs using MapStruct
+            flushedResponses = messageRepository.findByConversationIdWithCursor(conversationId, cursor, limit, sort)
+                    .stream()
+                    .map(messageMapper::toResponse)
+                    .toList();
+        }
 
-        // 4. Merge: unflushed first (newest), then flushed
-        List<MessageResponse> allMessages = new ArrayList<>();
-        allMessages.addAll(unflushedMessages);
-        allMessages.addAll(flushedResponses);
+        // 4. Merge: unflushed first (newest), then flushed - skipping a message caught mid-flush in both
+        Set<Long> unflushedIds = unflushedMessages.stream()
+                .map(MessageResponse::getId)
+                .collect(Collectors.toSet());
+        List<MessageResponse> allMessages = new ArrayList<>(unflushedMessages);
+        for (MessageResponse flushed : flushedResponses) {
+            if (!unflushedIds.contains(flushed.getId()))
+                allMessages.add(flushed);
+        }
 
         // 5. Sort by sentAt descending (newest first)
         allMessages.sort(Comparator.comparing(MessageResponse::getSentAt).reversed());
@@ -109,6 +130,26 @@ public class MessageService {
         return new CursorPaginatedResponse<>(allMessages, nextCursor, limit);
     }
 
+    /**
+     * Read-through for the first page: load the latest RECENT_WINDOW_SIZE messages into the recent window
+     * and return the first limit + 1 of them
+     */
+    private List<MessageResponse> loadRecentMessages(Long conversationId, int limit) {
+        long version = messageCache.recentVersion(conversationId);
+        List<Message> latest = messageRepository.findByConversationIdWithCursor(
+                conversationId, null, MessageCache.RECENT_WINDOW_SIZE, "DESC");
+
+        // Repository returns one extra row when more history exists
+        boolean complete = latest.size() <= MessageCache.RECENT_WINDOW_SIZE;
+        List<MessageResponse> responses = latest.stream()
+                .limit(MessageCache.RECENT_WINDOW_SIZE)
+                .map(messageMapper::toResponse)
+                .toList();
+        messageCache.putRecent(conversationId, responses, complete, version);
+
+        return responses.size() > limit + 1 ? responses.subList(0, limit + 1) : responses;
+    }
+
     @Transactional
     public MessageResponse getMessage(Long userId, Long conversationId, Long messageId) {
         validateAndGetConversation(conversationId, userId);
@@ -212,7 +253,10 @@ public class MessageService {
         message.setEditedAt(Instant.now());
         message.setUpdatedAt(Instant.now());
         messageRepository.save(message);
+        embeddedMessageIndex.update(message.getId(), conversationId, newContent);
 
+        MessageResponse response = messageMapper.toResponse(message);
+        messageCache.updateMessage(conversationId, response);
         invalidateCaches(conversationId, message.getConversation().getParticipantIds());
 
         MessageUpdateEventDto payload = MessageUpdateEventDto.builder()
@@ -227,7 +271,7 @@ public class MessageService {
         message.getConversation().getParticipants()
                 .forEach(p -> chatSessionService.sendMessageToUser(p.getUser().getId(), wsMessage));
 
-        return messageMapper.toResponse(message);
+        return response;
     }
 
     @Transactional
@@ -266,6 +310,7 @@ public class MessageService {
             broadcastConversationUpdate(conversation);
         }
 
+        messageCache.removeMessage(conversationId, messageId);
         invalidateCaches(conversationId, conversation.getParticipantIds());
 
         MessageDeleteEventDto payload = MessageDeleteEventDto.builder()
@@ -286,7 +331,11 @@ public class MessageService {
 
         validateUserIsParticipant(conversationId, userId);
 
-        List<Message> messages = messageRepository.searchMessagesByCursor(conversationId, query, type, senderId, cursor, limit, sort);
+        // Full-text once the index is built; LIKE for queries without words (e.g. only punctuation)
+        String tsQuery = SearchText.toPrefixTsQuery(query);
+        List<Message> messages = tsQuery != null && messageSearchIndex.isReady()
+                ? messageRepository.fullTextSearchByCursor(conversationId, tsQuery, type, senderId, cursor, limit, sort)
+                : messageRepository.searchMessagesByCursor(conversationId, query, type, senderId, cursor, limit, sort);
 
         return PaginationHelper.buildResponse(messages, limit, messageMapper::toResponse, MessageResponse::getId);
     }
@@ -358,10 +407,11 @@ public class MessageService {
         conversation.setLastMessage(message);
         conversationRepository.save(conversation);
 
-        participantRepository.incrementUnreadCountForOthers(conversationId, userId);
-        invalidateCaches(conversationId, conversation.getParticipantIds());
+        unreadCountCache.incrementForOthers(conversationId, conversation.getParticipantIds(), userId, 1);
 
         MessageResponse response = messageMapper.toResponse(message);
+        messageCache.addMessage(conversationId, response);
+        invalidateCaches(conversationId, conversation.getParticipantIds());
 
         // Broadcast poll created event
         PollEventDto pollEvent = PollEventDto.builder()
@@ -454,9 +504,8 @@ public class MessageService {
         messageRepository.save(message);
         log.info("Poll vote recorded: messageId={}, userId={}, options={}", messageId, userId, request.getOptionIds());
 
-        messageCache.invalidate(conversationId);
-
         MessageResponse response = messageMapper.toResponse(message);
+        messageCache.updateMessage(conversationId, response);
 
         // Broadcast poll vote event to ALL participants
         // Each user will see their own hasVoted status
@@ -518,10 +567,11 @@ public class MessageService {
         conversation.setLastMessage(message);
         conversationRepository.save(conversation);
 
-        participantRepository.incrementUnreadCountForOthers(conversationId, userId);
-        invalidateCaches(conversationId, conversation.getParticipantIds());
+        unreadCountCache.incrementForOthers(conversationId, conversation.getParticipantIds(), userId, 1);
 
         MessageResponse response = messageMapper.toResponse(message);
+        messageCache.addMessage(conversationId, response);
+        invalidateCaches(conversationId, conversation.getParticipantIds());
 
         // Broadcast event created
         EventEventDto eventDto = EventEventDto.builder()
@@ -593,9 +643,8 @@ public class MessageService {
         messageRepository.save(message);
         log.info("Event RSVP recorded: messageId={}, userId={}, status={}", messageId, userId, request.getStatus());
 
-        messageCache.invalidate(conversationId);
-
         MessageResponse response = messageMapper.toResponse(message);
+        messageCache.updateMessage(conversationId, response);
 
         // Broadcast event RSVP update
         EventEventDto eventDto = EventEventDto.builder()
@@ -656,14 +705,14 @@ public class MessageService {
             messageRepository.save(forwardedMessage);
             log.info("Message forwarded: originalId={}, newId={}, toConversation={}", messageId, forwardedMessage.getId(), targetConversationId);
 
-            participantRepository.incrementUnreadCountForOthers(targetConversationId, userId);
+            unreadCountCache.incrementForOthers(targetConversationId, conversation.getParticipantIds(), userId, 1);
 
             conversation.setLastMessage(forwardedMessage);
             conversationRepository.save(conversation);
 
-            invalidateCaches(targetConversationId, conversation.getParticipantIds());
-
             MessageResponse response = messageMapper.toResponse(forwardedMessage);
+            messageCache.addMessage(targetConversationId, response);
+            invalidateCaches(targetConversationId, conversation.getParticipantIds());
             broadcastMessage(forwardedMessage, conversation);
             broadcastConversationUpdate(conversation);
 
@@ -725,7 +774,6 @@ public class MessageService {
     }
 
     private void invalidateCaches(Long conversationId, Set<Long> participantIds) {
-        messageCache.invalidate(conversationId);
         cacheManager.invalidateConversationCaches(conversationId, participantIds);
     }
 
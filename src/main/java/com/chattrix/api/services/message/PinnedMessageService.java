@@ -11,6 +11,7 @@ import com.chattrix.api.repositories.ConversationRepository;
 import com.chattrix.api.repositories.MessageRepository;
 import com.chattrix.api.repositories.UserRepository;
 import com.chattrix.api.responses.MessageResponse;
+import com.chattrix.api.services.cache.ConversationMembershipCache;
 import com.chattrix.api.services.cache.MessageCache;
 import com.chattrix.api.services.conversation.GroupPermissionsService;
 import com.chattrix.api.services.notification.ChatSessionService;
@@ -40,6 +41,9 @@ public class PinnedMessageService {
     @Inject
     private ConversationParticipantRepository participantRepository;
     
+    @Inject
+    private ConversationMembershipCache membershipCache;
+    
     @Inject
     private UserRepository userRepository;
     
@@ -104,11 +108,11 @@ public class PinnedMessageService {
         message.setPinnedBy(pinningUser);
         messageRepository.save(message);
         
-        // Invalidate cache
-        messageCache.invalidate(conversationId);
+        // Update cached message
+        MessageResponse response = messageMapper.toResponse(message);
+        messageCache.updateMessage(conversationId, response);
         
         // Send WebSocket notification
-        MessageResponse response = messageMapper.toResponse(message);
         sendPinNotification(conversationId, "MESSAGE_PINNED", response);
         
         return response;
@@ -150,11 +154,11 @@ public class PinnedMessageService {
         message.setPinnedBy(null);
         messageRepository.save(message);
         
-        // Invalidate cache
-        messageCache.invalidate(conversationId);
+        // Update cached message
+        MessageResponse response = messageMapper.toResponse(message);
+        messageCache.updateMessage(conversationId, response);
         
         // Send WebSocket notification
-        MessageResponse response = messageMapper.toResponse(message);
         sendPinNotification(conversationId, "MESSAGE_UNPINNED", response);
         
         return response;
@@ -170,7 +174,7 @@ public class PinnedMessageService {
                 .orElseThrow(() -> BusinessException.notFound("Conversation not found", "CONVERSATION_NOT_FOUND"));
         
         // Validate user is participant
-        if (!participantRepository.isUserParticipant(conversationId, userId)) {
+        if (!membershipCache.isParticipant(conversationId, userId)) {
             throw BusinessException.forbidden("You are not a participant of this conversation");
         }
         
@@ -186,7 +186,7 @@ public class PollService {
         }
 
         messageRepository.save(message);
-        messageCache.invalidate(conversationId);
+        messageCache.updateMessage(conversationId, messageMapper.toResponse(message));
 
         log.info("Poll updated: messageId={}", messageId);
 
@@ -218,7 +218,7 @@ public class PollService {
         pollData.put("closedManually", true);
 
         messageRepository.save(message);
-        messageCache.invalidate(conversationId);
+        messageCache.updateMessage(conversationId, messageMapper.toResponse(message));
 
         log.info("Poll closed: messageId={}", messageId);
 
@@ -246,7 +246,7 @@ public class PollService {
         message.setDeleted(true);
         message.setDeletedAt(Instant.now());
         messageRepository.save(message);
-        messageCache.invalidate(conversationId);
+        messageCache.updateMessage(conversationId, messageMapper.toResponse(message));
 
         log.info("Poll deleted: messageId={}", messageId);
 
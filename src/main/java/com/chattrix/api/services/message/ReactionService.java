@@ -4,6 +4,7 @@ import com.chattrix.api.entities.Conversation;
 import com.chattrix.api.entities.Message;
 import com.chattrix.api.entities.User;
 import com.chattrix.api.exceptions.BusinessException;
+import com.chattrix.api.mappers.MessageMapper;
 import com.chattrix.api.repositories.ConversationRepository;
 import com.chattrix.api.repositories.MessageRepository;
 import com.chattrix.api.repositories.UserRepository;
@@ -39,6 +40,9 @@ public class ReactionService {
     
     @Inject
     private MessageCache messageCache;
+
+    @Inject
+    private MessageMapper messageMapper;
     
     @Inject
     private CacheManager cacheManager;
@@ -95,8 +99,8 @@ public class ReactionService {
         message.setReactions(reactions);
         messageRepository.save(message);
 
-        // Invalidate caches
-        messageCache.invalidate(message.getConversation().getId());
+        // Update cached message, invalidate conversation caches
+        messageCache.updateMessage(message.getConversation().getId(), messageMapper.toResponse(message));
         Set<Long> participantIds = conversation.getParticipants().stream()
                 .map(p -> p.getUser().getId())
                 .collect(Collectors.toSet());
@@ -163,8 +167,8 @@ public class ReactionService {
             message.setReactions(reactions);
             messageRepository.save(message);
 
-            // Invalidate caches
-            messageCache.invalidate(message.getConversation().getId());
+            // Update cached message, invalidate conversation caches
+            messageCache.updateMessage(message.getConversation().getId(), messageMapper.toResponse(message));
             Set<Long> participantIds = conversation.getParticipants().stream()
                     .map(p -> p.getUser().getId())
                     .collect(Collectors.toSet());
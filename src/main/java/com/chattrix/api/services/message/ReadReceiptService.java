@@ -5,6 +5,7 @@ import com.chattrix.api.exceptions.BusinessException;
 import com.chattrix.api.repositories.ConversationParticipantRepository;
 import com.chattrix.api.repositories.ConversationRepository;
 import com.chattrix.api.repositories.MessageRepository;
+import com.chattrix.api.services.cache.ConversationMembershipCache;
 import com.chattrix.api.services.cache.UnreadCountCache;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
@@ -24,6 +25,9 @@ public class ReadReceiptService {
     @Inject
     private ConversationParticipantRepository participantRepository;
     
+    @Inject
+    private ConversationMembershipCache membershipCache;
+    
     @Inject
     private MessageRepository messageRepository;
     
@@ -43,7 +47,7 @@ public class ReadReceiptService {
         Conversation conversation = conversationRepository.findById(conversationId)
                 .orElseThrow(() -> BusinessException.notFound("Conversation not found"));
         
-        if (!participantRepository.isUserParticipant(conversationId, userId)) {
+        if (!membershipCache.isParticipant(conversationId, userId)) {
             throw BusinessException.forbidden("You are not a participant in this conversation");
         }
         
@@ -55,7 +59,7 @@ public class ReadReceiptService {
         // Reset unread count in database
         participantRepository.resetUnreadCount(conversationId, userId, lastMessageId);
         
-        // Reset unread count in cache
+        // Reset unread count in cache - drops pending increments, next sync writes the absolute value
         unreadCountCache.reset(conversationId, userId);
         
         log.info("Marked conversation {} as read for user {}, lastReadMessageId: {}", 
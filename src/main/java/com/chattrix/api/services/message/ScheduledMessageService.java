@@ -19,6 +19,7 @@ import com.chattrix.api.responses.CursorPaginatedResponse;
 import com.chattrix.api.responses.MessageResponse;
 import com.chattrix.api.services.cache.CacheManager;
 import com.chattrix.api.services.cache.MessageCache;
+import com.chattrix.api.services.cache.UnreadCountCache;
 import com.chattrix.api.services.notification.ChatSessionService;
 import com.chattrix.api.utils.PaginationHelper;
 import com.chattrix.api.websocket.WebSocketEventType;
@@ -61,6 +62,9 @@ public class ScheduledMessageService {
     
     @Inject
     private MessageCache messageCache;
+
+    @Inject
+    private UnreadCountCache unreadCountCache;
     
     @Inject
     private CacheManager cacheManager;
@@ -329,16 +333,15 @@ public class ScheduledMessageService {
                 conversation.setLastMessage(scheduledMsg);
                 conversationRepository.save(conversation);
 
-                // Increment unread count for all participants except the sender
-                participantRepository.incrementUnreadCountForOthers(
-                        scheduledMsg.getConversation().getId(),
-                        scheduledMsg.getSender().getId()
-                );
-
-                // Invalidate caches (CRITICAL - lastMessage changed)
                 Set<Long> participantIds = conversation.getParticipants().stream()
                         .map(p -> p.getUser().getId())
                         .collect(Collectors.toSet());
+
+                // Increment unread count for all participants except the sender
+                unreadCountCache.incrementForOthers(conversation.getId(), participantIds,
+                        scheduledMsg.getSender().getId(), 1);
+
+                // Invalidate caches (CRITICAL - lastMessage changed)
                 cacheManager.invalidateConversationCaches(conversation.getId(), participantIds);
                 messageCache.invalidate(conversation.getId());
 
@@ -7,6 +7,7 @@ import com.chattrix.api.entities.User;
 import com.chattrix.api.repositories.ConversationRepository;
 import com.chattrix.api.repositories.MessageRepository;
 import com.chattrix.api.repositories.UserRepository;
+import com.chattrix.api.services.cache.MessageCache;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
@@ -27,6 +28,9 @@ public class SystemMessageService {
     @Inject
     private UserRepository userRepository;
     
+    @Inject
+    private MessageCache messageCache;
+    
     private final ObjectMapper objectMapper = new ObjectMapper();
     
     @Transactional
@@ -170,7 +174,9 @@ public class SystemMessageService {
                 message.setMetadata(new HashMap<>(additionalMetadata));
             }
             
-            return messageRepository.save(message);
+            Message saved = messageRepository.save(message);
+            messageCache.invalidate(conversationId);
+            return saved;
             
         } catch (Exception e) {
             System.err.println("Failed to create call message: " + e.getMessage());
@@ -207,7 +213,9 @@ public class SystemMessageService {
             message.setType(MessageType.SYSTEM);
             message.setSentAt(Instant.now());
             
-            return messageRepository.save(message);
+            Message saved = messageRepository.save(message);
+            messageCache.invalidate(conversationId);
+            return saved;
             
         } catch (Exception e) {
             System.err.println("Failed to create system message: " + e.getMessage());
@@ -152,6 +152,13 @@ public class ChatSessionService {
             conversation.getParticipants().size() - (successCount + failCount) / Math.max(1, totalDevices));
     }
 
+    /**
+     * Check if user has at least one connected session
+     */
+    public boolean isUserOnline(Long userId) {
+        return activeSessions.containsKey(userId);
+    }
+
     /**
      * Get all active sessions for a user (supports multiple devices)
      * Returns empty set if user has no active sessions
@@ -0,0 +1,211 @@
+package com.chattrix.api.services.notification;
+
+import com.chattrix.api.config.MailConfig;
+import com.chattrix.api.entities.EmailOutbox;
+import com.chattrix.api.services.notification.EmailOutboxService.DeliveryResult;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.ejb.Schedule;
+import jakarta.ejb.Singleton;
+import jakarta.ejb.Startup;
+import jakarta.ejb.TransactionAttribute;
+import jakarta.ejb.TransactionAttributeType;
+import jakarta.inject.Inject;
+import jakarta.mail.MessagingException;
+import jakarta.mail.SendFailedException;
+import jakarta.mail.Transport;
+import jakarta.mail.internet.MimeMessage;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Background dispatcher draining the email outbox.
+ * <p>
+ * 1. Claim a batch of due emails (short transaction)
+ * 2. Split across worker threads, each sending its chunk over one pooled SMTP connection
+ * 3. Record results in one transaction (sent / retry with backoff / failed)
+ * No DB transaction is held open while talking to SMTP.
+ * <p>
+ * All chunks of a batch share one send deadline, LEASE_MARGIN_SECONDS before the lease expires:
+ * no message is started after it and the batch isn't waited for beyond it, so rows are never
+ * re-claimed while still being sent.
+ */
+@Singleton
+@Startup
+@Slf4j
+public class EmailOutboxDispatcher {
+
+    private static final int MAX_BATCHES_PER_RUN = 20;
+    private static final int SENT_RETENTION_DAYS = 7;
+    // Longer than one message's SMTP exchange (10s connect + 15s read/write timeouts, see EmailService)
+    private static final int LEASE_MARGIN_SECONDS = 60;
+
+    @Inject
+    private EmailOutboxService outboxService;
+
+    @Inject
+    private EmailService emailService;
+
+    @Inject
+    private SmtpTransportPool transportPool;
+
+    @Inject
+    private MailConfig mailConfig;
+
+    private final AtomicBoolean isRunning = new AtomicBoolean(true);
+    private ExecutorService workers;
+
+    @PostConstruct
+    public void init() {
+        AtomicInteger threadCounter = new AtomicInteger();
+        workers = Executors.newFixedThreadPool(mailConfig.getOutboxWorkers(), r -> {
+            Thread thread = new Thread(r, "EmailOutboxWorker-" + threadCounter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        log.info("EmailOutboxDispatcher initialized - {} workers, batch size {}",
+                mailConfig.getOutboxWorkers(), mailConfig.getOutboxBatchSize());
+    }
+
+    /**
+     * Drain due emails every 5 seconds
+     * NOT_SUPPORTED: each claim/record step opens its own short transaction
+     */
+    @Schedule(hour = "*", minute = "*", second = "*/5", persistent = false)
+    @TransactionAttribute(TransactionAttributeType.NOT_SUPPORTED)
+    public void dispatch() {
+        if (!isRunning.get()) {
+            return;
+        }
+
+        try {
+            for (int i = 0; i < MAX_BATCHES_PER_RUN; i++) {
+                List<EmailOutbox> batch = outboxService.claimBatch();
+                if (batch.isEmpty()) {
+                    return;
+                }
+
+                outboxService.recordResults(deliver(batch));
+
+                if (batch.size() < mailConfig.getOutboxBatchSize()) {
+                    return;
+                }
+            }
+        } catch (Exception e) {
+            log.error("Error dispatching email outbox", e);
+        }
+    }
+
+    /**
+     * Cleanup delivered emails daily at 3 AM
+     */
+    @Schedule(hour = "3", persistent = false)
+    @TransactionAttribute(TransactionAttributeType.NOT_SUPPORTED)
+    public void purgeSent() {
+        try {
+            int deleted = outboxService.purgeSent(SENT_RETENTION_DAYS);
+            log.info("Purged {} delivered emails from outbox", deleted);
+        } catch (Exception e) {
+            log.error("Error purging email outbox", e);
+        }
+    }
+
+    private List<DeliveryResult> deliver(List<EmailOutbox> batch) throws InterruptedException {
+        int workerCount = Math.min(mailConfig.getOutboxWorkers(), batch.size());
+        int chunkSize = (batch.size() + workerCount - 1) / workerCount;
+
+        // Same lease for the whole claim
+        Duration window = Duration.between(Instant.now(), batch.get(0).getLockedUntil())
+                .minusSeconds(LEASE_MARGIN_SECONDS);
+        long deadline = System.nanoTime() + Math.max(window.toNanos(), 0);
+
+        List<Future<List<DeliveryResult>>> futures = new ArrayList<>();
+        for (int start = 0; start < batch.size(); start += chunkSize) {
+            List<EmailOutbox> chunk = batch.subList(start, Math.min(start + chunkSize, batch.size()));
+            futures.add(workers.submit(() -> sendChunk(chunk, deadline)));
+        }
+
+        List<DeliveryResult> results = new ArrayList<>(batch.size());
+        for (Future<List<DeliveryResult>> future : futures) {
+            try {
+                results.addAll(future.get(Math.max(deadline - System.nanoTime(), 0), TimeUnit.NANOSECONDS));
+            } catch (ExecutionException | TimeoutException e) {
+                // Rows stay SENDING until lease expires, then get picked up again
+                future.cancel(true);
+                log.error("Email outbox chunk did not complete: {}", e.getMessage());
+            }
+        }
+        log.info("Email outbox batch delivered: {} emails, {} results", batch.size(), results.size());
+        return results;
+    }
+
+    /**
+     * @param deadline System.nanoTime() after which no further message is started; unsent rows
+     *                 get no result and are picked up again once their lease expires
+     */
+    private List<DeliveryResult> sendChunk(List<EmailOutbox> chunk, long deadline) {
+        List<DeliveryResult> results = new ArrayList<>(chunk.size());
+
+        if (!emailService.isSmtpEnabled()) {
+            for (EmailOutbox outbox : chunk) {
+                emailService.logSimulatedEmail(outbox.getRecipient(), outbox.getSubject(), outbox.getHtmlContent());
+                results.add(DeliveryResult.sent(outbox));
+            }
+            return results;
+        }
+
+        Transport transport = null;
+        try {
+            for (EmailOutbox outbox : chunk) {
+                if (System.nanoTime() - deadline >= 0 || Thread.currentThread().isInterrupted()) {
+                    log.warn("Email outbox send window elapsed, {} emails left for the next claim",
+                            chunk.size() - results.size());
+                    break;
+                }
+                try {
+                    if (transport == null) {
+                        transport = transportPool.borrow();
+                    }
+                    MimeMessage message = emailService.buildMessage(
+                            outbox.getRecipient(), outbox.getSubject(), outbox.getHtmlContent());
+                    transport.sendMessage(message, message.getAllRecipients());
+                    results.add(DeliveryResult.sent(outbox));
+                } catch (SendFailedException e) {
+                    // Invalid recipient address - retrying won't help
+                    boolean permanent = e.getInvalidAddresses() != null && e.getInvalidAddresses().length > 0;
+                    results.add(DeliveryResult.failed(outbox, permanent, e.getMessage()));
+                } catch (MessagingException e) {
+                    results.add(DeliveryResult.failed(outbox, false, e.getMessage()));
+                    if (transport != null && !transport.isConnected()) {
+                        transportPool.invalidate(transport);
+                        transport = null;
+                    }
+                }
+            }
+        } finally {
+            transportPool.release(transport);
+        }
+        return results;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        log.info("EmailOutboxDispatcher shutting down");
+        isRunning.set(false);
+        workers.shutdown();
+        try {
+            if (!workers.awaitTermination(10, TimeUnit.SECONDS))
+                workers.shutdownNow();
+        } catch (InterruptedException e) {
+            workers.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,193 @@
+package com.chattrix.api.services.notification;
+
+import com.chattrix.api.config.MailConfig;
+import com.chattrix.api.entities.EmailOutbox;
+import com.chattrix.api.enums.EmailOutboxStatus;
+import com.chattrix.api.repositories.EmailOutboxRepository;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.transaction.Transactional;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Transactional outbox for outbound email.
+ * <p>
+ * - enqueue() joins the caller's transaction, so the email exists iff the business change commits
+ * - claimBatch()/recordResults() run in short transactions of their own (SMTP I/O happens in between)
+ * - Each claim gets a token; results are recorded only on rows still held by that claim, so a slow
+ *   dispatcher whose lease was taken over can't overwrite the new holder's state
+ */
+@ApplicationScoped
+@Slf4j
+public class EmailOutboxService {
+
+    private static final long MAX_BACKOFF_SECONDS = 3600;
+    private static final int MAX_ERROR_LENGTH = 1000;
+
+    @Inject
+    private EmailOutboxRepository outboxRepository;
+
+    @Inject
+    private MailConfig mailConfig;
+
+    private final LongAdder enqueuedCount = new LongAdder();
+    private final LongAdder sentCount = new LongAdder();
+    private final LongAdder retriedCount = new LongAdder();
+    private final LongAdder failedCount = new LongAdder();
+    private final LongAdder staleResultCount = new LongAdder();
+
+    /**
+     * Queue email for background delivery (same transaction as caller)
+     */
+    @Transactional
+    public void enqueue(String to, String subject, String htmlContent) {
+        EmailOutbox outbox = EmailOutbox.builder()
+                .recipient(to)
+                .subject(subject)
+                .htmlContent(htmlContent)
+                .status(EmailOutboxStatus.PENDING)
+                .nextAttemptAt(Instant.now())
+                .build();
+        outboxRepository.save(outbox);
+        enqueuedCount.increment();
+        log.debug("Email queued in outbox: to={}, subject={}", to, subject);
+    }
+
+    /**
+     * Claim due emails for delivery (lease-based, safe with multiple nodes)
+     */
+    @Transactional
+    public List<EmailOutbox> claimBatch() {
+        Instant now = Instant.now();
+        List<Long> ids = outboxRepository.lockDueIds(now, mailConfig.getOutboxBatchSize());
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        outboxRepository.markSending(ids, now.plusSeconds(mailConfig.getOutboxLeaseSeconds()),
+                UUID.randomUUID().toString());
+        return outboxRepository.findByIds(ids);
+    }
+
+    /**
+     * Persist delivery results: sent rows in one UPDATE per claim, failures rescheduled with exponential backoff.
+     * Rows no longer held by the result's claim are skipped.
+     */
+    @Transactional
+    public void recordResults(List<DeliveryResult> results) {
+        Map<String, List<Long>> sentIds = new HashMap<>();
+        Instant now = Instant.now();
+
+        for (DeliveryResult result : results) {
+            if (result.success()) {
+                sentIds.computeIfAbsent(result.claimToken(), token -> new ArrayList<>()).add(result.id());
+                continue;
+            }
+
+            String error = truncate(result.error());
+            if (result.permanent() || result.attempts() >= mailConfig.getOutboxMaxAttempts()) {
+                if (outboxRepository.markFailed(result.id(), result.claimToken(), error) == 0) {
+                    staleResult(result.id());
+                    continue;
+                }
+                failedCount.increment();
+                log.error("Email {} permanently failed after {} attempts: {}", result.id(), result.attempts(), error);
+            } else {
+                Instant nextAttemptAt = now.plus(backoff(result.attempts()));
+                if (outboxRepository.markRetry(result.id(), result.claimToken(), nextAttemptAt, error) == 0) {
+                    staleResult(result.id());
+                    continue;
+                }
+                retriedCount.increment();
+                log.warn("Email {} failed (attempt {}), retry at {}: {}", result.id(), result.attempts(), nextAttemptAt, error);
+            }
+        }
+
+        sentIds.forEach((claimToken, ids) -> {
+            int updated = outboxRepository.markSent(ids, claimToken, now);
+            sentCount.add(updated);
+            if (updated < ids.size()) {
+                staleResultCount.add(ids.size() - updated);
+                log.warn("{} sent emails were re-claimed after their lease expired and may be delivered twice",
+                        ids.size() - updated);
+            }
+        });
+    }
+
+    private void staleResult(Long id) {
+        staleResultCount.increment();
+        log.warn("Email {} was re-claimed after its lease expired, result ignored", id);
+    }
+
+    /**
+     * Remove delivered emails older than retention
+     */
+    @Transactional
+    public int purgeSent(int retentionDays) {
+        return outboxRepository.deleteSentBefore(Instant.now().minus(retentionDays, ChronoUnit.DAYS));
+    }
+
+    /**
+     * Get outbox statistics
+     */
+    public OutboxStats getStats() {
+        return OutboxStats.builder()
+                .pending(outboxRepository.countByStatus(EmailOutboxStatus.PENDING))
+                .sending(outboxRepository.countByStatus(EmailOutboxStatus.SENDING))
+                .failed(outboxRepository.countByStatus(EmailOutboxStatus.FAILED))
+                .enqueuedCount(enqueuedCount.sum())
+                .sentCount(sentCount.sum())
+                .retriedCount(retriedCount.sum())
+                .failedCount(failedCount.sum())
+                .staleResultCount(staleResultCount.sum())
+                .build();
+    }
+
+    private Duration backoff(int attempts) {
+        long seconds = (long) mailConfig.getOutboxBackoffBaseSeconds() << Math.min(Math.max(attempts - 1, 0), 16);
+        return Duration.ofSeconds(Math.min(seconds, MAX_BACKOFF_SECONDS));
+    }
+
+    private String truncate(String error) {
+        if (error == null) {
+            return null;
+        }
+        return error.length() > MAX_ERROR_LENGTH ? error.substring(0, MAX_ERROR_LENGTH) : error;
+    }
+
+    public record DeliveryResult(Long id, String claimToken, int attempts, boolean success, boolean permanent,
+                                 String error) {
+
+        public static DeliveryResult sent(EmailOutbox outbox) {
+            return new DeliveryResult(outbox.getId(), outbox.getClaimToken(), outbox.getAttempts(), true, false, null);
+        }
+
+        public static DeliveryResult failed(EmailOutbox outbox, boolean permanent, String error) {
+            return new DeliveryResult(outbox.getId(), outbox.getClaimToken(), outbox.getAttempts(), false, permanent, error);
+        }
+    }
+
+    @Builder
+    @Getter
+    public static class OutboxStats {
+        private final long pending;
+        private final long sending;
+        private final long failed;
+        private final long enqueuedCount;
+        private final long sentCount;
+        private final long retriedCount;
+        private final long failedCount;
+        private final long staleResultCount;
+    }
+}
@@ -24,6 +24,9 @@ public class EmailService {
     @Inject
     private MailConfig mailConfig;
 
+    @Inject
+    private EmailOutboxService emailOutboxService;
+
     private Session mailSession;
 
     @PostConstruct
@@ -34,15 +37,20 @@ public class EmailService {
         props.put("mail.smtp.host", mailConfig.getSmtpHost());
         props.put("mail.smtp.port", String.valueOf(mailConfig.getSmtpPort()));
         props.put("mail.smtp.ssl.protocols", "TLSv1.2");
+        props.put("mail.smtp.connectiontimeout", "10000");
+        props.put("mail.smtp.timeout", "15000");
+        props.put("mail.smtp.writetimeout", "15000");
 
-        // Check if SMTP credentials are configured
+        // Check if SMTP is configured (credentials only required when auth is enabled)
         if (mailConfig.isConfigured()) {
-            mailSession = Session.getInstance(props, new Authenticator() {
-                @Override
-                protected PasswordAuthentication getPasswordAuthentication() {
-                    return new PasswordAuthentication(mailConfig.getUsername(), mailConfig.getPassword());
-                }
-            });
+            mailSession = mailConfig.isSmtpAuth()
+                    ? Session.getInstance(props, new Authenticator() {
+                        @Override
+                        protected PasswordAuthentication getPasswordAuthentication() {
+                            return new PasswordAuthentication(mailConfig.getUsername(), mailConfig.getPassword());
+                        }
+                    })
+                    : Session.getInstance(props);
             LOGGER.info("Email service initialized with SMTP configuration");
         } else {
             LOGGER.warning("SMTP credentials not configured. Email sending will be simulated (logged to console).");
@@ -87,39 +95,55 @@ public class EmailService {
 
     /**
      * Core method to send email
+     * Queues the email in the outbox (same transaction as caller); delivery happens in EmailOutboxDispatcher
      */
     private void sendEmail(String to, String subject, String htmlContent) {
-        if (mailSession == null) {
-            // Simulate email sending by logging to console
-            LOGGER.info("==============================================");
-            LOGGER.info("SIMULATED EMAIL (SMTP not configured)");
-            LOGGER.info("To: " + to);
-            LOGGER.info("Subject: " + subject);
-            LOGGER.info("----------------------------------------------");
-            LOGGER.info(htmlContent);
-            LOGGER.info("==============================================");
-            return;
-        }
+        emailOutboxService.enqueue(to, subject, htmlContent);
+    }
 
+    /**
+     * Whether real SMTP delivery is available (otherwise emails are logged)
+     */
+    public boolean isSmtpEnabled() {
+        return mailSession != null;
+    }
+
+    public Session getMailSession() {
+        return mailSession;
+    }
+
+    /**
+     * Build MIME message ready to be sent over a (pooled) Transport
+     */
+    public MimeMessage buildMessage(String to, String subject, String htmlContent) throws MessagingException {
         try {
-            Message message = new MimeMessage(mailSession);
+            MimeMessage message = new MimeMessage(mailSession);
             message.setFrom(new InternetAddress(mailConfig.getFromAddress(), mailConfig.getFromName()));
             message.setRecipients(Message.RecipientType.TO, InternetAddress.parse(to));
             // Encode subject with UTF-8 to support Vietnamese characters
             message.setSubject(MimeUtility.encodeText(subject, "UTF-8", "B"));
             message.setContent(htmlContent, "text/html; charset=utf-8");
-
-            Transport.send(message);
-            LOGGER.info("Email sent successfully to: " + to);
+            message.saveChanges();
+            return message;
         } catch (UnsupportedEncodingException e) {
             LOGGER.log(Level.SEVERE, "Failed to encode email subject: " + subject, e);
-            throw new RuntimeException("Failed to encode email subject", e);
-        } catch (Exception e) {
-            LOGGER.log(Level.SEVERE, "Failed to send email to: " + to, e);
-            throw new RuntimeException("Failed to send email", e);
+            throw new MessagingException("Failed to encode email subject", e);
         }
     }
 
+    /**
+     * Simulate email sending by logging to console (SMTP not configured)
+     */
+    public void logSimulatedEmail(String to, String subject, String htmlContent) {
+        LOGGER.info("==============================================");
+        LOGGER.info("SIMULATED EMAIL (SMTP not configured)");
+        LOGGER.info("To: " + to);
+        LOGGER.info("Subject: " + subject);
+        LOGGER.info("----------------------------------------------");
+        LOGGER.info(htmlContent);
+        LOGGER.info("==============================================");
+    }
+
     /**
      * Build HTML template for verification email - Shadcn UI inspired (Black & White)
      */
@@ -0,0 +1,99 @@
+package com.chattrix.api.services.notification;
+
+import com.chattrix.api.config.MailConfig;
+import jakarta.annotation.PreDestroy;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.mail.MessagingException;
+import jakarta.mail.Transport;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Pool of connected SMTP transports reused across outbox batches.
+ * Avoids a TCP + TLS + AUTH handshake per email (what Transport.send() does).
+ */
+@ApplicationScoped
+@Slf4j
+public class SmtpTransportPool {
+
+    @Inject
+    private EmailService emailService;
+
+    @Inject
+    private MailConfig mailConfig;
+
+    private final BlockingQueue<Transport> idleTransports = new LinkedBlockingQueue<>();
+    private final LongAdder connectionsOpened = new LongAdder();
+
+    /**
+     * Borrow a connected transport (reuses an idle one when still alive)
+     */
+    public Transport borrow() throws MessagingException {
+        Transport transport;
+        while ((transport = idleTransports.poll()) != null) {
+            if (transport.isConnected()) {
+                return transport;
+            }
+            closeQuietly(transport);
+        }
+
+        transport = emailService.getMailSession().getTransport("smtp");
+        if (mailConfig.isSmtpAuth()) {
+            transport.connect(mailConfig.getSmtpHost(), mailConfig.getSmtpPort(),
+                    mailConfig.getUsername(), mailConfig.getPassword());
+        } else {
+            transport.connect();
+        }
+        connectionsOpened.increment();
+        log.debug("Opened new SMTP connection to {}:{}", mailConfig.getSmtpHost(), mailConfig.getSmtpPort());
+        return transport;
+    }
+
+    /**
+     * Return transport to the pool (closed if pool is full or connection is dead)
+     */
+    public void release(Transport transport) {
+        if (transport == null) {
+            return;
+        }
+        if (transport.isConnected() && idleTransports.size() < mailConfig.getOutboxWorkers()) {
+            idleTransports.offer(transport);
+        } else {
+            closeQuietly(transport);
+        }
+    }
+
+    /**
+     * Discard a broken transport
+     */
+    public void invalidate(Transport transport) {
+        closeQuietly(transport);
+    }
+
+    public long getConnectionsOpened() {
+        return connectionsOpened.sum();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        Transport transport;
+        while ((transport = idleTransports.poll()) != null) {
+            closeQuietly(transport);
+        }
+    }
+
+    private void closeQuietly(Transport transport) {
+        if (transport == null) {
+            return;
+        }
+        try {
+            transport.close();
+        } catch (MessagingException e) {
+            log.debug("Error closing SMTP transport: {}", e.getMessage());
+        }
+    }
+}
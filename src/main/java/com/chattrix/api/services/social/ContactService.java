@@ -2,6 +2,7 @@ package com.chattrix.api.services.social;
 
 import com.chattrix.api.entities.Contact;
 import com.chattrix.api.entities.User;
+import com.chattrix.api.enums.ContactStatus;
 import com.chattrix.api.exceptions.BusinessException;
 import com.chattrix.api.mappers.ContactMapper;
 import com.chattrix.api.repositories.ContactRepository;
@@ -9,7 +10,9 @@ import com.chattrix.api.repositories.UserRepository;
 import com.chattrix.api.requests.AddContactRequest;
 import com.chattrix.api.requests.UpdateContactRequest;
 import com.chattrix.api.responses.ContactResponse;
+import com.chattrix.api.services.cache.ContactChanged;
 import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Event;
 import jakarta.inject.Inject;
 import jakarta.transaction.Transactional;
 
@@ -27,6 +30,9 @@ public class ContactService {
     @Inject
     private ContactMapper contactMapper;
 
+    @Inject
+    private Event<ContactChanged> contactChangedEvent;
+
     /**
      * Get contacts for user - Optimized with DTO projection
      * No entity mapping, no MapStruct needed
@@ -64,6 +70,7 @@ public class ContactService {
         contact.setContactUser(contactUser);
         contact.setNickname(request.nickname);
         contactRepository.save(contact);
+        contactChangedEvent.fire(new ContactChanged(userId, contactUser.getId(), true));
 
         return contactMapper.toResponse(contact);
     }
@@ -99,5 +106,8 @@ public class ContactService {
         }
 
         contactRepository.delete(contact);
+        if (contact.getStatus() == ContactStatus.ACCEPTED) {
+            contactChangedEvent.fire(new ContactChanged(userId, contact.getContactUser().getId(), false));
+        }
     }
 }
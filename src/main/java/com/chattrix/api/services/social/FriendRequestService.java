@@ -8,8 +8,11 @@ import com.chattrix.api.repositories.ContactRepository;
 import com.chattrix.api.repositories.UserRepository;
 import com.chattrix.api.requests.SendFriendRequestRequest;
 import com.chattrix.api.responses.FriendRequestResponse;
+import com.chattrix.api.services.cache.ContactChanged;
 import com.chattrix.api.services.notification.WebSocketNotificationService;
+import com.chattrix.api.services.user.PresenceEngine;
 import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Event;
 import jakarta.inject.Inject;
 import jakarta.transaction.Transactional;
 import java.time.Instant;
@@ -27,6 +30,12 @@ public class FriendRequestService {
     @Inject
     private WebSocketNotificationService webSocketService;
 
+    @Inject
+    private Event<ContactChanged> contactChangedEvent;
+
+    @Inject
+    private PresenceEngine presenceEngine;
+
     @Transactional
     public FriendRequestResponse sendFriendRequest(Long senderId, SendFriendRequestRequest request) {
         if (senderId.equals(request.receiverUserId)) {
@@ -91,6 +100,7 @@ public class FriendRequestService {
         reverseContact.setStatus(ContactStatus.ACCEPTED);
         reverseContact.setAcceptedAt(Instant.now());
         contactRepository.save(reverseContact);
+        contactChangedEvent.fire(new ContactChanged(request.getUser().getId(), userId, true));
 
         FriendRequestResponse response = mapToFriendRequestResponse(request, request.getUser());
 
@@ -166,7 +176,7 @@ public class FriendRequestService {
         response.setAvatarUrl(otherUser.getAvatarUrl());
         response.setStatus(contact.getStatus().name());
         response.setNickname(contact.getNickname());
-        // response.setOnline(otherUser.isOnline()); // TODO: Use OnlineStatusCache
+        response.setOnline(presenceEngine.isOnline(otherUser.getId()));
         response.setRequestedAt(contact.getRequestedAt());
         response.setAcceptedAt(contact.getAcceptedAt());
         response.setRejectedAt(contact.getRejectedAt());
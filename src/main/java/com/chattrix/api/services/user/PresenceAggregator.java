@@ -0,0 +1,156 @@
+package com.chattrix.api.services.user;
+
+import com.chattrix.api.websocket.dto.UserStatusEventDto;
+import jakarta.enterprise.context.ApplicationScoped;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Debounces and coalesces user online/offline transitions before they are broadcast.
+ * <p>
+ * - Offline is held for OFFLINE_GRACE_SECONDS: reconnecting within the window cancels it,
+ *   so a flapping mobile connection produces no events at all (heartbeat timeouts skip the window)
+ * - Changes are kept as latest status per user until {@link PresenceFlushService} drains them
+ *   (every second) and sends one user.status.batch frame per recipient
+ * - Online for a user already published online (another device connecting) is dropped
+ */
+@ApplicationScoped
+@Slf4j
+public class PresenceAggregator {
+
+    public static final int OFFLINE_GRACE_SECONDS = 10;
+
+    // Offline transitions inside their grace window
+    private final ConcurrentMap<Long, PendingOffline> pendingOffline = new ConcurrentHashMap<>();
+
+    // Latest status per user, waiting for the next flush
+    private final ConcurrentMap<Long, UserStatusEventDto> pendingChanges = new ConcurrentHashMap<>();
+
+    // Users whose last published status is online
+    private final Set<Long> publishedOnline = ConcurrentHashMap.newKeySet();
+
+    private final LongAdder transitions = new LongAdder();
+    private final LongAdder suppressedFlaps = new LongAdder();
+    private final LongAdder suppressedDuplicates = new LongAdder();
+    private final LongAdder publishedChanges = new LongAdder();
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder frames = new LongAdder();
+
+    /**
+     * User connected (first session)
+     */
+    public void online(Long userId) {
+        transitions.increment();
+        if (pendingOffline.remove(userId) != null) {
+            suppressedFlaps.increment();
+            log.debug("User {} reconnected within grace window, no status change", userId);
+            return;
+        }
+        pendingChanges.put(userId, status(userId, true, Instant.now()));
+    }
+
+    /**
+     * User disconnected (last session closed), published after the grace window
+     */
+    public void offline(Long userId, Instant lastSeen) {
+        transitions.increment();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(OFFLINE_GRACE_SECONDS);
+        pendingOffline.put(userId, new PendingOffline(lastSeen, deadline));
+    }
+
+    /**
+     * Heartbeats stopped: the connection is already gone for the heartbeat timeout, published without grace window
+     */
+    public void timedOut(Long userId, Instant lastSeen) {
+        transitions.increment();
+        pendingOffline.remove(userId);
+        pendingChanges.put(userId, status(userId, false, lastSeen));
+    }
+
+    /**
+     * Take changes ready to publish: latest status per user, offline only once its grace window passed
+     */
+    public List<UserStatusEventDto> drain() {
+        long now = System.nanoTime();
+        pendingOffline.forEach((userId, pending) -> {
+            if (pending.deadlineNanos() - now <= 0 && pendingOffline.remove(userId, pending)) {
+                pendingChanges.put(userId, status(userId, false, pending.lastSeen()));
+            }
+        });
+
+        List<UserStatusEventDto> changes = new ArrayList<>();
+        for (Long userId : pendingChanges.keySet()) {
+            UserStatusEventDto change = pendingChanges.remove(userId);
+            if (change == null) {
+                continue;
+            }
+            if ("online".equals(change.getStatus())) {
+                if (!publishedOnline.add(userId)) {
+                    suppressedDuplicates.increment();
+                    continue;
+                }
+            } else {
+                // Published even if never seen online here (e.g. connected before a restart)
+                publishedOnline.remove(userId);
+            }
+            changes.add(change);
+        }
+        return changes;
+    }
+
+    /**
+     * Record a published batch (metrics)
+     */
+    public void recordPublished(int changes, int frameCount) {
+        publishedChanges.add(changes);
+        batches.increment();
+        frames.add(frameCount);
+    }
+
+    public PresenceStats getStats() {
+        return PresenceStats.builder()
+                .transitions(transitions.sum())
+                .suppressedFlaps(suppressedFlaps.sum())
+                .suppressedDuplicates(suppressedDuplicates.sum())
+                .publishedChanges(publishedChanges.sum())
+                .batches(batches.sum())
+                .frames(frames.sum())
+                .pendingOffline(pendingOffline.size())
+                .pendingChanges(pendingChanges.size())
+                .build();
+    }
+
+    private static UserStatusEventDto status(Long userId, boolean online, Instant lastSeen) {
+        return UserStatusEventDto.builder()
+                .userId(userId)
+                .status(online ? "online" : "offline")
+                .lastSeen(lastSeen)
+                .build();
+    }
+
+    private record PendingOffline(Instant lastSeen, long deadlineNanos) {
+    }
+
+    @Builder
+    @Getter
+    public static class PresenceStats {
+        private final long transitions;
+        private final long suppressedFlaps;
+        private final long suppressedDuplicates;
+        private final long publishedChanges;
+        private final long batches;
+        private final long frames;
+        private final int pendingOffline;
+        private final int pendingChanges;
+    }
+}
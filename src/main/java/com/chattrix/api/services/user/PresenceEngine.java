@@ -0,0 +1,441 @@
+package com.chattrix.api.services.user;
+
+import com.chattrix.api.repositories.UserRepository;
+import com.chattrix.api.utils.TimerWheel;
+import jakarta.annotation.PreDestroy;
+import jakarta.ejb.Lock;
+import jakarta.ejb.LockType;
+import jakarta.ejb.Schedule;
+import jakarta.ejb.Singleton;
+import jakarta.ejb.TransactionAttribute;
+import jakarta.ejb.TransactionAttributeType;
+import jakarta.inject.Inject;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Single source of truth for user presence: online state, heartbeat expiry and lastSeen persistence.
+ * <p>
+ * - One record per user with primitive fields: an inbound frame is a single volatile write of lastSeen
+ *   on the existing record, no allocation and no second structure
+ * - Online means connected over WebSocket with live heartbeats; the online count is maintained on
+ *   transitions, so {@link #isOnline} and {@link #getOnlineCount} are O(1)
+ * - Heartbeat expiry is a timing wheel advanced every second (only users falling due are touched)
+ * - lastSeen is persisted every 30 seconds for records changed since the last flush, CHUNK_SIZE rows per
+ *   UPDATE ... FROM unnest statement; online users are written only once their lastSeen moved
+ *   STALENESS_TOLERANCE_SECONDS past the stored one, offline users' final lastSeen always.
+ *   Offline records are dropped once their final lastSeen is written
+ * <p>
+ * Status broadcasts go through {@link PresenceAggregator} (grace window, batching).
+ */
+@Singleton
+@Lock(LockType.READ)
+@Slf4j
+public class PresenceEngine {
+
+    public static final int HEARTBEAT_TIMEOUT_SECONDS = 30;
+    private static final int WHEEL_SLOTS = 64;
+    private static final long TICK_MILLIS = 1_000;
+    // lastSeen of online users may lag in the DB by this much (plus the flush interval)
+    private static final int STALENESS_TOLERANCE_SECONDS = 60;
+    // Rows per statement/transaction - keeps row locks short-lived
+    private static final int CHUNK_SIZE = 1_000;
+
+    private final ConcurrentMap<Long, UserPresence> users = new ConcurrentHashMap<>();
+    private final AtomicInteger onlineCount = new AtomicInteger();
+    private final TimerWheel heartbeatExpiries = new TimerWheel(WHEEL_SLOTS, TICK_MILLIS, System.currentTimeMillis());
+    private final AtomicBoolean flushing = new AtomicBoolean();
+    private final AtomicBoolean expiring = new AtomicBoolean();
+
+    private final LongAdder heartbeatTimeouts = new LongAdder();
+    private final LongAdder flushCount = new LongAdder();
+    private final LongAdder rowsSubmitted = new LongAdder();
+    private final LongAdder rowsWritten = new LongAdder();
+    private final LongAdder rowsDeferred = new LongAdder();
+    private final LongAdder failedChunks = new LongAdder();
+    private final LongAdder totalFlushMillis = new LongAdder();
+    private final AtomicLong maxFlushMillis = new AtomicLong();
+    private volatile long lastFlushMillis;
+    private volatile int lastRowsWritten;
+    private volatile Instant lastFlushAt;
+
+    @Inject
+    private PresenceAggregator presenceAggregator;
+
+    @Inject
+    private UserRepository userRepository;
+
+    /**
+     * First WebSocket session opened (also called for additional devices, which is a no-op transition)
+     */
+    public void connected(Long userId) {
+        long now = System.currentTimeMillis();
+        users.compute(userId, (id, presence) -> {
+            UserPresence p = presence != null ? presence : new UserPresence();
+            setOnline(p, true);
+            p.lastSeenMillis = now;
+            return p;
+        });
+        heartbeatExpiries.schedule(userId, now + HEARTBEAT_TIMEOUT_SECONDS * 1_000L);
+        presenceAggregator.online(userId);
+    }
+
+    /**
+     * Inbound frame: refresh lastSeen (hot path)
+     */
+    public void activity(Long userId) {
+        long now = System.currentTimeMillis();
+        UserPresence presence = users.get(userId);
+        if (presence != null) {
+            presence.lastSeenMillis = now;
+            return;
+        }
+        // Record dropped by a flush after a heartbeat timeout while the socket stayed open
+        users.computeIfAbsent(userId, id -> new UserPresence()).lastSeenMillis = now;
+    }
+
+    /**
+     * Heartbeat: push the expiry out; brings back a user whose heartbeats had timed out
+     */
+    public void heartbeat(Long userId) {
+        heartbeatExpiries.schedule(userId, System.currentTimeMillis() + HEARTBEAT_TIMEOUT_SECONDS * 1_000L);
+        UserPresence presence = users.get(userId);
+        if (presence == null || !presence.online) {
+            if (transition(userId, true)) {
+                log.info("User {} heartbeat resumed, back online", userId);
+                presenceAggregator.online(userId);
+            }
+        }
+    }
+
+    /**
+     * Last WebSocket session closed
+     */
+    public void disconnected(Long userId) {
+        long now = System.currentTimeMillis();
+        users.compute(userId, (id, presence) -> {
+            UserPresence p = presence != null ? presence : new UserPresence();
+            setOnline(p, false);
+            p.lastSeenMillis = now;
+            return p;
+        });
+        heartbeatExpiries.cancel(userId);
+        presenceAggregator.offline(userId, Instant.ofEpochMilli(now));
+    }
+
+    public boolean isOnline(Long userId) {
+        UserPresence presence = users.get(userId);
+        return presence != null && presence.online;
+    }
+
+    /**
+     * The online users among {@code userIds}, one call for a whole response or member list
+     */
+    public Set<Long> onlineAmong(Collection<Long> userIds) {
+        Set<Long> online = new HashSet<>();
+        for (Long userId : userIds) {
+            UserPresence presence = users.get(userId);
+            if (presence != null && presence.online) {
+                online.add(userId);
+            }
+        }
+        return online;
+    }
+
+    public int getOnlineCount() {
+        return onlineCount.get();
+    }
+
+    /**
+     * Snapshot of online user IDs (iterates the presence records, proportional to connected users)
+     */
+    public Set<Long> getOnlineUserIds() {
+        Set<Long> online = new HashSet<>(Math.max(16, onlineCount.get() * 2));
+        users.forEach((userId, presence) -> {
+            if (presence.online) {
+                online.add(userId);
+            }
+        });
+        return online;
+    }
+
+    /**
+     * Last activity known in memory, null if the user has no presence record
+     */
+    public Instant getLastSeen(Long userId) {
+        UserPresence presence = users.get(userId);
+        return presence != null ? Instant.ofEpochMilli(presence.lastSeenMillis) : null;
+    }
+
+    /**
+     * Stays READ like the rest of the bean: one wheel advance at a time is ensured by {@code expiring},
+     * so activity and online checks never wait for the advance or its listeners
+     */
+    @Schedule(second = "*", minute = "*", hour = "*", persistent = false)
+    @TransactionAttribute(TransactionAttributeType.NOT_SUPPORTED)
+    public void expireHeartbeats() {
+        try {
+            int expired = expireHeartbeats(System.currentTimeMillis());
+            if (expired > 0) {
+                log.debug("Heartbeat timeouts: {} users, {} online", expired, onlineCount.get());
+            }
+        } catch (Exception e) {
+            log.error("Error expiring heartbeats", e);
+        }
+    }
+
+    /**
+     * Take users whose heartbeat deadline passed by {@code nowMillis} offline; at most one tick late
+     *
+     * @return number of expired heartbeat deadlines
+     */
+    int expireHeartbeats(long nowMillis) {
+        if (!expiring.compareAndSet(false, true)) {
+            return 0;  // Previous advance still running; the next tick catches up
+        }
+        try {
+            return heartbeatExpiries.advance(nowMillis, (userId, deadline) -> {
+                Instant lastBeat = Instant.ofEpochMilli(deadline).minusSeconds(HEARTBEAT_TIMEOUT_SECONDS);
+                if (transition(userId, false)) {
+                    log.info("User {} heartbeat timeout. Last heartbeat: {}", userId, lastBeat);
+                    heartbeatTimeouts.increment();
+                    presenceAggregator.timedOut(userId, lastBeat);
+                }
+            });
+        } finally {
+            expiring.set(false);
+        }
+    }
+
+    /**
+     * Persist lastSeen of records changed since the last flush.
+     * NOT_SUPPORTED: every chunk commits on its own, so records are marked persisted only after their chunk
+     * committed; a failed chunk is simply retried by the next run.
+     */
+    @Schedule(second = "*/30", minute = "*", hour = "*", persistent = false)
+    @TransactionAttribute(TransactionAttributeType.NOT_SUPPORTED)
+    public void flushLastSeen() {
+        flush(false);
+    }
+
+    /**
+     * @param exact write every changed record, ignoring the staleness tolerance (shutdown)
+     */
+    private void flush(boolean exact) {
+        if (!flushing.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            long startNanos = System.nanoTime();
+            long toleranceMillis = exact ? 0 : STALENESS_TOLERANCE_SECONDS * 1_000L;
+
+            // Final values of offline users are written exactly; online users only once they moved past the tolerance
+            LastSeenBatch offline = new LastSeenBatch();
+            LastSeenBatch online = new LastSeenBatch();
+            int[] deferred = new int[1];
+            users.forEach((userId, presence) -> {
+                long lastSeen = presence.lastSeenMillis;
+                long persisted = presence.persistedMillis;
+                if (lastSeen <= persisted) {
+                    return;
+                }
+                if (!presence.online) {
+                    offline.add(userId, lastSeen);
+                } else if (lastSeen - persisted >= toleranceMillis) {
+                    online.add(userId, lastSeen);
+                } else {
+                    deferred[0]++;
+                }
+            });
+
+            FlushResult result = new FlushResult();
+            write(offline, 0, result);
+            write(online, exact ? 0 : STALENESS_TOLERANCE_SECONDS, result);
+
+            // Drop offline records with nothing left to write
+            users.forEach((userId, presence) -> {
+                if (!presence.online && presence.lastSeenMillis <= presence.persistedMillis) {
+                    users.computeIfPresent(userId, (id, p) -> !p.online && p.lastSeenMillis <= p.persistedMillis ? null : p);
+                }
+            });
+
+            if (offline.size + online.size > 0) {
+                recordFlush(startNanos, offline.size + online.size, deferred[0], result);
+                log.debug("Persisted lastSeen: submitted={}, written={}, deferred={}, failedChunks={}",
+                        offline.size + online.size, result.written, deferred[0], result.failedChunks);
+            }
+        } catch (Exception e) {
+            log.error("Error persisting lastSeen", e);
+        } finally {
+            flushing.set(false);
+        }
+    }
+
+    private void write(LastSeenBatch batch, int toleranceSeconds, FlushResult result) {
+        for (int from = 0; from < batch.size; from += CHUNK_SIZE) {
+            int to = Math.min(from + CHUNK_SIZE, batch.size);
+            Long[] userIds = new Long[to - from];
+            Timestamp[] lastSeen = new Timestamp[to - from];
+            for (int i = from; i < to; i++) {
+                userIds[i - from] = batch.userIds[i];
+                lastSeen[i - from] = new Timestamp(batch.lastSeenMillis[i]);
+            }
+            try {
+                result.written += userRepository.batchUpdateLastSeen(userIds, lastSeen, toleranceSeconds);
+            } catch (Exception e) {
+                log.error("Failed to persist lastSeen chunk [{}, {})", from, to, e);
+                result.failedChunks++;
+                continue;
+            }
+            for (int i = from; i < to; i++) {
+                UserPresence presence = users.get(batch.userIds[i]);
+                if (presence != null) {
+                    presence.persistedMillis = Math.max(presence.persistedMillis, batch.lastSeenMillis[i]);
+                }
+            }
+        }
+    }
+
+    private void recordFlush(long startNanos, int submitted, int deferred, FlushResult result) {
+        long durationMillis = (System.nanoTime() - startNanos) / 1_000_000;
+        flushCount.increment();
+        rowsSubmitted.add(submitted);
+        rowsWritten.add(result.written);
+        rowsDeferred.add(deferred);
+        failedChunks.add(result.failedChunks);
+        totalFlushMillis.add(durationMillis);
+        maxFlushMillis.accumulateAndGet(durationMillis, Math::max);
+        lastFlushMillis = durationMillis;
+        lastRowsWritten = result.written;
+        lastFlushAt = Instant.now();
+    }
+
+    public PresenceEngineStats getStats() {
+        long pending = users.values().stream().filter(p -> p.lastSeenMillis > p.persistedMillis).count();
+        long flushes = flushCount.sum();
+        return PresenceEngineStats.builder()
+                .onlineUsers(onlineCount.get())
+                .trackedUsers(users.size())
+                .heartbeatsTracked(heartbeatExpiries.size())
+                .heartbeatTimeouts(heartbeatTimeouts.sum())
+                .pendingLastSeen(pending)
+                .flushCount(flushes)
+                .lastFlushAt(lastFlushAt)
+                .lastFlushMillis(lastFlushMillis)
+                .averageFlushMillis(flushes > 0 ? (double) totalFlushMillis.sum() / flushes : 0.0)
+                .maxFlushMillis(maxFlushMillis.get())
+                .lastRowsWritten(lastRowsWritten)
+                .rowsSubmitted(rowsSubmitted.sum())
+                .rowsWritten(rowsWritten.sum())
+                .rowsDeferred(rowsDeferred.sum())
+                .failedChunks(failedChunks.sum())
+                .build();
+    }
+
+    /**
+     * Write pending lastSeen values before shutdown, tolerance ignored
+     */
+    @PreDestroy
+    public void shutdown() {
+        log.info("Shutting down PresenceEngine, flushing lastSeen...");
+        flush(true);
+        log.info("PresenceEngine shutdown complete. Final stats: {} flushes, {} rows written",
+                flushCount.sum(), rowsWritten.sum());
+    }
+
+    /**
+     * Set the user's online flag, creating the record if needed
+     *
+     * @return true if the flag changed
+     */
+    private boolean transition(Long userId, boolean online) {
+        boolean[] changed = new boolean[1];
+        users.compute(userId, (id, presence) -> {
+            UserPresence p = presence;
+            if (p == null) {
+                p = new UserPresence();
+                p.lastSeenMillis = System.currentTimeMillis();
+            }
+            changed[0] = setOnline(p, online);
+            return p;
+        });
+        return changed[0];
+    }
+
+    /**
+     * Callers hold the record's map bin (compute), so flag and count change together
+     */
+    private boolean setOnline(UserPresence presence, boolean online) {
+        if (presence.online == online) {
+            return false;
+        }
+        presence.online = online;
+        onlineCount.addAndGet(online ? 1 : -1);
+        return true;
+    }
+
+    /**
+     * Growable primitive (userId, lastSeen) buffer
+     */
+    private static final class LastSeenBatch {
+        private long[] userIds = new long[64];
+        private long[] lastSeenMillis = new long[64];
+        private int size;
+
+        void add(long userId, long lastSeen) {
+            if (size == userIds.length) {
+                userIds = Arrays.copyOf(userIds, size * 2);
+                lastSeenMillis = Arrays.copyOf(lastSeenMillis, size * 2);
+            }
+            userIds[size] = userId;
+            lastSeenMillis[size] = lastSeen;
+            size++;
+        }
+    }
+
+    private static final class FlushResult {
+        int written;
+        int failedChunks;
+    }
+
+    private static final class UserPresence {
+        volatile boolean online;
+        volatile long lastSeenMillis;
+        // Written by the flush only
+        volatile long persistedMillis;
+    }
+
+    @Builder
+    @Getter
+    public static class PresenceEngineStats {
+        private final int onlineUsers;
+        private final int trackedUsers;
+        private final int heartbeatsTracked;
+        private final long heartbeatTimeouts;
+        private final long pendingLastSeen;
+        private final long flushCount;
+        private final Instant lastFlushAt;
+        private final long lastFlushMillis;
+        private final double averageFlushMillis;
+        private final long maxFlushMillis;
+        private final int lastRowsWritten;
+        private final long rowsSubmitted;
+        private final long rowsWritten;
+        private final long rowsDeferred;
+        private final long failedChunks;
+    }
+}
@@ -0,0 +1,46 @@
+package com.chattrix.api.services.user;
+
+import com.chattrix.api.websocket.dto.UserStatusEventDto;
+import jakarta.ejb.Schedule;
+import jakarta.ejb.Singleton;
+import jakarta.ejb.Startup;
+import jakarta.ejb.TransactionAttribute;
+import jakarta.ejb.TransactionAttributeType;
+import jakarta.inject.Inject;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.List;
+
+/**
+ * Publishes status changes collected by PresenceAggregator every second,
+ * one user.status.batch frame per recipient.
+ */
+@Singleton
+@Startup
+@Slf4j
+public class PresenceFlushService {
+
+    @Inject
+    private PresenceAggregator presenceAggregator;
+
+    @Inject
+    private UserStatusBroadcastService broadcastService;
+
+    /**
+     * NOT_SUPPORTED: audience lookups run on cache loader threads, nothing here needs a transaction
+     */
+    @Schedule(hour = "*", minute = "*", second = "*", persistent = false)
+    @TransactionAttribute(TransactionAttributeType.NOT_SUPPORTED)
+    public void flush() {
+        try {
+            List<UserStatusEventDto> changes = presenceAggregator.drain();
+            if (changes.isEmpty()) {
+                return;
+            }
+            int frames = broadcastService.broadcastStatusBatch(changes);
+            presenceAggregator.recordPublished(changes.size(), frames);
+        } catch (Exception e) {
+            log.error("Error publishing status changes", e);
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package com.chattrix.api.services.user;
+
+import com.chattrix.api.responses.ConversationMemberResponse;
+import com.chattrix.api.responses.ConversationResponse;
+import com.chattrix.api.services.cache.ConversationMembershipCache;
+import com.chattrix.api.services.cache.PresenceAudienceIndex;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Presence queries answered from memory: online flags from {@link PresenceEngine} intersected with
+ * cached membership ({@link ConversationMembershipCache}) and contacts ({@link PresenceAudienceIndex}).
+ * No DB queries once those caches hold the entries; each query is one bulk engine call.
+ * <p>
+ * Also fills the online flag of conversation and member responses, which the mappers leave empty.
+ */
+@ApplicationScoped
+public class PresenceQueryService {
+
+    @Inject
+    private PresenceEngine presenceEngine;
+
+    @Inject
+    private ConversationMembershipCache membershipCache;
+
+    @Inject
+    private PresenceAudienceIndex audienceIndex;
+
+    public boolean isOnline(Long userId) {
+        return presenceEngine.isOnline(userId);
+    }
+
+    /**
+     * Online participants of the conversation
+     */
+    public Set<Long> getOnlineMembers(Long conversationId) {
+        return presenceEngine.onlineAmong(membershipCache.getParticipantIds(conversationId));
+    }
+
+    /**
+     * Online ACCEPTED contacts of the user
+     */
+    public Set<Long> getOnlineContacts(Long userId) {
+        return presenceEngine.onlineAmong(audienceIndex.getContactIds(userId));
+    }
+
+    /**
+     * Online participant count per conversation, membership misses loaded in one query
+     */
+    public Map<Long, Integer> getOnlineCounts(Set<Long> conversationIds) {
+        Map<Long, Set<Long>> members = membershipCache.getParticipantIds(conversationIds);
+        Set<Long> allMembers = new HashSet<>();
+        members.values().forEach(allMembers::addAll);
+        Set<Long> online = presenceEngine.onlineAmong(allMembers);
+
+        Map<Long, Integer> counts = new HashMap<>();
+        members.forEach((conversationId, memberIds) -> {
+            int count = 0;
+            for (Long memberId : memberIds) {
+                if (online.contains(memberId)) {
+                    count++;
+                }
+            }
+            counts.put(conversationId, count);
+        });
+        return counts;
+    }
+
+    /**
+     * Set participants' online flag on the responses (callers own the responses, cached ones are copies)
+     */
+    public ConversationResponse applyOnline(ConversationResponse response) {
+        if (response != null) {
+            applyOnline(List.of(response));
+        }
+        return response;
+    }
+
+    public List<ConversationResponse> applyOnline(List<ConversationResponse> responses) {
+        Set<Long> userIds = new HashSet<>();
+        for (ConversationResponse response : responses) {
+            if (response.getParticipants() != null) {
+                response.getParticipants().forEach(p -> userIds.add(p.getUserId()));
+            }
+        }
+        if (userIds.isEmpty()) {
+            return responses;
+        }
+        Set<Long> online = presenceEngine.onlineAmong(userIds);
+        for (ConversationResponse response : responses) {
+            if (response.getParticipants() != null) {
+                for (ConversationResponse.ParticipantResponse participant : response.getParticipants()) {
+                    participant.setOnline(online.contains(participant.getUserId()));
+                }
+            }
+        }
+        return responses;
+    }
+
+    public List<ConversationMemberResponse> applyMembersOnline(List<ConversationMemberResponse> members) {
+        Set<Long> userIds = new HashSet<>();
+        members.forEach(m -> userIds.add(m.getId()));
+        Set<Long> online = presenceEngine.onlineAmong(userIds);
+        members.forEach(m -> m.setOnline(online.contains(m.getId())));
+        return members;
+    }
+}
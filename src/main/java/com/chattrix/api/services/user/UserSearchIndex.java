@@ -0,0 +1,80 @@
+package com.chattrix.api.services.user;
+
+import com.chattrix.api.utils.SearchSchema;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.Resource;
+import jakarta.ejb.Lock;
+import jakarta.ejb.LockType;
+import jakarta.ejb.Singleton;
+import jakarta.ejb.Startup;
+import jakarta.ejb.TransactionAttribute;
+import jakarta.ejb.TransactionAttributeType;
+import lombok.extern.slf4j.Slf4j;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+
+/**
+ * Trigram indexes for user search, kept by Postgres (pg_trgm):
+ * <p>
+ * - GIN gin_trgm_ops on search_text(username), search_text(full_name) and lower(email), so
+ *   LIKE '%q%' as well as the word-prefix patterns of short queries ('q%', '% q%') are index scans
+ * - search_text() is the accent folding shared with message search ({@link SearchSchema})
+ * <p>
+ * Setup runs on a background thread outside any transaction. Until search_text() exists
+ * {@link #isFolded()} is false and search compares lower() only; without pg_trgm it still works, unindexed.
+ */
+@Singleton
+@Startup
+@Lock(LockType.READ)
+@Slf4j
+public class UserSearchIndex {
+
+    @Resource(lookup = "java:jboss/datasources/ChattrixDS")
+    private DataSource dataSource;
+
+    private volatile boolean folded;
+
+    @PostConstruct
+    @TransactionAttribute(TransactionAttributeType.NOT_SUPPORTED)
+    public void init() {
+        Thread setup = new Thread(this::setUp, "UserSearchIndex");
+        setup.setDaemon(true);
+        setup.start();
+    }
+
+    /**
+     * True once search_text() exists and queries can fold accents
+     */
+    public boolean isFolded() {
+        return folded;
+    }
+
+    private void setUp() {
+        long start = System.currentTimeMillis();
+        try (Connection conn = dataSource.getConnection()) {
+            conn.setAutoCommit(true);
+            SearchSchema.createSearchTextFunction(conn);
+            folded = true;
+
+            String trgmSchema = SearchSchema.extensionSchema(conn, "pg_trgm");
+            if (trgmSchema == null) {
+                log.warn("pg_trgm extension unavailable, user search runs without trigram indexes");
+                return;
+            }
+            String ops = trgmSchema + ".gin_trgm_ops";
+            // Rebuilt when search_text() changes, so the expressions agree with the queries
+            boolean built = SearchSchema.createIndexConcurrently(conn, "idx_users_username_trgm",
+                    "ON users USING GIN (search_text(username) " + ops + ")", SearchSchema.SEARCH_TEXT_VERSION);
+            built |= SearchSchema.createIndexConcurrently(conn, "idx_users_full_name_trgm",
+                    "ON users USING GIN (search_text(full_name) " + ops + ")", SearchSchema.SEARCH_TEXT_VERSION);
+            built |= SearchSchema.createIndexConcurrently(conn, "idx_users_email_trgm",
+                    "ON users USING GIN (lower(email) " + ops + ")");
+            if (built) {
+                log.info("User search trigram indexes built in {}ms", System.currentTimeMillis() - start);
+            }
+        } catch (Exception e) {
+            log.error("User search index setup failed, search runs unindexed", e);
+        }
+    }
+}
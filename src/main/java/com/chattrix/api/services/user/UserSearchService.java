@@ -1,21 +1,23 @@
 package com.chattrix.api.services.user;
 
-import com.chattrix.api.entities.Conversation;
 import com.chattrix.api.entities.User;
 import com.chattrix.api.mappers.UserSearchMapper;
-import com.chattrix.api.repositories.ContactRepository;
-import com.chattrix.api.repositories.ConversationRepository;
 import com.chattrix.api.repositories.UserRepository;
+import com.chattrix.api.repositories.UserRepository.UserSearchHit;
 import com.chattrix.api.responses.CursorPaginatedResponse;
-import com.chattrix.api.responses.PaginatedResponse;
 import com.chattrix.api.responses.UserSearchResponse;
 import com.chattrix.api.utils.PaginationHelper;
+import com.chattrix.api.utils.UserSearchCursor;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
 import jakarta.transaction.Transactional;
 
+import java.util.ArrayList;
 import java.util.List;
-import java.util.Optional;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @ApplicationScoped
 public class UserSearchService {
@@ -24,84 +26,49 @@ public class UserSearchService {
     private UserRepository userRepository;
 
     @Inject
-    private ContactRepository contactRepository;
+    private UserSearchIndex userSearchIndex;
 
     @Inject
-    private ConversationRepository conversationRepository;
+    private PresenceEngine presenceEngine;
 
     @Inject
     private UserSearchMapper userSearchMapper;
 
-    @Transactional
-    public PaginatedResponse<UserSearchResponse> searchUsers(Long currentUserId, String query, int page, int size) {
-        // Tìm kiếm users với pagination
-        List<User> users = userRepository.searchUsersWithPagination(query, currentUserId, page, size);
-
-        // Lấy total count
-        long total = userRepository.countSearchUsers(query, currentUserId);
-
-        // Chuyển đổi sang response và thêm thông tin bổ sung
-        List<UserSearchResponse> responses = userSearchMapper.toSearchResponseList(users);
-
-        // Thêm thông tin về contact và conversation cho mỗi user
-        for (UserSearchResponse response : responses) {
-            // Kiểm tra xem user có phải là contact không
-            boolean isContact = contactRepository.existsByUserIdAndContactUserId(
-                    currentUserId,
-                    response.getId()
-            );
-            response.setContact(isContact);
-
-            // Kiểm tra xem đã có conversation trực tiếp với user này chưa
-            Optional<Conversation> existingConversation = conversationRepository
-                    .findDirectConversationBetweenUsers(currentUserId, response.getId());
-
-            if (existingConversation.isPresent()) {
-                response.setHasConversation(true);
-                response.setConversationId(existingConversation.get().getId());
-            } else {
-                response.setHasConversation(false);
-                response.setConversationId(null);
-            }
-        }
-
-        return new PaginatedResponse<>(responses, page, size, total);
-    }
-
     /**
      * Search users with cursor-based pagination.
+     * Two queries per page: ranked matches with contact and direct conversation, then the users.
      */
     @Transactional
-    public CursorPaginatedResponse<UserSearchResponse> searchUsersWithCursor(Long currentUserId, String query, Long cursor, int limit) {
+    public CursorPaginatedResponse<UserSearchResponse> searchUsersWithCursor(Long currentUserId, String query, String cursor, int limit) {
         limit = PaginationHelper.validateLimit(limit);
+        UserSearchCursor decodedCursor = UserSearchCursor.decode(cursor);
 
-        List<User> users = userRepository.searchUsersWithCursor(query, currentUserId, cursor, limit);
-
-        var result = PaginationHelper.processForPagination(users, limit);
-
-        List<UserSearchResponse> responses = userSearchMapper.toSearchResponseList(result.items());
+        List<UserSearchHit> hits = userRepository.searchUsersByCursor(query, currentUserId, decodedCursor, limit,
+                userSearchIndex.isFolded());
 
-        // Add contact and conversation info for each user
-        for (UserSearchResponse response : responses) {
-            // Check if user is a contact
-            boolean isContact = contactRepository.existsByUserIdAndContactUserId(currentUserId, response.getId());
-            response.setContact(isContact);
+        var result = PaginationHelper.processForPagination(hits, limit);
 
-            // Check if there's a direct conversation with this user
-            Optional<Conversation> existingConversation = conversationRepository
-                    .findDirectConversationBetweenUsers(currentUserId, response.getId());
+        List<Long> userIds = result.items().stream().map(UserSearchHit::userId).toList();
+        Map<Long, User> users = userRepository.findByIds(userIds).stream()
+                .collect(Collectors.toMap(User::getId, Function.identity()));
+        Set<Long> online = presenceEngine.onlineAmong(userIds);
 
-            if (existingConversation.isPresent()) {
-                response.setHasConversation(true);
-                response.setConversationId(existingConversation.get().getId());
-            } else {
-                response.setHasConversation(false);
-                response.setConversationId(null);
+        List<UserSearchResponse> responses = new ArrayList<>(userIds.size());
+        for (UserSearchHit hit : result.items()) {
+            User user = users.get(hit.userId());
+            if (user == null) {
+                continue;
             }
+            UserSearchResponse response = userSearchMapper.toSearchResponse(user);
+            response.setOnline(online.contains(hit.userId()));
+            response.setContact(hit.contact());
+            response.setHasConversation(hit.conversationId() != null);
+            response.setConversationId(hit.conversationId());
+            responses.add(response);
         }
 
-        Long nextCursor = result.hasMore() && !responses.isEmpty()
-                ? responses.get(responses.size() - 1).getId()
+        String nextCursor = result.hasMore() && !result.items().isEmpty()
+                ? result.items().getLast().cursor().encode()
                 : null;
 
         return new CursorPaginatedResponse<>(responses, nextCursor, limit);
@@ -0,0 +1,140 @@
+package com.chattrix.api.utils;
+
+import com.chattrix.api.config.ClientIpConfig;
+import jakarta.annotation.PostConstruct;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.extern.slf4j.Slf4j;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Resolves the client IP address behind trusted reverse proxies.
+ * <p>
+ * X-Forwarded-For is only read when the direct peer is a configured proxy, and then from the right:
+ * hops appended by trusted proxies are skipped and the first untrusted one is the client. Anything
+ * further left was sent by the client itself and can't be trusted.
+ */
+@ApplicationScoped
+@Slf4j
+public class ClientIpResolver {
+
+    @Inject
+    private ClientIpConfig config;
+
+    private List<AddressRange> trustedProxies;
+
+    @PostConstruct
+    public void init() {
+        trustedProxies = new ArrayList<>();
+        for (String proxy : config.getTrustedProxies()) {
+            AddressRange range = AddressRange.parse(proxy);
+            if (range != null) {
+                trustedProxies.add(range);
+            } else {
+                log.warn("Ignoring invalid trusted proxy: {}", proxy);
+            }
+        }
+    }
+
+    /**
+     * @param request current HTTP request
+     * @return client IP, or null if request is not available
+     */
+    public String resolve(HttpServletRequest request) {
+        if (request == null)
+            return null;
+
+        String client = request.getRemoteAddr();
+        String xfHeader = request.getHeader("X-Forwarded-For");
+        if (xfHeader == null || xfHeader.isEmpty() || !isTrusted(client)) {
+            return client;
+        }
+
+        String[] hops = xfHeader.split(",");
+        for (int i = hops.length - 1; i >= 0; i--) {
+            String hop = hops[i].trim();
+            if (hop.isEmpty() || "unknown".equalsIgnoreCase(hop)) {
+                break;
+            }
+            client = hop;
+            if (!isTrusted(hop)) {
+                break;
+            }
+        }
+        return client;
+    }
+
+    private boolean isTrusted(String address) {
+        if (trustedProxies.isEmpty()) {
+            return false;
+        }
+        byte[] bytes = AddressRange.toBytes(address);
+        if (bytes == null) {
+            return false;
+        }
+        for (AddressRange range : trustedProxies) {
+            if (range.contains(bytes)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Single address or CIDR range
+     */
+    private record AddressRange(byte[] network, int prefixLength) {
+
+        static AddressRange parse(String value) {
+            int slash = value.indexOf('/');
+            byte[] network = toBytes(slash < 0 ? value : value.substring(0, slash));
+            if (network == null) {
+                return null;
+            }
+            try {
+                int prefixLength = slash < 0 ? network.length * 8 : Integer.parseInt(value.substring(slash + 1));
+                return prefixLength >= 0 && prefixLength <= network.length * 8
+                        ? new AddressRange(network, prefixLength) : null;
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+
+        boolean contains(byte[] address) {
+            if (address.length != network.length) {
+                return false;
+            }
+            int fullBytes = prefixLength / 8;
+            for (int i = 0; i < fullBytes; i++) {
+                if (address[i] != network[i]) {
+                    return false;
+                }
+            }
+            int remainingBits = prefixLength % 8;
+            if (remainingBits == 0) {
+                return true;
+            }
+            int mask = 0xFF << (8 - remainingBits);
+            return (address[fullBytes] & mask) == (network[fullBytes] & mask);
+        }
+
+        /**
+         * Bytes of an IP literal, null for anything else (never a DNS lookup)
+         */
+        static byte[] toBytes(String address) {
+            if (address.isEmpty() || !address.chars().allMatch(c -> Character.digit(c, 16) >= 0 || c == '.' || c == ':')) {
+                return null;
+            }
+            try {
+                return InetAddress.getByName(address).getAddress();
+            } catch (UnknownHostException e) {
+                return null;
+            }
+        }
+    }
+}
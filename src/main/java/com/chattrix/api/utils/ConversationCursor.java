@@ -0,0 +1,88 @@
+package com.chattrix.api.utils;
+
+import com.chattrix.api.exceptions.BusinessException;
+import com.chattrix.api.responses.ConversationResponse;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.Comparator;
+
+/**
+ * Keyset cursor for the conversation list.
+ * <p>
+ * The list is sorted by (pinned DESC, pinOrder ASC NULLS LAST, lastActivityAt DESC, id DESC) - the
+ * columns of idx_cp_user_activity - so the cursor carries the whole sort key of the last item, not just its ID.
+ * A list item's updatedAt is the participant's last activity.
+ * Encoded as URL-safe Base64 of "pinned|pinOrder|lastActivityAt|id" - clients treat it as opaque.
+ * <p>
+ * The cursor is taken from the last item returned, which may carry an activity time overlaid from
+ * pending activity. The overlay only moves items earlier in this order, so rows left off the page
+ * still sort after the cursor; a pending conversation is served on whichever page its overlaid key falls.
+ */
+public record ConversationCursor(boolean pinned, Integer pinOrder, Instant lastActivityAt, Long id) {
+
+    private static final String SEPARATOR = "|";
+
+    // Same ordering as ConversationRepository.findByUserIdWithCursor, for lists merged or kept in memory
+    public static final Comparator<ConversationResponse> LIST_ORDER = Comparator
+            .comparing((ConversationResponse r) -> r.getSettings() != null && Boolean.TRUE.equals(r.getSettings().getPinned()))
+            .reversed()
+            .thenComparing(r -> r.getSettings() != null ? r.getSettings().getPinOrder() : null,
+                    Comparator.nullsLast(Comparator.naturalOrder()))
+            .thenComparing(ConversationResponse::getUpdatedAt, Comparator.nullsLast(Comparator.reverseOrder()))
+            .thenComparing(ConversationResponse::getId, Comparator.reverseOrder());
+
+    // LIST_ORDER on cursor keys
+    private static final Comparator<ConversationCursor> ORDER = Comparator
+            .comparing(ConversationCursor::pinned)
+            .reversed()
+            .thenComparing(ConversationCursor::pinOrder, Comparator.nullsLast(Comparator.naturalOrder()))
+            .thenComparing(ConversationCursor::lastActivityAt, Comparator.nullsLast(Comparator.reverseOrder()))
+            .thenComparing(ConversationCursor::id, Comparator.reverseOrder());
+
+    /**
+     * True if the response sorts strictly after this cursor (would appear on a later page)
+     */
+    public boolean isBefore(ConversationResponse response) {
+        return ORDER.compare(this, from(response)) < 0;
+    }
+
+    public static ConversationCursor from(ConversationResponse response) {
+        var settings = response.getSettings();
+        boolean pinned = settings != null && Boolean.TRUE.equals(settings.getPinned());
+        return new ConversationCursor(pinned, pinned ? settings.getPinOrder() : null,
+                response.getUpdatedAt(), response.getId());
+    }
+
+    public String encode() {
+        String raw = (pinned ? "1" : "0") + SEPARATOR
+                + (pinOrder != null ? pinOrder : "") + SEPARATOR
+                + lastActivityAt + SEPARATOR
+                + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Decode cursor from request, null if cursor is blank (first page)
+     */
+    public static ConversationCursor decode(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return null;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            String[] parts = raw.split("\\|", -1);
+            if (parts.length != 4) {
+                throw new IllegalArgumentException("Expected 4 parts");
+            }
+            return new ConversationCursor(
+                    "1".equals(parts[0]),
+                    parts[1].isEmpty() ? null : Integer.parseInt(parts[1]),
+                    Instant.parse(parts[2]),
+                    Long.parseLong(parts[3]));
+        } catch (RuntimeException e) {
+            throw BusinessException.badRequest("Invalid cursor", "INVALID_CURSOR");
+        }
+    }
+}
@@ -0,0 +1,174 @@
+package com.chattrix.api.utils;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Locale;
+
+/**
+ * Postgres objects shared by the search indexes, created on autocommit connections at startup:
+ * <p>
+ * - search_text(text): IMMUTABLE lowercase + accent folding (unaccent if available, otherwise a
+ *   Vietnamese character table), the SQL side of {@link SearchText#fold}; usable in index expressions
+ * - extensions, and indexes built CONCURRENTLY (an invalid leftover of a failed build is rebuilt)
+ * <p>
+ * search_text() is created once and then left alone, so its meaning can't drift with the availability
+ * of unaccent. Its comment holds {@link #SEARCH_TEXT_VERSION}; anything computed through it (expression
+ * indexes, stored vectors) records the version it was built with and is rebuilt when it changes.
+ */
+@Slf4j
+public final class SearchSchema {
+
+    // Fallback folding when the unaccent extension can't be created; both cases, lower() may be ASCII-only
+    private static final String VIETNAMESE_ACCENTED =
+            "àáảãạăằắẳẵặâầấẩẫậèéẻẽẹêềếểễệìíỉĩịòóỏõọôồốổỗộơờớởỡợùúủũụưừứửữựỳýỷỹỵđ";
+    private static final String VIETNAMESE_PLAIN =
+            "aaaaaaaaaaaaaaaaaeeeeeeeeeeeiiiiiooooooooooooooooouuuuuuuuuuuyyyyyd";
+    private static final String FOLD_FROM = VIETNAMESE_ACCENTED + VIETNAMESE_ACCENTED.toUpperCase(Locale.ROOT);
+    private static final String FOLD_TO = VIETNAMESE_PLAIN + VIETNAMESE_PLAIN.toUpperCase(Locale.ROOT);
+
+    // Bump when the body of search_text() changes: the function is replaced and its dependents rebuilt
+    public static final String SEARCH_TEXT_VERSION = "search_text v1";
+
+    private SearchSchema() {
+    }
+
+    /**
+     * Create search_text(text) if missing, or replace it if it carries an older version. A function from
+     * before versioning is adopted as is, since existing indexes were built with it. Synchronized: the
+     * indexes set up concurrently at startup and concurrent CREATE OR REPLACE of one function fails in Postgres.
+     */
+    public static synchronized void createSearchTextFunction(Connection conn) throws SQLException {
+        boolean exists;
+        String version;
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT to_regprocedure('search_text(text)') IS NOT NULL, " +
+                     "obj_description(to_regprocedure('search_text(text)'), 'pg_proc')")) {
+            rs.next();
+            exists = rs.getBoolean(1);
+            version = rs.getString(2);
+        }
+        if (exists && SEARCH_TEXT_VERSION.equals(version)) {
+            return;
+        }
+        if (exists && version == null) {
+            comment(conn, "FUNCTION search_text(text)", SEARCH_TEXT_VERSION);
+            return;
+        }
+
+        String unaccentSchema = extensionSchema(conn, "unaccent");
+        String body = unaccentSchema != null
+                ? "lower(" + unaccentSchema + ".unaccent('" + unaccentSchema + ".unaccent'::regdictionary, $1))"
+                : "lower(translate($1, '" + FOLD_FROM + "', '" + FOLD_TO + "'))";
+        if (unaccentSchema == null) {
+            log.warn("unaccent extension unavailable, folding only Vietnamese accents");
+        }
+
+        execute(conn, "CREATE OR REPLACE FUNCTION search_text(text) RETURNS text " +
+                "LANGUAGE sql IMMUTABLE PARALLEL SAFE STRICT AS $$ SELECT " + body + " $$");
+        comment(conn, "FUNCTION search_text(text)", SEARCH_TEXT_VERSION);
+        if (exists) {
+            log.warn("search_text() replaced ({} -> {}), dependent indexes are rebuilt", version, SEARCH_TEXT_VERSION);
+        }
+    }
+
+    /**
+     * Quoted schema of the extension, creating it if possible; null if unavailable
+     */
+    public static String extensionSchema(Connection conn, String extension) {
+        try {
+            execute(conn, "CREATE EXTENSION IF NOT EXISTS " + extension);
+        } catch (SQLException e) {
+            log.debug("Could not create {} extension: {}", extension, e.getMessage());
+        }
+        try (PreparedStatement stmt = conn.prepareStatement(
+                "SELECT n.nspname FROM pg_extension e JOIN pg_namespace n ON n.oid = e.extnamespace " +
+                "WHERE e.extname = ?")) {
+            stmt.setString(1, extension);
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next() ? quoteIdentifier(rs.getString(1)) : null;
+            }
+        } catch (SQLException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Build the index CONCURRENTLY unless a valid one exists
+     *
+     * @param definition everything after "CREATE INDEX CONCURRENTLY name", e.g. "ON users USING GIN (...)"
+     * @return true if the index was built now
+     */
+    public static boolean createIndexConcurrently(Connection conn, String name, String definition) throws SQLException {
+        if (isIndexValid(conn, name)) {
+            return false;
+        }
+        // A failed concurrent build leaves an invalid index behind that IF NOT EXISTS would keep
+        execute(conn, "DROP INDEX CONCURRENTLY IF EXISTS " + name);
+        execute(conn, "CREATE INDEX CONCURRENTLY " + name + " " + definition);
+        return true;
+    }
+
+    /**
+     * Build the index CONCURRENTLY unless a valid one built with {@code version} exists; a valid index
+     * from before versioning is adopted
+     *
+     * @param version version of what the index expression depends on, e.g. {@link #SEARCH_TEXT_VERSION}
+     * @return true if the index was built now
+     */
+    public static boolean createIndexConcurrently(Connection conn, String name, String definition,
+                                                  String version) throws SQLException {
+        if (isIndexValid(conn, name)) {
+            String built = indexComment(conn, name);
+            if (version.equals(built)) {
+                return false;
+            }
+            if (built == null) {
+                comment(conn, "INDEX " + name, version);
+                return false;
+            }
+        }
+        execute(conn, "DROP INDEX CONCURRENTLY IF EXISTS " + name);
+        execute(conn, "CREATE INDEX CONCURRENTLY " + name + " " + definition);
+        comment(conn, "INDEX " + name, version);
+        return true;
+    }
+
+    public static boolean isIndexValid(Connection conn, String name) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(
+                "SELECT i.indisvalid FROM pg_index i JOIN pg_class c ON c.oid = i.indexrelid WHERE c.relname = ?")) {
+            stmt.setString(1, name);
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next() && rs.getBoolean(1);
+            }
+        }
+    }
+
+    private static String indexComment(Connection conn, String name) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(
+                "SELECT obj_description(c.oid, 'pg_class') FROM pg_class c WHERE c.relname = ?")) {
+            stmt.setString(1, name);
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next() ? rs.getString(1) : null;
+            }
+        }
+    }
+
+    private static void comment(Connection conn, String object, String version) throws SQLException {
+        execute(conn, "COMMENT ON " + object + " IS '" + version.replace("'", "''") + "'");
+    }
+
+    public static void execute(Connection conn, String sql) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute(sql);
+        }
+    }
+
+    private static String quoteIdentifier(String identifier) {
+        return "\"" + identifier.replace("\"", "\"\"") + "\"";
+    }
+}
@@ -0,0 +1,67 @@
+package com.chattrix.api.utils;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Text folding and tokenizing for search: accent-insensitive, Vietnamese aware (đ folds to d)
+ */
+public final class SearchText {
+
+    private static final Pattern COMBINING_MARKS = Pattern.compile("\\p{M}+");
+    // Same split as the '[^[:alnum:]]+' of messages.search_vector (MessageSearchIndex): "chattrix.com" -> chattrix, com
+    private static final Pattern NON_WORD = Pattern.compile("[^\\p{L}\\p{N}]+");
+    private static final int MAX_TOKENS = 8;
+
+    private SearchText() {
+    }
+
+    /**
+     * Lowercase and strip diacritics: "Đặng Văn Lâm" -> "dang van lam"
+     */
+    public static String fold(String text) {
+        if (text == null) {
+            return "";
+        }
+        String stripped = COMBINING_MARKS.matcher(Normalizer.normalize(text, Normalizer.Form.NFD)).replaceAll("");
+        return stripped.replace('đ', 'd').replace('Đ', 'D').toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Distinct folded words of the text, in order of first appearance
+     */
+    public static List<String> words(String text) {
+        Set<String> words = new LinkedHashSet<>();
+        for (String word : NON_WORD.split(fold(text))) {
+            if (!word.isEmpty()) {
+                words.add(word);
+            }
+        }
+        return new ArrayList<>(words);
+    }
+
+    /**
+     * Folded words of a search query, at most MAX_TOKENS
+     */
+    public static List<String> tokens(String text) {
+        List<String> words = words(text);
+        return words.size() > MAX_TOKENS ? words.subList(0, MAX_TOKENS) : words;
+    }
+
+    /**
+     * Postgres tsquery matching all words, the last one as a prefix (typed-so-far); null if no words.
+     * Tokens are letters and digits only, so the result needs no escaping.
+     */
+    public static String toPrefixTsQuery(String text) {
+        List<String> tokens = tokens(text);
+        if (tokens.isEmpty()) {
+            return null;
+        }
+        return String.join(" & ", tokens) + ":*";
+    }
+}
@@ -0,0 +1,146 @@
+package com.chattrix.api.utils;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Hashed timing wheel for per-key expiry deadlines (heartbeats, typing indicators).
+ * <p>
+ * - {@link #schedule} is O(1): it records the key's deadline and appends (key, deadline) to the slot
+ *   of the deadline's tick. Rescheduling doesn't search the old slot - the old entry no longer
+ *   matches the key's current deadline and is dropped when its slot comes round.
+ * - {@link #advance} drains only the slots of ticks that have fully elapsed since the last call, so
+ *   every entry it finds for the tick is due; cost is proportional to deadlines falling due, not to
+ *   the number of tracked keys. The current, unfinished tick is left for a later call.
+ * - Deadlines further away than one revolution stay in their slot until their round comes.
+ * <p>
+ * Keys are expired at most one tick late when advance is called at least once per tick. advance
+ * must be called by one thread at a time (e.g. a scheduled job, which may schedule from the
+ * listener); schedule/cancel are thread-safe.
+ */
+public class TimerWheel {
+
+    private final long tickMillis;
+    private final Slot[] slots;
+    private final Map<Long, Long> deadlines = new ConcurrentHashMap<>();
+    // Last tick whose slot was drained; ticks after it are still pending
+    private volatile long processedTick;
+
+    public TimerWheel(int slotCount, long tickMillis, long nowMillis) {
+        this.tickMillis = tickMillis;
+        this.slots = new Slot[slotCount];
+        for (int i = 0; i < slotCount; i++) {
+            slots[i] = new Slot();
+        }
+        this.processedTick = nowMillis / tickMillis - 1;
+    }
+
+    /**
+     * Set (or move) the key's expiry deadline
+     */
+    public void schedule(long key, long deadlineMillis) {
+        deadlines.put(key, deadlineMillis);
+        long tick = Math.max(tickOf(deadlineMillis), processedTick + 1);
+        while (true) {
+            slots[(int) (tick % slots.length)].add(key, deadlineMillis);
+            // advance marks a tick processed before draining its slot: if it hasn't got this far the
+            // entry will be drained, otherwise add it again to the next pending tick (the copy left
+            // behind no longer matches once the key expires or moves, and is dropped)
+            long processed = processedTick;
+            if (processed < tick) {
+                return;
+            }
+            tick = processed + 1;
+        }
+    }
+
+    /**
+     * Stop tracking the key, false if it wasn't scheduled
+     */
+    public boolean cancel(long key) {
+        return deadlines.remove(key) != null;
+    }
+
+    /**
+     * Current deadline of the key, null if not scheduled
+     */
+    public Long deadline(long key) {
+        return deadlines.get(key);
+    }
+
+    public int size() {
+        return deadlines.size();
+    }
+
+    /**
+     * Expire keys whose deadline lies in a tick that ended by {@code nowMillis}
+     *
+     * @param onExpired called once per expired key (already removed from the wheel)
+     * @return number of expired keys
+     */
+    public int advance(long nowMillis, ExpiryListener onExpired) {
+        // The tick nowMillis falls in hasn't ended; its slot may still hold deadlines after nowMillis
+        long lastTick = tickOf(nowMillis) - 1;
+        // After a long pause (GC, suspended VM) one revolution covers every slot
+        long fromTick = Math.max(processedTick + 1, lastTick - slots.length + 1);
+        int expired = 0;
+        for (long tick = fromTick; tick <= lastTick; tick++) {
+            processedTick = tick;
+            Slot slot = slots[(int) (tick % slots.length)];
+            long[] entries = slot.drain();
+            for (int i = 0; i < entries.length; i += 2) {
+                long key = entries[i];
+                long deadline = entries[i + 1];
+                Long current = deadlines.get(key);
+                if (current == null || current != deadline) {
+                    continue;  // Rescheduled or cancelled since this entry was added
+                }
+                if (deadline <= nowMillis) {
+                    if (deadlines.remove(key, current)) {
+                        onExpired.expired(key, deadline);
+                        expired++;
+                    }
+                } else {
+                    slot.add(key, deadline);  // Due in a later revolution
+                }
+            }
+        }
+        processedTick = Math.max(processedTick, lastTick);
+        return expired;
+    }
+
+    @FunctionalInterface
+    public interface ExpiryListener {
+        void expired(long key, long deadlineMillis);
+    }
+
+    private long tickOf(long millis) {
+        return millis / tickMillis;
+    }
+
+    /**
+     * Append-only (key, deadline) pairs, drained as a whole
+     */
+    private static final class Slot {
+        private long[] entries = new long[16];
+        private int size;
+
+        synchronized void add(long key, long deadline) {
+            if (size + 2 > entries.length) {
+                entries = Arrays.copyOf(entries, entries.length * 2);
+            }
+            entries[size++] = key;
+            entries[size++] = deadline;
+        }
+
+        synchronized long[] drain() {
+            long[] drained = Arrays.copyOf(entries, size);
+            size = 0;
+            if (entries.length > 1024) {
+                entries = new long[16];  // Don't keep the capacity of a burst
+            }
+            return drained;
+        }
+    }
+}
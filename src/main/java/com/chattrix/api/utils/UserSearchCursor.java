@@ -0,0 +1,42 @@
+package com.chattrix.api.utils;
+
+import com.chattrix.api.exceptions.BusinessException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Keyset cursor for user search: the rank tier and id of the last user returned.
+ * <p>
+ * Results are sorted by (score ASC, id DESC). The score travels with the cursor instead of being
+ * recomputed for the cursor user, who may no longer match (renamed between pages).
+ * Encoded as URL-safe Base64 of "score|id" - clients treat it as opaque.
+ */
+public record UserSearchCursor(int score, long id) {
+
+    private static final String SEPARATOR = "|";
+
+    public String encode() {
+        String raw = score + SEPARATOR + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Decode cursor from request, null if cursor is blank (first page)
+     */
+    public static UserSearchCursor decode(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return null;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            String[] parts = raw.split("\\|", -1);
+            if (parts.length != 2) {
+                throw new IllegalArgumentException("Expected 2 parts");
+            }
+            return new UserSearchCursor(Integer.parseInt(parts[0]), Long.parseLong(parts[1]));
+        } catch (RuntimeException e) {
+            throw BusinessException.badRequest("Invalid cursor", "INVALID_CURSOR");
+        }
+    }
+}
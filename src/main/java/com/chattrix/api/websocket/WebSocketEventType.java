@@ -22,7 +22,8 @@ public final class WebSocketEventType {
     
     public static final String TYPING_INDICATOR = "typing.indicator";
 
-    public static final String USER_STATUS = "user.status";
+    public static final String USER_STATUS = "user.status";  // No longer sent, replaced by USER_STATUS_BATCH
+    public static final String USER_STATUS_BATCH = "user.status.batch";  // Status changes of several users, one frame per second
     public static final String HEARTBEAT_ACK = "heartbeat.ack";
 
     public static final String FRIEND_REQUEST_RECEIVED = "friend.request.received";
@@ -0,0 +1,16 @@
+package com.chattrix.api.websocket.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class UserStatusBatchEventDto {
+    private List<UserStatusEventDto> statuses;
+}
@@ -1,47 +1,35 @@
 package com.chattrix.api.websocket.handlers;
 
-import com.chattrix.api.services.cache.OnlineStatusCache;
 import com.chattrix.api.services.call.CallService;
-import com.chattrix.api.services.user.HeartbeatMonitorService;
-import com.chattrix.api.services.user.UserStatusBatchService;
-import com.chattrix.api.services.user.UserStatusBroadcastService;
+import com.chattrix.api.services.conversation.TypingIndicatorService;
+import com.chattrix.api.services.user.PresenceEngine;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
 import lombok.extern.slf4j.Slf4j;
 
-import java.time.Instant;
-
 @ApplicationScoped
 @Slf4j
 public class ActivityHandler {
 
     @Inject
-    private OnlineStatusCache onlineStatusCache;
-    @Inject
-    private UserStatusBatchService batchService;
-    @Inject
-    private UserStatusBroadcastService broadcastService;
-    @Inject
-    private HeartbeatMonitorService heartbeatMonitorService;
+    private PresenceEngine presenceEngine;
     @Inject
     private CallService callService;
+    @Inject
+    private TypingIndicatorService typingIndicatorService;
 
     /**
      * Update user activity (called on every message)
      */
     public void updateUserActivity(Long userId) {
-        onlineStatusCache.markOnline(userId);
-        batchService.queueLastSeenUpdate(userId);
+        presenceEngine.activity(userId);
     }
 
     /**
      * Mark user as online when connecting
      */
     public void markUserOnline(Long userId) {
-        onlineStatusCache.markOnline(userId);
-        batchService.queueLastSeenUpdate(userId);
-        heartbeatMonitorService.recordHeartbeat(userId);
-        broadcastService.broadcastUserStatusChange(userId, true);
+        presenceEngine.connected(userId);
     }
 
     /**
@@ -49,15 +37,9 @@ public class ActivityHandler {
      */
     public void markUserOffline(Long userId) {
         callService.handleUserDisconnected(userId);
-        
-        // Capture current timestamp before marking offline
-        Instant currentTimestamp = Instant.now();
-        
-        onlineStatusCache.markOffline(userId);
-        batchService.queueLastSeenUpdate(userId);
-        heartbeatMonitorService.removeHeartbeat(userId);
-        
-        // Broadcast with current timestamp (not old cached value)
-        broadcastService.broadcastUserStatusChange(userId, false, currentTimestamp);
+        typingIndicatorService.removeUserFromAllConversations(userId);
+
+        // Broadcast happens after the grace window, with the disconnect time as lastSeen
+        presenceEngine.disconnected(userId);
     }
 }
@@ -1,6 +1,6 @@
 package com.chattrix.api.websocket.handlers;
 
-import com.chattrix.api.services.user.HeartbeatMonitorService;
+import com.chattrix.api.services.user.PresenceEngine;
 import com.chattrix.api.websocket.WebSocketEventType;
 import com.chattrix.api.websocket.dto.HeartbeatAckDto;
 import com.chattrix.api.websocket.dto.WebSocketMessage;
@@ -18,10 +18,10 @@ import java.time.Instant;
 public class HeartbeatHandler {
 
     @Inject
-    private HeartbeatMonitorService heartbeatMonitorService;
+    private PresenceEngine presenceEngine;
 
     public void handleHeartbeat(Session session, Long userId) throws IOException, EncodeException {
-        heartbeatMonitorService.recordHeartbeat(userId);
+        presenceEngine.heartbeat(userId);
 
         HeartbeatAckDto ackPayload = HeartbeatAckDto.builder()
                 .userId(userId)
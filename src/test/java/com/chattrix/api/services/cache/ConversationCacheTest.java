@@ -0,0 +1,115 @@
+package com.chattrix.api.services.cache;
+
+import com.chattrix.api.responses.ConversationResponse;
+import com.chattrix.api.responses.ConversationSettingsResponse;
+import jakarta.transaction.Status;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Field;
+import java.time.Instant;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * New messages move a conversation up in cached list views only once the send commits
+ */
+class ConversationCacheTest {
+
+    private static final long USER = 1L;
+    private static final Instant START = Instant.parse("2026-01-01T00:00:00Z");
+
+    private ConversationCache cache;
+    private FakeTransactions transactions;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        cache = new ConversationCache();
+        transactions = new FakeTransactions();
+        Field registry = ConversationCache.class.getDeclaredField("transactionRegistry");
+        registry.setAccessible(true);
+        registry.set(cache, transactions);
+
+        // 10 was active last, so it lists before 20
+        cache.putList(USER, List.of(conversation(10L, START.plusSeconds(20)), conversation(20L, START)), true);
+    }
+
+    private static ConversationResponse conversation(long id, Instant updatedAt) {
+        ConversationSettingsResponse settings = new ConversationSettingsResponse();
+        settings.setConversationId(id);
+        settings.setPinned(false);
+        settings.setArchived(false);
+        ConversationResponse response = new ConversationResponse();
+        response.setId(id);
+        response.setUpdatedAt(updatedAt);
+        response.setSettings(settings);
+        return response;
+    }
+
+    private static ConversationResponse.MessageResponse message(long id, Instant sentAt) {
+        ConversationResponse.MessageResponse message = new ConversationResponse.MessageResponse();
+        message.setId(id);
+        message.setSentAt(sentAt);
+        return message;
+    }
+
+    private List<Long> listedIds() {
+        return cache.getList(USER, 10).items().stream().map(ConversationResponse::getId).toList();
+    }
+
+    private void sendTo20() {
+        Instant sentAt = START.plusSeconds(60);
+        cache.onNewMessage(20L, Set.of(USER), message(99L, sentAt), sentAt);
+    }
+
+    @Test
+    void withoutTransactionTheListIsUpdatedImmediately() {
+        sendTo20();
+
+        assertEquals(List.of(20L, 10L), listedIds());
+        assertEquals(99L, cache.get(USER, 20L).getLastMessage().getId());
+    }
+
+    @Test
+    void committedSendMovesConversationUpAfterCommit() {
+        transactions.begin();
+        sendTo20();
+        assertEquals(List.of(10L, 20L), listedIds());
+
+        transactions.complete(Status.STATUS_COMMITTED);
+
+        assertEquals(List.of(20L, 10L), listedIds());
+        ConversationResponse updated = cache.get(USER, 20L);
+        assertEquals(99L, updated.getLastMessage().getId());
+        assertEquals(START.plusSeconds(60), updated.getUpdatedAt());
+    }
+
+    @Test
+    void rolledBackSendLeavesTheListUntouched() {
+        cache.updateSettings(USER, 20L, false, settings -> settings.setArchived(true));
+
+        transactions.begin();
+        sendTo20();
+        transactions.complete(Status.STATUS_ROLLEDBACK);
+
+        ConversationResponse unchanged = cache.get(USER, 20L);
+        assertNull(unchanged.getLastMessage());
+        assertEquals(START, unchanged.getUpdatedAt());
+        assertTrue(unchanged.getSettings().getArchived());
+    }
+
+    @Test
+    void sendInTransactionMarkedForRollbackIsIgnored() {
+        transactions.begin();
+        transactions.setRollbackOnly();
+        sendTo20();
+        transactions.complete(Status.STATUS_ROLLEDBACK);
+
+        assertNull(cache.get(USER, 20L).getLastMessage());
+        assertEquals(List.of(10L, 20L), listedIds());
+    }
+}
@@ -0,0 +1,174 @@
+package com.chattrix.api.services.cache;
+
+import com.chattrix.api.responses.MessageResponse;
+import jakarta.transaction.Status;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Field;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * Edit and delete against the recent-message window, with and without a surrounding transaction
+ */
+class MessageCacheTest {
+
+    private static final long CONVERSATION = 7L;
+
+    private MessageCache cache;
+    private FakeTransactions transactions;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        cache = new MessageCache();
+        transactions = new FakeTransactions();
+        Field registry = MessageCache.class.getDeclaredField("transactionRegistry");
+        registry.setAccessible(true);
+        registry.set(cache, transactions);
+    }
+
+    private static MessageResponse message(long id, String content) {
+        MessageResponse message = new MessageResponse();
+        message.setId(id);
+        message.setConversationId(CONVERSATION);
+        message.setContent(content);
+        return message;
+    }
+
+    /**
+     * Read-through load of the window as MessageService does it: version first, then the DB rows
+     */
+    private void loadWindow(MessageResponse... newestFirst) {
+        long version = cache.recentVersion(CONVERSATION);
+        cache.putRecent(CONVERSATION, List.of(newestFirst), true, version);
+    }
+
+    private static List<Long> ids(List<MessageResponse> messages) {
+        return messages.stream().map(MessageResponse::getId).toList();
+    }
+
+    @Test
+    void editedMessageIsServedUpdated() {
+        loadWindow(message(3, "c"), message(2, "b"), message(1, "a"));
+
+        cache.updateMessage(CONVERSATION, message(2, "b edited"));
+
+        List<MessageResponse> recent = cache.getRecent(CONVERSATION, 3);
+        assertNotNull(recent);
+        assertEquals(List.of(3L, 2L, 1L), ids(recent));
+        assertEquals("b edited", recent.get(1).getContent());
+    }
+
+    @Test
+    void deletedMessageIsRemoved() {
+        loadWindow(message(3, "c"), message(2, "b"), message(1, "a"));
+
+        cache.removeMessage(CONVERSATION, 2L);
+
+        assertEquals(List.of(3L, 1L), ids(cache.getRecent(CONVERSATION, 3)));
+    }
+
+    @Test
+    void deleteOfIncompleteWindowMissesInsteadOfServingTooFew() {
+        long version = cache.recentVersion(CONVERSATION);
+        cache.putRecent(CONVERSATION, List.of(message(3, "c"), message(2, "b")), false, version);
+
+        cache.removeMessage(CONVERSATION, 3L);
+
+        assertNull(cache.getRecent(CONVERSATION, 2));
+        assertEquals(List.of(2L), ids(cache.getRecent(CONVERSATION, 1)));
+    }
+
+    @Test
+    void editOfQuotedMessageDropsTheWindow() {
+        MessageResponse reply = message(3, "re: b");
+        reply.setReplyToMessageId(2L);
+        loadWindow(reply, message(2, "b"), message(1, "a"));
+
+        cache.updateMessage(CONVERSATION, message(2, "b edited"));
+
+        assertNull(cache.getRecent(CONVERSATION, 3));
+    }
+
+    @Test
+    void committedEditIsServedUpdated() {
+        loadWindow(message(2, "b"), message(1, "a"));
+
+        transactions.begin();
+        cache.updateMessage(CONVERSATION, message(1, "a edited"));
+        transactions.complete(Status.STATUS_COMMITTED);
+
+        assertEquals("a edited", cache.getRecent(CONVERSATION, 2).get(1).getContent());
+    }
+
+    @Test
+    void rolledBackEditIsNotServed() {
+        loadWindow(message(2, "b"), message(1, "a"));
+
+        transactions.begin();
+        cache.updateMessage(CONVERSATION, message(1, "a edited"));
+        transactions.complete(Status.STATUS_ROLLEDBACK);
+
+        // Window dropped: the next read reloads the committed content from the DB
+        assertNull(cache.getRecent(CONVERSATION, 2));
+        loadWindow(message(2, "b"), message(1, "a"));
+        assertEquals("a", cache.getRecent(CONVERSATION, 2).get(1).getContent());
+    }
+
+    @Test
+    void rolledBackDeleteIsNotServed() {
+        loadWindow(message(2, "b"), message(1, "a"));
+
+        transactions.begin();
+        cache.removeMessage(CONVERSATION, 1L);
+        transactions.complete(Status.STATUS_ROLLEDBACK);
+
+        assertNull(cache.getRecent(CONVERSATION, 2));
+    }
+
+    @Test
+    void loadDuringTransactionIsNotInstalled() {
+        loadWindow(message(2, "b"), message(1, "a"));
+
+        transactions.begin();
+        cache.removeMessage(CONVERSATION, 2L);
+        // Another request reads the DB before the delete commits: it still sees message 2
+        long version = cache.recentVersion(CONVERSATION);
+        cache.putRecent(CONVERSATION, List.of(message(2, "b"), message(1, "a")), true, version);
+        transactions.complete(Status.STATUS_COMMITTED);
+
+        assertEquals(List.of(1L), ids(cache.getRecent(CONVERSATION, 1)));
+    }
+
+    @Test
+    void loadStartedBeforeCommittedEditIsNotInstalled() {
+        long version = cache.recentVersion(CONVERSATION);
+
+        transactions.begin();
+        cache.updateMessage(CONVERSATION, message(1, "a edited"));
+        transactions.complete(Status.STATUS_COMMITTED);
+
+        // Rows read before the edit committed
+        cache.putRecent(CONVERSATION, List.of(message(2, "b"), message(1, "a")), true, version);
+
+        assertNull(cache.getRecent(CONVERSATION, 2));
+    }
+
+    @Test
+    void flushedMessageEntersTheWindowAndCanBeEdited() {
+        loadWindow(message(1, "a"));
+        cache.addUnflushed(CONVERSATION, message(-5, "b"));
+
+        cache.updateMessageId(CONVERSATION, -5L, 2L);
+        cache.updateMessage(CONVERSATION, message(2, "b edited"));
+
+        List<MessageResponse> recent = cache.getRecent(CONVERSATION, 2);
+        assertEquals(List.of(2L, 1L), ids(recent));
+        assertEquals("b edited", recent.get(0).getContent());
+        assertEquals(List.of(), cache.getUnflushed(CONVERSATION));
+    }
+}
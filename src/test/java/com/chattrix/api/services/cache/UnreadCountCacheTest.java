@@ -0,0 +1,72 @@
+package com.chattrix.api.services.cache;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Field;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Unread counters show up in the cache registry: size, lookups and write-behind flush counters
+ */
+class UnreadCountCacheTest {
+
+    private CacheRegistry registry;
+    private UnreadCountCache cache;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        registry = new CacheRegistry();
+        cache = new UnreadCountCache();
+        Field field = UnreadCountCache.class.getDeclaredField("cacheRegistry");
+        field.setAccessible(true);
+        field.set(cache, registry);
+        cache.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        registry.shutdown();
+    }
+
+    @Test
+    void loadedCountersAreReportedAsHits() {
+        cache.set(1L, 2L, 5);
+        cache.set(1L, 3L, 0);
+
+        assertEquals(5, cache.get(1L, 2L));
+
+        CacheRegistry.CacheSnapshot snapshot = registry.getSnapshot("unread_count");
+        assertNotNull(snapshot);
+        assertEquals(2, snapshot.getSize());
+        assertEquals(1, snapshot.getHitCount());
+        assertEquals(0, snapshot.getMissCount());
+    }
+
+    @Test
+    void flushesAndRestoredWritesAreCounted() {
+        cache.set(1L, 2L, 5);
+        cache.incrementBy(1L, 3L, 2);
+        assertEquals(2, registry.getSnapshot("unread_count").getWriteBehind().dirtyCount());
+
+        cache.drainDirty((key, delta, reset) -> { });
+        cache.restore(UnreadCounterStore.pack(1L, 3L), 2, false, System.currentTimeMillis());
+        cache.completeFlush();
+
+        CacheRegistry.WriteBehindStats stats = registry.getSnapshot("unread_count").getWriteBehind();
+        assertEquals(1, stats.dirtyCount());
+        assertEquals(1, stats.flushCount());
+        assertEquals(2, stats.drainedCount());
+        assertEquals(1, stats.restoredCount());
+
+        String prometheus = registry.exportPrometheus();
+        assertTrue(prometheus.contains("chattrix_cache_size{cache=\"unread_count\"} 2"));
+        assertTrue(prometheus.contains("chattrix_cache_dirty_entries{cache=\"unread_count\"} 1"));
+        assertTrue(prometheus.contains("chattrix_cache_flushes_total{cache=\"unread_count\"} 1"));
+        assertTrue(prometheus.contains("chattrix_cache_flushed_entries_total{cache=\"unread_count\",result=\"failure\"} 1"));
+    }
+}
@@ -0,0 +1,124 @@
+package com.chattrix.api.services.conversation;
+
+import com.chattrix.api.responses.UserResponse;
+import com.chattrix.api.services.cache.ConversationMembershipCache;
+import com.chattrix.api.services.cache.UserProfileCache;
+import com.chattrix.api.services.notification.ChatSessionService;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Field;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TypingIndicatorServiceTest {
+
+    private static final long TIMEOUT_MILLIS = 3_000;
+    private static final long TICK_MILLIS = 100;
+    // The ticker runs every tick and expires at most one tick after the deadline's tick ends
+    private static final long MAX_LATENESS_MILLIS = 2 * TICK_MILLIS;
+
+    private static TypingIndicatorService newService() {
+        TypingIndicatorService service = new TypingIndicatorService();
+        inject(service, "membershipCache", new ConversationMembershipCache() {
+            @Override
+            public boolean isParticipant(Long conversationId, Long userId) {
+                return true;
+            }
+
+            @Override
+            public Set<Long> getParticipantIds(Long conversationId) {
+                return Set.of(1L, 2L);
+            }
+        });
+        inject(service, "userProfileCache", new UserProfileCache() {
+            @Override
+            public Map<Long, UserResponse> getAll(Set<Long> userIds) {
+                return Map.of();
+            }
+        });
+        inject(service, "chatSessionService", new ChatSessionService());
+        return service;
+    }
+
+    private static void inject(Object target, String field, Object value) {
+        try {
+            Field f = target.getClass().getDeclaredField(field);
+            f.setAccessible(true);
+            f.set(target, value);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Tick every TICK_MILLIS from {@code from} until the user stops typing in the conversation, return that time (or -1)
+     */
+    private static long stoppedAt(TypingIndicatorService service, long conversationId, long from, long limit) {
+        for (long now = from; now <= limit; now += TICK_MILLIS) {
+            service.tick(now);
+            if (!service.isUserTyping(conversationId, 1L)) {
+                return now;
+            }
+        }
+        return -1;
+    }
+
+    @Test
+    void typingStopsWithinOneTickOfTheTimeout() {
+        // The ticker's phase relative to the deadline varies; cover ticks early and late in the tick
+        for (long phase = 0; phase < TICK_MILLIS; phase += 10) {
+            TypingIndicatorService service = newService();
+            long before = System.currentTimeMillis();
+            assertTrue(service.startTyping(10L, 1L));
+            long after = System.currentTimeMillis();
+
+            long stoppedAt = stoppedAt(service, 10L, before - phase, before + 10 * TIMEOUT_MILLIS);
+
+            assertTrue(stoppedAt >= before + TIMEOUT_MILLIS, "stopped early: " + (stoppedAt - before));
+            assertTrue(stoppedAt != -1 && stoppedAt <= after + TIMEOUT_MILLIS + MAX_LATENESS_MILLIS,
+                    "stopped " + (stoppedAt - after) + "ms after typing.start (phase " + phase + ")");
+        }
+    }
+
+    @Test
+    void laterConversationStopsOnItsOwnDeadline() throws InterruptedException {
+        // The wheel holds the earliest deadline; its expiry reschedules the user for the later one
+        TypingIndicatorService service = newService();
+        long before = System.currentTimeMillis();
+        service.startTyping(10L, 1L);
+        Thread.sleep(250);
+        long secondBefore = System.currentTimeMillis();
+        service.startTyping(20L, 1L);
+        long secondAfter = System.currentTimeMillis();
+
+        long firstStopped = stoppedAt(service, 10L, before - 50, before + 10 * TIMEOUT_MILLIS);
+        assertTrue(firstStopped != -1 && service.isUserTyping(20L, 1L));
+
+        long secondStopped = stoppedAt(service, 20L, firstStopped, before + 10 * TIMEOUT_MILLIS);
+        assertTrue(secondStopped >= secondBefore + TIMEOUT_MILLIS, "stopped early: " + (secondStopped - secondBefore));
+        assertTrue(secondStopped != -1 && secondStopped <= secondAfter + TIMEOUT_MILLIS + MAX_LATENESS_MILLIS,
+                "stopped " + (secondStopped - secondAfter) + "ms after typing.start");
+    }
+
+    @Test
+    void typingStartExtendsTheDeadline() throws InterruptedException {
+        TypingIndicatorService service = newService();
+        long before = System.currentTimeMillis();
+        service.startTyping(10L, 1L);
+        Thread.sleep(300);
+        service.startTyping(10L, 1L);
+        long extendedAfter = System.currentTimeMillis();
+
+        for (long now = before; now < before + TIMEOUT_MILLIS + 300 - TICK_MILLIS; now += TICK_MILLIS) {
+            service.tick(now);
+        }
+        assertTrue(service.isUserTyping(10L, 1L));
+
+        long stoppedAt = stoppedAt(service, 10L, before + TIMEOUT_MILLIS + 300 - TICK_MILLIS, before + 10 * TIMEOUT_MILLIS);
+        assertTrue(stoppedAt != -1 && stoppedAt <= extendedAfter + TIMEOUT_MILLIS + MAX_LATENESS_MILLIS);
+        assertFalse(service.isUserTyping(10L, 1L));
+    }
+}
@@ -0,0 +1,77 @@
+package com.chattrix.api.services.user;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Field;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PresenceEngineTest {
+
+    private static final long TIMEOUT_MILLIS = PresenceEngine.HEARTBEAT_TIMEOUT_SECONDS * 1_000L;
+    // expireHeartbeats runs every second and expires at most one 1s tick late
+    private static final long MAX_LATENESS_MILLIS = 2_000;
+
+    private PresenceEngine engine;
+
+    @BeforeEach
+    void setUp() {
+        engine = newEngine();
+    }
+
+    private static PresenceEngine newEngine() {
+        try {
+            PresenceEngine engine = new PresenceEngine();
+            Field aggregator = PresenceEngine.class.getDeclaredField("presenceAggregator");
+            aggregator.setAccessible(true);
+            aggregator.set(engine, new PresenceAggregator());
+            return engine;
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Run the per-second expiry from {@code from} until the user goes offline, return that time (or -1)
+     */
+    private long offlineAt(long userId, long from, long limit) {
+        for (long now = from; now <= limit; now += 1_000) {
+            engine.expireHeartbeats(now);
+            if (!engine.isOnline(userId)) {
+                return now;
+            }
+        }
+        return -1;
+    }
+
+    @Test
+    void lapsedHeartbeatGoesOfflineWithinOneTickOfTheTimeout() {
+        // The expiry job's phase relative to the deadline varies; cover runs early and late in the tick
+        for (long phase = 0; phase < 1_000; phase += 100) {
+            engine = newEngine();
+            long before = System.currentTimeMillis();
+            engine.connected(1L);
+            long after = System.currentTimeMillis();
+
+            long offlineAt = offlineAt(1L, before - phase, before + 5 * TIMEOUT_MILLIS);
+
+            assertTrue(offlineAt >= before + TIMEOUT_MILLIS, "offline before the timeout: " + (offlineAt - before));
+            assertTrue(offlineAt != -1 && offlineAt <= after + TIMEOUT_MILLIS + MAX_LATENESS_MILLIS,
+                    "offline " + (offlineAt - after) + "ms after connecting (phase " + phase + ")");
+            assertEquals(0, engine.getOnlineCount());
+        }
+    }
+
+    @Test
+    void disconnectedUserIsNotTimedOutLater() {
+        long start = System.currentTimeMillis();
+        engine.connected(1L);
+        engine.disconnected(1L);
+
+        assertEquals(0, engine.expireHeartbeats(start + 2 * TIMEOUT_MILLIS));
+        assertFalse(engine.isOnline(1L));
+    }
+}
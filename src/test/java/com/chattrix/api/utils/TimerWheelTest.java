@@ -0,0 +1,125 @@
+package com.chattrix.api.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TimerWheelTest {
+
+    private static final int SLOTS = 64;
+    private static final long TICK = 1_000;
+    private static final long START = 1_000_000;
+
+    private final List<Long> expired = new ArrayList<>();
+    private final TimerWheel wheel = new TimerWheel(SLOTS, TICK, START);
+
+    private int advance(long now) {
+        return wheel.advance(now, (key, deadline) -> expired.add(key));
+    }
+
+    /**
+     * Advance every step millis up to limit, return when the key expired (or -1)
+     */
+    private long expiryTime(long key, long from, long limit, long step) {
+        for (long now = from; now <= limit; now += step) {
+            advance(now);
+            if (expired.contains(key)) {
+                return now;
+            }
+        }
+        return -1;
+    }
+
+    @Test
+    void deadlineBetweenTicksExpiresWithinOneTick() {
+        long deadline = START + 30_250;
+        wheel.schedule(1, deadline);
+
+        // Advanced every 100ms, so the deadline's tick is visited before the deadline passes
+        long firedAt = expiryTime(1, START, START + 200_000, 100);
+
+        assertTrue(firedAt >= deadline, "fired before its deadline: " + firedAt);
+        assertTrue(firedAt - deadline <= TICK, "fired " + (firedAt - deadline) + "ms late");
+        assertNull(wheel.deadline(1));
+    }
+
+    @Test
+    void notDueUntilItsTickEnds() {
+        wheel.schedule(1, START + 5_500);
+
+        assertEquals(0, advance(START + 5_000));
+        assertEquals(0, advance(START + 5_499));
+        assertEquals(0, advance(START + 5_999));
+        assertEquals(1, advance(START + 6_000));
+        assertEquals(List.of(1L), expired);
+    }
+
+    @Test
+    void rescheduledInsideTheCurrentTickFromListener() {
+        // Like typing expiry: the listener moves the key to a deadline inside the tick now falls in
+        long[] next = {START + 10_400};
+        wheel.schedule(1, START + 10_050);
+        List<Long> fired = new ArrayList<>();
+        for (long now = START; now <= START + 200_000 && fired.size() < 2; now += 100) {
+            long at = now;
+            wheel.advance(now, (key, deadline) -> {
+                fired.add(at);
+                if (fired.size() == 1) {
+                    wheel.schedule(key, next[0] = at + 450);
+                }
+            });
+        }
+
+        assertEquals(2, fired.size());
+        assertTrue(fired.get(0) - (START + 10_050) <= TICK);
+        assertTrue(fired.get(1) >= next[0] && fired.get(1) - next[0] <= TICK,
+                "rescheduled key fired at " + fired.get(1) + " for deadline " + next[0]);
+    }
+
+    @Test
+    void pastDeadlineExpiresWhenTheCurrentTickEnds() {
+        advance(START + 3_000);
+        wheel.schedule(1, START + 1_000);
+
+        assertEquals(0, advance(START + 3_900));
+        assertEquals(1, advance(START + 4_000));
+    }
+
+    @Test
+    void deadlineBeyondOneRevolutionWaitsForItsRound() {
+        long deadline = START + SLOTS * TICK * 2 + 300;
+        wheel.schedule(1, deadline);
+
+        long firedAt = expiryTime(1, START, deadline + 10 * TICK, 500);
+
+        assertTrue(firedAt >= deadline && firedAt - deadline <= TICK, "fired at " + firedAt);
+    }
+
+    @Test
+    void rescheduledAndCancelledKeys() {
+        wheel.schedule(1, START + 2_000);
+        wheel.schedule(1, START + 8_000);
+        wheel.schedule(2, START + 2_000);
+        wheel.cancel(2);
+
+        assertEquals(0, advance(START + 5_000));
+        assertEquals(1, advance(START + 9_000));
+        assertEquals(List.of(1L), expired);
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void longPauseExpiresEverythingDue() {
+        for (long key = 0; key < 200; key++) {
+            wheel.schedule(key, START + key * 700);
+        }
+
+        assertEquals(200, advance(START + 1_000_000));
+        assertEquals(0, wheel.size());
+    }
+}